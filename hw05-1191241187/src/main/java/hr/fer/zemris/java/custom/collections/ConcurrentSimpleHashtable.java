@@ -0,0 +1,640 @@
+package hr.fer.zemris.java.custom.collections;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * ConcurrentSimpleHashtable is a thread-safe counterpart of {@link SimpleHashtable}.
+ * Slots of the table are guarded by a fixed number of striped locks, so writers
+ * which work on different stripes don't block each other. Readers never lock: chains
+ * are made of nodes whose {@code key} and {@code next} never change, so a reader always
+ * sees a consistent chain, and values are published through volatile writes.
+ * The table is expanded one stripe at a time: the nodes of a stripe are copied into the new
+ * table under that stripe's lock and their old slots are replaced by a forwarding marker,
+ * so readers and writers of the other stripes carry on while the table grows.
+ * Iterators are weakly consistent: they never throw {@code ConcurrentModificationException}
+ * and may or may not reflect changes made after they were created.
+ * Neither keys nor values can be {@code null}.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ * @param <K> Type for keys.
+ * @param <V> Type for values.
+ */
+public class ConcurrentSimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry<K,V>> {
+
+	/**
+	 * {@code Node<K,V>} is a class which represents one entry in a chain of the table.
+	 * Only the {@code value} of a node can change. Removing a node copies the
+	 * nodes in front of it, so that readers walking the old chain are not disturbed.
+	 *
+	 * @param <K> Type for key.
+	 * @param <V> Type for value.
+	 */
+	private static class Node<K,V> {
+		/**
+		 * Spread hash of the {@code key}.
+		 */
+		private final int hash;
+		/**
+		 * The {@code key} of the node.
+		 */
+		private final K key;
+		/**
+		 * The {@code value} of the node.
+		 */
+		private volatile V value;
+		/**
+		 * Pointer to the next node in the same slot.
+		 */
+		private final Node<K,V> next;
+
+		/**
+		 * A constructor for this class.
+		 * @param hash - spread hash of the key.
+		 * @param key - key of the node.
+		 * @param value - value of the node.
+		 * @param next - next node in the same slot.
+		 */
+		private Node(int hash, K key, V value, Node<K,V> next) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * {@code ForwardingNode<K,V>} is a marker which replaces the chain of a slot once its nodes
+	 * were copied into a new table. Readers and writers which find it continue in that table.
+	 *
+	 * @param <K> Type for key.
+	 * @param <V> Type for value.
+	 */
+	private static final class ForwardingNode<K,V> extends Node<K,V> {
+		/**
+		 * The table the nodes were copied into.
+		 */
+		private final AtomicReferenceArray<Node<K,V>> nextTable;
+
+		/**
+		 * A constructor for this class.
+		 * @param nextTable - the table the nodes were copied into.
+		 */
+		private ForwardingNode(AtomicReferenceArray<Node<K,V>> nextTable) {
+			super(0, null, null, null);
+			this.nextTable = nextTable;
+		}
+	}
+
+	/**
+	 * An entry returned by the iterator. Setting its value puts the new value into the table.
+	 */
+	private class WriteThroughEntry extends SimpleHashtable.TableEntry<K,V> {
+
+		/**
+		 * A constructor for this class.
+		 * @param key - key of the entry.
+		 * @param value - value of the entry.
+		 */
+		private WriteThroughEntry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public void setValue(V value) {
+			Objects.requireNonNull(value);
+			super.setValue(value);
+			put(getKey(), value);
+		}
+	}
+
+	/**
+	 * A weakly consistent {@code Iterator} for this class.
+	 * It walks the table which was current when it was created.
+	 */
+	private class IteratorImpl implements Iterator<SimpleHashtable.TableEntry<K,V>> {
+
+		/**
+		 * The table which is iterated.
+		 */
+		private AtomicReferenceArray<Node<K,V>> iteratedTable;
+		/**
+		 * A cursor to the current slot of table.
+		 */
+		private int index;
+		/**
+		 * The next node that yet has to be read.
+		 */
+		private Node<K,V> nextNode;
+		/**
+		 * Chains of slots which were moved to a new table and yet have to be read.
+		 */
+		private final ArrayDeque<Node<K,V>> pending = new ArrayDeque<>();
+		/**
+		 * The key of the last node that has been read.
+		 */
+		private K previousKey;
+
+		/**
+		 * A constructor for the {@code IteratorImpl} class.
+		 */
+		public IteratorImpl() {
+			iteratedTable = table;
+			index = -1;
+			advance();
+		}
+
+		/**
+		 * Moves {@code nextNode} to the first node of the next non-empty slot.
+		 */
+		private void advance() {
+			while(nextNode == null) {
+				if(!pending.isEmpty()) {
+					nextNode = pending.poll();
+				} else if(++index < iteratedTable.length()) {
+					collect(iteratedTable, index);
+				} else {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Adds the chains which hold the nodes of some slot to {@code pending}. If the slot was
+		 * moved to a new table, those are the chains of the two slots it was split into.
+		 * @param table - the table of the slot.
+		 * @param index - index of the slot.
+		 */
+		private void collect(AtomicReferenceArray<Node<K,V>> table, int index) {
+			var head = table.get(index);
+			if(head instanceof ForwardingNode) {
+				var nextTable = ((ForwardingNode<K,V>) head).nextTable;
+				collect(nextTable, index);
+				collect(nextTable, index + table.length());
+			} else if(head != null) {
+				pending.add(head);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextNode != null;
+		}
+
+		@Override
+		public SimpleHashtable.TableEntry<K,V> next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			var node = nextNode;
+			nextNode = node.next;
+			advance();
+
+			previousKey = node.key;
+			return new WriteThroughEntry(node.key, node.value);
+		}
+
+		@Override
+		public void remove() {
+			if(previousKey == null) {
+				throw new IllegalStateException();
+			}
+
+			ConcurrentSimpleHashtable.this.remove(previousKey);
+			previousKey = null;
+		}
+	}
+
+	/**
+	 * The default number of slots in the table.
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * The largest number of slots the table can have.
+	 */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * The table is expanded once {@code size} exceeds this fraction of its capacity.
+	 */
+	private static final double LOAD_FACTOR = 0.75;
+
+	/**
+	 * Number of lock stripes. Slot {@code i} is guarded by lock {@code i % STRIPES},
+	 * which stays the same when the table is expanded because the capacity is never below it.
+	 */
+	private static final int STRIPES = 64;
+
+	/**
+	 * An array in which the nodes are stored. While the table is expanded, slots which
+	 * were already moved hold a {@link ForwardingNode} to the new array.
+	 */
+	private volatile AtomicReferenceArray<Node<K,V>> table;
+
+	/**
+	 * Locks of the stripes.
+	 */
+	private final ReentrantLock[] locks;
+
+	/**
+	 * Number of entries in each stripe. An element is only changed while the lock of its stripe is held.
+	 */
+	private final AtomicIntegerArray counts;
+
+	/**
+	 * Lock held by the thread which expands the table, so that only one expansion runs at a time.
+	 */
+	private final ReentrantLock resizeLock = new ReentrantLock();
+
+	/**
+	 * The default constructor for {@code ConcurrentSimpleHashtable} class. It sets the table capacity
+	 * to the {@code DEFAULT_CAPACITY}.
+	 */
+	public ConcurrentSimpleHashtable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * A constructor for {@code ConcurrentSimpleHashtable} class. It sets the table capacity
+	 * to the first power of two equal or greater than {@code initialCapacity}, but not less than
+	 * the number of lock stripes.
+	 *
+	 * @param initialCapacity - the capacity of the table.
+	 * @throws IllegalArgumentException if {@code initialCapacity} is lower than {@literal 1}.
+	 */
+	public ConcurrentSimpleHashtable(int initialCapacity) {
+		if(initialCapacity < 1) {
+			throw new IllegalArgumentException();
+		}
+
+		int capacity = STRIPES;
+		while(capacity < initialCapacity && capacity < MAXIMUM_CAPACITY) {
+			capacity *= 2;
+		}
+
+		table = new AtomicReferenceArray<>(capacity);
+		locks = new ReentrantLock[STRIPES];
+		for(int i = 0; i < STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+		counts = new AtomicIntegerArray(STRIPES);
+	}
+
+	/**
+	 * A method which returns the current number of entries. If the table is being changed
+	 * concurrently, the result is only an estimate.
+	 * @return Returns the number of entries.
+	 */
+	public int size() {
+		int size = 0;
+		for(int i = 0; i < STRIPES; i++) {
+			size += counts.get(i);
+		}
+		return size;
+	}
+
+	/**
+	 * A method which determines whether this hash table is empty.
+	 * @return Returns true only if there are no entries in this table.
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * A private method which finds the node with some {@code key} in some table without locking.
+	 * Forwarding markers are followed into the tables the slot was moved to.
+	 * @param table - the table which is searched.
+	 * @param hash - spread hash of the key.
+	 * @param key - the {@code key} of a node which is searched for.
+	 * @return Returns the node with that {@code key} or {@code null} if there is no such node.
+	 */
+	private static <K,V> Node<K,V> find(AtomicReferenceArray<Node<K,V>> table, int hash, Object key) {
+		var node = table.get(hash & (table.length() - 1));
+		while(node instanceof ForwardingNode) {
+			table = ((ForwardingNode<K,V>) node).nextTable;
+			node = table.get(hash & (table.length() - 1));
+		}
+		for(; node != null; node = node.next) {
+			if(node.hash == hash && node.key.equals(key)) return node;
+		}
+		return null;
+	}
+
+	/**
+	 * A private method which returns the table which holds the slot of some hash, following
+	 * the forwarding markers of slots which were already moved. The lock of the slot's stripe
+	 * must be held, so that the slot isn't moved while it is used.
+	 * @param hash - spread hash of a key.
+	 * @return Returns the table.
+	 */
+	private AtomicReferenceArray<Node<K,V>> tableFor(int hash) {
+		var current = table;
+		while(true) {
+			var head = current.get(hash & (current.length() - 1));
+			if(!(head instanceof ForwardingNode)) return current;
+			current = ((ForwardingNode<K,V>) head).nextTable;
+		}
+	}
+
+	/**
+	 * A method which determines whether there is an entry with some {@code key}.
+	 *
+	 * @param key - the {@code key} of an entry which is searched for.
+	 * @return Returns true only if there is such an entry. False otherwise.
+	 */
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * A method which returns the {@code value} of an entry with some {@code key}. It never locks.
+	 *
+	 * @param key - the {@code key} of an entry which is searched for.
+	 * @return Returns the {@code value} of an entry with some {@code key}.
+	 *         Returns {@code null} if there are no such entries.
+	 */
+	public V get(Object key) {
+		if(key == null) return null;
+
+		var node = find(table, SimpleHashtable.spread(key.hashCode()), key);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * A method which puts an entry with some {@code key} and {@code value} into the hash table.
+	 * If an entry with that {@code key} already exists, it just changes it's {@code value}.
+	 *
+	 * @param key - {@code key} of the entry.
+	 * @param value - {@code value} of the entry.
+	 * @throws NullPointerException if {@code key} or {@code value} is {@code null}.
+	 */
+	public void put(K key, V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+
+		int hash = SimpleHashtable.spread(key.hashCode());
+		var lock = locks[hash & (STRIPES - 1)];
+		lock.lock();
+		try {
+			var node = find(table, hash, key);
+			if(node != null) {
+				node.value = value;
+				return;
+			}
+			insert(hash, key, value);
+		} finally {
+			lock.unlock();
+		}
+		expandIfNeeded(hash);
+	}
+
+	/**
+	 * A method which atomically puts an entry into the hash table only if there is
+	 * no entry with that {@code key}.
+	 *
+	 * @param key - {@code key} of the entry.
+	 * @param value - {@code value} of the entry.
+	 * @return Returns the existing value, or {@code null} if the new entry was put.
+	 * @throws NullPointerException if {@code key} or {@code value} is {@code null}.
+	 */
+	public V putIfAbsent(K key, V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+
+		var existing = get(key);
+		if(existing != null) return existing;
+
+		int hash = SimpleHashtable.spread(key.hashCode());
+		var lock = locks[hash & (STRIPES - 1)];
+		lock.lock();
+		try {
+			var node = find(table, hash, key);
+			if(node != null) return node.value;
+			insert(hash, key, value);
+		} finally {
+			lock.unlock();
+		}
+		expandIfNeeded(hash);
+		return null;
+	}
+
+	/**
+	 * A method which returns the value of an entry with some {@code key}. If there is no such entry,
+	 * the value is computed and put into the table atomically, so {@code function} is called
+	 * at most once per key. If it returns {@code null} nothing is put.
+	 * The function must not change this table.
+	 *
+	 * @param key - {@code key} of the entry.
+	 * @param function - function which computes a value from the key.
+	 * @return Returns the existing or the computed value.
+	 * @throws NullPointerException if {@code key} or {@code function} is {@code null}.
+	 */
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(function);
+
+		var existing = get(key);
+		if(existing != null) return existing;
+
+		int hash = SimpleHashtable.spread(key.hashCode());
+		V value;
+		var lock = locks[hash & (STRIPES - 1)];
+		lock.lock();
+		try {
+			var node = find(table, hash, key);
+			if(node != null) return node.value;
+
+			value = function.apply(key);
+			if(value == null) return null;
+			insert(hash, key, value);
+		} finally {
+			lock.unlock();
+		}
+		expandIfNeeded(hash);
+		return value;
+	}
+
+	/**
+	 * A method which atomically merges some {@code value} into the entry with some {@code key}.
+	 * If there is no such entry, {@code value} is put. Otherwise the entry's value is replaced
+	 * by the result of {@code function}, or the entry is removed if the result is {@code null}.
+	 * The function must not change this table.
+	 *
+	 * @param key - {@code key} of the entry.
+	 * @param value - value which is merged.
+	 * @param function - function which combines the old and the new value.
+	 * @return Returns the new value, or {@code null} if the entry was removed.
+	 * @throws NullPointerException if any argument is {@code null}.
+	 */
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(function);
+
+		int hash = SimpleHashtable.spread(key.hashCode());
+		var lock = locks[hash & (STRIPES - 1)];
+		lock.lock();
+		try {
+			var node = find(table, hash, key);
+			if(node != null) {
+				V newValue = function.apply(node.value, value);
+				if(newValue == null) {
+					unlink(hash, key);
+				} else {
+					node.value = newValue;
+				}
+				return newValue;
+			}
+			insert(hash, key, value);
+		} finally {
+			lock.unlock();
+		}
+		expandIfNeeded(hash);
+		return value;
+	}
+
+	/**
+	 * A method which removes an entry with some {@code key} from the hash table.
+	 *
+	 * @param key - {@code key} of the entry.
+	 */
+	public void remove(Object key) {
+		if(key == null) return;
+
+		int hash = SimpleHashtable.spread(key.hashCode());
+		var lock = locks[hash & (STRIPES - 1)];
+		lock.lock();
+		try {
+			unlink(hash, key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A private method which puts a new node at the head of its slot.
+	 * The lock of the slot's stripe must be held.
+	 * @param hash - spread hash of the key.
+	 * @param key - key of the node.
+	 * @param value - value of the node.
+	 */
+	private void insert(int hash, K key, V value) {
+		var current = tableFor(hash);
+		int index = hash & (current.length() - 1);
+		current.set(index, new Node<>(hash, key, value, current.get(index)));
+		counts.incrementAndGet(hash & (STRIPES - 1));
+	}
+
+	/**
+	 * A private method which removes the node with some key by copying the nodes in front of it.
+	 * The lock of the slot's stripe must be held.
+	 * @param hash - spread hash of the key.
+	 * @param key - key of the node.
+	 */
+	private void unlink(int hash, Object key) {
+		var current = tableFor(hash);
+		int index = hash & (current.length() - 1);
+		var head = current.get(index);
+
+		var node = head;
+		while(node != null && (node.hash != hash || !node.key.equals(key))) {
+			node = node.next;
+		}
+		if(node == null) return;
+
+		var newHead = node.next;
+		for(var copied = head; copied != node; copied = copied.next) {
+			newHead = new Node<>(copied.hash, copied.key, copied.value, newHead);
+		}
+		current.set(index, newHead);
+		counts.decrementAndGet(hash & (STRIPES - 1));
+	}
+
+	/**
+	 * A private method which expands the table if the stripe of some hash holds more than
+	 * its share of the entries allowed by {@code LOAD_FACTOR}. If another thread is already
+	 * expanding the table, it is left to that thread.
+	 * @param hash - spread hash of a key which was just inserted.
+	 */
+	private void expandIfNeeded(int hash) {
+		var current = table;
+		int length = current.length();
+		if(length >= MAXIMUM_CAPACITY) return;
+		if(counts.get(hash & (STRIPES - 1)) <= LOAD_FACTOR * length / STRIPES) return;
+		if(!resizeLock.tryLock()) return;
+
+		try {
+			if(table == current) {
+				expandTable(current);
+			}
+		} finally {
+			resizeLock.unlock();
+		}
+	}
+
+	/**
+	 * A private method which creates a new table with double the size of the current one
+	 * and moves the nodes into it one stripe at a time, holding only the lock of that stripe.
+	 * Slot {@code i} is split into slots {@code i} and {@code i + length} of the new table,
+	 * which belong to the same stripe, and is then replaced by a forwarding marker.
+	 * Nodes are copied rather than relinked, so readers which still walk the old chains
+	 * see them complete. The new table becomes current once every stripe was moved.
+	 * {@code resizeLock} must be held.
+	 * @param oldTable - the current table.
+	 */
+	private void expandTable(AtomicReferenceArray<Node<K,V>> oldTable) {
+		int length = oldTable.length();
+		var newTable = new AtomicReferenceArray<Node<K,V>>(2 * length);
+		var forward = new ForwardingNode<K,V>(newTable);
+
+		for(int stripe = 0; stripe < STRIPES; stripe++) {
+			locks[stripe].lock();
+			try {
+				for(int i = stripe; i < length; i += STRIPES) {
+					Node<K,V> low = null;
+					Node<K,V> high = null;
+					for(var node = oldTable.get(i); node != null; node = node.next) {
+						if((node.hash & length) == 0) {
+							low = new Node<>(node.hash, node.key, node.value, low);
+						} else {
+							high = new Node<>(node.hash, node.key, node.value, high);
+						}
+					}
+					newTable.set(i, low);
+					newTable.set(i + length, high);
+					oldTable.set(i, forward);
+				}
+			} finally {
+				locks[stripe].unlock();
+			}
+		}
+
+		table = newTable;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("[");
+		for(var entry : this) {
+			if(result.length() > 1) result.append(", ");
+			result.append(entry.getKey()).append("=").append(entry.getValue());
+		}
+		return result.append("]").toString();
+	}
+
+	@Override
+	public Iterator<SimpleHashtable.TableEntry<K,V>> iterator() {
+		return new IteratorImpl();
+	}
+}
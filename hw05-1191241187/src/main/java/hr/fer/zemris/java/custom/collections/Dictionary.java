@@ -1,65 +1,31 @@
 package hr.fer.zemris.java.custom.collections;
 
-import java.util.Objects;
+import java.util.Iterator;
 
 /**
  * {@code Dictionary} is a class which represents a dictionary structure.
  * Each element is represented by it's {@code value} of type {@code <V>} and {@code key} of type{@code <K>}. 
  * General contract is that each {@code key} must be unique. {@code null} cannot be a key.
- * This class effectively adapts the ArrayIndexedCollection class.
+ * This class effectively adapts the SimpleHashtable class, so {@code get} and {@code put}
+ * take constant time on average.
  * 
  * @author Božidar Grgur Drmić
  *
  * @param <K> Type of {@code key}
  * @param <V> Type of {@code value}
  */
-public class Dictionary<K, V> {
+public class Dictionary<K, V> implements Iterable<SimpleHashtable.TableEntry<K, V>> {
 
-	/**
-	 * Entry is a private class whose instances represent
-	 * one element stored in {@code dictionary}.
-	 */
-	private class Entry {
-		private K key;
-		private V value;
-		
-		private Entry() {
-			super();
-		}
-		
-		private Entry(K key, V value) {
-			Objects.requireNonNull(key);
-			
-			this.key = key;
-			this.value = value;
-		}
-	}
-	
 	/**
 	 * A variable which represents the {@code dictionary} structure.
 	 */
-	private ArrayIndexedCollection<Entry> dictionary;
+	private SimpleHashtable<K, V> dictionary;
 	
 	/**
 	 * A public constructor which initialises the {@code dictionary} variable.
 	 */
 	public Dictionary() {
-		this.dictionary = new ArrayIndexedCollection<Entry>();
-	}
-	
-	/**
-	 * A private method which returns the index of an element with some {@code key}.
-	 * If there is no such element {@literal -1} is returned.
-	 * 
-	 * @param key The {@code key} of the object.
-	 * @return Returns the index or -1 if there's no such element.
-	 */
-	private int indexOfKey(Object key) {
-		for(int i = 0; i < dictionary.size(); i++) {
-			if(!dictionary.get(i).key.equals(key)) continue;
-			return i;
-		}
-		return -1;
+		this.dictionary = new SimpleHashtable<K, V>();
 	}
 	
 	/**
@@ -89,13 +55,7 @@ public class Dictionary<K, V> {
 	public void put(K key, V value) {
 		if(key == null) return;
 		
-		int index = indexOfKey(key);
-		if(index != -1) {
-			dictionary.get(index).value = value;
-			return;
-		}
-		
-		dictionary.add(new Entry(key, value));
+		dictionary.put(key, value);
 	}
 	
 	/**
@@ -106,12 +66,28 @@ public class Dictionary<K, V> {
 	 * @return Returns {@code value} or {@code null} if there's no such element.
 	 */
 	public V get(Object key) {
-		if(key == null) return null;
-		
-		int index = indexOfKey(key);
-		if(index == -1) return null;
-		
-		return dictionary.get(index).value;
+		return dictionary.get(key);
+	}
+	
+	/**
+	 * Returns true if there is an element with some {@code key}.
+	 * 
+	 * @param key The {@code key} of an element.
+	 * @return Returns {@code true} only if there is such an element. {@code False} otherwise.
+	 */
+	public boolean containsKey(Object key) {
+		return dictionary.containsKey(key);
+	}
+	
+	/**
+	 * Removes the element with some {@code key}.
+	 * If there is no such element nothing happens and {@code null} is returned.
+	 * 
+	 * @param key The {@code key} of an element.
+	 * @return Returns the {@code value} of the removed element or {@code null} if there was no such element.
+	 */
+	public V remove(Object key) {
+		return dictionary.remove(key);
 	}
 	
 	/**
@@ -121,4 +97,15 @@ public class Dictionary<K, V> {
 		dictionary.clear();
 	}
 	
+	/**
+	 * Returns an iterator over the elements of dictionary. Each element is
+	 * represented by an entry with it's {@code key} and {@code value}.
+	 * 
+	 * @return Returns the iterator.
+	 */
+	@Override
+	public Iterator<SimpleHashtable.TableEntry<K, V>> iterator() {
+		return dictionary.iterator();
+	}
+	
 }
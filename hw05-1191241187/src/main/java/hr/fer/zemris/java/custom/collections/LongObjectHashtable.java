@@ -0,0 +1,232 @@
+package hr.fer.zemris.java.custom.collections;
+
+import java.util.ConcurrentModificationException;
+
+/**
+ * LongObjectHashtable is a class which implements {@code Iterable} and represents
+ * a map from {@code long} keys to values of type {@code <V>}.
+ * Unlike {@link SimpleHashtable} it doesn't box the keys and doesn't create a node per entry:
+ * keys are kept in an array parallel to the values and slot states of {@link PrimitiveKeyHashtable},
+ * which does the probing, removal and resizing.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ * @param <V> Type for values.
+ */
+public class LongObjectHashtable<V> extends PrimitiveKeyHashtable<V, LongObjectHashtable.TableEntry<V>> {
+	
+	/**
+	 * {@code TableEntry<V>} is a class which represents a view of one entry in this structure.
+	 * Changing the value of an entry changes the value stored in the table. Once an entry is put
+	 * into or removed from the table, which may move the other entries to other slots, the entries
+	 * made before can't be used any more.
+	 *
+	 * @param <V> Type for value.
+	 */
+	public static class TableEntry<V> {
+		/**
+		 * The table this entry belongs to.
+		 */
+		private LongObjectHashtable<V> owner;
+		/**
+		 * Index of the slot this entry refers to.
+		 */
+		private int index;
+		/**
+		 * Modification count of the table when the entry was made.
+		 */
+		private int savedModificationCount;
+		/**
+		 * The {@code key} of the entry.
+		 */
+		private long key;
+		
+		/**
+		 * A private constructor for this class.
+		 * @param owner - the table the entry belongs to.
+		 * @param index - index of the slot the entry refers to.
+		 */
+		private TableEntry(LongObjectHashtable<V> owner, int index) {
+			this.owner = owner;
+			this.index = index;
+			this.key = owner.keys[index];
+			this.savedModificationCount = owner.modificationCount;
+		}
+		
+		/**
+		 * A getter method for {@code value} of the entry.
+		 * @return Returns the {@code value} of the entry.
+		 * @throws ConcurrentModificationException if the table was changed since the entry was made.
+		 */
+		public V getValue() {
+			owner.checkEntry(savedModificationCount);
+			return owner.valueAt(index);
+		}
+		/**
+		 * A setter for {@code value} of the entry.
+		 * @param value - {@code value} of the entry is set to this value.
+		 * @throws ConcurrentModificationException if the table was changed since the entry was made.
+		 */
+		public void setValue(V value) {
+			owner.checkEntry(savedModificationCount);
+			owner.replaceAt(index, value);
+		}
+		/**
+		 * A getter method for {@code key} of the entry.
+		 * @return Returns the {@code key} of the entry.
+		 */
+		public long getKey() {
+			return key;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Long.hashCode(key);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof TableEntry))
+				return false;
+			@SuppressWarnings("rawtypes")
+			TableEntry other = (TableEntry) obj;
+			return key == other.key;
+		}
+	}
+	
+	/**
+	 * Keys of the entries.
+	 */
+	private long[] keys;
+	
+	/**
+	 * The default constructor for {@code LongObjectHashtable} class. It sets the table capacity
+	 * to the {@code DEFAULT_CAPACITY}.
+	 */
+	public LongObjectHashtable() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * A constructor for {@code LongObjectHashtable} class. It sets the table capacity
+	 * to the first power of two equal or greater than {@code initialCapacity}.
+	 * 
+	 * @param initialCapacity - the capacity of the table.
+	 * @throws IllegalArgumentException if {@code initialCapacity} is lower than {@literal 1}.
+	 */
+	public LongObjectHashtable(int initialCapacity) {
+		super(initialCapacity);
+	}
+	
+	@Override
+	void allocateKeys(int capacity) {
+		keys = new long[capacity];
+	}
+	
+	@Override
+	Object keys() {
+		return keys;
+	}
+	
+	@Override
+	int firstSlot(Object keys, int index) {
+		return indexFor(((long[]) keys)[index], states.length);
+	}
+	
+	@Override
+	void copyKey(Object keys, int from, int to) {
+		this.keys[to] = ((long[]) keys)[from];
+	}
+	
+	@Override
+	TableEntry<V> entryAt(int index) {
+		return new TableEntry<>(this, index);
+	}
+	
+	@Override
+	String keyAt(int index) {
+		return String.valueOf(keys[index]);
+	}
+	
+	/**
+	 * A method which returns the index of the first slot probed for some key.
+	 * 
+	 * @param key - the key.
+	 * @param length - length of the table. Must be a power of two.
+	 * @return Returns the index of the slot.
+	 */
+	private static int indexFor(long key, int length) {
+		int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & (length - 1);
+	}
+	
+	/**
+	 * A private method which finds the slot of the entry with some {@code key}.
+	 * @param key - the {@code key} of an {@code entry} which is searched for. 
+	 * @return Returns the index of the slot or {@literal -1} if there is no such an {@code entry}.
+	 */
+	private int locationOfKey(long key) {
+		int mask = states.length - 1;
+		for(int index = indexFor(key, states.length); ; index = (index + 1) & mask) {
+			byte state = states[index];
+			if(state == FREE) return -1;
+			if(state == FULL && keys[index] == key) return index;
+		}
+	}
+	
+	/**
+	 * A method which determines whether there is an {@code entry} with some {@code key}.
+	 * 
+	 * @param key - the {@code key} of an {@code entry} which is searched for. 
+	 * @return Returns true only if there is such an {@code entry}. False otherwise.
+	 */
+	public boolean containsKey(long key) {
+		return locationOfKey(key) != -1;
+	}
+	
+	/**
+	 * A method which returns the {@code value} of an {@code entry} with some {@code key}.
+	 * Returns {@code null} if there are no such entries. It doesn't allocate any objects.
+	 * @param key - the {@code key} of an {@code entry} which is searched for. 
+	 * @return Returns the {@code value} of an {@code entry} with some {@code key}.
+	 *         Returns {@code null} if there are no such entries.
+	 */
+	public V get(long key) {
+		return valueAt(locationOfKey(key));
+	}
+	
+	/**
+	 * A method which puts an entry with some {@code key} and {@code value} into the hash table.
+	 * If an {@code entry} with that {@code key} already exists, it just changes it's {@code value}. 
+	 * If more than three quarters of all the slots are used the table is rebuilt,
+	 * with double the capacity if necessary.
+	 * 
+	 * @param key - {@code key} of the entry.
+	 * @param value - {@code value} of the entry.
+	 */
+	public void put(long key, V value) {
+		int index = locationOfKey(key);
+		if(index != -1) {
+			replaceAt(index, value);
+			return;
+		}
+		
+		index = insertionSlot(indexFor(key, states.length));
+		keys[index] = key;
+		insertAt(index, value);
+	}
+	
+	/**
+	 * A method which removes an entry with some {@code key} from the hash table.
+	 * 
+	 * @param key - {@code key} of the entry.
+	 */
+	public void remove(long key) {
+		int index = locationOfKey(key);
+		if(index == -1) return;
+		
+		removeAt(index);
+	}
+}
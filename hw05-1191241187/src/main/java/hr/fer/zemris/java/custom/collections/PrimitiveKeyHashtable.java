@@ -0,0 +1,404 @@
+package hr.fer.zemris.java.custom.collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * PrimitiveKeyHashtable is the common part of the hash tables with primitive keys,
+ * {@link IntObjectHashtable}, {@link LongObjectHashtable} and {@link CharObjectHashtable}.
+ * Values and slot states are kept in parallel arrays and collisions are resolved by linear
+ * probing. Removed slots are marked as deleted and are cleaned up on the next resize.
+ * Like {@link SimpleHashtable}, the capacity is always a power of two.
+ * <p>
+ * This class works only on slot indices. The array of keys, hashing of the keys and lookups
+ * by key are left to the subclasses, so that the keys are never boxed.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ * @param <V> Type for values.
+ * @param <E> Type for entries which are iterated.
+ */
+abstract class PrimitiveKeyHashtable<V, E> implements Iterable<E> {
+
+	/**
+	 * An {@code Iterator} for this class.
+	 */
+	private class IteratorImpl implements Iterator<E> {
+
+		/**
+		 * Index of the next slot that yet has to be read.
+		 */
+		private int nextIndex;
+		/**
+		 * Index of the last slot that has been read, -1 if there is no such slot.
+		 */
+		private int previousIndex;
+		/**
+		 * modification count of the object that is being iterated.
+		 */
+		private long savedModificationCount;
+
+		/**
+		 * A constructor for the {@code IteratorImpl} class.
+		 */
+		public IteratorImpl() {
+			previousIndex = -1;
+			nextIndex = nextFull(0);
+			savedModificationCount = modificationCount;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(savedModificationCount != modificationCount) {
+				throw new ConcurrentModificationException();
+			}
+			return nextIndex < states.length;
+		}
+
+		@Override
+		public E next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			previousIndex = nextIndex;
+			nextIndex = nextFull(nextIndex + 1);
+			return entryAt(previousIndex);
+		}
+
+		@Override
+		public void remove() {
+			if(previousIndex == -1) {
+				throw new IllegalStateException();
+			}
+			if(savedModificationCount != modificationCount) {
+				throw new ConcurrentModificationException();
+			}
+
+			removeAt(previousIndex);
+			savedModificationCount = modificationCount;
+			previousIndex = -1;
+		}
+	}
+
+	/**
+	 * The default number of slots in the table.
+	 */
+	static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * The largest number of slots the table can have.
+	 */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * The table is expanded once used slots exceed this fraction of its capacity.
+	 */
+	private static final double LOAD_FACTOR = 0.75;
+
+	/**
+	 * State of a slot which was never used.
+	 */
+	static final byte FREE = 0;
+	/**
+	 * State of a slot which holds an entry.
+	 */
+	static final byte FULL = 1;
+	/**
+	 * State of a slot whose entry was removed. Probing continues past such slots.
+	 */
+	static final byte DELETED = 2;
+
+	/**
+	 * Current modification count. It is changed every time an entry is put into or removed
+	 * from the table, or the table is rebuilt, but not when the value of an entry is changed.
+	 */
+	int modificationCount;
+
+	/**
+	 * Current number of entries in the hash table.
+	 */
+	private int size;
+
+	/**
+	 * Number of slots which are either full or deleted.
+	 */
+	private int slotsUsed;
+
+	/**
+	 * The number of used slots at which the table is rebuilt.
+	 */
+	private int threshold;
+
+	/**
+	 * Values of the entries, at the same index as their keys.
+	 */
+	Object[] values;
+
+	/**
+	 * States of the slots: {@code FREE}, {@code FULL} or {@code DELETED}.
+	 */
+	byte[] states;
+
+	/**
+	 * A constructor which sets the table capacity to the first power of two equal or greater
+	 * than {@code initialCapacity}.
+	 *
+	 * @param initialCapacity - the capacity of the table.
+	 * @throws IllegalArgumentException if {@code initialCapacity} is lower than {@literal 1}.
+	 */
+	PrimitiveKeyHashtable(int initialCapacity) {
+		if(initialCapacity < 1) {
+			throw new IllegalArgumentException();
+		}
+
+		int capacity = 1;
+		while(capacity < initialCapacity && capacity < MAXIMUM_CAPACITY) {
+			capacity *= 2;
+		}
+
+		allocate(capacity);
+	}
+
+	/**
+	 * A method which replaces the array of keys with an empty one of some capacity.
+	 * @param capacity - the new capacity.
+	 */
+	abstract void allocateKeys(int capacity);
+
+	/**
+	 * A getter for the array of keys.
+	 * @return Returns the array of keys.
+	 */
+	abstract Object keys();
+
+	/**
+	 * A method which returns the index of the first slot probed in the current table
+	 * for a key which is stored in some array of keys.
+	 * @param keys - the array of keys, which may be one the table had before it was rebuilt.
+	 * @param index - index of the key in that array.
+	 * @return Returns the index of the slot.
+	 */
+	abstract int firstSlot(Object keys, int index);
+
+	/**
+	 * A method which copies a key from some array of keys into a slot of the current table.
+	 * @param keys - the array of keys, which may be one the table had before it was rebuilt.
+	 * @param from - index of the key in that array.
+	 * @param to - index of the slot.
+	 */
+	abstract void copyKey(Object keys, int from, int to);
+
+	/**
+	 * A method which returns the entry stored in some slot.
+	 * @param index - index of the slot.
+	 * @return Returns the entry.
+	 */
+	abstract E entryAt(int index);
+
+	/**
+	 * A method which returns the text of the key stored in some slot.
+	 * @param index - index of the slot.
+	 * @return Returns the text of the key.
+	 */
+	abstract String keyAt(int index);
+
+	/**
+	 * A private method which allocates empty arrays of some capacity.
+	 * @param capacity - the new capacity. Must be a power of two.
+	 */
+	private void allocate(int capacity) {
+		allocateKeys(capacity);
+		values = new Object[capacity];
+		states = new byte[capacity];
+		threshold = (int) (LOAD_FACTOR * capacity);
+		slotsUsed = size;
+	}
+
+	/**
+	 * A getter method for {@code size} variable.
+	 * @return Returns the {@code size}
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * A method which determines whether this hash table is empty.
+	 * @return Returns true only if there are no entries in this table.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * A method which determines whether there is an {@code entry} with some {@code value}.
+	 *
+	 * @param value - the {@code value} of an {@code entry} which is searched for.
+	 * @return Returns true only if there is such an {@code entry}. False otherwise.
+	 */
+	public boolean containsValue(Object value) {
+		for(int i = 0; i < states.length; i++) {
+			if(states[i] != FULL) continue;
+			if(value == null ? values[i] == null : value.equals(values[i])) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * A method which returns the value stored in some slot.
+	 * @param index - index of the slot, or {@literal -1}.
+	 * @return Returns the value, or {@code null} if the index is {@literal -1}.
+	 */
+	@SuppressWarnings("unchecked")
+	V valueAt(int index) {
+		if(index == -1) return null;
+		return (V) values[index];
+	}
+
+	/**
+	 * A method which changes the value stored in a full slot.
+	 * @param index - index of the slot.
+	 * @param value - the new value.
+	 */
+	void replaceAt(int index, V value) {
+		values[index] = value;
+	}
+	
+	/**
+	 * A method which checks that an entry made when the modification count was
+	 * {@code savedModificationCount} still refers to its slot.
+	 * @param savedModificationCount - modification count when the entry was made.
+	 * @throws ConcurrentModificationException if the table was changed since.
+	 */
+	void checkEntry(int savedModificationCount) {
+		if(savedModificationCount != modificationCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	/**
+	 * A method which returns the slot a new key is put into, which is the first slot that
+	 * isn't full, starting from the first slot probed for the key. It must only be called
+	 * for keys which aren't in the table.
+	 * @param index - index of the first slot probed for the key.
+	 * @return Returns the index of the slot.
+	 */
+	int insertionSlot(int index) {
+		int mask = states.length - 1;
+		while(states[index] == FULL) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	/**
+	 * A method which fills a slot returned by {@link #insertionSlot(int)} whose key was
+	 * already stored by the subclass. If more than three quarters of all the slots are used
+	 * the table is rebuilt, with double the capacity if necessary.
+	 * @param index - index of the slot.
+	 * @param value - the value.
+	 */
+	void insertAt(int index, V value) {
+		modificationCount++;
+		if(states[index] == FREE) {
+			slotsUsed++;
+		}
+
+		values[index] = value;
+		states[index] = FULL;
+		size++;
+
+		if(slotsUsed > threshold) {
+			rehash();
+		}
+	}
+
+	/**
+	 * A method which removes the entry stored in some slot.
+	 * @param index - index of the slot.
+	 */
+	void removeAt(int index) {
+		modificationCount++;
+		size--;
+
+		values[index] = null;
+		states[index] = DELETED;
+	}
+
+	/**
+	 * A method which removes all entries from the hash table.
+	 */
+	public void clear() {
+		modificationCount++;
+		size = 0;
+		slotsUsed = 0;
+
+		Arrays.fill(values, null);
+		Arrays.fill(states, FREE);
+	}
+
+	@Override
+	public String toString() {
+		if(isEmpty()) return "[]";
+
+		StringBuilder result = new StringBuilder("[");
+		for(int i = 0; i < states.length; i++) {
+			if(states[i] != FULL) continue;
+			if(result.length() > 1) result.append(", ");
+			result.append(keyAt(i)).append("=").append(values[i]);
+		}
+
+		return result.append("]").toString();
+	}
+
+	/**
+	 * A private method which rebuilds the table without deleted slots. If the table
+	 * is still more than half full after that, its capacity is doubled.
+	 */
+	private void rehash() {
+		var oldKeys = keys();
+		var oldValues = values;
+		var oldStates = states;
+
+		int capacity = oldStates.length;
+		if(size >= capacity / 2 && capacity < MAXIMUM_CAPACITY) {
+			capacity *= 2;
+		}
+		if(capacity == MAXIMUM_CAPACITY && size > LOAD_FACTOR * capacity) {
+			throw new IllegalStateException("Hash table is full.");
+		}
+
+		modificationCount++;
+		allocate(capacity);
+
+		for(int i = 0; i < oldStates.length; i++) {
+			if(oldStates[i] != FULL) continue;
+
+			int index = insertionSlot(firstSlot(oldKeys, i));
+			copyKey(oldKeys, i, index);
+			values[index] = oldValues[i];
+			states[index] = FULL;
+		}
+	}
+
+	/**
+	 * A private method which returns the index of the first full slot at or after some index.
+	 * @param index - index the search starts at.
+	 * @return Returns the index of the slot, or the length of the table if there is none.
+	 */
+	private int nextFull(int index) {
+		while(index < states.length && states[index] != FULL) {
+			index++;
+		}
+		return index;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new IteratorImpl();
+	}
+}
@@ -13,6 +13,10 @@ import java.util.Objects;
  * One which sets the table size to the default size of {@literal 16} and the other which
  * accepts the initial table size as an argument and sets the table's size to the first
  * power of two equal or greater than that number.
+ * A table can also be created in incremental resize mode, in which the old and the new
+ * array of slots coexist after an expansion and every {@code put} or {@code remove} moves
+ * only a few slots from the old array into the new one, so no single operation has to
+ * relink the whole table.
  * 
  * @author Božidar Grgur Drmić
  *
@@ -27,7 +31,11 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	private class IteratorImpl implements Iterator<SimpleHashtable.TableEntry<K,V>> {
 		
 		/**
-		 * A cursor to the current slot of table.
+		 * The array of slots which is currently iterated.
+		 */
+		private TableEntry<K,V>[] iteratedTable;
+		/**
+		 * A cursor to the current slot of iteratedTable.
 		 */
 		private int index;
 		/**
@@ -47,13 +55,30 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 		 * A constructor for the {@code IteratorImpl} class.
 		 */
 		public IteratorImpl() {
+			iteratedTable = table;
 			index = -1;
-			while(nextElement == null && ++index < table.length) {
-				nextElement = table[index];
-			}
+			advance();
 			savedModificationCount = modificationCount;
 		}
 		
+		/**
+		 * Moves {@code nextElement} to the first entry of the next non-empty slot.
+		 * Once the current table is exhausted, the slots of the old table which
+		 * weren't migrated yet are iterated.
+		 */
+		private void advance() {
+			while(nextElement == null) {
+				if(++index < iteratedTable.length) {
+					nextElement = iteratedTable[index];
+					continue;
+				}
+				if(iteratedTable != table || oldTable == null) return;
+				
+				iteratedTable = oldTable;
+				index = migrationIndex - 1;
+			}
+		}
+		
 		@Override
 		public boolean hasNext() {
 			if(savedModificationCount != modificationCount) {
@@ -70,10 +95,7 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 			
 			previousElement = nextElement;
 			nextElement = nextElement.next;
-			
-			while(nextElement == null && ++index < table.length) {
-				nextElement = table[index];
-			}
+			advance();
 			
 			return previousElement;
 		}
@@ -87,7 +109,7 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 				throw new ConcurrentModificationException();
 			}
 			
-			SimpleHashtable.this.remove(previousElement.getKey());
+			SimpleHashtable.this.remove(previousElement.getKey(), false);
 			savedModificationCount = modificationCount;
 			previousElement = null;
 		}
@@ -112,6 +134,10 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 		 * Pointer to the next entry in the same slot.
 		 */
 		private TableEntry<K,V> next;
+		/**
+		 * Spread hash of the {@code key}, cached so that resizing doesn't recompute it.
+		 */
+		private int hash;
 		
 		/**
 		 * A public constructor for this class.
@@ -124,6 +150,7 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 			super();
 			this.key = key;
 			this.value = value;
+			this.hash = spread(key == null ? 0 : key.hashCode());
 		}
 		
 		/**
@@ -178,6 +205,23 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	 */
 	private static final int DEFAULT_CAPACITY = 16;
 	
+	/**
+	 * The largest number of slots the table can have.
+	 */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	
+	/**
+	 * The table is expanded once {@code size} exceeds this fraction of its capacity.
+	 */
+	private static final double LOAD_FACTOR = 0.75;
+	
+	/**
+	 * Number of old slots migrated by each {@code put} or {@code remove} in incremental resize mode.
+	 * It must be greater than {@code 1 / LOAD_FACTOR}, so that puts alone finish the migration
+	 * before the next expansion is needed.
+	 */
+	private static final int MIGRATION_STEP = 4;
+	
 	/**
 	 * Current modification count. It is changed every time some change is made.
 	 */
@@ -194,9 +238,25 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	private TableEntry<K,V>[] table;
 	
 	/**
-	 * The number of used slots.
+	 * The {@code size} at which the table is expanded.
+	 */
+	private int threshold;
+	
+	/**
+	 * Whether the table is expanded incrementally.
+	 */
+	private boolean incrementalResize;
+	
+	/**
+	 * In incremental resize mode, the array of slots which is being migrated
+	 * into {@code table}. {@code null} if there is no migration in progress.
 	 */
-	private int slotsUsed;
+	private TableEntry<K,V>[] oldTable;
+	
+	/**
+	 * Index of the first slot of {@code oldTable} which hasn't been migrated yet.
+	 */
+	private int migrationIndex;
 	
 	/**
 	 * The default constructor for {@code SimpleHashTable} class. It sets the {@code table} capacity
@@ -212,18 +272,55 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	 * 
 	 * @param initialCapacity - the capacity of the {@code table} 
 	 */
-	@SuppressWarnings("unchecked")
 	public SimpleHashtable(int initialCapacity) {
+		this(initialCapacity, false);
+	}
+	
+	/**
+	 * A constructor for {@code SimpleHashTable} class. It sets the {@code table} capacity
+	 * to some value and chooses whether the table is expanded incrementally.
+	 * 
+	 * @param initialCapacity - the capacity of the {@code table} 
+	 * @param incrementalResize - if true, the entries are migrated into the expanded
+	 * 		  {@code table} a few slots at a time by subsequent puts and removes.
+	 */
+	@SuppressWarnings("unchecked")
+	public SimpleHashtable(int initialCapacity, boolean incrementalResize) {
 		if(initialCapacity < 1) {
 			throw new IllegalArgumentException();
 		}
 		
 		int capacity = 1;
-		while(capacity < initialCapacity) {
+		while(capacity < initialCapacity && capacity < MAXIMUM_CAPACITY) {
 			capacity *= 2;
 		}
 		
 		table = (TableEntry<K,V>[]) new TableEntry[capacity];
+		threshold = (int) (LOAD_FACTOR * capacity);
+		this.incrementalResize = incrementalResize;
+	}
+	
+	/**
+	 * A method which spreads the higher bits of a hash code into the lower ones,
+	 * because only the lower bits are used when choosing a slot.
+	 * 
+	 * @param hashCode - the hash code of a key.
+	 * @return Returns the spread hash.
+	 */
+	static int spread(int hashCode) {
+		return hashCode ^ (hashCode >>> 16);
+	}
+	
+	/**
+	 * A method which returns the index of the slot for some spread hash
+	 * in a table of some length.
+	 * 
+	 * @param hash - spread hash of a key.
+	 * @param length - length of the table. Must be a power of two.
+	 * @return Returns the index of the slot.
+	 */
+	private static int indexFor(int hash, int length) {
+		return hash & (length - 1);
 	}
 	
 	/**
@@ -252,13 +349,29 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	private TableEntry<K,V> locationOfKey(Object key) {
 		if(key == null) return null;		
 		
-		for(TableEntry<K,V> entry : this) {
-			if(entry.key.equals(key)) return entry;	
+		int hash = spread(key.hashCode());
+		var slots = slotsOf(hash);
+		for(var entry = slots[indexFor(hash, slots.length)]; entry != null; entry = entry.next) {
+			if(entry.hash == hash && entry.key.equals(key)) return entry;
 		}
 		
 		return null;
 	}
 	
+	/**
+	 * A private method which returns the array of slots which holds the entries with some hash.
+	 * That is {@code oldTable} if their slot hasn't been migrated yet, or {@code table} otherwise.
+	 * 
+	 * @param hash - spread hash of a key.
+	 * @return Returns the array of slots.
+	 */
+	private TableEntry<K,V>[] slotsOf(int hash) {
+		if(oldTable != null && indexFor(hash, oldTable.length) >= migrationIndex) {
+			return oldTable;
+		}
+		return table;
+	}
+	
 	/**
 	 * A method which determines whether there is an {@code entry} with some {@code key}.
 	 * 
@@ -301,7 +414,7 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	/**
 	 * A method which creates a new entry with some {@code key} and {@code value} and puts it into the hash table.
 	 * If an {@code entry} with that {@code key} already exists, it just changes it's {@code value}. 
-	 * If more than three quarters of all the slots are used it doubles the capacity of the {@code table}.
+	 * If the number of entries exceeds three quarters of the {@code table} capacity it doubles the capacity.
 	 * It throws NullPointerException if {@code key} is {@code null}.
 	 * 
 	 * @param key - {@code key} of the entry.
@@ -310,6 +423,7 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	 */
 	public void put(K key, V value) {
 		Objects.requireNonNull(key);
+		migrate();
 		var entry = locationOfKey(key);
 		
 		modificationCount++;
@@ -321,21 +435,13 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 		
 		size++;
 		entry = new TableEntry<>(key, value);
-		int index = Math.abs(entry.hashCode()) % table.length;
+		var slots = slotsOf(entry.hash);
+		int index = indexFor(entry.hash, slots.length);
 		
-		if(table[index] == null) {
-			table[index] = entry;
-			return;
-		}
+		entry.next = slots[index];
+		slots[index] = entry;
 		
-		slotsUsed++;
-		var lastEntry = table[index];
-		while(lastEntry.next != null) {
-			lastEntry = lastEntry.next;
-		}
-		
-		lastEntry.next = entry;
-		if(slotsUsed > 0.75 * table.length) {
+		if(size > threshold) {
 			expandTable();
 		}
 	}
@@ -344,27 +450,44 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	 * A method which removes an entry with some {@code key} from the hash table.
 	 * 
 	 * @param key - {@code key} of the entry.
+	 * @return Returns the {@code value} of the removed entry or {@code null} if there was no such entry.
 	 */
-	public void remove(Object key) {
-		var entry = locationOfKey(key);
-		if(entry == null) return;
-		
-		modificationCount++;
-		size--;
-		
-		int index = Math.abs(entry.hashCode()) % table.length;
+	public V remove(Object key) {
+		return remove(key, true);
+	}
+	
+	/**
+	 * A private method which removes an entry with some {@code key} from the hash table.
+	 * 
+	 * @param key - {@code key} of the entry.
+	 * @param migrate - whether a pending incremental migration should make progress.
+	 * 		  It is false when removing through an iterator, which relies on the slots not moving.
+	 * @return Returns the {@code value} of the removed entry or {@code null} if there was no such entry.
+	 */
+	private V remove(Object key, boolean migrate) {
+		if(key == null) return null;
+		if(migrate) migrate();
 		
-		if(table[index] == entry) {
-			table[index] = entry.next;
-			return;
-		}
+		int hash = spread(key.hashCode());
+		var slots = slotsOf(hash);
+		int index = indexFor(hash, slots.length);
 		
-		var previousEntry = table[index];
-		while(previousEntry.next != entry) {
-			previousEntry = previousEntry.next;
+		TableEntry<K,V> previousEntry = null;
+		for(var entry = slots[index]; entry != null; previousEntry = entry, entry = entry.next) {
+			if(entry.hash != hash || !entry.key.equals(key)) continue;
+			
+			if(previousEntry == null) {
+				slots[index] = entry.next;
+			} else {
+				previousEntry.next = entry.next;
+			}
+			entry.next = null;
+			
+			modificationCount++;
+			size--;
+			return entry.value;
 		}
-		
-		previousEntry.next = entry.next;
+		return null;
 	}
 	
 	@Override
@@ -381,29 +504,95 @@ public class SimpleHashtable<K,V> implements Iterable<SimpleHashtable.TableEntry
 	
 	/**
 	 * A private method which creates a new array of {@code tableEntry} with double the size
-	 * of the current one, with all the existing entries copied into it. 
+	 * of the current one and relinks the existing entries into it. In incremental resize mode
+	 * the entries are relinked later by {@code migrate}, otherwise all of them are relinked at once.
 	 */
 	@SuppressWarnings("unchecked")
 	private void expandTable() {
-		var oldTable = table;
-		table = (TableEntry<K,V>[]) new TableEntry[2 * table.length];
-		size = 0;
-		slotsUsed = 0;
+		if(table.length >= MAXIMUM_CAPACITY) {
+			threshold = Integer.MAX_VALUE;
+			return;
+		}
+		
+		while(oldTable != null) {
+			migrate();
+		}
+		
+		oldTable = table;
+		migrationIndex = 0;
+		table = (TableEntry<K,V>[]) new TableEntry[2 * oldTable.length];
+		threshold = (int) (LOAD_FACTOR * table.length);
 		modificationCount++;
 		
-		for(int i = 0; i < oldTable.length; i++) {
-			var entry  = oldTable[i];
-			while(entry != null) {
-				put(entry.getKey(), entry.getValue());
-				entry = entry.next;
+		if(!incrementalResize) {
+			for(int i = 0; i < oldTable.length; i++) {
+				moveSlot(i);
+			}
+			oldTable = null;
+		}
+	}
+	
+	/**
+	 * A private method which migrates the next {@code MIGRATION_STEP} slots of {@code oldTable}
+	 * into {@code table}, if there is a migration in progress.
+	 */
+	private void migrate() {
+		if(oldTable == null) return;
+		
+		modificationCount++;
+		int end = Math.min(migrationIndex + MIGRATION_STEP, oldTable.length);
+		for(; migrationIndex < end; migrationIndex++) {
+			moveSlot(migrationIndex);
+		}
+		if(migrationIndex == oldTable.length) {
+			oldTable = null;
+		}
+	}
+	
+	/**
+	 * A private method which relinks all entries from one slot of {@code oldTable} into {@code table}.
+	 * Since the capacity is a power of two, the chain splits into a chain which stays at the
+	 * same index and a chain which moves {@code oldTable.length} slots further. Both are put
+	 * in front of the entries which may already be in those slots of {@code table}.
+	 * 
+	 * @param index - index of the slot in {@code oldTable}.
+	 */
+	private void moveSlot(int index) {
+		TableEntry<K,V> lowHead = null, lowTail = null;
+		TableEntry<K,V> highHead = null, highTail = null;
+		
+		for(var entry = oldTable[index]; entry != null; ) {
+			var next = entry.next;
+			entry.next = null;
+			
+			if((entry.hash & oldTable.length) == 0) {
+				if(lowTail == null) lowHead = entry; else lowTail.next = entry;
+				lowTail = entry;
+			} else {
+				if(highTail == null) highHead = entry; else highTail.next = entry;
+				highTail = entry;
 			}
-			oldTable[i] = null;
-		}		
+			entry = next;
+		}
+		oldTable[index] = null;
+		
+		if(lowTail != null) {
+			lowTail.next = table[index];
+			table[index] = lowHead;
+		}
+		if(highTail != null) {
+			highTail.next = table[index + oldTable.length];
+			table[index + oldTable.length] = highHead;
+		}
 	}
 	
-	@SuppressWarnings("unused")
-	private void clear() {
+	/**
+	 * A method which removes all entries from the hash table, keeping its capacity.
+	 */
+	public void clear() {
 		modificationCount++;
+		size = 0;
+		oldTable = null;
 		
 		for(int i = 0; i < table.length; i++) {
 			table[i] = null;
@@ -0,0 +1,111 @@
+package hr.fer.zemris.java.custom.collections.demo;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hr.fer.zemris.java.custom.collections.ConcurrentSimpleHashtable;
+import hr.fer.zemris.java.custom.collections.SimpleHashtable;
+
+/**
+ * ConcurrentHashtableBenchmark is a program which measures how the throughput of
+ * {@link ConcurrentSimpleHashtable} scales with the number of threads, compared with
+ * a {@link SimpleHashtable} guarded by one global lock.
+ * Every thread performs 90% {@code get} and 10% {@code put} operations on random keys.
+ * The first argument is the largest number of threads (default is the number of cores),
+ * the second one is the number of keys (default 1M).
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class ConcurrentHashtableBenchmark {
+
+	/**
+	 * Duration of one measurement in milliseconds.
+	 */
+	private static final long DURATION_MILLIS = 2000;
+	
+	public static void main(String[] args) throws InterruptedException {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int keys = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+		
+		var concurrent = new ConcurrentSimpleHashtable<Integer, Integer>();
+		var locked = new SimpleHashtable<Integer, Integer>();
+		for(int i = 0; i < keys; i++) {
+			concurrent.put(i, i);
+			locked.put(i, i);
+		}
+		
+		for(int threads = 1; ; threads = Math.min(2 * threads, maxThreads)) {
+			double concurrentOps = measure(threads, key -> {
+				if(key % 10 == 0) {
+					concurrent.put(key, key);
+				} else {
+					concurrent.get(key);
+				}
+			}, keys);
+			double lockedOps = measure(threads, key -> {
+				synchronized(locked) {
+					if(key % 10 == 0) {
+						locked.put(key, key);
+					} else {
+						locked.get(key);
+					}
+				}
+			}, keys);
+			System.out.format("%3d threads | ConcurrentSimpleHashtable %8.2f Mops/s | global lock %8.2f Mops/s%n",
+					threads, concurrentOps, lockedOps);
+			
+			if(threads == maxThreads) break;
+		}
+	}
+	
+	/**
+	 * An operation performed by the benchmark threads.
+	 */
+	private interface Operation {
+		/**
+		 * Performs the operation on some key.
+		 * @param key - the key.
+		 */
+		void perform(int key);
+	}
+	
+	/**
+	 * A method which runs an operation on several threads for {@code DURATION_MILLIS}.
+	 * @param threads - number of threads.
+	 * @param operation - the operation.
+	 * @param keys - keys are chosen at random from 0 to this value.
+	 * @return millions of operations per second over all threads.
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	private static double measure(int threads, Operation operation, int keys) throws InterruptedException {
+		var start = new CountDownLatch(1);
+		var done = new CountDownLatch(threads);
+		var total = new AtomicLong();
+		long[] deadline = new long[1];
+		
+		for(int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				var random = ThreadLocalRandom.current();
+				long count = 0;
+				try {
+					start.await();
+				} catch(InterruptedException e) {
+					return;
+				}
+				while((count & 1023) != 0 || System.nanoTime() < deadline[0]) {
+					operation.perform(random.nextInt(keys));
+					count++;
+				}
+				total.addAndGet(count);
+				done.countDown();
+			}).start();
+		}
+		
+		deadline[0] = System.nanoTime() + DURATION_MILLIS * 1_000_000;
+		start.countDown();
+		done.await();
+		return total.get() / (DURATION_MILLIS * 1000.0);
+	}
+}
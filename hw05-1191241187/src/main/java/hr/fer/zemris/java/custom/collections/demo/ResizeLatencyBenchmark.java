@@ -0,0 +1,79 @@
+package hr.fer.zemris.java.custom.collections.demo;
+
+import java.util.Arrays;
+
+import hr.fer.zemris.java.custom.collections.SimpleHashtable;
+
+/**
+ * ResizeLatencyBenchmark is a program which records the latency of every {@code put}
+ * while a {@link SimpleHashtable} grows, once with the ordinary and once with the incremental
+ * resize mode, and prints a latency histogram and percentiles for both.
+ * The number of keys can be given as an argument, the default is 4M.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class ResizeLatencyBenchmark {
+
+	/**
+	 * Number of histogram buckets. Bucket {@code i} counts latencies in [2^i, 2^(i+1)) nanoseconds.
+	 */
+	private static final int BUCKETS = 40;
+	
+	public static void main(String[] args) {
+		int keys = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+		
+		Integer[] boxedKeys = new Integer[keys];
+		for(int i = 0; i < keys; i++) {
+			boxedKeys[i] = i;
+		}
+		
+		for(int round = 0; round < 2; round++) {
+			run(boxedKeys, false, round == 1);
+			run(boxedKeys, true, round == 1);
+		}
+	}
+	
+	/**
+	 * A method which fills a new table and optionally prints the latency histogram.
+	 * @param keys - keys which are put.
+	 * @param incremental - whether the table uses the incremental resize mode.
+	 * @param report - whether the results are printed.
+	 */
+	private static void run(Integer[] keys, boolean incremental, boolean report) {
+		long[] latencies = new long[keys.length];
+		var table = new SimpleHashtable<Integer, Integer>(16, incremental);
+		
+		for(int i = 0; i < keys.length; i++) {
+			long start = System.nanoTime();
+			table.put(keys[i], keys[i]);
+			latencies[i] = System.nanoTime() - start;
+		}
+		if(!report) return;
+		
+		long[] histogram = new long[BUCKETS];
+		for(long latency : latencies) {
+			histogram[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, latency)))]++;
+		}
+		Arrays.sort(latencies);
+		
+		System.out.println(incremental ? "Incremental resize:" : "Stop-the-world resize:");
+		for(int i = 0; i < BUCKETS; i++) {
+			if(histogram[i] == 0) continue;
+			System.out.format("  %,15d ns - %,15d ns : %,d%n", 1L << i, (1L << (i + 1)) - 1, histogram[i]);
+		}
+		System.out.format("  p50 %,d ns, p99 %,d ns, p99.9 %,d ns, p99.99 %,d ns, max %,d ns%n",
+				percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+				percentile(latencies, 0.9999), latencies[latencies.length - 1]);
+	}
+	
+	/**
+	 * A method which returns a percentile of sorted latencies.
+	 * @param sorted - sorted latencies.
+	 * @param fraction - the percentile as a fraction between 0 and 1.
+	 * @return the latency at that percentile.
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted[(int) Math.min(sorted.length - 1, fraction * sorted.length)];
+	}
+}
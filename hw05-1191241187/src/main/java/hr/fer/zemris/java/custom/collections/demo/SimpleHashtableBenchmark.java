@@ -0,0 +1,87 @@
+package hr.fer.zemris.java.custom.collections.demo;
+
+import java.util.HashMap;
+
+import hr.fer.zemris.java.custom.collections.SimpleHashtable;
+
+/**
+ * SimpleHashtableBenchmark is a program which compares the {@code put} and {@code get}
+ * throughput of {@link SimpleHashtable} with {@link HashMap}.
+ * Table sizes can be given as arguments, the default ones are 1K, 1M and 10M keys.
+ * Run it with a large enough heap, e.g. {@code -Xmx4g}.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class SimpleHashtableBenchmark {
+
+	/**
+	 * Number of times each measurement is repeated before it is reported.
+	 */
+	private static final int WARMUP_ROUNDS = 3;
+	
+	/**
+	 * A value which is accumulated from the results of {@code get} so that the JIT
+	 * can't throw the lookups away.
+	 */
+	private static long blackhole;
+	
+	public static void main(String[] args) {
+		int[] sizes = {1_000, 1_000_000, 10_000_000};
+		if(args.length > 0) {
+			sizes = new int[args.length];
+			for(int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		
+		for(int size : sizes) {
+			Integer[] keys = new Integer[size];
+			for(int i = 0; i < size; i++) {
+				keys[i] = i * 31;
+			}
+			
+			for(int round = 0; round <= WARMUP_ROUNDS; round++) {
+				boolean report = round == WARMUP_ROUNDS;
+				
+				long start = System.nanoTime();
+				var table = new SimpleHashtable<Integer, Integer>();
+				for(Integer key : keys) table.put(key, key);
+				long putTime = System.nanoTime() - start;
+				
+				start = System.nanoTime();
+				for(Integer key : keys) blackhole += table.get(key);
+				long getTime = System.nanoTime() - start;
+				table = null;
+				
+				start = System.nanoTime();
+				var map = new HashMap<Integer, Integer>();
+				for(Integer key : keys) map.put(key, key);
+				long mapPutTime = System.nanoTime() - start;
+				
+				start = System.nanoTime();
+				for(Integer key : keys) blackhole += map.get(key);
+				long mapGetTime = System.nanoTime() - start;
+				map = null;
+				
+				if(report) {
+					System.out.format("%,12d keys | SimpleHashtable put %8.2f Mops/s get %8.2f Mops/s"
+							+ " | HashMap put %8.2f Mops/s get %8.2f Mops/s%n", size,
+							opsPerMicro(size, putTime), opsPerMicro(size, getTime),
+							opsPerMicro(size, mapPutTime), opsPerMicro(size, mapGetTime));
+				}
+			}
+		}
+		System.out.println("(checksum " + blackhole + ")");
+	}
+	
+	/**
+	 * A method which converts a number of operations and elapsed time into millions of operations per second.
+	 * @param operations - number of operations.
+	 * @param nanos - elapsed time in nanoseconds.
+	 * @return millions of operations per second.
+	 */
+	private static double opsPerMicro(int operations, long nanos) {
+		return operations * 1000.0 / nanos;
+	}
+}
@@ -0,0 +1,92 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.Objects;
+
+/**
+ * Aggregate is a class which represents an aggregate function of a query, such as
+ * {@code COUNT} or {@code AVG(grade)}, computed over the records satisfying the query
+ * or over each of their groups. Aggregates are computed by {@link Aggregation}.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class Aggregate {
+
+	/**
+	 * Function is an enumeration of the aggregate functions.
+	 */
+	public enum Function {
+		/**
+		 * Number of records.
+		 */
+		COUNT,
+		/**
+		 * Average value of a numeric field.
+		 */
+		AVG,
+		/**
+		 * The least value of a field, compared as a number for numeric fields.
+		 */
+		MIN,
+		/**
+		 * The greatest value of a field, compared as a number for numeric fields.
+		 */
+		MAX
+	}
+
+	/**
+	 * The function.
+	 */
+	private Function function;
+	/**
+	 * The field the function is computed over, or null for COUNT.
+	 */
+	private IFieldValueGetter field;
+
+	/**
+	 * A constructor for this class.
+	 * @param function - the function.
+	 * @param field - the field the function is computed over, ignored for COUNT.
+	 * @throws NullPointerException if function is null, or field is null for other functions.
+	 * @throws IllegalArgumentException if AVG is computed over a field which isn't numeric.
+	 */
+	public Aggregate(Function function, IFieldValueGetter field) {
+		this.function = Objects.requireNonNull(function);
+		if(function == Function.COUNT) return;
+
+		this.field = Objects.requireNonNull(field);
+		if(function == Function.AVG && !FieldValueGetters.isNumeric(field)) {
+			throw new IllegalArgumentException("Only numeric fields can be averaged.");
+		}
+	}
+
+	/**
+	 * A getter for the function.
+	 * @return the function.
+	 */
+	public Function getFunction() {
+		return function;
+	}
+
+	/**
+	 * A getter for the field the function is computed over.
+	 * @return the field, or null for COUNT.
+	 */
+	public IFieldValueGetter getField() {
+		return field;
+	}
+
+	/**
+	 * A method which checks whether this aggregate is computed over a numeric field.
+	 * @return true if it is, false for COUNT and for other fields.
+	 */
+	boolean isNumeric() {
+		return field != null && FieldValueGetters.isNumeric(field);
+	}
+
+	@Override
+	public String toString() {
+		if(field == null) return function.toString();
+		return function + "(" + FieldValueGetters.nameOf(field) + ")";
+	}
+}
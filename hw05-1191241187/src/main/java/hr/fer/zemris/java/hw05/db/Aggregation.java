@@ -0,0 +1,464 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Aggregation is a class which computes aggregates of records in a single pass, without
+ * keeping the records. Records are given to it one by one, optionally split into groups by the
+ * value of a field. Several aggregations can be filled in parallel from different parts of the
+ * rows and then merged into one, in any order.
+ * <p>
+ * Groups by grade are kept in an array indexed by the grade; groups by other fields are
+ * kept in a map. Groups are returned sorted by their value, numerically for numeric fields.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class Aggregation implements Consumer<StudentRecord> {
+
+	/**
+	 * Text of a value of an aggregate over no records.
+	 */
+	public static final String NO_VALUE = "-";
+
+	/**
+	 * The aggregates.
+	 */
+	private Aggregate[] aggregates;
+	/**
+	 * The field the records are grouped by, or null if they aren't grouped.
+	 */
+	private IFieldValueGetter groupBy;
+	/**
+	 * The accumulator of all the records, if they aren't grouped.
+	 */
+	private Accumulator total;
+	/**
+	 * Accumulators of the groups by grade, indexed by the grade, if the records are grouped by grade.
+	 */
+	private Accumulator[] byGrade;
+	/**
+	 * Accumulators of the groups by value, if the records are grouped by a field other than grade.
+	 */
+	private Map<String, Accumulator> groups;
+
+	/**
+	 * A constructor for this class.
+	 * @param aggregates - the aggregates.
+	 * @param groupBy - the field the records are grouped by, or null if they aren't grouped.
+	 * @throws IllegalArgumentException if there are no aggregates.
+	 */
+	public Aggregation(List<Aggregate> aggregates, IFieldValueGetter groupBy) {
+		if(aggregates.isEmpty()) {
+			throw new IllegalArgumentException("There must be at least one aggregate.");
+		}
+		this.aggregates = aggregates.toArray(new Aggregate[0]);
+		this.groupBy = groupBy;
+
+		if(groupBy == null) {
+			total = new Accumulator(this.aggregates);
+		} else if(groupBy == FieldValueGetters.GRADE) {
+			byGrade = new Accumulator[BitmapIndex.MAX_GRADE + 1];
+		} else {
+			groups = new HashMap<>();
+		}
+	}
+
+	/**
+	 * A method which makes an empty aggregation of the same aggregates and grouping,
+	 * which can later be merged into this one.
+	 * @return the aggregation.
+	 */
+	public Aggregation newPartial() {
+		return new Aggregation(getAggregates(), groupBy);
+	}
+
+	/**
+	 * A getter for the aggregates.
+	 * @return the aggregates.
+	 */
+	public List<Aggregate> getAggregates() {
+		return List.of(aggregates);
+	}
+
+	/**
+	 * A getter for the field the records are grouped by.
+	 * @return the field, or null if the records aren't grouped.
+	 */
+	public IFieldValueGetter getGroupBy() {
+		return groupBy;
+	}
+
+	@Override
+	public void accept(StudentRecord record) {
+		accumulatorOf(record).add(record);
+	}
+
+	/**
+	 * A method which returns the accumulator of the group of a record, creating it if needed.
+	 * @param record - the record.
+	 * @return the accumulator.
+	 */
+	private Accumulator accumulatorOf(StudentRecord record) {
+		if(total != null) return total;
+
+		if(byGrade != null) {
+			int grade = record.getGrade();
+			var accumulator = byGrade[grade];
+			if(accumulator == null) {
+				accumulator = new Accumulator(aggregates);
+				byGrade[grade] = accumulator;
+			}
+			return accumulator;
+		}
+
+		String key = groupBy.get(record);
+		var accumulator = groups.get(key);
+		if(accumulator == null) {
+			accumulator = new Accumulator(aggregates);
+			groups.put(key, accumulator);
+		}
+		return accumulator;
+	}
+
+	/**
+	 * A method which checks whether the aggregates and the groups depend only on grades,
+	 * so that they can be computed from the number of rows with each grade by {@link #add(int, long)}.
+	 * @return true if they depend only on grades, false otherwise.
+	 */
+	boolean dependsOnGradesOnly() {
+		if(groupBy != null && groupBy != FieldValueGetters.GRADE) return false;
+		for(var aggregate : aggregates) {
+			if(aggregate.getField() != null && aggregate.getField() != FieldValueGetters.GRADE) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A method which adds a number of records with some grade, without reading them.
+	 * It may only be used if {@link #dependsOnGradesOnly()} is true.
+	 * @param grade - the grade.
+	 * @param records - number of records.
+	 */
+	void add(int grade, long records) {
+		if(records == 0) return;
+
+		Accumulator accumulator = total;
+		if(accumulator == null) {
+			accumulator = byGrade[grade];
+			if(accumulator == null) {
+				accumulator = new Accumulator(aggregates);
+				byGrade[grade] = accumulator;
+			}
+		}
+		accumulator.add(grade, records);
+	}
+
+	/**
+	 * A method which adds the records of another aggregation of the same aggregates and grouping.
+	 * @param other - the other aggregation, made by {@link #newPartial()}.
+	 */
+	public void merge(Aggregation other) {
+		if(total != null) {
+			total.merge(other.total);
+		} else if(byGrade != null) {
+			for(int grade = 0; grade < byGrade.length; grade++) {
+				if(other.byGrade[grade] == null) continue;
+				if(byGrade[grade] == null) byGrade[grade] = new Accumulator(aggregates);
+				byGrade[grade].merge(other.byGrade[grade]);
+			}
+		} else {
+			for(var entry : other.groups.entrySet()) {
+				var accumulator = groups.get(entry.getKey());
+				if(accumulator == null) {
+					accumulator = new Accumulator(aggregates);
+					groups.put(entry.getKey(), accumulator);
+				}
+				accumulator.merge(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * A method which returns the names of the columns of the result, the grouping field
+	 * followed by the aggregates.
+	 * @return the names.
+	 */
+	public List<String> getColumns() {
+		List<String> columns = new ArrayList<>();
+		if(groupBy != null) columns.add(FieldValueGetters.nameOf(groupBy));
+		for(var aggregate : aggregates) {
+			columns.add(aggregate.toString());
+		}
+		return columns;
+	}
+
+	/**
+	 * A method which returns the groups of the records. Records which aren't grouped
+	 * form a single group, even if there are none.
+	 * @return the groups, sorted by their value.
+	 */
+	public List<Group> getGroups() {
+		List<Group> result = new ArrayList<>();
+		if(total != null) {
+			result.add(new Group(null, total.values()));
+		} else if(byGrade != null) {
+			for(int grade = 0; grade < byGrade.length; grade++) {
+				if(byGrade[grade] != null) {
+					result.add(new Group(Integer.toString(grade), byGrade[grade].values()));
+				}
+			}
+		} else {
+			String[] keys = groups.keySet().toArray(new String[0]);
+			Arrays.sort(keys);
+			for(var key : keys) {
+				result.add(new Group(key, groups.get(key).values()));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Group is a class which holds the values of the aggregates of one group of records.
+	 */
+	public static class Group {
+
+		/**
+		 * Value of the grouping field, or null if the records aren't grouped.
+		 */
+		private String key;
+		/**
+		 * Values of the aggregates.
+		 */
+		private List<Object> values;
+
+		/**
+		 * A constructor for this class.
+		 * @param key - value of the grouping field, or null.
+		 * @param values - values of the aggregates.
+		 */
+		private Group(String key, List<Object> values) {
+			this.key = key;
+			this.values = values;
+		}
+
+		/**
+		 * A getter for the value of the grouping field.
+		 * @return the value, or null if the records aren't grouped.
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * A getter for the values of the aggregates: a Long for COUNT, a Double for AVG,
+		 * an Integer or a String for MIN and MAX, and null for an aggregate over no records.
+		 * @return the values, in the order of the aggregates.
+		 */
+		public List<Object> getValues() {
+			return values;
+		}
+
+		/**
+		 * A method which returns the texts of the values of this group, preceded by the
+		 * value of the grouping field if the records are grouped.
+		 * @return the texts, averages rounded to two decimals.
+		 */
+		public List<String> toRow() {
+			List<String> row = new ArrayList<>();
+			if(key != null) row.add(key);
+			for(var value : values) {
+				if(value == null) {
+					row.add(NO_VALUE);
+				} else if(value instanceof Double) {
+					row.add(String.format(Locale.ROOT, "%.2f", value));
+				} else {
+					row.add(value.toString());
+				}
+			}
+			return row;
+		}
+
+		@Override
+		public String toString() {
+			return String.join(" ", toRow());
+		}
+	}
+
+	/**
+	 * Accumulator is a class which holds the partial values of the aggregates of one group.
+	 */
+	private static class Accumulator {
+
+		/**
+		 * The aggregates.
+		 */
+		private Aggregate[] aggregates;
+		/**
+		 * Number of records.
+		 */
+		private long count;
+		/**
+		 * Sums of numeric fields for AVG, and the least or greatest numbers for MIN and MAX.
+		 */
+		private long[] numbers;
+		/**
+		 * The least or greatest values of fields which aren't numeric, for MIN and MAX.
+		 */
+		private String[] texts;
+
+		/**
+		 * A constructor for this class.
+		 * @param aggregates - the aggregates.
+		 */
+		Accumulator(Aggregate[] aggregates) {
+			numbers = new long[aggregates.length];
+			texts = new String[aggregates.length];
+			for(int i = 0; i < aggregates.length; i++) {
+				var function = aggregates[i].getFunction();
+				if(function == Aggregate.Function.MIN) numbers[i] = Long.MAX_VALUE;
+				if(function == Aggregate.Function.MAX) numbers[i] = Long.MIN_VALUE;
+			}
+			this.aggregates = aggregates;
+		}
+
+		/**
+		 * A method which adds a record.
+		 * @param record - the record.
+		 */
+		void add(StudentRecord record) {
+			count++;
+			for(int i = 0; i < aggregates.length; i++) {
+				var aggregate = aggregates[i];
+				switch(aggregate.getFunction()) {
+				case COUNT:
+					break;
+				case AVG:
+					numbers[i] += numberOf(aggregate.getField(), record);
+					break;
+				default:
+					if(aggregate.isNumeric()) {
+						addNumber(i, numberOf(aggregate.getField(), record));
+					} else {
+						addText(i, aggregate.getField().get(record));
+					}
+				}
+			}
+		}
+
+		/**
+		 * A method which adds a number of records with some grade, for aggregates which
+		 * depend only on grades.
+		 * @param grade - the grade.
+		 * @param records - number of records, at least 1.
+		 */
+		void add(int grade, long records) {
+			count += records;
+			for(int i = 0; i < aggregates.length; i++) {
+				switch(aggregates[i].getFunction()) {
+				case COUNT:
+					break;
+				case AVG:
+					numbers[i] += grade * records;
+					break;
+				default:
+					addNumber(i, grade);
+				}
+			}
+		}
+
+		/**
+		 * A method which adds the records of another accumulator.
+		 * @param other - the other accumulator.
+		 */
+		void merge(Accumulator other) {
+			if(other.count == 0) return;
+
+			count += other.count;
+			for(int i = 0; i < aggregates.length; i++) {
+				switch(aggregates[i].getFunction()) {
+				case COUNT:
+					break;
+				case AVG:
+					numbers[i] += other.numbers[i];
+					break;
+				default:
+					if(aggregates[i].isNumeric()) {
+						addNumber(i, other.numbers[i]);
+					} else {
+						addText(i, other.texts[i]);
+					}
+				}
+			}
+		}
+
+		/**
+		 * A method which updates the least or greatest number of a MIN or MAX aggregate.
+		 * @param i - index of the aggregate.
+		 * @param number - the number.
+		 */
+		private void addNumber(int i, long number) {
+			if(aggregates[i].getFunction() == Aggregate.Function.MIN) {
+				numbers[i] = Math.min(numbers[i], number);
+			} else {
+				numbers[i] = Math.max(numbers[i], number);
+			}
+		}
+
+		/**
+		 * A method which updates the least or greatest value of a MIN or MAX aggregate.
+		 * @param i - index of the aggregate.
+		 * @param text - the value.
+		 */
+		private void addText(int i, String text) {
+			String current = texts[i];
+			if(current == null) {
+				texts[i] = text;
+			} else if(aggregates[i].getFunction() == Aggregate.Function.MIN ? text.compareTo(current) < 0
+					: text.compareTo(current) > 0) {
+				texts[i] = text;
+			}
+		}
+
+		/**
+		 * A method which returns the values of the aggregates.
+		 * @return the values, as described by {@link Group#getValues()}.
+		 */
+		List<Object> values() {
+			List<Object> values = new ArrayList<>();
+			for(int i = 0; i < aggregates.length; i++) {
+				var aggregate = aggregates[i];
+				if(aggregate.getFunction() == Aggregate.Function.COUNT) {
+					values.add(count);
+				} else if(count == 0) {
+					values.add(null);
+				} else if(aggregate.getFunction() == Aggregate.Function.AVG) {
+					values.add((double) numbers[i] / count);
+				} else if(aggregate.isNumeric()) {
+					values.add((int) numbers[i]);
+				} else {
+					values.add(texts[i]);
+				}
+			}
+			return Collections.unmodifiableList(values);
+		}
+
+		/**
+		 * A method which returns the value of a numeric field of a record.
+		 * @param field - the field.
+		 * @param record - the record.
+		 * @return the value.
+		 */
+		private static int numberOf(IFieldValueGetter field, StudentRecord record) {
+			if(field == FieldValueGetters.GRADE) return record.getGrade();
+			return Integer.parseInt(field.get(record));
+		}
+	}
+}
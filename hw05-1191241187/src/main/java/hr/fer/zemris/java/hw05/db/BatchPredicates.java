@@ -0,0 +1,477 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * BatchPredicates is a class which compiles conditions into {@link IBatchFilter}s working on the
+ * encoded columns of a {@link ColumnarStudentStorage}. Comparisons of JMBAGs with ten digit
+ * literals become range tests of the packed numbers, equality of names becomes equality of
+ * dictionary ids, and every other condition on a name is tested once for each distinct name
+ * of the dictionary, so that rows are tested by a lookup into a bitmap of ids.
+ * <p>
+ * Blocks are tested 64 rows at a time: the results of a word of rows are collected into a
+ * long without branching, which is then combined with the selection.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class BatchPredicates {
+
+	/**
+	 * Batch filter which accepts every row.
+	 */
+	private static final IBatchFilter ACCEPT_ALL = (storage, from, to, selection) -> {};
+
+	/**
+	 * Batch filter which rejects every row.
+	 */
+	private static final IBatchFilter REJECT_ALL = (storage, from, to, selection) -> {
+		for(int word = 0; word < selection.length; word++) {
+			selection[word] = 0;
+		}
+	};
+
+	/**
+	 * A method which compiles a condition into a batch filter working on the encoded columns.
+	 * @param condition - the condition.
+	 * @param storage - the storage whose dictionary is used.
+	 * @return the batch filter, or null if the condition can't be tested on the encoded columns.
+	 */
+	public static IBatchFilter compile(ConditionalExpression condition, ColumnarStudentStorage storage) {
+		var field = condition.getFieldGetter();
+		var operator = condition.getComparisonOperator();
+		String literal = condition.getStringLiteral();
+
+		if(field == FieldValueGetters.JMBAG) {
+			return onJmbag(operator, literal);
+		}
+		if(field == FieldValueGetters.LAST_NAME) {
+			return onName(storage, storage.lastNameColumn(), operator, literal);
+		}
+		if(field == FieldValueGetters.FIRST_NAME) {
+			return onName(storage, storage.firstNameColumn(), operator, literal);
+		}
+		if(field == FieldValueGetters.GRADE) {
+			int mask = condition.getGradeMask();
+			if(mask == BitmapIndex.ALL_GRADES) return ACCEPT_ALL;
+			return mask == 0 ? REJECT_ALL : new GradeSet(mask);
+		}
+		return null;
+	}
+
+	/**
+	 * A method which compiles a comparison of JMBAGs.
+	 * @param operator - the comparison.
+	 * @param literal - the literal.
+	 * @return the batch filter, or null if the comparison can't be tested on packed JMBAGs.
+	 */
+	private static IBatchFilter onJmbag(IComparisonOperator operator, String literal) {
+		if(operator == ComparisonOperators.LIKE && LikePattern.compile(literal).isExact()) {
+			operator = ComparisonOperators.EQUALS;
+		}
+
+		long packed = ColumnarStudentStorage.packJmbag(literal);
+		if(packed == -1) {
+			if(operator == ComparisonOperators.EQUALS) return REJECT_ALL;
+			if(operator == ComparisonOperators.NOT_EQUALS) return ACCEPT_ALL;
+			return null;
+		}
+
+		if(operator == ComparisonOperators.EQUALS) return new JmbagRange(packed, packed, false);
+		if(operator == ComparisonOperators.NOT_EQUALS) return new JmbagRange(packed, packed, true);
+		if(operator == ComparisonOperators.LESS) return new JmbagRange(0, packed - 1, false);
+		if(operator == ComparisonOperators.LESS_OR_EQUALS) return new JmbagRange(0, packed, false);
+		if(operator == ComparisonOperators.GREATER) return new JmbagRange(packed + 1, Long.MAX_VALUE, false);
+		if(operator == ComparisonOperators.GREATER_OR_EQUALS) return new JmbagRange(packed, Long.MAX_VALUE, false);
+		return null;
+	}
+
+	/**
+	 * A method which compiles a comparison of names.
+	 * @param storage - the storage whose dictionary is used.
+	 * @param column - the column of name ids.
+	 * @param operator - the comparison.
+	 * @param literal - the literal.
+	 * @return the batch filter.
+	 */
+	private static IBatchFilter onName(ColumnarStudentStorage storage, ByteBuffer column,
+			IComparisonOperator operator, String literal) {
+		if(operator == ComparisonOperators.LIKE && LikePattern.compile(literal).isExact()) {
+			operator = ComparisonOperators.EQUALS;
+		}
+
+		if(operator == ComparisonOperators.EQUALS || operator == ComparisonOperators.NOT_EQUALS) {
+			boolean negate = operator == ComparisonOperators.NOT_EQUALS;
+			int id = storage.nameId(literal);
+			if(id == -1) return negate ? ACCEPT_ALL : REJECT_ALL;
+			return new NameId(column, id, negate);
+		}
+
+		Predicate<String> test = QueryCompiler.compileValueTest(operator, literal);
+		long[] ids = new long[(storage.nameCount() + Long.SIZE - 1) / Long.SIZE];
+		for(int id = 0; id < storage.nameCount(); id++) {
+			if(test.test(storage.name(id))) {
+				ids[id >>> 6] |= 1L << id;
+			}
+		}
+		return new NameSet(column, ids);
+	}
+
+	/**
+	 * JmbagRange is a batch filter which accepts the rows whose packed JMBAG is inside a range,
+	 * or outside of it if the filter is negated.
+	 */
+	private static class JmbagRange implements IBatchFilter {
+
+		/**
+		 * The least packed JMBAG of the range.
+		 */
+		private long low;
+		/**
+		 * The greatest packed JMBAG of the range.
+		 */
+		private long high;
+		/**
+		 * Whether the rows outside of the range are accepted.
+		 */
+		private boolean negate;
+
+		/**
+		 * A constructor for this class.
+		 * @param low - the least packed JMBAG of the range.
+		 * @param high - the greatest packed JMBAG of the range.
+		 * @param negate - whether the rows outside of the range are accepted.
+		 */
+		JmbagRange(long low, long high, boolean negate) {
+			this.low = low;
+			this.high = high;
+			this.negate = negate;
+		}
+
+		@Override
+		public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+			var column = storage.jmbagColumn();
+			for(int base = from, word = 0; base < to; base += Long.SIZE, word++) {
+				long selected = selection[word];
+				if(selected == 0) continue;
+
+				int rows = Math.min(Long.SIZE, to - base);
+				long bits = 0;
+				for(int i = 0; i < rows; i++) {
+					long value = column.getLong((base + i) * Long.BYTES);
+					bits |= (value >= low & value <= high ? 1L : 0L) << i;
+				}
+				selection[word] = selected & (negate ? ~bits : bits);
+			}
+		}
+	}
+
+	/**
+	 * NameId is a batch filter which accepts the rows with some name id in a column,
+	 * or with any other id if the filter is negated.
+	 */
+	private static class NameId implements IBatchFilter {
+
+		/**
+		 * The column of name ids.
+		 */
+		private ByteBuffer column;
+		/**
+		 * The id.
+		 */
+		private int id;
+		/**
+		 * Whether the rows with other ids are accepted.
+		 */
+		private boolean negate;
+
+		/**
+		 * A constructor for this class.
+		 * @param column - the column of name ids.
+		 * @param id - the id.
+		 * @param negate - whether the rows with other ids are accepted.
+		 */
+		NameId(ByteBuffer column, int id, boolean negate) {
+			this.column = column;
+			this.id = id;
+			this.negate = negate;
+		}
+
+		@Override
+		public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+			for(int base = from, word = 0; base < to; base += Long.SIZE, word++) {
+				long selected = selection[word];
+				if(selected == 0) continue;
+
+				int rows = Math.min(Long.SIZE, to - base);
+				long bits = 0;
+				for(int i = 0; i < rows; i++) {
+					bits |= (column.getInt((base + i) * Integer.BYTES) == id ? 1L : 0L) << i;
+				}
+				selection[word] = selected & (negate ? ~bits : bits);
+			}
+		}
+	}
+
+	/**
+	 * NameSet is a batch filter which accepts the rows whose name id in a column is in a set of ids.
+	 */
+	private static class NameSet implements IBatchFilter {
+
+		/**
+		 * The column of name ids.
+		 */
+		private ByteBuffer column;
+		/**
+		 * Bitmap of the accepted ids.
+		 */
+		private long[] ids;
+
+		/**
+		 * A constructor for this class.
+		 * @param column - the column of name ids.
+		 * @param ids - bitmap of the accepted ids.
+		 */
+		NameSet(ByteBuffer column, long[] ids) {
+			this.column = column;
+			this.ids = ids;
+		}
+
+		@Override
+		public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+			for(int base = from, word = 0; base < to; base += Long.SIZE, word++) {
+				long selected = selection[word];
+				if(selected == 0) continue;
+
+				int rows = Math.min(Long.SIZE, to - base);
+				long bits = 0;
+				for(int i = 0; i < rows; i++) {
+					int id = column.getInt((base + i) * Integer.BYTES);
+					bits |= (ids[id >>> 6] >>> id & 1L) << i;
+				}
+				selection[word] = selected & bits;
+			}
+		}
+	}
+
+	/**
+	 * GradeSet is a batch filter which accepts the rows whose grade is in a grade mask.
+	 */
+	private static class GradeSet implements IBatchFilter {
+
+		/**
+		 * The grade mask, see {@link BitmapIndex#ALL_GRADES}.
+		 */
+		private int mask;
+
+		/**
+		 * A constructor for this class.
+		 * @param mask - the grade mask.
+		 */
+		GradeSet(int mask) {
+			this.mask = mask;
+		}
+
+		@Override
+		public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+			var column = storage.gradeColumn();
+			for(int base = from, word = 0; base < to; base += Long.SIZE, word++) {
+				long selected = selection[word];
+				if(selected == 0) continue;
+
+				int rows = Math.min(Long.SIZE, to - base);
+				long bits = 0;
+				for(int i = 0; i < rows; i++) {
+					bits |= (long) (mask >>> column.get(base + i) & 1) << i;
+				}
+				selection[word] = selected & bits;
+			}
+		}
+	}
+
+	/**
+	 * Program is a batch filter for a list of conditions joined by AND, compiled for one storage.
+	 * The conditions which can be tested on the encoded columns are tested first, and the
+	 * rows which are still selected are then tested with a row filter for the other conditions.
+	 */
+	public static class Program implements IBatchFilter {
+
+		/**
+		 * The storage this program was compiled for.
+		 */
+		private ColumnarStudentStorage storage;
+		/**
+		 * Number of rows of the storage when this program was compiled.
+		 */
+		private int size;
+		/**
+		 * Batch filters of the conditions which are tested on the encoded columns.
+		 */
+		private IBatchFilter[] encoded;
+		/**
+		 * Row filter of the other conditions, or null if there are none.
+		 */
+		private IFilter residual;
+
+		/**
+		 * A constructor which compiles a list of conditions for a storage.
+		 * @param conditions - conditions joined by AND.
+		 * @param storage - the storage.
+			 */
+		public Program(List<ConditionalExpression> conditions, ColumnarStudentStorage storage) {
+			this.storage = storage;
+			this.size = storage.size();
+
+			List<IBatchFilter> batchFilters = new ArrayList<>();
+			List<ConditionalExpression> rest = new ArrayList<>();
+			for(var condition : conditions) {
+				var batchFilter = compile(condition, storage);
+				if(batchFilter == null) {
+					rest.add(condition);
+				} else if(batchFilter != ACCEPT_ALL) {
+					batchFilters.add(batchFilter);
+				}
+			}
+			encoded = batchFilters.toArray(new IBatchFilter[0]);
+			residual = rest.isEmpty() ? null : QueryCompiler.compile(rest);
+		}
+
+		/**
+		 * A method which checks whether this program can be used for a storage. Programs have to
+		 * be compiled again after rows are added, because the dictionary might have grown.
+		 * @param storage - the storage.
+		 * @return true if this program was compiled for the storage in its current state.
+		 */
+		public boolean isCompiledFor(ColumnarStudentStorage storage) {
+			return this.storage == storage && size == storage.size();
+		}
+
+		@Override
+		public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+			for(var filter : encoded) {
+				filter.select(storage, from, to, selection);
+			}
+			if(residual != null) {
+				storage.refine(residual, from, to, selection);
+			}
+		}
+	}
+
+	/**
+	 * Tree is a batch filter for a boolean expression tree, compiled for one storage. Lists of
+	 * conditions joined by AND are compiled into {@link Program}s; an OR tests each operand only
+	 * on the rows which no earlier operand selected, and a NOT tests its operand on a copy of
+	 * the selection and keeps the rows it rejected.
+	 */
+	public static class Tree implements IBatchFilter {
+
+		/**
+		 * The storage this tree was compiled for.
+		 */
+		private ColumnarStudentStorage storage;
+		/**
+		 * Number of rows of the storage when this tree was compiled.
+		 */
+		private int size;
+		/**
+		 * The compiled root of the tree.
+		 */
+		private IBatchFilter root;
+
+		/**
+		 * A constructor which compiles an expression for a storage.
+		 * @param expression - the expression.
+		 * @param storage - the storage.
+		 */
+		public Tree(IQueryExpression expression, ColumnarStudentStorage storage) {
+			this.storage = storage;
+			this.size = storage.size();
+			this.root = compile(expression, storage);
+		}
+
+		/**
+		 * A method which compiles a node of an expression tree.
+		 * @param expression - the node.
+		 * @param storage - the storage.
+		 * @return the batch filter of the node.
+		 */
+		private static IBatchFilter compile(IQueryExpression expression, ColumnarStudentStorage storage) {
+			var conditions = QueryExpressions.conjunction(expression);
+			if(conditions != null) return new Program(conditions, storage);
+
+			if(expression instanceof QueryExpressions.Not) {
+				var operand = compile(((QueryExpressions.Not) expression).getOperand(), storage);
+				return (s, from, to, selection) -> {
+					long[] rejected = selection.clone();
+					operand.select(s, from, to, rejected);
+					for(int word = 0; word < selection.length; word++) {
+						selection[word] &= ~rejected[word];
+					}
+				};
+			}
+
+			if(expression instanceof QueryExpressions.Or) {
+				List<IBatchFilter> operands = new ArrayList<>();
+				for(var operand : ((QueryExpressions.Or) expression).getOperands()) {
+					operands.add(compile(operand, storage));
+				}
+				IBatchFilter[] all = operands.toArray(new IBatchFilter[0]);
+				return (s, from, to, selection) -> {
+					long[] selected = new long[selection.length];
+					long[] tested = new long[selection.length];
+					for(var operand : all) {
+						boolean any = false;
+						for(int word = 0; word < selection.length; word++) {
+							tested[word] = selection[word] & ~selected[word];
+							any |= tested[word] != 0;
+						}
+						if(!any) break;
+						operand.select(s, from, to, tested);
+						for(int word = 0; word < selection.length; word++) {
+							selected[word] |= tested[word];
+						}
+					}
+					System.arraycopy(selected, 0, selection, 0, selection.length);
+				};
+			}
+
+			if(!(expression instanceof QueryExpressions.And)) {
+				return (s, from, to, selection) -> s.refine(expression, from, to, selection);
+			}
+			List<ConditionalExpression> leaves = new ArrayList<>();
+			List<IBatchFilter> operands = new ArrayList<>();
+			for(var operand : ((QueryExpressions.And) expression).getOperands()) {
+				if(operand instanceof QueryExpressions.Condition) {
+					leaves.add(((QueryExpressions.Condition) operand).getCondition());
+				} else {
+					operands.add(compile(operand, storage));
+				}
+			}
+			if(!leaves.isEmpty()) operands.add(0, new Program(leaves, storage));
+			IBatchFilter[] all = operands.toArray(new IBatchFilter[0]);
+			return (s, from, to, selection) -> {
+				for(var operand : all) {
+					operand.select(s, from, to, selection);
+				}
+			};
+		}
+
+		/**
+		 * A method which checks whether this tree can be used for a storage, in the same way
+		 * as {@link Program#isCompiledFor}.
+		 * @param storage - the storage.
+		 * @return true if this tree was compiled for the storage in its current state.
+		 */
+		public boolean isCompiledFor(ColumnarStudentStorage storage) {
+			return this.storage == storage && size == storage.size();
+		}
+
+		@Override
+		public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+			root.select(storage, from, to, selection);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package hr.fer.zemris.java.hw05.db;
+
+/**
+ * BitmapIndex is a class which represents an index over the grades of the rows of an
+ * IStudentStorage. For every grade it keeps a bitmap with one bit per row.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class BitmapIndex {
+	
+	/**
+	 * The lowest grade.
+	 */
+	public static final int MIN_GRADE = 1;
+	/**
+	 * The highest grade.
+	 */
+	public static final int MAX_GRADE = 5;
+	/**
+	 * Grade mask with the bits of all the grades set. In grade masks bit {@code grade}
+	 * is set for each grade in the set.
+	 */
+	public static final int ALL_GRADES = (1 << MAX_GRADE + 1) - (1 << MIN_GRADE);
+	
+	/**
+	 * Bitmaps of the grades. Bit {@code row % 64} of word {@code row / 64} of
+	 * {@code bitmaps[grade - MIN_GRADE]} is set if the row has that grade.
+	 */
+	private long[][] bitmaps;
+	/**
+	 * Number of rows with each grade.
+	 */
+	private int[] counts;
+	
+	/**
+	 * A constructor which builds the index over all the rows of a storage.
+	 * @param storage - the storage.
+	 */
+	public BitmapIndex(IStudentStorage storage) {
+		int size = storage.size();
+		bitmaps = new long[MAX_GRADE - MIN_GRADE + 1][(size + 63) >>> 6];
+		counts = new int[MAX_GRADE - MIN_GRADE + 1];
+		
+		for(int row = 0; row < size; row++) {
+			int grade = storage.get(row).getGrade() - MIN_GRADE;
+			bitmaps[grade][row >>> 6] |= 1L << row;
+			counts[grade]++;
+		}
+	}
+	
+	/**
+	 * A method which returns the number of rows with some grade.
+	 * @param grade - the grade.
+	 * @return the number of rows, 0 if the grade is out of range.
+	 */
+	public int count(int grade) {
+		if(grade < MIN_GRADE || grade > MAX_GRADE) return 0;
+		return counts[grade - MIN_GRADE];
+	}
+	
+	/**
+	 * A method which returns the number of rows with any grade of a grade mask.
+	 * @param mask - the grade mask, see {@link #ALL_GRADES}.
+	 * @return the number of rows.
+	 */
+	public int countOfMask(int mask) {
+		int count = 0;
+		for(int grade = MIN_GRADE; grade <= MAX_GRADE; grade++) {
+			if((mask >>> grade & 1) != 0) count += counts[grade - MIN_GRADE];
+		}
+		return count;
+	}
+	
+	/**
+	 * A method which returns the rows with any grade of a grade mask, sorted by row.
+	 * @param mask - the grade mask, see {@link #ALL_GRADES}.
+	 * @return the rows.
+	 */
+	public int[] rowsOfMask(int mask) {
+		int[] result = new int[countOfMask(mask)];
+		int words = bitmaps[0].length, i = 0;
+		for(int word = 0; word < words; word++) {
+			long bits = 0;
+			for(int grade = MIN_GRADE; grade <= MAX_GRADE; grade++) {
+				if((mask >>> grade & 1) != 0) bits |= bitmaps[grade - MIN_GRADE][word];
+			}
+			for(; bits != 0; bits &= bits - 1) {
+				result[i++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * A method which returns the bitmap of some grade. It must not be changed.
+	 * @param grade - the grade.
+	 * @return the bitmap.
+	 * @throws IllegalArgumentException if the grade is out of range.
+	 */
+	public long[] bitmap(int grade) {
+		if(grade < MIN_GRADE || grade > MAX_GRADE) {
+			throw new IllegalArgumentException("Grade must be between 1 and 5.");
+		}
+		return bitmaps[grade - MIN_GRADE];
+	}
+	
+	/**
+	 * A method which returns the rows with some grade, sorted by row.
+	 * @param grade - the grade.
+	 * @return the rows.
+	 */
+	public int[] rows(int grade) {
+		int[] result = new int[count(grade)];
+		if(result.length == 0) return result;
+		
+		long[] bitmap = bitmap(grade);
+		int i = 0;
+		for(int word = 0; word < bitmap.length; word++) {
+			for(long bits = bitmap[word]; bits != 0; bits &= bits - 1) {
+				result[i++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,610 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * ColumnarStudentStorage is an implementation of IStudentStorage which keeps every field in
+ * its own column outside of the Java heap instead of keeping one StudentRecord per row.
+ * JMBAGs are packed into longs, names are replaced by ids of a dictionary of distinct names
+ * and grades are stored as bytes. StudentRecords are only created for the rows which are returned.
+ * All JMBAGs must consist of exactly ten digits. Rows can only be appended, the stored
+ * rows are never changed or removed.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class ColumnarStudentStorage implements IStudentStorage {
+
+	/**
+	 * A view of one row which reads the columns only when a getter is called.
+	 * It is handed to filters so that rows which aren't accepted are never materialised.
+	 */
+	private class RowView extends StudentRecord {
+		
+		/**
+		 * Index of the row this view currently shows.
+		 */
+		private int row;
+		/**
+		 * Jmbag of the current row, or null if it hasn't been unpacked yet.
+		 */
+		private String jmbag;
+		
+		/**
+		 * Moves this view to some row.
+		 * @param row - index of the row.
+		 */
+		private void moveTo(int row) {
+			this.row = row;
+			this.jmbag = null;
+		}
+		
+		@Override
+		public String getJmbag() {
+			if(jmbag == null) {
+				jmbag = unpackJmbag(jmbagAt(row));
+			}
+			return jmbag;
+		}
+		
+		@Override
+		public String getFirstName() {
+			return name(firstNameIdAt(row));
+		}
+		
+		@Override
+		public String getLastName() {
+			return name(lastNameIdAt(row));
+		}
+		
+		@Override
+		public int getGrade() {
+			return gradeAt(row);
+		}
+		
+		@Override
+		public int hashCode() {
+			return getJmbag().hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof StudentRecord))
+				return false;
+			return getJmbag().equals(((StudentRecord) obj).getJmbag());
+		}
+		
+		@Override
+		public String toString() {
+			return getJmbag() + " " + getFirstName() + " " + getLastName() + " " + getGrade();
+		}
+	}
+	
+	/**
+	 * Initial number of rows the columns can hold.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	/**
+	 * Number of digits in a JMBAG.
+	 */
+	private static final int JMBAG_LENGTH = 10;
+	
+	/**
+	 * Marks a free slot in the jmbag index. Packed JMBAGs are never negative.
+	 */
+	private static final long FREE_SLOT = -1;
+	
+	/**
+	 * Number of stored rows.
+	 */
+	private int size;
+	/**
+	 * Number of rows the columns can hold.
+	 */
+	private int capacity;
+	
+	/**
+	 * Column of packed JMBAGs, 8 bytes per row.
+	 */
+	private ByteBuffer jmbags;
+	/**
+	 * Column of dictionary ids of last names, 4 bytes per row.
+	 */
+	private ByteBuffer lastNames;
+	/**
+	 * Column of dictionary ids of first names, 4 bytes per row.
+	 */
+	private ByteBuffer firstNames;
+	/**
+	 * Column of grades, 1 byte per row.
+	 */
+	private ByteBuffer grades;
+	
+	/**
+	 * Distinct names, indexed by their id.
+	 */
+	private List<String> names;
+	/**
+	 * Ids of distinct names.
+	 */
+	private Map<String, Integer> nameIds;
+	
+	/**
+	 * Keys of the open-addressing jmbag index: packed JMBAGs or {@code FREE_SLOT}.
+	 */
+	private long[] indexKeys;
+	/**
+	 * Rows of the jmbag index, at the same position as their keys.
+	 */
+	private int[] indexRows;
+	
+	/**
+	 * A constructor which creates an empty storage.
+	 */
+	public ColumnarStudentStorage() {
+		capacity = INITIAL_CAPACITY;
+		jmbags = allocate(capacity * Long.BYTES);
+		lastNames = allocate(capacity * Integer.BYTES);
+		firstNames = allocate(capacity * Integer.BYTES);
+		grades = allocate(capacity);
+		
+		names = new ArrayList<String>();
+		nameIds = new HashMap<String, Integer>();
+		
+		indexKeys = new long[2 * capacity];
+		indexRows = new int[2 * capacity];
+		Arrays.fill(indexKeys, FREE_SLOT);
+	}
+	
+	/**
+	 * A constructor which creates a storage around existing columns, for example columns
+	 * mapped from a {@link DatabaseSnapshot}. The columns are copied as soon as a row is added.
+	 * @param size - number of rows in the columns.
+	 * @param jmbags - column of packed JMBAGs.
+	 * @param lastNames - column of ids of last names.
+	 * @param firstNames - column of ids of first names.
+	 * @param grades - column of grades.
+	 * @param names - distinct names, indexed by their id.
+	 * @param indexKeys - keys of the jmbag index. The length must be a power of two greater than size.
+	 * @param indexRows - rows of the jmbag index.
+	 */
+	ColumnarStudentStorage(int size, ByteBuffer jmbags, ByteBuffer lastNames, ByteBuffer firstNames,
+			ByteBuffer grades, List<String> names, long[] indexKeys, int[] indexRows) {
+		this.size = size;
+		this.capacity = size;
+		this.jmbags = jmbags;
+		this.lastNames = lastNames;
+		this.firstNames = firstNames;
+		this.grades = grades;
+		
+		this.names = names;
+		this.nameIds = new HashMap<String, Integer>();
+		for(int id = 0; id < names.size(); id++) {
+			nameIds.put(names.get(id), id);
+		}
+		
+		this.indexKeys = indexKeys;
+		this.indexRows = indexRows;
+	}
+	
+	/**
+	 * A method which allocates a direct buffer in native byte order.
+	 * @param bytes - size of the buffer.
+	 * @return the buffer.
+	 */
+	private static ByteBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+	
+	/**
+	 * A method which packs a JMBAG into a long.
+	 * @param jmbag - the JMBAG.
+	 * @return the packed JMBAG, or -1 if it doesn't consist of exactly ten digits.
+	 */
+	public static long packJmbag(String jmbag) {
+		if(jmbag == null || jmbag.length() != JMBAG_LENGTH) return -1;
+		
+		long packed = 0;
+		for(int i = 0; i < JMBAG_LENGTH; i++) {
+			char c = jmbag.charAt(i);
+			if(c < '0' || c > '9') return -1;
+			packed = packed * 10 + (c - '0');
+		}
+		return packed;
+	}
+	
+	/**
+	 * A method which unpacks a JMBAG packed by {@link #packJmbag(String)}.
+	 * @param packed - the packed JMBAG.
+	 * @return the JMBAG with leading zeros.
+	 */
+	public static String unpackJmbag(long packed) {
+		char[] digits = new char[JMBAG_LENGTH];
+		for(int i = JMBAG_LENGTH - 1; i >= 0; i--) {
+			digits[i] = (char) ('0' + packed % 10);
+			packed /= 10;
+		}
+		return new String(digits);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void add(StudentRecord record) {
+		long jmbag = packJmbag(record.getJmbag());
+		if(jmbag == -1) {
+			throw new IllegalArgumentException("JMBAG must consist of ten digits: " + record.getJmbag());
+		}
+		if(rowOf(jmbag) != -1) {
+			throw new IllegalArgumentException("Duplicate JMBAG: " + record.getJmbag());
+		}
+		
+		if(size == capacity) {
+			grow();
+		}
+		
+		jmbags.putLong(size * Long.BYTES, jmbag);
+		lastNames.putInt(size * Integer.BYTES, encode(record.getLastName()));
+		firstNames.putInt(size * Integer.BYTES, encode(record.getFirstName()));
+		grades.put(size, (byte) record.getGrade());
+		index(jmbag, size);
+		size++;
+	}
+	
+	/**
+	 * A method which returns the dictionary id of a name, adding the name if it is new.
+	 * @param name - the name.
+	 * @return the id of the name.
+	 */
+	private int encode(String name) {
+		Integer id = nameIds.get(name);
+		if(id != null) return id;
+		
+		id = names.size();
+		names.add(name);
+		nameIds.put(name, id);
+		return id;
+	}
+	
+	/**
+	 * A method which doubles the capacity of all the columns and of the jmbag index.
+	 */
+	private void grow() {
+		capacity = Math.max(2 * capacity, INITIAL_CAPACITY);
+		jmbags = copy(jmbags, capacity * Long.BYTES);
+		lastNames = copy(lastNames, capacity * Integer.BYTES);
+		firstNames = copy(firstNames, capacity * Integer.BYTES);
+		grades = copy(grades, capacity);
+		
+		var oldKeys = indexKeys;
+		var oldRows = indexRows;
+		indexKeys = new long[2 * capacity];
+		indexRows = new int[2 * capacity];
+		Arrays.fill(indexKeys, FREE_SLOT);
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldKeys[i] != FREE_SLOT) {
+				index(oldKeys[i], oldRows[i]);
+			}
+		}
+	}
+	
+	/**
+	 * A method which copies the contents of a column into a larger one.
+	 * @param column - the column.
+	 * @param bytes - size of the new column.
+	 * @return the new column.
+	 */
+	private static ByteBuffer copy(ByteBuffer column, int bytes) {
+		var copy = allocate(bytes).order(column.order());
+		copy.put(column.duplicate().clear());
+		return copy.clear();
+	}
+	
+	/**
+	 * A method which returns the first slot of the jmbag index probed for some packed JMBAG.
+	 * @param jmbag - the packed JMBAG.
+	 * @return index of the slot.
+	 */
+	private int slotOf(long jmbag) {
+		long hash = jmbag * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 32) & (indexKeys.length - 1);
+	}
+	
+	/**
+	 * A method which puts a packed JMBAG and its row into the jmbag index.
+	 * @param jmbag - the packed JMBAG.
+	 * @param row - index of the row.
+	 */
+	private void index(long jmbag, int row) {
+		int mask = indexKeys.length - 1;
+		int slot = slotOf(jmbag);
+		while(indexKeys[slot] != FREE_SLOT) {
+			slot = (slot + 1) & mask;
+		}
+		indexKeys[slot] = jmbag;
+		indexRows[slot] = row;
+	}
+	
+	/**
+	 * A method which returns the row of the student with some packed JMBAG.
+	 * @param jmbag - the packed JMBAG.
+	 * @return index of the row or -1 if there is no such student.
+	 */
+	private int rowOf(long jmbag) {
+		int mask = indexKeys.length - 1;
+		for(int slot = slotOf(jmbag); indexKeys[slot] != FREE_SLOT; slot = (slot + 1) & mask) {
+			if(indexKeys[slot] == jmbag) return indexRows[slot];
+		}
+		return -1;
+	}
+
+	@Override
+	public int rowOf(String jmbag) {
+		long packed = packJmbag(jmbag);
+		return packed == -1 ? -1 : rowOf(packed);
+	}
+
+	@Override
+	public StudentRecord get(int row) {
+		if(row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException(row);
+		}
+		return new StudentRecord(unpackJmbag(jmbagAt(row)), name(firstNameIdAt(row)),
+				name(lastNameIdAt(row)), gradeAt(row));
+	}
+
+	@Override
+	public void filter(IFilter filter, int from, int to, List<StudentRecord> result) {
+		if(filter instanceof IBatchFilter) {
+			filterBatches((IBatchFilter) filter, from, to, result);
+			return;
+		}
+		
+		var view = new RowView();
+		for(int row = from; row < to; row++) {
+			view.moveTo(row);
+			if(filter.accepts(view)) {
+				result.add(get(row));
+			}
+		}
+	}
+	
+	/**
+	 * A method which tests the rows in blocks of {@link IBatchFilter#BATCH_SIZE} rows and adds
+	 * the acceptable ones to a list in the order of rows.
+	 * @param filter - the filter.
+	 * @param from - the first row which is tested.
+	 * @param to - the row after the last row which is tested.
+	 * @param result - list the acceptable records are added to.
+	 */
+	private void filterBatches(IBatchFilter filter, int from, int to, List<StudentRecord> result) {
+		selectBatches(filter, from, to, row -> result.add(get(row)));
+	}
+	
+	/**
+	 * A method which tests the rows in blocks of {@link IBatchFilter#BATCH_SIZE} rows and
+	 * passes the indexes of the acceptable ones to an action in the order of rows.
+	 * @param filter - the filter.
+	 * @param from - the first row which is tested.
+	 * @param to - the row after the last row which is tested.
+	 * @param action - action which is performed for each acceptable row.
+	 */
+	private void selectBatches(IBatchFilter filter, int from, int to, IntConsumer action) {
+		long[] selection = new long[IBatchFilter.BATCH_SIZE / Long.SIZE];
+		for(int start = from; start < to; start += IBatchFilter.BATCH_SIZE) {
+			int end = Math.min(start + IBatchFilter.BATCH_SIZE, to);
+			int rows = end - start;
+			
+			Arrays.fill(selection, -1L);
+			if(rows % Long.SIZE != 0) {
+				selection[rows / Long.SIZE] = (1L << rows) - 1;
+			}
+			for(int word = (rows + Long.SIZE - 1) / Long.SIZE; word < selection.length; word++) {
+				selection[word] = 0;
+			}
+			
+			filter.select(this, start, end, selection);
+			
+			for(int word = 0; word < selection.length; word++) {
+				long bits = selection[word];
+				while(bits != 0) {
+					action.accept(start + word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void forEach(IFilter filter, int from, int to, Consumer<? super StudentRecord> action) {
+		var view = new RowView();
+		if(!(filter instanceof IBatchFilter)) {
+			for(int row = from; row < to; row++) {
+				view.moveTo(row);
+				if(filter.accepts(view)) {
+					action.accept(view);
+				}
+			}
+			return;
+		}
+		
+		selectBatches((IBatchFilter) filter, from, to, row -> {
+			view.moveTo(row);
+			action.accept(view);
+		});
+	}
+	
+	@Override
+	public void forEach(IFilter filter, int[] rows, Consumer<? super StudentRecord> action) {
+		var view = new RowView();
+		for(int row : rows) {
+			view.moveTo(row);
+			if(filter.accepts(view)) {
+				action.accept(view);
+			}
+		}
+	}
+	
+	/**
+	 * A method which tests the selected rows of a block with a row filter and clears the bits of
+	 * the rows which aren't acceptable. It is used for conditions which can't be tested on the
+	 * encoded columns.
+	 * @param filter - the filter.
+	 * @param from - the first row of the block.
+	 * @param to - the row after the last row of the block.
+	 * @param selection - the selection bitmap, as described by {@link IBatchFilter#select}.
+	 */
+	void refine(IFilter filter, int from, int to, long[] selection) {
+		var view = new RowView();
+		for(int word = 0; word < selection.length && from + word * Long.SIZE < to; word++) {
+			long bits = selection[word];
+			long remaining = bits;
+			while(remaining != 0) {
+				int bit = Long.numberOfTrailingZeros(remaining);
+				remaining &= remaining - 1;
+				view.moveTo(from + word * Long.SIZE + bit);
+				if(!filter.accepts(view)) {
+					bits &= ~(1L << bit);
+				}
+			}
+			selection[word] = bits;
+		}
+	}
+	
+	@Override
+	public void filter(IFilter filter, int[] rows, List<StudentRecord> result) {
+		var view = new RowView();
+		for(int row : rows) {
+			view.moveTo(row);
+			if(filter.accepts(view)) {
+				result.add(get(row));
+			}
+		}
+	}
+	
+	/**
+	 * A getter for the packed JMBAG of some row.
+	 * @param row - index of the row.
+	 * @return the packed JMBAG.
+	 */
+	public long jmbagAt(int row) {
+		return jmbags.getLong(row * Long.BYTES);
+	}
+	
+	/**
+	 * A getter for the dictionary id of the last name of some row.
+	 * @param row - index of the row.
+	 * @return the id of the last name.
+	 */
+	public int lastNameIdAt(int row) {
+		return lastNames.getInt(row * Integer.BYTES);
+	}
+	
+	/**
+	 * A getter for the dictionary id of the first name of some row.
+	 * @param row - index of the row.
+	 * @return the id of the first name.
+	 */
+	public int firstNameIdAt(int row) {
+		return firstNames.getInt(row * Integer.BYTES);
+	}
+	
+	/**
+	 * A getter for the grade of some row.
+	 * @param row - index of the row.
+	 * @return the grade.
+	 */
+	public int gradeAt(int row) {
+		return grades.get(row);
+	}
+	
+	/**
+	 * A method which returns the name with some dictionary id.
+	 * @param id - the id.
+	 * @return the name.
+	 */
+	public String name(int id) {
+		return names.get(id);
+	}
+	
+	/**
+	 * A method which returns the dictionary id of some name.
+	 * @param name - the name.
+	 * @return the id, or -1 if no row has that name.
+	 */
+	public int nameId(String name) {
+		Integer id = nameIds.get(name);
+		return id == null ? -1 : id;
+	}
+	
+	/**
+	 * A getter for the column of packed JMBAGs. Only the first {@code 8 * size()} bytes are used.
+	 * @return the column.
+	 */
+	ByteBuffer jmbagColumn() {
+		return jmbags.duplicate().order(jmbags.order());
+	}
+	
+	/**
+	 * A getter for the column of ids of last names. Only the first {@code 4 * size()} bytes are used.
+	 * @return the column.
+	 */
+	ByteBuffer lastNameColumn() {
+		return lastNames.duplicate().order(lastNames.order());
+	}
+	
+	/**
+	 * A getter for the column of ids of first names. Only the first {@code 4 * size()} bytes are used.
+	 * @return the column.
+	 */
+	ByteBuffer firstNameColumn() {
+		return firstNames.duplicate().order(firstNames.order());
+	}
+	
+	/**
+	 * A getter for the column of grades. Only the first {@code size()} bytes are used.
+	 * @return the column.
+	 */
+	ByteBuffer gradeColumn() {
+		return grades.duplicate();
+	}
+	
+	/**
+	 * A getter for the keys of the jmbag index.
+	 * @return the keys, {@code -1} marks a free slot.
+	 */
+	long[] indexKeys() {
+		return indexKeys;
+	}
+	
+	/**
+	 * A getter for the rows of the jmbag index.
+	 * @return the rows, at the same position as their keys.
+	 */
+	int[] indexRows() {
+		return indexRows;
+	}
+	
+	/**
+	 * A method which returns the number of distinct names.
+	 * @return the number of names in the dictionary.
+	 */
+	public int nameCount() {
+		return names.size();
+	}
+
+}
@@ -41,32 +41,15 @@ public class ComparisonOperators {
 	
 	/**
 	 * ComparisonOperator which compares whether given
-	 * string is lexicographically alike to the referent string.
+	 * string is alike to the referent pattern, see {@link LikePattern}.
+	 * The pattern is compiled on every comparison, so conditions which compare
+	 * many values with the same pattern compile it once themselves.
 	 */
 	public static final IComparisonOperator LIKE = (v1, v2) -> {
 		Objects.requireNonNull(v1);
 		Objects.requireNonNull(v2);
 		
-		if(!v2.contains("*")) return v1.equals(v2);
-		if(v2.equals("*")) return true;
-		
-		String[] parts = v2.split("[*]");
-		
-		if(parts.length == 0) return false;;
-		
-		if(parts.length > 2) {
-			throw new IllegalArgumentException("More than one '*' sign in LIKE comparisson");
-		}
-		if(parts.length == 1) {
-			return v1.substring(v1.length()-v2.length()+1).equals(v2.substring(1)) || v1.substring(0, v2.length()-1).equals(v2.substring(0, v2.length()-1));
-		}
-		
-		if(v1.length() + 1 < v2.length()) return false;
-		if(parts[0].length() != 0 && !v1.substring(0, parts[0].length()).equals(parts[0])) {
-			return false;
-		}
-		
-		return v1.substring(v1.length() - parts[1].length()).equals(parts[1]);
+		return LikePattern.compile(v2).matches(v1);
 	};
 	
 	/**
@@ -75,4 +58,49 @@ public class ComparisonOperators {
 	 */
 	public static final IComparisonOperator NOT_EQUALS = (v1, v2) -> v1.compareTo(v2) != 0;
 	
+	/**
+	 * A method which compares a number with a literal. Operators which compare values
+	 * lexicographically compare the number with the literal as numbers if the literal is
+	 * a whole number, other operators and literals compare the decimal form of the number.
+	 * @param operator - the operator.
+	 * @param value - the number.
+	 * @param literal - the literal.
+	 * @return true if the comparison is satisfied, false otherwise.
+	 */
+	public static boolean satisfied(IComparisonOperator operator, int value, String literal) {
+		if(operator == LIKE || symbolOf(operator).equals("?")) {
+			return operator.satisfied(Integer.toString(value), literal);
+		}
+		
+		long number;
+		try {
+			number = Long.parseLong(literal.trim());
+		} catch(NumberFormatException e) {
+			return operator.satisfied(Integer.toString(value), literal);
+		}
+		int comparison = Long.compare(value, number);
+		if(operator == LESS) return comparison < 0;
+		if(operator == LESS_OR_EQUALS) return comparison <= 0;
+		if(operator == EQUALS) return comparison == 0;
+		if(operator == GREATER) return comparison > 0;
+		if(operator == GREATER_OR_EQUALS) return comparison >= 0;
+		return comparison != 0;
+	}
+	
+	/**
+	 * A method which returns the symbol of an operator as it is written in queries.
+	 * @param operator - the operator.
+	 * @return the symbol, or "?" if it isn't one of the operators of this class.
+	 */
+	public static String symbolOf(IComparisonOperator operator) {
+		if(operator == LESS) return "<";
+		if(operator == LESS_OR_EQUALS) return "<=";
+		if(operator == EQUALS) return "=";
+		if(operator == GREATER) return ">";
+		if(operator == GREATER_OR_EQUALS) return ">=";
+		if(operator == LIKE) return "LIKE";
+		if(operator == NOT_EQUALS) return "!=";
+		return "?";
+	}
+	
 }
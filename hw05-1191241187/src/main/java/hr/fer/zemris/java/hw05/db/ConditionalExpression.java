@@ -21,6 +21,15 @@ public class ConditionalExpression {
 	 * comparison by which they are compared.
 	 */
 	private IComparisonOperator comparisonOperator;
+	/**
+	 * Bit {@code grade} is set for each grade which satisfies the condition,
+	 * if the field is the grade.
+	 */
+	private int gradeMask;
+	/**
+	 * The compiled literal, if the comparison is LIKE, or null.
+	 */
+	private LikePattern pattern;
 	
 	/**
 	 * A constructor which accepts a reference to IFieldValueGetter strategy,
@@ -39,6 +48,43 @@ public class ConditionalExpression {
 		this.fieldGetter = fieldGetter;
 		this.stringLiteral = stringLiteral;
 		this.comparisonOperator = comparisonOperator;
+		
+		if(comparisonOperator == ComparisonOperators.LIKE) {
+			pattern = LikePattern.compile(stringLiteral);
+		}
+		if(fieldGetter == FieldValueGetters.GRADE) {
+			for(int grade = BitmapIndex.MIN_GRADE; grade <= BitmapIndex.MAX_GRADE; grade++) {
+				if(ComparisonOperators.satisfied(comparisonOperator, grade, stringLiteral)) {
+					gradeMask |= 1 << grade;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * A method which checks whether a record satisfies this condition. Numeric fields
+	 * are compared with the literal as numbers, and LIKE patterns are compiled only once,
+	 * when the condition is made.
+	 * @param record - the record.
+	 * @return true if it satisfies the condition, false otherwise.
+	 */
+	public boolean isSatisfiedBy(StudentRecord record) {
+		if(fieldGetter == FieldValueGetters.GRADE) {
+			return (gradeMask >>> record.getGrade() & 1) != 0;
+		}
+		if(pattern != null) {
+			return pattern.matches(fieldGetter.get(record));
+		}
+		return comparisonOperator.satisfied(fieldGetter.get(record), stringLiteral);
+	}
+	
+	/**
+	 * A getter for the grades which satisfy this condition, if its field is the grade.
+	 * @return bitmap with bit {@code grade} set for each grade which satisfies it,
+	 * 		   0 if the field isn't the grade.
+	 */
+	int getGradeMask() {
+		return gradeMask;
 	}
 
 	/**
@@ -65,4 +111,10 @@ public class ConditionalExpression {
 		return comparisonOperator;
 	}
 	
+	@Override
+	public String toString() {
+		return FieldValueGetters.nameOf(fieldGetter) + " " + ComparisonOperators.symbolOf(comparisonOperator)
+				+ " \"" + stringLiteral + "\"";
+	}
+	
 }
@@ -0,0 +1,226 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * DatabaseSnapshot is a class which writes a {@link ColumnarStudentStorage} into a compact
+ * binary file and opens it again by memory-mapping the columns, so that the database
+ * doesn't have to be parsed from the text file on every start.
+ * <p>
+ * A snapshot consists of a header, the column blocks (JMBAGs, last name ids, first name ids,
+ * grades), the dictionary of distinct names and the prebuilt jmbag index. The header holds
+ * a magic number, the format version, the size and modification time of the text file the
+ * snapshot was built from and a CRC32 checksum of everything after the header.
+ * A snapshot which doesn't match any of those is considered stale and is rebuilt.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class DatabaseSnapshot {
+
+	/**
+	 * Magic number at the beginning of every snapshot.
+	 */
+	private static final int MAGIC = 0x53444253;
+
+	/**
+	 * Version of the format. It must be changed whenever the layout changes.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Size of the header in bytes.
+	 */
+	private static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES + 3 * Integer.BYTES + Long.BYTES;
+
+	/**
+	 * Byte order of all numbers in a snapshot.
+	 */
+	private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/**
+	 * A method which opens the database from a snapshot if the snapshot is up to date with
+	 * the text file. Otherwise the text file is loaded and a new snapshot is written.
+	 * @param source - path to the text database file.
+	 * @param snapshot - path to the snapshot.
+	 * @param parallelism - number of threads used if the text file has to be loaded.
+	 * @return the database.
+	 * @throws IOException if something went wrong with reading or writing.
+	 * @throws IllegalArgumentException if something is wrong with the entries of the text file.
+	 */
+	public static StudentDatabase open(Path source, Path snapshot, int parallelism) throws IOException {
+		var storage = read(snapshot, source);
+		if(storage != null) {
+			return new StudentDatabase(storage);
+		}
+
+		storage = new ColumnarStudentStorage();
+		var database = MappedDatabaseLoader.load(source, storage, parallelism);
+		write(storage, snapshot, source);
+		return database;
+	}
+
+	/**
+	 * A method which writes a storage into a snapshot.
+	 * @param storage - the storage.
+	 * @param snapshot - path to the snapshot.
+	 * @param source - path to the text file the storage was loaded from.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	public static void write(ColumnarStudentStorage storage, Path snapshot, Path source) throws IOException {
+		int rows = storage.size();
+		var crc = new CRC32();
+
+		if(snapshot.getParent() != null) {
+			Files.createDirectories(snapshot.getParent());
+		}
+		try(var channel = FileChannel.open(snapshot, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			channel.position(HEADER_SIZE);
+
+			writeColumn(channel, crc, storage.jmbagColumn(), rows, Long.BYTES);
+			writeColumn(channel, crc, storage.lastNameColumn(), rows, Integer.BYTES);
+			writeColumn(channel, crc, storage.firstNameColumn(), rows, Integer.BYTES);
+			writeColumn(channel, crc, storage.gradeColumn(), rows, Byte.BYTES);
+
+			for(int id = 0; id < storage.nameCount(); id++) {
+				byte[] bytes = storage.name(id).getBytes(StandardCharsets.UTF_8);
+				var block = ByteBuffer.allocate(Integer.BYTES + bytes.length).order(ORDER);
+				block.putInt(bytes.length).put(bytes).flip();
+				writeBlock(channel, crc, block);
+			}
+
+			long[] keys = storage.indexKeys();
+			int[] indexRows = storage.indexRows();
+			var block = ByteBuffer.allocate(keys.length * (Long.BYTES + Integer.BYTES)).order(ORDER);
+			block.asLongBuffer().put(keys);
+			block.position(keys.length * Long.BYTES);
+			block.asIntBuffer().put(indexRows);
+			block.clear();
+			writeBlock(channel, crc, block);
+
+			var header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+			header.putInt(MAGIC).putInt(VERSION)
+				.putLong(Files.size(source)).putLong(Files.getLastModifiedTime(source).toMillis())
+				.putInt(rows).putInt(storage.nameCount()).putInt(keys.length)
+				.putLong(crc.getValue())
+				.flip();
+			channel.position(0);
+			while(header.hasRemaining()) {
+				channel.write(header);
+			}
+		}
+	}
+
+	/**
+	 * A method which writes the used part of a column in the snapshot byte order.
+	 * @param channel - channel which is written to.
+	 * @param crc - checksum which is updated.
+	 * @param column - the column.
+	 * @param rows - number of used rows of the column.
+	 * @param width - size of one value of the column in bytes.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private static void writeColumn(FileChannel channel, CRC32 crc, ByteBuffer column, int rows, int width)
+			throws IOException {
+		column.clear().limit(rows * width);
+		if(column.order() != ORDER && width > 1) {
+			var converted = ByteBuffer.allocate(rows * width).order(ORDER);
+			for(int i = 0; i < rows * width; i += width) {
+				if(width == Long.BYTES) converted.putLong(i, column.getLong(i));
+				else converted.putInt(i, column.getInt(i));
+			}
+			column = converted;
+		}
+		writeBlock(channel, crc, column);
+	}
+
+	/**
+	 * A method which writes the remaining bytes of a buffer and adds them to the checksum.
+	 * @param channel - channel which is written to.
+	 * @param crc - checksum which is updated.
+	 * @param block - the bytes.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private static void writeBlock(FileChannel channel, CRC32 crc, ByteBuffer block) throws IOException {
+		crc.update(block.duplicate());
+		while(block.hasRemaining()) {
+			channel.write(block);
+		}
+	}
+
+	/**
+	 * A method which opens a snapshot by memory-mapping its column blocks.
+	 * @param snapshot - path to the snapshot.
+	 * @param source - path to the text file the snapshot has to match.
+	 * @return the storage, or {@code null} if the snapshot doesn't exist, is corrupted or is stale.
+	 * @throws IOException if something went wrong with reading.
+	 */
+	public static ColumnarStudentStorage read(Path snapshot, Path source) throws IOException {
+		if(!Files.isRegularFile(snapshot) || Files.size(snapshot) < HEADER_SIZE) return null;
+
+		try(var channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ORDER);
+			if(header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+			if(header.getLong() != Files.size(source)) return null;
+			if(header.getLong() != Files.getLastModifiedTime(source).toMillis()) return null;
+
+			int rows = header.getInt();
+			int nameCount = header.getInt();
+			int slots = header.getInt();
+			long checksum = header.getLong();
+			if(rows < 0 || nameCount < 0 || slots <= rows || Integer.bitCount(slots) != 1) return null;
+
+			var crc = new CRC32();
+			long position = HEADER_SIZE;
+			long fileSize = channel.size();
+
+			int[] sizes = {rows * Long.BYTES, rows * Integer.BYTES, rows * Integer.BYTES, rows};
+			ByteBuffer[] columns = new ByteBuffer[4];
+			for(int i = 0; i < columns.length; i++) {
+				if(position + sizes[i] > fileSize) return null;
+				columns[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, sizes[i]).order(ORDER);
+				crc.update(columns[i].duplicate());
+				position += sizes[i];
+			}
+
+			List<String> names = new ArrayList<String>(nameCount);
+			var dictionary = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					fileSize - position).order(ORDER);
+			for(int id = 0; id < nameCount; id++) {
+				if(dictionary.remaining() < Integer.BYTES) return null;
+				int length = dictionary.getInt();
+				if(length < 0 || dictionary.remaining() < length) return null;
+				byte[] bytes = new byte[length];
+				dictionary.get(bytes);
+				names.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+			var dictionaryBytes = dictionary.duplicate().flip();
+			crc.update(dictionaryBytes);
+
+			if(dictionary.remaining() != (long) slots * (Long.BYTES + Integer.BYTES)) return null;
+			var index = dictionary.slice().order(ORDER);
+			crc.update(index.duplicate());
+			if(crc.getValue() != checksum) return null;
+
+			long[] keys = new long[slots];
+			int[] indexRows = new int[slots];
+			index.asLongBuffer().get(keys);
+			index.position(slots * Long.BYTES);
+			index.slice().order(ORDER).asIntBuffer().get(indexRows);
+
+			return new ColumnarStudentStorage(rows, columns[0], columns[1], columns[2], columns[3],
+					names, keys, indexRows);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DatabaseVersion is a class which represents the rows of a {@link StudentDatabase} as they
+ * were after some change, together with their indexes. A version is never changed once it
+ * is published: a writer changes a copy of the storage of the latest version and publishes
+ * the copy as a new version. Every query pins the version which was the latest when it
+ * started and reads only that one, so it neither waits for writers nor sees half of a change.
+ * Older versions are reclaimed by the garbage collector once no query holds them.
+ * <p>
+ * The secondary indexes and the planner of a version are built by the first query which
+ * needs them, and plans made by the planner can only be executed on the same version.
+ * If the indexes of the previous version were already built when a version was published,
+ * they are updated with the rows the change removed and changed instead of being built from
+ * scratch, and so are the statistics of the planner until the rows changed since they were
+ * last gathered exceed {@link #STATISTICS_DRIFT} of all the rows.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+class DatabaseVersion {
+
+	/**
+	 * Fraction of the rows which can change before the statistics of the planner are gathered again.
+	 */
+	static final double STATISTICS_DRIFT = 0.1;
+
+	/**
+	 * Number of the version, which grows with every change.
+	 */
+	private final long number;
+	/**
+	 * Storage of the rows, which mustn't be changed.
+	 */
+	private final IStudentStorage students;
+	/**
+	 * The previous version, whose indexes are updated into the indexes of this one,
+	 * or null if they are built from scratch or were already built.
+	 */
+	private DatabaseVersion previous;
+	/**
+	 * Rows of the previous version which were removed, sorted, or null.
+	 */
+	private int[] removed;
+	/**
+	 * Rows of this version which were changed or added, sorted, or null.
+	 */
+	private int[] changed;
+	/**
+	 * Number of rows changed since the statistics of the planner were gathered.
+	 */
+	private long drift;
+	/**
+	 * Secondary index on last names, or null if the indexes weren't built yet.
+	 */
+	private SortedIndex lastNameIndex;
+	/**
+	 * Secondary index on first names, or null if the indexes weren't built yet.
+	 */
+	private SortedIndex firstNameIndex;
+	/**
+	 * Bitmap index on grades, or null if the indexes weren't built yet.
+	 */
+	private BitmapIndex gradeIndex;
+	/**
+	 * Planner of queries, or null if the indexes weren't built yet.
+	 */
+	private volatile QueryPlanner planner;
+
+	/**
+	 * A constructor for this class.
+	 * @param number - number of the version.
+	 * @param students - storage of the rows, which mustn't be changed any more.
+	 */
+	DatabaseVersion(long number, IStudentStorage students) {
+		this.number = number;
+		this.students = students;
+	}
+
+	/**
+	 * A constructor for the version which follows a change of the previous one.
+	 * @param previous - the previous version.
+	 * @param students - changed copy of the storage of the previous version, which mustn't be changed any more.
+	 * @param removed - rows of the previous version which were removed, sorted.
+	 * @param changed - rows of the copy which were changed or added, sorted.
+	 */
+	DatabaseVersion(DatabaseVersion previous, IStudentStorage students, int[] removed, int[] changed) {
+		this(previous.number + 1, students);
+		if(previous.planner != null) {
+			this.previous = previous;
+			this.removed = removed;
+			this.changed = changed;
+		}
+	}
+
+	/**
+	 * A getter for the number of the version.
+	 * @return the number.
+	 */
+	long getNumber() {
+		return number;
+	}
+
+	/**
+	 * A getter for the storage of the rows.
+	 * @return the storage.
+	 */
+	IStudentStorage getStudents() {
+		return students;
+	}
+
+	/**
+	 * A method which returns the version of the data cached results of queries on this version
+	 * are checked against.
+	 * @return the version, made of the number of this version and the number of rows.
+	 */
+	long dataVersion() {
+		return number << 32 | students.size();
+	}
+
+	/**
+	 * A method which builds the secondary indexes and the planner, if they weren't built yet.
+	 * Queries which need them while they are built wait for them.
+	 */
+	synchronized void buildIndexes() {
+		if(planner != null) return;
+
+		gradeIndex = new BitmapIndex(students);
+		if(previous == null) {
+			lastNameIndex = new SortedIndex(students, FieldValueGetters.LAST_NAME);
+			firstNameIndex = new SortedIndex(students, FieldValueGetters.FIRST_NAME);
+			planner = new QueryPlanner(students, lastNameIndex, firstNameIndex, gradeIndex);
+			return;
+		}
+
+		lastNameIndex = new SortedIndex(previous.lastNameIndex, students, removed, changed);
+		firstNameIndex = new SortedIndex(previous.firstNameIndex, students, removed, changed);
+		drift = previous.drift + removed.length + changed.length;
+		if(drift > STATISTICS_DRIFT * students.size()) {
+			drift = 0;
+			planner = new QueryPlanner(students, lastNameIndex, firstNameIndex, gradeIndex);
+		} else {
+			List<StudentRecord> records = new ArrayList<>(changed.length);
+			for(int row : changed) {
+				records.add(students.get(row));
+			}
+			planner = new QueryPlanner(students, lastNameIndex, firstNameIndex, gradeIndex, previous.planner, records);
+		}
+		previous = null;
+		removed = changed = null;
+	}
+
+	/**
+	 * A getter for the planner of queries. It builds the indexes if they weren't built yet.
+	 * @return the planner.
+	 */
+	QueryPlanner planner() {
+		if(planner == null) buildIndexes();
+		return planner;
+	}
+
+	/**
+	 * A getter for the bitmap index on grades. It builds the indexes if they weren't built yet.
+	 * @return the index.
+	 */
+	BitmapIndex getGradeIndex() {
+		planner();
+		return gradeIndex;
+	}
+
+	/**
+	 * A method which makes a plan for a list of conditions joined by AND.
+	 * @param conditions - the conditions.
+	 * @return the plan, executed on this version.
+	 */
+	QueryPlan plan(List<ConditionalExpression> conditions) {
+		return planner().plan(conditions).on(this);
+	}
+
+	/**
+	 * A method which makes a plan for a boolean expression tree.
+	 * @param expression - the expression.
+	 * @return the plan, executed on this version.
+	 */
+	QueryPlan plan(IQueryExpression expression) {
+		return planner().plan(expression).on(this);
+	}
+}
@@ -0,0 +1,247 @@
+package hr.fer.zemris.java.hw05.db;
+
+/**
+ * FieldStatistics is a class which holds statistics about the values of one String field
+ * of a database: number of rows, number of distinct values, minimum, maximum, length of the
+ * longest value and an equi-depth histogram. They are gathered when the database is loaded and
+ * are used by {@link QueryPlanner} to estimate how many rows satisfy a condition.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class FieldStatistics {
+
+	/**
+	 * Maximal number of buckets of a histogram.
+	 */
+	private static final int BUCKETS = 64;
+
+	/**
+	 * Selectivity which is assumed for conditions which can't be estimated from the statistics.
+	 */
+	static final double DEFAULT_SELECTIVITY = 0.25;
+
+	/**
+	 * Selectivity which is assumed for range conditions on a field without a histogram.
+	 */
+	static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+	/**
+	 * Number of rows.
+	 */
+	private int rows;
+	/**
+	 * Number of distinct values.
+	 */
+	private int distinct;
+	/**
+	 * The least value, or null if there are no rows.
+	 */
+	private String min;
+	/**
+	 * The greatest value, or null if there are no rows.
+	 */
+	private String max;
+	/**
+	 * Length of the longest value.
+	 */
+	private int maxLength;
+	/**
+	 * Lower bounds of the buckets of the histogram, each bucket holding the same number
+	 * of rows, or null if there is no histogram.
+	 */
+	private String[] bounds;
+
+	/**
+	 * A constructor which gathers the statistics from a sorted index on the field.
+	 * @param index - the index.
+	 */
+	public FieldStatistics(SortedIndex index) {
+		rows = index.size();
+		if(rows == 0) {
+			bounds = new String[0];
+			return;
+		}
+
+		min = index.valueAt(0);
+		max = index.valueAt(rows - 1);
+		distinct = 1;
+		maxLength = min.length();
+		for(int i = 1; i < rows; i++) {
+			String value = index.valueAt(i);
+			if(!value.equals(index.valueAt(i - 1))) distinct++;
+			maxLength = Math.max(maxLength, value.length());
+		}
+
+		sampleBounds(index);
+	}
+
+	/**
+	 * A constructor which updates the statistics of a field after a small change of the rows,
+	 * using a sorted index on the field of the changed rows. The number of rows, the minimum,
+	 * the maximum and the histogram are taken from the index, the number of distinct values
+	 * is kept and the length of the longest value can only grow, so that it stays an upper bound.
+	 * @param index - the index of the changed rows.
+	 * @param previous - the statistics before the change.
+	 * @param changedMaxLength - length of the longest changed or added value.
+	 */
+	public FieldStatistics(SortedIndex index, FieldStatistics previous, int changedMaxLength) {
+		rows = index.size();
+		if(rows == 0) {
+			bounds = new String[0];
+			return;
+		}
+
+		min = index.valueAt(0);
+		max = index.valueAt(rows - 1);
+		distinct = Math.max(1, Math.min(previous.distinct, rows));
+		maxLength = Math.max(previous.maxLength, changedMaxLength);
+		sampleBounds(index);
+	}
+
+	/**
+	 * A method which makes the histogram from the values of a sorted index.
+	 * @param index - the index, with at least one row.
+	 */
+	private void sampleBounds(SortedIndex index) {
+		bounds = new String[Math.min(BUCKETS, rows)];
+		for(int i = 0; i < bounds.length; i++) {
+			bounds[i] = index.valueAt((int) ((long) i * rows / bounds.length));
+		}
+	}
+
+	/**
+	 * A constructor for statistics of a field whose values are all different and which
+	 * has no histogram, for example the JMBAG.
+	 * @param rows - number of rows.
+	 * @param min - the least value.
+	 * @param max - the greatest value.
+	 * @param maxLength - length of the longest value.
+	 */
+	public FieldStatistics(int rows, String min, String max, int maxLength) {
+		this.rows = rows;
+		this.distinct = rows;
+		this.min = min;
+		this.max = max;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * A getter for the number of rows.
+	 * @return the number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * A getter for the number of distinct values.
+	 * @return the number of distinct values.
+	 */
+	public int getDistinct() {
+		return distinct;
+	}
+
+	/**
+	 * A getter for the least value.
+	 * @return the least value, or null if there are no rows.
+	 */
+	public String getMin() {
+		return min;
+	}
+
+	/**
+	 * A getter for the greatest value.
+	 * @return the greatest value, or null if there are no rows.
+	 */
+	public String getMax() {
+		return max;
+	}
+
+	/**
+	 * A getter for the length of the longest value.
+	 * @return the length, 0 if there are no rows.
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * A method which estimates the fraction of rows whose value satisfies a comparison with a literal.
+	 * @param operator - the comparison.
+	 * @param literal - the literal.
+	 * @return the estimated fraction, between 0 and 1.
+	 */
+	public double selectivity(IComparisonOperator operator, String literal) {
+		if(rows == 0) return 0;
+
+		if(operator == ComparisonOperators.EQUALS) {
+			if(literal.compareTo(min) < 0 || literal.compareTo(max) > 0) return 0;
+			return 1.0 / distinct;
+		}
+		if(operator == ComparisonOperators.NOT_EQUALS) {
+			return 1 - selectivity(ComparisonOperators.EQUALS, literal);
+		}
+		if(operator == ComparisonOperators.LESS) {
+			return fractionBelow(literal, false);
+		}
+		if(operator == ComparisonOperators.LESS_OR_EQUALS) {
+			return fractionBelow(literal, true);
+		}
+		if(operator == ComparisonOperators.GREATER) {
+			return 1 - fractionBelow(literal, true);
+		}
+		if(operator == ComparisonOperators.GREATER_OR_EQUALS) {
+			return 1 - fractionBelow(literal, false);
+		}
+		if(operator == ComparisonOperators.LIKE) {
+			var pattern = LikePattern.compile(literal);
+			if(pattern.isExact()) return selectivity(ComparisonOperators.EQUALS, literal);
+			if(pattern.matchesAll()) return 1;
+
+			String prefix = pattern.getPrefix();
+			if(prefix.isEmpty()) return DEFAULT_SELECTIVITY;
+			double fraction = fractionBelow(prefix + Character.MAX_VALUE, false) - fractionBelow(prefix, false);
+			fraction = Math.max(fraction, selectivity(ComparisonOperators.EQUALS, prefix.compareTo(min) < 0 ? min : prefix));
+			return pattern.isPrefix() ? fraction : fraction * DEFAULT_SELECTIVITY;
+		}
+		return DEFAULT_SELECTIVITY;
+	}
+
+	/**
+	 * A method which estimates the fraction of rows whose value satisfies a comparison with a
+	 * literal which isn't known yet, as for the placeholders of a {@link PreparedQuery}.
+	 * @param operator - the comparison.
+	 * @return the estimated fraction, between 0 and 1.
+	 */
+	public double selectivity(IComparisonOperator operator) {
+		if(rows == 0) return 0;
+
+		if(operator == ComparisonOperators.EQUALS) return 1.0 / distinct;
+		if(operator == ComparisonOperators.NOT_EQUALS) return 1 - 1.0 / distinct;
+		if(operator == ComparisonOperators.LIKE) return DEFAULT_SELECTIVITY;
+		return DEFAULT_RANGE_SELECTIVITY;
+	}
+
+	/**
+	 * A method which estimates the fraction of rows whose value is less than a literal.
+	 * @param literal - the literal.
+	 * @param inclusive - whether the values equal to the literal are counted as well.
+	 * @return the estimated fraction.
+	 */
+	private double fractionBelow(String literal, boolean inclusive) {
+		int toMin = literal.compareTo(min);
+		if(toMin < 0 || (toMin == 0 && !inclusive)) return 0;
+		int toMax = literal.compareTo(max);
+		if(toMax > 0 || (toMax == 0 && inclusive)) return 1;
+		if(bounds == null) return DEFAULT_RANGE_SELECTIVITY;
+
+		int low = 0, high = bounds.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			int comparison = bounds[middle].compareTo(literal);
+			if(comparison < 0 || (comparison == 0 && inclusive)) low = middle + 1; else high = middle;
+		}
+		return (double) low / bounds.length;
+	}
+}
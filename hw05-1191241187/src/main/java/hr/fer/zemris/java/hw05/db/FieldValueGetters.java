@@ -23,4 +23,33 @@ public class FieldValueGetters {
 	 */
 	public static final IFieldValueGetter JMBAG = StudentRecord::getJmbag;
 	
+	/**
+	 * A getter for grade variable of StudentRecord, written as a decimal number.
+	 * Grades are compared with literals as numbers, see {@link #isNumeric(IFieldValueGetter)}.
+	 */
+	public static final IFieldValueGetter GRADE = record -> Integer.toString(record.getGrade());
+	
+	/**
+	 * A method which returns the name of a field as it is written in queries.
+	 * @param getter - getter for the field.
+	 * @return the name of the field, or "?" if it isn't one of the getters of this class.
+	 */
+	public static String nameOf(IFieldValueGetter getter) {
+		if(getter == FIRST_NAME) return "firstName";
+		if(getter == LAST_NAME) return "lastName";
+		if(getter == JMBAG) return "jmbag";
+		if(getter == GRADE) return "grade";
+		return "?";
+	}
+	
+	/**
+	 * A method which checks whether the values of a field are numbers, which are compared
+	 * with literals as numbers instead of lexicographically.
+	 * @param getter - getter for the field.
+	 * @return true if the field is numeric, false otherwise.
+	 */
+	public static boolean isNumeric(IFieldValueGetter getter) {
+		return getter == GRADE;
+	}
+	
 }
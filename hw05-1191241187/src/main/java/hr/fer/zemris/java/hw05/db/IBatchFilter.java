@@ -0,0 +1,28 @@
+package hr.fer.zemris.java.hw05.db;
+
+/**
+ * IBatchFilter is an interface for filters which test a whole block of rows of a
+ * {@link ColumnarStudentStorage} at once, working on the encoded columns instead of records.
+ * The result of a test is a selection bitmap with one bit per row of the block.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public interface IBatchFilter {
+
+	/**
+	 * Maximal number of rows of a block.
+	 */
+	public static final int BATCH_SIZE = 1024;
+	
+	/**
+	 * A method which tests a block of rows and clears the bits of the rows which aren't
+	 * acceptable. Bit {@code i % 64} of word {@code i / 64} of the selection belongs to
+	 * row {@code from + i}. Rows whose bits are already cleared don't have to be tested.
+	 * @param storage - the storage.
+	 * @param from - the first row of the block.
+	 * @param to - the row after the last row of the block, at most {@link #BATCH_SIZE} rows after from.
+	 * @param selection - the selection bitmap.
+	 */
+	public void select(ColumnarStudentStorage storage, int from, int to, long[] selection);
+}
@@ -0,0 +1,13 @@
+package hr.fer.zemris.java.hw05.db;
+
+/**
+ * IQueryExpression is an interface which represents a node of the boolean expression tree
+ * of a query: a single condition, or AND, OR and NOT of other expressions. Implementations
+ * are in {@link QueryExpressions}; a node accepts a record if the expression is true for it.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public interface IQueryExpression extends IFilter {
+
+}
@@ -0,0 +1,131 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * IStudentStorage is an interface which represents a strategy for storing the rows of a
+ * {@link StudentDatabase}. Rows are numbered from 0 in the order they were added.
+ * @author Božidar Grgur Drmić
+ *
+ */
+public interface IStudentStorage {
+	
+	/**
+	 * A method which returns the number of stored rows.
+	 * @return the number of rows.
+	 */
+	public int size();
+	
+	/**
+	 * A method which appends a record as a new row.
+	 * @param record - record which is added.
+	 * @throws IllegalArgumentException if there already is a record with the same jmbag
+	 * 		   or the record can't be stored.
+	 */
+	public void add(StudentRecord record);
+	
+	/**
+	 * A method which replaces the record stored in some row by a record of the same student.
+	 * Storages which can't be changed, such as snapshots, don't support it.
+	 * @param row - index of the row.
+	 * @param record - the new record, with the jmbag of the old one.
+	 * @throws IllegalArgumentException if the jmbag of the record isn't the jmbag of the row.
+	 * @throws IndexOutOfBoundsException if there is no such row.
+	 * @throws UnsupportedOperationException if the storage can't be changed.
+	 */
+	public default void set(int row, StudentRecord record) {
+		throw new UnsupportedOperationException("The storage is read-only.");
+	}
+	
+	/**
+	 * A method which removes some rows. The remaining rows keep their order and are numbered
+	 * from 0 again. Storages which can't be changed, such as snapshots, don't support it.
+	 * @param rows - indices of the removed rows, sorted and without duplicates.
+	 * @throws IndexOutOfBoundsException if there is no such row.
+	 * @throws UnsupportedOperationException if the storage can't be changed.
+	 */
+	public default void remove(int[] rows) {
+		throw new UnsupportedOperationException("The storage is read-only.");
+	}
+	
+	/**
+	 * A method which returns a copy of this storage. Changes of the copy aren't seen by this
+	 * storage and the other way around. Storages which can't be changed, such as snapshots,
+	 * don't support it.
+	 * @return the copy.
+	 * @throws UnsupportedOperationException if the storage can't be changed.
+	 */
+	public default IStudentStorage copy() {
+		throw new UnsupportedOperationException("The storage is read-only.");
+	}
+
+	/**
+	 * A method which returns the row of the student with some jmbag.
+	 * @param jmbag - jmbag of the student.
+	 * @return index of the row or -1 if there is no such student.
+	 */
+	public int rowOf(String jmbag);
+	
+	/**
+	 * A method which returns the record stored in some row.
+	 * @param row - index of the row.
+	 * @return the record.
+	 * @throws IndexOutOfBoundsException if there is no such row.
+	 */
+	public StudentRecord get(int row);
+	
+	/**
+	 * A method which tests the rows in range [from, to) and appends those
+	 * which the filter accepts to the result, in row order.
+	 * @param filter - criterion.
+	 * @param from - index of the first row which is tested.
+	 * @param to - index after the last row which is tested.
+	 * @param result - list to which acceptable records are appended.
+	 */
+	public void filter(IFilter filter, int from, int to, List<StudentRecord> result);
+	
+	/**
+	 * A method which tests some rows and appends those which the filter accepts
+	 * to the result, in the order of the given rows.
+	 * @param filter - criterion.
+	 * @param rows - indices of the rows which are tested.
+	 * @param result - list to which acceptable records are appended.
+	 */
+	public void filter(IFilter filter, int[] rows, List<StudentRecord> result);
+	
+	/**
+	 * A method which tests the rows in range [from, to) and passes those which the filter
+	 * accepts to an action, in row order, without collecting them. The records passed to
+	 * the action may be views of the rows which are valid only until the action returns.
+	 * @param filter - criterion.
+	 * @param from - index of the first row which is tested.
+	 * @param to - index after the last row which is tested.
+	 * @param action - action which is performed for each acceptable record.
+	 */
+	public default void forEach(IFilter filter, int from, int to, Consumer<? super StudentRecord> action) {
+		for(int row = from; row < to; row++) {
+			var student = get(row);
+			if(filter.accepts(student)) {
+				action.accept(student);
+			}
+		}
+	}
+	
+	/**
+	 * A method which tests some rows and passes those which the filter accepts to an action,
+	 * in the order of the given rows, as {@link #forEach(IFilter, int, int, Consumer)} does.
+	 * @param filter - criterion.
+	 * @param rows - indices of the rows which are tested.
+	 * @param action - action which is performed for each acceptable record.
+	 */
+	public default void forEach(IFilter filter, int[] rows, Consumer<? super StudentRecord> action) {
+		for(int row : rows) {
+			var student = get(row);
+			if(filter.accepts(student)) {
+				action.accept(student);
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,272 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * LikePattern is a class which represents a compiled pattern of the LIKE operator. In a
+ * pattern {@code *} matches any sequence of characters, including an empty one, and
+ * {@code ?} matches exactly one character; every other character matches itself.
+ * <p>
+ * A pattern is analysed once, when it is compiled. Exact patterns and patterns which only
+ * fix a prefix, a suffix, both, or a part anywhere in the value are matched with a single
+ * call of {@link String#startsWith}, {@link String#endsWith} or {@link String#indexOf}.
+ * Other patterns are matched by anchoring their first and last parts and finding the
+ * parts between them from left to right, which is correct for {@code *} wildcards and
+ * takes linear time for each part. Matching never allocates.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class LikePattern {
+
+	/**
+	 * Wildcard which matches any sequence of characters.
+	 */
+	public static final char ANY_SEQUENCE = '*';
+
+	/**
+	 * Wildcard which matches exactly one character.
+	 */
+	public static final char ANY_CHARACTER = '?';
+
+	/**
+	 * Kind is an enumeration of the shapes of patterns which have their own way of matching.
+	 */
+	private enum Kind {
+		EXACT, ANY, PREFIX, SUFFIX, PREFIX_AND_SUFFIX, CONTAINS, GENERAL
+	}
+
+	/**
+	 * Text of the pattern.
+	 */
+	private String pattern;
+	/**
+	 * Shape of the pattern.
+	 */
+	private Kind kind;
+	/**
+	 * Parts of the pattern between the {@code *} wildcards, without empty ones.
+	 */
+	private String[] parts;
+	/**
+	 * Whether each part contains a {@code ?} wildcard.
+	 */
+	private boolean[] wildcards;
+	/**
+	 * Whether the pattern starts with {@code *}.
+	 */
+	private boolean leadingStar;
+	/**
+	 * Whether the pattern ends with {@code *}.
+	 */
+	private boolean trailingStar;
+	/**
+	 * The least length of a matching value.
+	 */
+	private int minLength;
+	/**
+	 * The characters every matching value starts with.
+	 */
+	private String prefix;
+
+	/**
+	 * A constructor which analyses a pattern.
+	 * @param pattern - text of the pattern.
+	 */
+	private LikePattern(String pattern) {
+		this.pattern = pattern;
+
+		List<String> partList = new ArrayList<>();
+		int start = 0;
+		for(int i = 0; i <= pattern.length(); i++) {
+			if(i == pattern.length() || pattern.charAt(i) == ANY_SEQUENCE) {
+				if(i > start) partList.add(pattern.substring(start, i));
+				start = i + 1;
+			}
+		}
+		parts = partList.toArray(new String[0]);
+		wildcards = new boolean[parts.length];
+		boolean anyWildcard = false;
+		for(int i = 0; i < parts.length; i++) {
+			wildcards[i] = parts[i].indexOf(ANY_CHARACTER) != -1;
+			anyWildcard |= wildcards[i];
+			minLength += parts[i].length();
+		}
+		leadingStar = pattern.length() > 0 && pattern.charAt(0) == ANY_SEQUENCE;
+		trailingStar = pattern.length() > 0 && pattern.charAt(pattern.length() - 1) == ANY_SEQUENCE;
+
+		int end = 0;
+		while(end < pattern.length() && pattern.charAt(end) != ANY_SEQUENCE && pattern.charAt(end) != ANY_CHARACTER) {
+			end++;
+		}
+		prefix = pattern.substring(0, end);
+
+		if(parts.length == 0) {
+			kind = pattern.isEmpty() ? Kind.EXACT : Kind.ANY;
+		} else if(anyWildcard) {
+			kind = Kind.GENERAL;
+		} else if(!leadingStar && !trailingStar) {
+			kind = parts.length == 1 ? Kind.EXACT : parts.length == 2 ? Kind.PREFIX_AND_SUFFIX : Kind.GENERAL;
+		} else if(parts.length > 1) {
+			kind = Kind.GENERAL;
+		} else if(leadingStar && trailingStar) {
+			kind = Kind.CONTAINS;
+		} else {
+			kind = leadingStar ? Kind.SUFFIX : Kind.PREFIX;
+		}
+	}
+
+	/**
+	 * A method which compiles a pattern.
+	 * @param pattern - text of the pattern.
+	 * @return the compiled pattern.
+	 * @throws NullPointerException if pattern is null.
+	 */
+	public static LikePattern compile(String pattern) {
+		Objects.requireNonNull(pattern);
+		return new LikePattern(pattern);
+	}
+
+	/**
+	 * A method which checks whether a value matches this pattern.
+	 * @param value - the value.
+	 * @return true if it matches, false otherwise.
+	 */
+	public boolean matches(String value) {
+		switch(kind) {
+		case ANY:
+			return true;
+		case EXACT:
+			return value.equals(pattern);
+		case PREFIX:
+			return value.startsWith(parts[0]);
+		case SUFFIX:
+			return value.endsWith(parts[0]);
+		case CONTAINS:
+			return value.indexOf(parts[0]) != -1;
+		case PREFIX_AND_SUFFIX:
+			return value.length() >= minLength && value.startsWith(parts[0]) && value.endsWith(parts[1]);
+		default:
+			return matchesGeneral(value);
+		}
+	}
+
+	/**
+	 * A method which matches a value against a pattern of any shape.
+	 * @param value - the value.
+	 * @return true if it matches, false otherwise.
+	 */
+	private boolean matchesGeneral(String value) {
+		int length = value.length();
+		if(length < minLength) return false;
+
+		int first = 0, last = parts.length - 1;
+		int start = 0, end = length;
+		if(!leadingStar) {
+			if(!matchesAt(value, 0, first)) return false;
+			if(!trailingStar && parts.length == 1) return length == parts[0].length();
+			start = parts[first++].length();
+		}
+		if(!trailingStar) {
+			end = length - parts[last].length();
+			if(end < start || !matchesAt(value, end, last)) return false;
+			last--;
+		}
+
+		for(int i = first; i <= last; i++) {
+			int position = find(value, start, end, i);
+			if(position == -1) return false;
+			start = position + parts[i].length();
+		}
+		return true;
+	}
+
+	/**
+	 * A method which checks whether a part of this pattern matches a value at some position.
+	 * @param value - the value.
+	 * @param position - the position, such that the part fits into the value.
+	 * @param part - index of the part.
+	 * @return true if it matches, false otherwise.
+	 */
+	private boolean matchesAt(String value, int position, int part) {
+		String text = parts[part];
+		if(!wildcards[part]) return value.startsWith(text, position);
+
+		for(int i = 0, n = text.length(); i < n; i++) {
+			char c = text.charAt(i);
+			if(c != ANY_CHARACTER && value.charAt(position + i) != c) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A method which finds the first position at which a part of this pattern matches
+	 * a value, such that the part lies between two positions.
+	 * @param value - the value.
+	 * @param from - the least position.
+	 * @param to - the position the part has to end before or at.
+	 * @param part - index of the part.
+	 * @return the position, or -1 if there is none.
+	 */
+	private int find(String value, int from, int to, int part) {
+		int last = to - parts[part].length();
+		if(!wildcards[part]) {
+			int position = value.indexOf(parts[part], from);
+			return position > last ? -1 : position;
+		}
+		for(int position = from; position <= last; position++) {
+			if(matchesAt(value, position, part)) return position;
+		}
+		return -1;
+	}
+
+	/**
+	 * A getter for the text of this pattern.
+	 * @return the text.
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * A getter for the characters every value matching this pattern starts with,
+	 * which are the characters before the first wildcard.
+	 * @return the prefix, possibly empty.
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * A method which checks whether this pattern has no wildcards, so that only the value
+	 * equal to it matches.
+	 * @return true if it has no wildcards, false otherwise.
+	 */
+	public boolean isExact() {
+		return kind == Kind.EXACT;
+	}
+
+	/**
+	 * A method which checks whether this pattern matches every value.
+	 * @return true if the pattern consists of {@code *} wildcards only, false otherwise.
+	 */
+	public boolean matchesAll() {
+		return kind == Kind.ANY;
+	}
+
+	/**
+	 * A method which checks whether exactly the values starting with the prefix of this
+	 * pattern match it, so that a range of a sorted index answers the pattern.
+	 * @return true if the pattern is a prefix followed by {@code *}, false otherwise.
+	 */
+	public boolean isPrefix() {
+		return kind == Kind.PREFIX;
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+}
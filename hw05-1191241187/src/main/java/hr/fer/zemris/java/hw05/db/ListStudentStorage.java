@@ -0,0 +1,278 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * ListStudentStorage is the default implementation of IStudentStorage which keeps
+ * one StudentRecord object per row.
+ * <p>
+ * The rows are kept in segments of {@link #SEGMENT_SIZE} records and the index of students
+ * in buckets chosen by the hash of the jmbag, so that {@link #copy()} only copies the arrays
+ * of segments and buckets, which are then shared by both storages. A segment or a bucket
+ * is copied by the first change of either storage which touches it.
+ * <p>
+ * The index of students maps jmbags to keys, which are rows as they were before the rows
+ * removed since the index was last renumbered. Keeping those removed keys lets a removal
+ * change only the buckets of the removed students, and the index is renumbered once they
+ * make up more than 1 / 2<sup>{@link #RENUMBER_SHIFT}</sup> of the rows.
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class ListStudentStorage implements IStudentStorage {
+
+	/**
+	 * Number of bits of the index of a row inside its segment.
+	 */
+	private static final int SEGMENT_BITS = 10;
+	/**
+	 * Number of rows in a segment.
+	 */
+	public static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+	/**
+	 * Number of bits of the number of a bucket of the index of students.
+	 */
+	private static final int BUCKET_BITS = 10;
+	/**
+	 * The index of students is renumbered when the removed keys outnumber the rows shifted right by it.
+	 */
+	private static final int RENUMBER_SHIFT = 4;
+
+	/**
+	 * Index of students, split into buckets, which holds the key of each row. Each student is
+	 * identified by his/her jmbag.
+	 */
+	private Map<String, Integer>[] indexOfStudents;
+	/**
+	 * Keys of the rows removed since the index of students was last renumbered, sorted.
+	 */
+	private int[] removedKeys;
+	/**
+	 * StudentRecords in this storage, in segments of {@link #SEGMENT_SIZE} rows.
+	 */
+	private StudentRecord[][] students;
+	/**
+	 * Number of rows.
+	 */
+	private int size;
+	/**
+	 * Whether each bucket belongs only to this storage.
+	 */
+	private boolean[] ownedBuckets;
+	/**
+	 * Whether each segment belongs only to this storage.
+	 */
+	private boolean[] ownedSegments;
+
+	/**
+	 * A constructor which creates an empty storage.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public ListStudentStorage() {
+		indexOfStudents = new Map[1 << BUCKET_BITS];
+		for(int i = 0; i < indexOfStudents.length; i++) {
+			indexOfStudents[i] = new HashMap<String, Integer>();
+		}
+		ownedBuckets = new boolean[indexOfStudents.length];
+		Arrays.fill(ownedBuckets, true);
+		removedKeys = new int[0];
+		students = new StudentRecord[1][];
+		ownedSegments = new boolean[1];
+	}
+
+	/**
+	 * A constructor which creates a storage sharing the buckets and segments of another one.
+	 * @param other - the other storage.
+	 */
+	private ListStudentStorage(ListStudentStorage other) {
+		indexOfStudents = other.indexOfStudents.clone();
+		removedKeys = other.removedKeys;
+		students = other.students.clone();
+		size = other.size;
+		ownedBuckets = new boolean[indexOfStudents.length];
+		ownedSegments = new boolean[students.length];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Only the arrays of segments and buckets are copied, in O(rows / {@link #SEGMENT_SIZE}).
+	 */
+	@Override
+	public ListStudentStorage copy() {
+		Arrays.fill(ownedBuckets, false);
+		Arrays.fill(ownedSegments, false);
+		return new ListStudentStorage(this);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void add(StudentRecord record) {
+		if(rowOf(record.getJmbag()) != -1) {
+			throw new IllegalArgumentException("Duplicate JMBAG: " + record.getJmbag());
+		}
+
+		int segment = size >>> SEGMENT_BITS;
+		if(segment == students.length) {
+			students = Arrays.copyOf(students, segment * 2);
+			ownedSegments = Arrays.copyOf(ownedSegments, segment * 2);
+		}
+		if(students[segment] == null) {
+			students[segment] = new StudentRecord[SEGMENT_SIZE];
+			ownedSegments[segment] = true;
+		}
+		ownedSegment(segment)[size & SEGMENT_SIZE - 1] = record;
+		ownedBucket(record.getJmbag()).put(record.getJmbag(), size + removedKeys.length);
+		size++;
+	}
+
+	@Override
+	public void set(int row, StudentRecord record) {
+		if(!get(row).getJmbag().equals(record.getJmbag())) {
+			throw new IllegalArgumentException("The JMBAG of a row can't be changed.");
+		}
+		ownedSegment(row >>> SEGMENT_BITS)[row & SEGMENT_SIZE - 1] = record;
+	}
+
+	@Override
+	public void remove(int[] rows) {
+		if(rows.length == 0) return;
+		Objects.checkIndex(rows[rows.length - 1], size);
+
+		int[] keys = new int[rows.length];
+		for(int i = 0; i < rows.length; i++) {
+			String jmbag = get(rows[i]).getJmbag();
+			keys[i] = ownedBucket(jmbag).remove(jmbag);
+		}
+		removedKeys = merge(removedKeys, keys);
+
+		int kept = rows[0];
+		for(int row = rows[0], next = 0; row < size; row++) {
+			if(next < rows.length && rows[next] == row) {
+				next++;
+				continue;
+			}
+			ownedSegment(kept >>> SEGMENT_BITS)[kept & SEGMENT_SIZE - 1] = get(row);
+			kept++;
+		}
+
+		for(int segment = (kept + SEGMENT_SIZE - 1) >>> SEGMENT_BITS; segment < students.length; segment++) {
+			students[segment] = null;
+		}
+		if((kept & SEGMENT_SIZE - 1) != 0) {
+			Arrays.fill(ownedSegment(kept >>> SEGMENT_BITS), kept & SEGMENT_SIZE - 1, SEGMENT_SIZE, null);
+		}
+		size = kept;
+		if(removedKeys.length > size >>> RENUMBER_SHIFT) renumber();
+	}
+
+	/**
+	 * A method which merges two sorted arrays of distinct keys.
+	 * @param first - the first array.
+	 * @param second - the second array, without the keys of the first one.
+	 * @return the merged array.
+	 */
+	private static int[] merge(int[] first, int[] second) {
+		int[] merged = new int[first.length + second.length];
+		for(int i = 0, j = 0, k = 0; k < merged.length; k++) {
+			merged[k] = j == second.length || (i < first.length && first[i] < second[j]) ? first[i++] : second[j++];
+		}
+		return merged;
+	}
+
+	/**
+	 * A method which makes the key of every row equal to the row again, in new buckets.
+	 */
+	private void renumber() {
+		for(int bucket = 0; bucket < indexOfStudents.length; bucket++) {
+			indexOfStudents[bucket] = new HashMap<String, Integer>();
+			ownedBuckets[bucket] = true;
+		}
+		for(int row = 0; row < size; row++) {
+			String jmbag = get(row).getJmbag();
+			indexOfStudents[bucketOf(jmbag)].put(jmbag, row);
+		}
+		removedKeys = new int[0];
+	}
+
+	/**
+	 * A method which returns a segment for changing, copying it first if it is shared.
+	 * @param segment - number of the segment.
+	 * @return the segment.
+	 */
+	private StudentRecord[] ownedSegment(int segment) {
+		if(!ownedSegments[segment]) {
+			students[segment] = students[segment].clone();
+			ownedSegments[segment] = true;
+		}
+		return students[segment];
+	}
+
+	/**
+	 * A method which returns the bucket of a jmbag for changing, copying it first if it is shared.
+	 * @param jmbag - the jmbag.
+	 * @return the bucket.
+	 */
+	private Map<String, Integer> ownedBucket(String jmbag) {
+		int bucket = bucketOf(jmbag);
+		if(!ownedBuckets[bucket]) {
+			indexOfStudents[bucket] = new HashMap<String, Integer>(indexOfStudents[bucket]);
+			ownedBuckets[bucket] = true;
+		}
+		return indexOfStudents[bucket];
+	}
+
+	/**
+	 * A method which returns the number of the bucket of a jmbag.
+	 * @param jmbag - the jmbag.
+	 * @return the number of the bucket.
+	 */
+	private static int bucketOf(String jmbag) {
+		return (jmbag.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - BUCKET_BITS);
+	}
+
+	@Override
+	public int rowOf(String jmbag) {
+		Integer key = indexOfStudents[bucketOf(jmbag)].get(jmbag);
+		if(key == null) return -1;
+		return removedKeys.length == 0 ? key : key + Arrays.binarySearch(removedKeys, key) + 1;
+	}
+
+	@Override
+	public StudentRecord get(int row) {
+		Objects.checkIndex(row, size);
+		return students[row >>> SEGMENT_BITS][row & SEGMENT_SIZE - 1];
+	}
+
+	@Override
+	public void filter(IFilter filter, int from, int to, List<StudentRecord> result) {
+		Objects.checkFromToIndex(from, to, size);
+		for(int row = from; row < to; ) {
+			var segment = students[row >>> SEGMENT_BITS];
+			int end = Math.min(to, (row | SEGMENT_SIZE - 1) + 1);
+			for(int i = row & SEGMENT_SIZE - 1; row < end; row++, i++) {
+				var student = segment[i];
+				if(filter.accepts(student)) {
+					result.add(student);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void filter(IFilter filter, int[] rows, List<StudentRecord> result) {
+		for(int row : rows) {
+			var student = get(row);
+			if(filter.accepts(student)) {
+				result.add(student);
+			}
+		}
+	}
+
+}
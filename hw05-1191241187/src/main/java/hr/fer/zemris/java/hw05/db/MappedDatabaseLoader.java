@@ -0,0 +1,294 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * MappedDatabaseLoader is a class which loads a database file by memory-mapping it and
+ * scanning the tab and newline delimiters directly over the mapped bytes, instead of
+ * reading every line into a String and splitting it. Only the name fields are decoded
+ * as UTF-8. A file can also be parsed in parallel, in newline-aligned chunks.
+ * The format is the same as for {@link StudentDatabase#StudentDatabase(java.util.List)}:
+ * one "jmbag lastName firstName grade" entry per line, separated by tabs.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class MappedDatabaseLoader {
+	
+	/**
+	 * Largest part of a file which is mapped at once.
+	 */
+	private static final long WINDOW_SIZE = 1 << 30;
+	
+	/**
+	 * Number of tab-separated fields in an entry.
+	 */
+	private static final int FIELDS = 4;
+	
+	/**
+	 * Number of chunks per thread a window is split into when loading in parallel,
+	 * so that threads which finish early can take over the remaining chunks.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	/**
+	 * Consumer the parsed records are given to.
+	 */
+	private Consumer<StudentRecord> sink;
+	
+	/**
+	 * Buffer into which name bytes are copied before they are decoded.
+	 */
+	private byte[] scratch = new byte[64];
+	
+	/**
+	 * Start of each field of the current entry.
+	 */
+	private int[] fieldStart = new int[FIELDS];
+	/**
+	 * End of each field of the current entry.
+	 */
+	private int[] fieldEnd = new int[FIELDS];
+	
+	/**
+	 * A private constructor for this class.
+	 * @param sink - consumer the parsed records are given to.
+	 */
+	private MappedDatabaseLoader(Consumer<StudentRecord> sink) {
+		this.sink = sink;
+	}
+	
+	/**
+	 * A method which loads a database file into some storage.
+	 * @param path - path to the database file.
+	 * @param storage - an empty storage for the records.
+	 * @return the database.
+	 * @throws IOException if something went wrong with reading.
+	 * @throws IllegalArgumentException if something is wrong with the entries.
+	 */
+	public static StudentDatabase load(Path path, IStudentStorage storage) throws IOException {
+		return load(path, storage, 1);
+	}
+	
+	/**
+	 * A method which loads a database file into some storage using several threads.
+	 * Each thread parses its own newline-aligned chunk of the file. The records are then added
+	 * to the storage in the order of the file, so duplicate JMBAGs are still detected
+	 * and the rows keep their original order.
+	 * @param path - path to the database file.
+	 * @param storage - an empty storage for the records.
+	 * @param parallelism - number of threads which parse the file. If it is 1, the file is
+	 * 		  parsed by the calling thread directly into the storage.
+	 * @return the database.
+	 * @throws IOException if something went wrong with reading.
+	 * @throws IllegalArgumentException if something is wrong with the entries or parallelism is less than 1.
+	 */
+	public static StudentDatabase load(Path path, IStudentStorage storage, int parallelism) throws IOException {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+		}
+		
+		ForkJoinPool pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+		try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			while(position < size) {
+				long length = Math.min(WINDOW_SIZE, size - position);
+				var buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				
+				int end = endOfLines(buffer, position + length == size);
+				if(end == 0) {
+					throw new IllegalArgumentException("Wrong fomat of entry.");
+				}
+				
+				if(pool == null) {
+					new MappedDatabaseLoader(storage::add).parseLines(buffer, 0, end);
+				} else {
+					parseInParallel(buffer, end, storage, pool, parallelism * CHUNKS_PER_THREAD);
+				}
+				position += end;
+			}
+		} finally {
+			if(pool != null) pool.shutdown();
+		}
+		
+		return new StudentDatabase(storage);
+	}
+	
+	/**
+	 * A method which returns the end of the complete lines of a buffer. If the buffer is the last part of
+	 * the file, its last line is complete even if it doesn't end with a newline.
+	 * @param buffer - the bytes.
+	 * @param last - whether the buffer reaches the end of the file.
+	 * @return the index after the last newline, or the limit of the buffer if it is the last one.
+	 */
+	private static int endOfLines(ByteBuffer buffer, boolean last) {
+		if(last) return buffer.limit();
+		
+		int end = buffer.limit();
+		while(end > 0 && buffer.get(end - 1) != '\n') {
+			end--;
+		}
+		return end;
+	}
+	
+	/**
+	 * A method which splits the complete lines of a buffer into newline-aligned chunks, parses them
+	 * on a pool and adds the records to a storage in the order of the chunks.
+	 * @param buffer - the bytes.
+	 * @param end - end of the complete lines.
+	 * @param storage - storage the records are added to.
+	 * @param pool - the pool which parses the chunks.
+	 * @param chunks - number of chunks.
+	 * @throws IllegalArgumentException if something is wrong with the entries.
+	 */
+	private static void parseInParallel(ByteBuffer buffer, int end, IStudentStorage storage,
+			ForkJoinPool pool, int chunks) {
+		var tasks = new ArrayList<Callable<List<StudentRecord>>>();
+		int chunkStart = 0;
+		for(int i = 1; i <= chunks && chunkStart < end; i++) {
+			int chunkEnd = (int) ((long) end * i / chunks);
+			while(chunkEnd < end && (chunkEnd <= chunkStart || buffer.get(chunkEnd - 1) != '\n')) {
+				chunkEnd++;
+			}
+			
+			int from = chunkStart, to = chunkEnd;
+			tasks.add(() -> {
+				var records = new ArrayList<StudentRecord>();
+				new MappedDatabaseLoader(records::add).parseLines(buffer, from, to);
+				return records;
+			});
+			chunkStart = chunkEnd;
+		}
+		
+		for(Future<List<StudentRecord>> future : pool.invokeAll(tasks)) {
+			List<StudentRecord> records;
+			try {
+				records = future.get();
+			} catch(ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalArgumentException("Wrong fomat of entry.");
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Loading was interrupted.");
+			}
+			
+			for(var record : records) {
+				storage.add(record);
+			}
+		}
+	}
+	
+	/**
+	 * A method which parses all lines in some range of a buffer.
+	 * The last line of the range doesn't have to end with a newline.
+	 * @param buffer - the bytes.
+	 * @param from - index of the first byte of the range.
+	 * @param to - index after the last byte of the range.
+	 */
+	private void parseLines(ByteBuffer buffer, int from, int to) {
+		int lineStart = from;
+		for(int i = from; i < to; i++) {
+			if(buffer.get(i) != '\n') continue;
+			
+			parseLine(buffer, lineStart, i);
+			lineStart = i + 1;
+		}
+		
+		if(lineStart < to) {
+			parseLine(buffer, lineStart, to);
+		}
+	}
+	
+	/**
+	 * A method which parses one line and gives its record to the sink.
+	 * Empty lines are skipped.
+	 * @param buffer - the bytes.
+	 * @param start - index of the first byte of the line.
+	 * @param end - index after the last byte of the line, without the newline.
+	 * @throws IllegalArgumentException if the line isn't a valid entry.
+	 */
+	private void parseLine(ByteBuffer buffer, int start, int end) {
+		if(end > start && buffer.get(end - 1) == '\r') end--;
+		if(end == start) return;
+		
+		int field = 0;
+		fieldStart[0] = start;
+		for(int i = start; i < end && field < FIELDS; i++) {
+			if(buffer.get(i) != '\t') continue;
+			
+			fieldEnd[field++] = i;
+			if(field < FIELDS) fieldStart[field] = i + 1;
+		}
+		if(field == FIELDS - 1) {
+			fieldEnd[field++] = end;
+		}
+		if(field < FIELDS) {
+			throw new IllegalArgumentException("Wrong fomat of entry.");
+		}
+		
+		String jmbag = decode(buffer, fieldStart[0], fieldEnd[0], false);
+		String lastName = decode(buffer, fieldStart[1], fieldEnd[1], true);
+		String firstName = decode(buffer, fieldStart[2], fieldEnd[2], true);
+		int grade = parseGrade(buffer, fieldStart[3], fieldEnd[3]);
+		
+		sink.accept(new StudentRecord(jmbag, firstName, lastName, grade));
+	}
+	
+	/**
+	 * A method which decodes a field into a String.
+	 * @param buffer - the bytes.
+	 * @param start - index of the first byte of the field.
+	 * @param end - index after the last byte of the field.
+	 * @param utf8 - whether the field is decoded as UTF-8 or as ASCII.
+	 * @return the decoded field.
+	 */
+	private String decode(ByteBuffer buffer, int start, int end, boolean utf8) {
+		int length = end - start;
+		if(scratch.length < length) {
+			scratch = new byte[2 * length];
+		}
+		for(int i = 0; i < length; i++) {
+			scratch[i] = buffer.get(start + i);
+		}
+		return new String(scratch, 0, length, utf8 ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * A method which parses the grade field.
+	 * @param buffer - the bytes.
+	 * @param start - index of the first byte of the field.
+	 * @param end - index after the last byte of the field.
+	 * @return the grade.
+	 * @throws IllegalArgumentException if the field isn't a number.
+	 */
+	private static int parseGrade(ByteBuffer buffer, int start, int end) {
+		if(start == end || end - start > 9) {
+			throw new IllegalArgumentException("Wrong fomat of entry.");
+		}
+		
+		int grade = 0;
+		for(int i = start; i < end; i++) {
+			byte digit = buffer.get(i);
+			if(digit < '0' || digit > '9') {
+				throw new IllegalArgumentException("Wrong fomat of entry.");
+			}
+			grade = grade * 10 + (digit - '0');
+		}
+		return grade;
+	}
+}
@@ -0,0 +1,77 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.Objects;
+
+/**
+ * Ordering is a class which represents the {@code ORDER BY field [ASC|DESC]} clause of a query.
+ * Records are ordered by the value of the field, compared as a number for numeric fields,
+ * and records with equal values keep their order in the database. A descending ordering
+ * is the exact reverse of the ascending one, so equal values come in reverse order.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class Ordering {
+
+	/**
+	 * The field the records are ordered by.
+	 */
+	private IFieldValueGetter field;
+	/**
+	 * Whether the greatest values come first.
+	 */
+	private boolean descending;
+
+	/**
+	 * A constructor for this class.
+	 * @param field - the field the records are ordered by.
+	 * @param descending - whether the greatest values come first.
+	 * @throws NullPointerException if field is null.
+	 */
+	public Ordering(IFieldValueGetter field, boolean descending) {
+		this.field = Objects.requireNonNull(field);
+		this.descending = descending;
+	}
+
+	/**
+	 * A getter for the field the records are ordered by.
+	 * @return the field.
+	 */
+	public IFieldValueGetter getField() {
+		return field;
+	}
+
+	/**
+	 * A getter for the direction of this ordering.
+	 * @return true if the greatest values come first, false otherwise.
+	 */
+	public boolean isDescending() {
+		return descending;
+	}
+
+	/**
+	 * A method which checks whether the values of the field are compared as numbers.
+	 * @return true if they are, false if they are compared as strings.
+	 */
+	boolean isNumeric() {
+		return FieldValueGetters.isNumeric(field);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(descending, field);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj) return true;
+		if(!(obj instanceof Ordering)) return false;
+		Ordering other = (Ordering) obj;
+		return descending == other.descending && field == other.field;
+	}
+
+	@Override
+	public String toString() {
+		return FieldValueGetters.nameOf(field) + (descending ? " DESC" : " ASC");
+	}
+}
@@ -0,0 +1,214 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * PreparedQuery is a class which represents a query template whose literals can be {@code ?}
+ * placeholders, for example {@code lastName LIKE ? and firstName > ?}. The template is parsed
+ * and planned once, when the query is prepared by {@link StudentDatabase#prepare(String)};
+ * every execution only binds the values of the placeholders to the generic plan, which looks
+ * up the index range and compiles the bound conditions.
+ * <p>
+ * The plan and the filter of the last binding are kept, so repeated executions with the same
+ * values don't compile anything. Prepared queries are safe to use from several threads.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class PreparedQuery {
+
+	/**
+	 * The database the query is executed on.
+	 */
+	private StudentDatabase database;
+	/**
+	 * Conditions of the template, with empty literals in place of the placeholders.
+	 */
+	private List<ConditionalExpression> template;
+	/**
+	 * Indexes of the conditions whose literals are placeholders, in the order of the placeholders.
+	 */
+	private List<Integer> parameters;
+	/**
+	 * Maximal number of results, or {@link QueryParser#NO_LIMIT}.
+	 */
+	private int limit;
+	/**
+	 * Number of results which are skipped.
+	 */
+	private int offset;
+	/**
+	 * Ordering of the results, or null.
+	 */
+	private Ordering ordering;
+	/**
+	 * The version of the database the generic plan was made on.
+	 */
+	private DatabaseVersion version;
+	/**
+	 * The generic plan of the template.
+	 */
+	private QueryPlan generic;
+	/**
+	 * The last bound plan together with its values, or null.
+	 */
+	private volatile Binding last;
+
+	/**
+	 * Binding is a class which holds the values bound to the placeholders and the resulting plan.
+	 */
+	private static class Binding {
+
+		/**
+		 * The values.
+		 */
+		private String[] values;
+		/**
+		 * The version of the database the plan was bound on.
+		 */
+		private DatabaseVersion version;
+		/**
+		 * The bound plan.
+		 */
+		private QueryPlan plan;
+
+		/**
+		 * A constructor for this class.
+		 * @param values - the values.
+		 * @param version - the version of the database the plan was bound on.
+		 * @param plan - the bound plan.
+		 */
+		Binding(String[] values, DatabaseVersion version, QueryPlan plan) {
+			this.values = values;
+			this.version = version;
+			this.plan = plan;
+		}
+	}
+
+	/**
+	 * A constructor which parses a template and makes its generic plan.
+	 * @param database - the database the query is executed on.
+	 * @param template - text of the template.
+	 * @throws NullPointerException if template is null.
+	 * @throws IllegalArgumentException if the template is invalid, has OR or NOT, or computes aggregates.
+	 */
+	PreparedQuery(StudentDatabase database, String template) {
+		var parser = new QueryParser(template, true);
+		if(!parser.isConjunctive()) {
+			throw new IllegalArgumentException("Prepared queries can only join conditions by AND.");
+		}
+		if(parser.isAggregate()) {
+			throw new IllegalArgumentException("Prepared queries can't compute aggregates.");
+		}
+		this.database = database;
+		this.template = parser.getQuery();
+		this.parameters = parser.getParameters();
+		this.limit = parser.getLimit();
+		this.offset = parser.getOffset();
+		this.ordering = parser.getOrdering();
+		genericPlan();
+	}
+
+	/**
+	 * A method which returns the generic plan of the template, made again if the database
+	 * was changed since it was made.
+	 * @return the generic plan.
+	 */
+	public synchronized QueryPlan genericPlan() {
+		var current = database.version();
+		if(version != current) {
+			Set<Integer> unknown = new HashSet<>(parameters);
+			generic = current.planner().plan(template, unknown);
+			version = current;
+		}
+		return generic;
+	}
+
+	/**
+	 * A getter for the number of placeholders of the template.
+	 * @return the number of placeholders.
+	 */
+	public int getParameterCount() {
+		return parameters.size();
+	}
+
+	/**
+	 * A method which binds values to the placeholders of the template.
+	 * @param values - the values, in the order of the placeholders.
+	 * @return the plan for the bound conditions.
+	 * @throws NullPointerException if a value is null.
+	 * @throws IllegalArgumentException if the number of values isn't the number of placeholders.
+	 */
+	public QueryPlan bind(String... values) {
+		if(values.length != parameters.size()) {
+			throw new IllegalArgumentException("Expected " + parameters.size() + " values, got " + values.length + ".");
+		}
+		for(var value : values) {
+			Objects.requireNonNull(value);
+		}
+
+		QueryPlan generic;
+		DatabaseVersion version;
+		synchronized(this) {
+			generic = genericPlan();
+			version = this.version;
+		}
+		var binding = last;
+		if(binding != null && binding.version == version && Arrays.equals(binding.values, values)) {
+			return binding.plan;
+		}
+
+		List<ConditionalExpression> bound = new ArrayList<>(template);
+		for(int i = 0; i < values.length; i++) {
+			int index = parameters.get(i);
+			var condition = template.get(index);
+			bound.set(index, new ConditionalExpression(condition.getFieldGetter(), values[i],
+					condition.getComparisonOperator()));
+		}
+
+		var plan = version.planner().bind(generic, template, bound).on(version);
+		last = new Binding(values.clone(), version, plan);
+		return plan;
+	}
+
+	/**
+	 * A method which executes the query with values bound to the placeholders,
+	 * taking the LIMIT, OFFSET and ORDER BY clauses of the template into account.
+	 * @param values - the values, in the order of the placeholders.
+	 * @return the list of acceptable StudentRecords.
+	 * @throws NullPointerException if a value is null.
+	 * @throws IllegalArgumentException if the number of values isn't the number of placeholders.
+	 */
+	public List<StudentRecord> execute(String... values) {
+		return database.execute(bind(values), ordering, offset, limit);
+	}
+
+	/**
+	 * A getter for the maximal number of results of the template.
+	 * @return the limit, or {@link QueryParser#NO_LIMIT}.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * A getter for the number of results which are skipped.
+	 * @return the offset.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * A getter for the ordering of the results.
+	 * @return the ordering, or null if the template has no ORDER BY clause.
+	 */
+	public Ordering getOrdering() {
+		return ordering;
+	}
+}
@@ -0,0 +1,214 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * QueryCache is a class which keeps the results of recent queries. Results are kept under a
+ * normalised form of their conditions, which doesn't depend on the order of the conditions
+ * or on the whitespace of the query, so equivalent queries share their results.
+ * <p>
+ * The cache is bounded both by the number of results and by the total number of records
+ * in them; when it is full the least recently used results are evicted. Every result is
+ * stored with the version of the data it was computed from and is ignored once the
+ * version has changed.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class QueryCache {
+
+	/**
+	 * Maximal number of results.
+	 */
+	private int maxEntries;
+	/**
+	 * Maximal total number of records of all the results.
+	 */
+	private long maxRecords;
+	/**
+	 * Total number of records of all the results.
+	 */
+	private long records;
+	/**
+	 * Results by their keys, from the least to the most recently used.
+	 */
+	private LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Number of lookups which found a result.
+	 */
+	private long hits;
+	/**
+	 * Number of lookups which didn't find a result.
+	 */
+	private long misses;
+	/**
+	 * Number of results which were evicted to make room for others.
+	 */
+	private long evictions;
+
+	/**
+	 * Entry is a class which holds a result and the version of the data it was computed from.
+	 */
+	private static class Entry {
+
+		/**
+		 * The result.
+		 */
+		private List<StudentRecord> result;
+		/**
+		 * Version of the data.
+		 */
+		private long version;
+
+		/**
+		 * A constructor for this class.
+		 * @param result - the result.
+		 * @param version - version of the data.
+		 */
+		Entry(List<StudentRecord> result, long version) {
+			this.result = result;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * A constructor for this class.
+	 * @param maxEntries - maximal number of results.
+	 * @param maxRecords - maximal total number of records of all the results.
+	 * @throws IllegalArgumentException if a bound is negative.
+	 */
+	public QueryCache(int maxEntries, long maxRecords) {
+		if(maxEntries < 0 || maxRecords < 0) {
+			throw new IllegalArgumentException("Bounds of the cache mustn't be negative.");
+		}
+		this.maxEntries = maxEntries;
+		this.maxRecords = maxRecords;
+	}
+
+	/**
+	 * A method which returns the normalised form of a list of conditions joined by AND.
+	 * Repeated conditions are counted once and the order of the conditions doesn't matter.
+	 * @param conditions - the conditions.
+	 * @return the key, or null if a condition uses a field getter or an operator which
+	 * 		   isn't one of {@link FieldValueGetters} and {@link ComparisonOperators}.
+	 */
+	public static String keyOf(List<ConditionalExpression> conditions) {
+		List<String> parts = new ArrayList<>(conditions.size());
+		for(var condition : conditions) {
+			String field = FieldValueGetters.nameOf(condition.getFieldGetter());
+			String operator = ComparisonOperators.symbolOf(condition.getComparisonOperator());
+			if(field.equals("?") || operator.equals("?")) return null;
+
+			String part = field + ' ' + operator + ' ' + condition.getStringLiteral().replace("\\", "\\\\").replace("\n", "\\n");
+			if(!parts.contains(part)) parts.add(part);
+		}
+		Collections.sort(parts);
+		return String.join("\n", parts);
+	}
+
+	/**
+	 * A method which returns the result kept under a key.
+	 * The result is dropped if it was computed from an older version of the data, but kept if
+	 * it was computed from a newer one, which a query of an older version mustn't see.
+	 * @param key - the key.
+	 * @param version - the version of the data the query reads.
+	 * @return the result, or null if there is no result for that version of the data.
+	 */
+	public synchronized List<StudentRecord> get(String key, long version) {
+		var entry = entries.get(key);
+		if(entry == null || entry.version != version) {
+			if(entry != null && entry.version < version) remove(key);
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.result;
+	}
+
+	/**
+	 * A method which keeps a result under a key, evicting the least recently used
+	 * results if the cache is full. Results which alone exceed the bound on records
+	 * aren't kept, and neither are results of an older version of the data than the
+	 * version of the result already kept under the key.
+	 * @param key - the key.
+	 * @param result - the result. It mustn't be changed afterwards.
+	 * @param version - version of the data the result was computed from.
+	 */
+	public synchronized void put(String key, List<StudentRecord> result, long version) {
+		if(result.size() > maxRecords || maxEntries == 0) return;
+		var kept = entries.get(key);
+		if(kept != null && kept.version > version) return;
+
+		remove(key);
+		entries.put(key, new Entry(result, version));
+		records += result.size();
+
+		Iterator<Entry> iterator = entries.values().iterator();
+		while(entries.size() > maxEntries || records > maxRecords) {
+			var eldest = iterator.next();
+			iterator.remove();
+			records -= eldest.result.size();
+			evictions++;
+		}
+	}
+
+	/**
+	 * A method which removes the result kept under a key.
+	 * @param key - the key.
+	 */
+	private void remove(String key) {
+		var entry = entries.remove(key);
+		if(entry != null) records -= entry.result.size();
+	}
+
+	/**
+	 * A method which removes all the results. Counters aren't reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		records = 0;
+	}
+
+	/**
+	 * A getter for the number of kept results.
+	 * @return the number of results.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * A getter for the number of lookups which found a result.
+	 * @return the number of hits.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * A getter for the number of lookups which didn't find a result.
+	 * @return the number of misses.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * A getter for the number of results which were evicted to make room for others.
+	 * @return the number of evictions.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Cache: %d results, %d records, %d hits, %d misses, %d evictions",
+				entries.size(), records, hits, misses, evictions);
+	}
+}
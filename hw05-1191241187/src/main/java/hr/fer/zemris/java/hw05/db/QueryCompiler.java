@@ -0,0 +1,512 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * QueryCompiler is a class which turns a list of conditions joined by AND into a single
+ * specialised IFilter. Unlike {@link QueryFilter}, which calls a field getter and a comparison
+ * operator for every condition of every row, a compiled filter reads the field directly,
+ * compares it with a literal which was analysed once, and never splits LIKE patterns while
+ * testing rows.
+ * <p>
+ * While compiling, LIKE patterns without a wildcard become equality tests and the pattern
+ * {@code *} is dropped, repeated conditions are tested only once and contradictory conditions
+ * give a filter which rejects every row without reading it. Conditions with field getters or
+ * operators which aren't those of {@link FieldValueGetters} and {@link ComparisonOperators}
+ * are tested the same way as by QueryFilter. Like QueryFilter, a compiled filter tests the rows
+ * of a {@link ColumnarStudentStorage} in blocks, using {@link BatchPredicates}.
+ * <p>
+ * Boolean expression trees with OR and NOT are compiled node by node, with the conditions
+ * joined by AND in each node compiled as a list.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class QueryCompiler {
+
+	/**
+	 * Filter which accepts every record.
+	 */
+	public static final IFilter ACCEPT_ALL = record -> true;
+
+	/**
+	 * Filter which rejects every record.
+	 */
+	public static final IFilter REJECT_ALL = record -> false;
+
+	/**
+	 * Kind is an enumeration of the tests a compiled condition performs on the value of a field.
+	 */
+	private enum Kind {
+		EQUALS, NOT_EQUALS, LESS, LESS_OR_EQUALS, GREATER, GREATER_OR_EQUALS, PREFIX, SUFFIX, PREFIX_AND_SUFFIX, PATTERN
+	}
+
+	/**
+	 * A method which compiles a list of conditions joined by AND.
+	 * @param conditions - the conditions.
+	 * @return the filter which accepts exactly the records satisfying all the conditions.
+	 */
+	public static IFilter compile(List<ConditionalExpression> conditions) {
+		if(QueryPlanner.isContradictory(conditions)) return REJECT_ALL;
+
+		List<IFilter> filters = new ArrayList<>();
+		for(int i = 0; i < conditions.size(); i++) {
+			if(isRepeated(conditions, i)) continue;
+
+			var filter = compile(conditions.get(i));
+			if(filter != ACCEPT_ALL) filters.add(filter);
+		}
+
+		if(filters.isEmpty()) return ACCEPT_ALL;
+		return new CompiledFilter(combine(filters), conditions);
+	}
+
+	/**
+	 * A method which compiles a boolean expression tree. Lists of conditions joined by AND are
+	 * compiled as by {@link #compile(List)}. Operands of AND and OR which accept or reject every
+	 * record are folded away, and the remaining operands are tested from left to right only
+	 * until the result is known.
+	 * @param expression - the expression.
+	 * @return the filter which accepts exactly the records satisfying the expression.
+	 */
+	public static IFilter compile(IQueryExpression expression) {
+		var conditions = QueryExpressions.conjunction(expression);
+		if(conditions != null) return compile(conditions);
+
+		var filter = compileNode(expression);
+		if(filter == ACCEPT_ALL || filter == REJECT_ALL) return filter;
+		return new CompiledTree(filter, expression);
+	}
+
+	/**
+	 * A method which compiles a node of an expression tree into a row filter.
+	 * @param expression - the node.
+	 * @return the filter.
+	 */
+	private static IFilter compileNode(IQueryExpression expression) {
+		var conditions = QueryExpressions.conjunction(expression);
+		if(conditions != null) {
+			var filter = compile(conditions);
+			return filter instanceof CompiledFilter ? ((CompiledFilter) filter).filter : filter;
+		}
+
+		if(expression instanceof QueryExpressions.Not) {
+			var operand = compileNode(((QueryExpressions.Not) expression).getOperand());
+			if(operand == ACCEPT_ALL) return REJECT_ALL;
+			if(operand == REJECT_ALL) return ACCEPT_ALL;
+			return record -> !operand.accepts(record);
+		}
+
+		if(expression instanceof QueryExpressions.Or) {
+			List<IFilter> filters = new ArrayList<>();
+			for(var operand : ((QueryExpressions.Or) expression).getOperands()) {
+				var filter = compileNode(operand);
+				if(filter == ACCEPT_ALL) return ACCEPT_ALL;
+				if(filter != REJECT_ALL) filters.add(filter);
+			}
+			if(filters.isEmpty()) return REJECT_ALL;
+			if(filters.size() == 1) return filters.get(0);
+			IFilter[] all = filters.toArray(new IFilter[0]);
+			return record -> {
+				for(var filter : all) {
+					if(filter.accepts(record)) return true;
+				}
+				return false;
+			};
+		}
+
+		if(!(expression instanceof QueryExpressions.And)) return expression;
+		List<ConditionalExpression> leaves = new ArrayList<>();
+		List<IFilter> filters = new ArrayList<>();
+		for(var operand : ((QueryExpressions.And) expression).getOperands()) {
+			if(operand instanceof QueryExpressions.Condition) {
+				leaves.add(((QueryExpressions.Condition) operand).getCondition());
+				continue;
+			}
+			var filter = compileNode(operand);
+			if(filter == REJECT_ALL) return REJECT_ALL;
+			if(filter != ACCEPT_ALL) filters.add(filter);
+		}
+		if(!leaves.isEmpty()) {
+			var filter = compileNode(new QueryExpressions.And(wrap(leaves)));
+			if(filter == REJECT_ALL) return REJECT_ALL;
+			if(filter != ACCEPT_ALL) filters.add(0, filter);
+		}
+		return filters.isEmpty() ? ACCEPT_ALL : combine(filters);
+	}
+
+	/**
+	 * A method which turns conditions into leaves of an expression tree.
+	 * @param conditions - the conditions.
+	 * @return the leaves.
+	 */
+	private static List<IQueryExpression> wrap(List<ConditionalExpression> conditions) {
+		List<IQueryExpression> leaves = new ArrayList<>();
+		for(var condition : conditions) {
+			leaves.add(new QueryExpressions.Condition(condition));
+		}
+		return leaves;
+	}
+
+	/**
+	 * CompiledTree is the filter returned for an expression tree with OR or NOT. It tests records
+	 * with the compiled tree, and blocks of a {@link ColumnarStudentStorage} with a
+	 * {@link BatchPredicates.Tree}.
+	 *
+	 * @author Božidar Grgur Drmić
+	 *
+	 */
+	private static class CompiledTree implements IFilter, IBatchFilter {
+
+		/**
+		 * The compiled tree.
+		 */
+		private IFilter filter;
+		/**
+		 * The expression.
+		 */
+		private IQueryExpression expression;
+		/**
+		 * The expression compiled for the last storage it was tested on in blocks, or null.
+		 */
+		private volatile BatchPredicates.Tree tree;
+
+		/**
+		 * A constructor for this class.
+		 * @param filter - the compiled tree.
+		 * @param expression - the expression.
+		 */
+		CompiledTree(IFilter filter, IQueryExpression expression) {
+			this.filter = filter;
+			this.expression = expression;
+		}
+
+		@Override
+		public boolean accepts(StudentRecord record) {
+			return filter.accepts(record);
+		}
+
+		@Override
+		public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+			var tree = this.tree;
+			if(tree == null || !tree.isCompiledFor(storage)) {
+				tree = new BatchPredicates.Tree(expression, storage);
+				this.tree = tree;
+			}
+			tree.select(storage, from, to, selection);
+		}
+	}
+
+	/**
+	 * A method which joins compiled conditions by AND.
+	 * @param filters - the compiled conditions.
+	 * @return the filter which accepts the records accepted by all of them.
+	 */
+	private static IFilter combine(List<IFilter> filters) {
+		switch(filters.size()) {
+		case 1:
+			return filters.get(0);
+		case 2:
+			IFilter first = filters.get(0), second = filters.get(1);
+			return record -> first.accepts(record) && second.accepts(record);
+		default:
+			IFilter[] all = filters.toArray(new IFilter[0]);
+			return record -> {
+				for(var filter : all) {
+					if(!filter.accepts(record)) return false;
+				}
+				return true;
+			};
+		}
+	}
+
+	/**
+	 * CompiledFilter is the filter returned for a list of conditions. It tests records with the
+	 * compiled conditions, and blocks of a {@link ColumnarStudentStorage} on its encoded columns.
+	 *
+	 * @author Božidar Grgur Drmić
+	 *
+	 */
+	private static class CompiledFilter implements IFilter, IBatchFilter {
+
+		/**
+		 * The compiled conditions.
+		 */
+		private IFilter filter;
+		/**
+		 * The conditions.
+		 */
+		private List<ConditionalExpression> conditions;
+		/**
+		 * The conditions compiled for the last storage they were tested on in blocks, or null.
+		 */
+		private volatile BatchPredicates.Program program;
+
+		/**
+		 * A constructor for this class.
+		 * @param filter - the compiled conditions.
+		 * @param conditions - the conditions.
+		 */
+		CompiledFilter(IFilter filter, List<ConditionalExpression> conditions) {
+			this.filter = filter;
+			this.conditions = conditions;
+		}
+
+		@Override
+		public boolean accepts(StudentRecord record) {
+			return filter.accepts(record);
+		}
+
+		@Override
+		public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+			var program = this.program;
+			if(program == null || !program.isCompiledFor(storage)) {
+				program = new BatchPredicates.Program(conditions, storage);
+				this.program = program;
+			}
+			program.select(storage, from, to, selection);
+		}
+	}
+
+	/**
+	 * A method which checks whether a condition is the same as one of the conditions before it.
+	 * @param conditions - the conditions.
+	 * @param index - index of the condition.
+	 * @return true if the same condition comes earlier, false otherwise.
+	 */
+	private static boolean isRepeated(List<ConditionalExpression> conditions, int index) {
+		var condition = conditions.get(index);
+		for(int i = 0; i < index; i++) {
+			var other = conditions.get(i);
+			if(other.getFieldGetter() == condition.getFieldGetter()
+					&& other.getComparisonOperator() == condition.getComparisonOperator()
+					&& other.getStringLiteral().equals(condition.getStringLiteral())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A method which compiles a single condition.
+	 * @param condition - the condition.
+	 * @return the filter.
+	 */
+	public static IFilter compile(ConditionalExpression condition) {
+		var field = condition.getFieldGetter();
+		var operator = condition.getComparisonOperator();
+		String literal = condition.getStringLiteral();
+		if(field == FieldValueGetters.GRADE) return onGrade(condition.getGradeMask());
+
+		var test = Test.of(operator, literal);
+		if(test == null) return record -> operator.satisfied(field.get(record), literal);
+		if(test.kind == null) return ACCEPT_ALL;
+
+		if(field == FieldValueGetters.LAST_NAME) return onLastName(test.kind, test.first, test.second, test.pattern);
+		if(field == FieldValueGetters.FIRST_NAME) return onFirstName(test.kind, test.first, test.second, test.pattern);
+		if(field == FieldValueGetters.JMBAG) return onJmbag(test.kind, test.first, test.second, test.pattern);
+		return record -> operator.satisfied(field.get(record), literal);
+	}
+
+	/**
+	 * A method which compiles a condition on grades.
+	 * @param mask - the grades which satisfy the condition, see {@link BitmapIndex#ALL_GRADES}.
+	 * @return the filter.
+	 */
+	private static IFilter onGrade(int mask) {
+		if(mask == BitmapIndex.ALL_GRADES) return ACCEPT_ALL;
+		if(mask == 0) return REJECT_ALL;
+		if(Integer.bitCount(mask) == 1) {
+			int grade = Integer.numberOfTrailingZeros(mask);
+			return record -> record.getGrade() == grade;
+		}
+		return record -> (mask >>> record.getGrade() & 1) != 0;
+	}
+
+	/**
+	 * A method which compiles a comparison with a literal into a test of a single value.
+	 * It is used where values are tested without records, for example for each distinct
+	 * name of a dictionary.
+	 * @param operator - the comparison.
+	 * @param literal - the literal.
+	 * @return the test.
+	 */
+	public static Predicate<String> compileValueTest(IComparisonOperator operator, String literal) {
+		var test = Test.of(operator, literal);
+		if(test == null) return value -> operator.satisfied(value, literal);
+		if(test.kind == null) return value -> true;
+
+		String first = test.first, second = test.second;
+		var pattern = test.pattern;
+		switch(test.kind) {
+		case EQUALS: return value -> value.equals(first);
+		case NOT_EQUALS: return value -> !value.equals(first);
+		case LESS: return value -> value.compareTo(first) < 0;
+		case LESS_OR_EQUALS: return value -> value.compareTo(first) <= 0;
+		case GREATER: return value -> value.compareTo(first) > 0;
+		case GREATER_OR_EQUALS: return value -> value.compareTo(first) >= 0;
+		case PREFIX: return value -> value.startsWith(first);
+		case SUFFIX: return value -> value.endsWith(second);
+		case PATTERN: return value -> pattern.matches(value);
+		default:
+			int length = first.length() + second.length();
+			return value -> value.length() >= length && value.startsWith(first) && value.endsWith(second);
+		}
+	}
+
+	/**
+	 * Test is a class which holds the result of analysing a comparison with a literal.
+	 *
+	 * @author Božidar Grgur Drmić
+	 *
+	 */
+	private static class Test {
+
+		/**
+		 * The kind of the test, or null if every value passes it.
+		 */
+		private Kind kind;
+		/**
+		 * The literal, or the prefix of a pattern.
+		 */
+		private String first;
+		/**
+		 * The suffix of a pattern.
+		 */
+		private String second;
+		/**
+		 * The compiled pattern, for patterns of other shapes.
+		 */
+		private LikePattern pattern;
+
+		/**
+		 * A method which analyses a comparison with a literal.
+		 * @param operator - the comparison.
+		 * @param literal - the literal.
+		 * @return the test, or null if the operator isn't one of {@link ComparisonOperators}.
+			 */
+		static Test of(IComparisonOperator operator, String literal) {
+			var test = new Test();
+			test.first = literal;
+			if(operator == ComparisonOperators.EQUALS) test.kind = Kind.EQUALS;
+			else if(operator == ComparisonOperators.NOT_EQUALS) test.kind = Kind.NOT_EQUALS;
+			else if(operator == ComparisonOperators.LESS) test.kind = Kind.LESS;
+			else if(operator == ComparisonOperators.LESS_OR_EQUALS) test.kind = Kind.LESS_OR_EQUALS;
+			else if(operator == ComparisonOperators.GREATER) test.kind = Kind.GREATER;
+			else if(operator == ComparisonOperators.GREATER_OR_EQUALS) test.kind = Kind.GREATER_OR_EQUALS;
+			else if(operator == ComparisonOperators.LIKE) {
+				var pattern = LikePattern.compile(literal);
+				int star = literal.indexOf(LikePattern.ANY_SEQUENCE);
+				boolean single = star != -1 && literal.indexOf(LikePattern.ANY_SEQUENCE, star + 1) == -1
+						&& literal.indexOf(LikePattern.ANY_CHARACTER) == -1;
+				if(pattern.isExact()) {
+					test.kind = Kind.EQUALS;
+				} else if(pattern.matchesAll()) {
+					test.kind = null;
+				} else if(!single) {
+					test.kind = Kind.PATTERN;
+					test.pattern = pattern;
+				} else if(star == literal.length() - 1) {
+					test.kind = Kind.PREFIX;
+					test.first = literal.substring(0, star);
+				} else if(star == 0) {
+					test.kind = Kind.SUFFIX;
+					test.second = literal.substring(1);
+				} else {
+					test.kind = Kind.PREFIX_AND_SUFFIX;
+					test.first = literal.substring(0, star);
+					test.second = literal.substring(star + 1);
+				}
+			} else {
+				return null;
+			}
+			return test;
+		}
+	}
+
+	/**
+	 * A method which returns the filter performing a test on last names.
+	 * @param kind - the test.
+	 * @param first - the literal, or the prefix of a pattern.
+	 * @param second - the suffix of a pattern.
+	 * @param pattern - the compiled pattern, for patterns of other shapes.
+	 * @return the filter.
+	 */
+	private static IFilter onLastName(Kind kind, String first, String second, LikePattern pattern) {
+		switch(kind) {
+		case EQUALS: return record -> record.getLastName().equals(first);
+		case NOT_EQUALS: return record -> !record.getLastName().equals(first);
+		case LESS: return record -> record.getLastName().compareTo(first) < 0;
+		case LESS_OR_EQUALS: return record -> record.getLastName().compareTo(first) <= 0;
+		case GREATER: return record -> record.getLastName().compareTo(first) > 0;
+		case GREATER_OR_EQUALS: return record -> record.getLastName().compareTo(first) >= 0;
+		case PREFIX: return record -> record.getLastName().startsWith(first);
+		case SUFFIX: return record -> record.getLastName().endsWith(second);
+		case PATTERN: return record -> pattern.matches(record.getLastName());
+		default:
+			int length = first.length() + second.length();
+			return record -> {
+				String value = record.getLastName();
+				return value.length() >= length && value.startsWith(first) && value.endsWith(second);
+			};
+		}
+	}
+
+	/**
+	 * A method which returns the filter performing a test on first names.
+	 * @param kind - the test.
+	 * @param first - the literal, or the prefix of a pattern.
+	 * @param second - the suffix of a pattern.
+	 * @param pattern - the compiled pattern, for patterns of other shapes.
+	 * @return the filter.
+	 */
+	private static IFilter onFirstName(Kind kind, String first, String second, LikePattern pattern) {
+		switch(kind) {
+		case EQUALS: return record -> record.getFirstName().equals(first);
+		case NOT_EQUALS: return record -> !record.getFirstName().equals(first);
+		case LESS: return record -> record.getFirstName().compareTo(first) < 0;
+		case LESS_OR_EQUALS: return record -> record.getFirstName().compareTo(first) <= 0;
+		case GREATER: return record -> record.getFirstName().compareTo(first) > 0;
+		case GREATER_OR_EQUALS: return record -> record.getFirstName().compareTo(first) >= 0;
+		case PREFIX: return record -> record.getFirstName().startsWith(first);
+		case SUFFIX: return record -> record.getFirstName().endsWith(second);
+		case PATTERN: return record -> pattern.matches(record.getFirstName());
+		default:
+			int length = first.length() + second.length();
+			return record -> {
+				String value = record.getFirstName();
+				return value.length() >= length && value.startsWith(first) && value.endsWith(second);
+			};
+		}
+	}
+
+	/**
+	 * A method which returns the filter performing a test on JMBAGs.
+	 * @param kind - the test.
+	 * @param first - the literal, or the prefix of a pattern.
+	 * @param second - the suffix of a pattern.
+	 * @param pattern - the compiled pattern, for patterns of other shapes.
+	 * @return the filter.
+	 */
+	private static IFilter onJmbag(Kind kind, String first, String second, LikePattern pattern) {
+		switch(kind) {
+		case EQUALS: return record -> record.getJmbag().equals(first);
+		case NOT_EQUALS: return record -> !record.getJmbag().equals(first);
+		case LESS: return record -> record.getJmbag().compareTo(first) < 0;
+		case LESS_OR_EQUALS: return record -> record.getJmbag().compareTo(first) <= 0;
+		case GREATER: return record -> record.getJmbag().compareTo(first) > 0;
+		case GREATER_OR_EQUALS: return record -> record.getJmbag().compareTo(first) >= 0;
+		case PREFIX: return record -> record.getJmbag().startsWith(first);
+		case SUFFIX: return record -> record.getJmbag().endsWith(second);
+		case PATTERN: return record -> pattern.matches(record.getJmbag());
+		default:
+			int length = first.length() + second.length();
+			return record -> {
+				String value = record.getJmbag();
+				return value.length() >= length && value.startsWith(first) && value.endsWith(second);
+			};
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * QueryCursor is an iterator over the results of a query which reads the rows of the
+ * database only as the results are taken. Candidate rows are tested in chunks of
+ * {@link #CHUNK_SIZE} rows, so at most one chunk of results is kept in memory, and
+ * no more rows are read once the limit of the query was reached.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class QueryCursor implements Iterator<StudentRecord> {
+
+	/**
+	 * Number of candidate rows which are tested at once.
+	 */
+	public static final int CHUNK_SIZE = IBatchFilter.BATCH_SIZE;
+
+	/**
+	 * Storage of the database.
+	 */
+	private IStudentStorage students;
+	/**
+	 * The filter the candidate rows are tested with.
+	 */
+	private IFilter filter;
+	/**
+	 * Candidate rows sorted by row, or null if the candidates are a range of rows.
+	 */
+	private int[] rows;
+	/**
+	 * Position of the next candidate, a row or an index into {@link #rows}.
+	 */
+	private int position;
+	/**
+	 * Position after the last candidate.
+	 */
+	private int end;
+	/**
+	 * Results of the last chunk.
+	 */
+	private List<StudentRecord> buffer = new ArrayList<>();
+	/**
+	 * Index of the next result in the buffer.
+	 */
+	private int bufferIndex;
+	/**
+	 * Number of results which still have to be skipped.
+	 */
+	private int skip;
+	/**
+	 * Number of results which can still be returned.
+	 */
+	private long remaining;
+
+	/**
+	 * A constructor for this class.
+	 * @param students - storage of the database.
+	 * @param filter - the filter the candidate rows are tested with.
+	 * @param rows - candidate rows sorted by row, or null if the candidates are a range of rows.
+	 * @param from - the first candidate row, ignored if rows aren't null.
+	 * @param to - the row after the last candidate row, ignored if rows aren't null.
+	 * @param offset - number of results which are skipped.
+	 * @param limit - maximal number of results, or {@link QueryParser#NO_LIMIT}.
+	 * @throws IllegalArgumentException if offset or limit are negative.
+	 */
+	QueryCursor(IStudentStorage students, IFilter filter, int[] rows, int from, int to, int offset, int limit) {
+		if(offset < 0 || (limit < 0 && limit != QueryParser.NO_LIMIT)) {
+			throw new IllegalArgumentException("Offset and limit mustn't be negative.");
+		}
+		this.students = students;
+		this.filter = filter;
+		this.rows = rows;
+		this.position = rows == null ? from : 0;
+		this.end = rows == null ? to : rows.length;
+		this.skip = offset;
+		this.remaining = limit == QueryParser.NO_LIMIT ? Long.MAX_VALUE : limit;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(remaining == 0) return false;
+
+		while(bufferIndex == buffer.size()) {
+			if(position >= end) return false;
+			readChunk();
+		}
+		return true;
+	}
+
+	@Override
+	public StudentRecord next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		remaining--;
+		return buffer.get(bufferIndex++);
+	}
+
+	/**
+	 * A method which tests the next chunk of candidate rows and skips as many
+	 * of the results as the offset still requires.
+	 */
+	private void readChunk() {
+		buffer.clear();
+		bufferIndex = 0;
+
+		int chunkEnd = (int) Math.min((long) position + CHUNK_SIZE, end);
+		if(rows == null) {
+			students.filter(filter, position, chunkEnd, buffer);
+		} else {
+			students.filter(filter, Arrays.copyOfRange(rows, position, chunkEnd), buffer);
+		}
+		position = chunkEnd;
+
+		int skipped = Math.min(skip, buffer.size());
+		bufferIndex = skipped;
+		skip -= skipped;
+	}
+}
@@ -0,0 +1,274 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * QueryExpressions is a class which contains the implementations of the IQueryExpression
+ * interface: conditions and their AND, OR and NOT. AND and OR stop evaluating their operands
+ * as soon as the result is known.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class QueryExpressions {
+
+	/**
+	 * Condition is an expression which is true if a record satisfies a single condition.
+	 */
+	public static class Condition implements IQueryExpression {
+
+		/**
+		 * The condition.
+		 */
+		private ConditionalExpression condition;
+
+		/**
+		 * A constructor for this class.
+		 * @param condition - the condition.
+		 * @throws NullPointerException if condition is null.
+		 */
+		public Condition(ConditionalExpression condition) {
+			this.condition = Objects.requireNonNull(condition);
+		}
+
+		/**
+		 * A getter for the condition.
+		 * @return the condition.
+		 */
+		public ConditionalExpression getCondition() {
+			return condition;
+		}
+
+		@Override
+		public boolean accepts(StudentRecord student) {
+			return condition.isSatisfiedBy(student);
+		}
+
+		@Override
+		public String toString() {
+			return condition.toString();
+		}
+	}
+
+	/**
+	 * And is an expression which is true if all of its operands are true.
+	 * Without operands it is always true.
+	 */
+	public static class And implements IQueryExpression {
+
+		/**
+		 * The operands.
+		 */
+		private List<IQueryExpression> operands;
+
+		/**
+		 * A constructor for this class.
+		 * @param operands - the operands.
+		 * @throws NullPointerException if operands are null.
+		 */
+		public And(List<IQueryExpression> operands) {
+			this.operands = List.copyOf(operands);
+		}
+
+		/**
+		 * A getter for the operands.
+		 * @return the operands.
+		 */
+		public List<IQueryExpression> getOperands() {
+			return operands;
+		}
+
+		@Override
+		public boolean accepts(StudentRecord student) {
+			for(var operand : operands) {
+				if(!operand.accepts(student)) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			var sb = new StringBuilder();
+			for(var operand : operands) {
+				if(sb.length() > 0) sb.append(" AND ");
+				if(operand instanceof Or) {
+					sb.append('(').append(operand).append(')');
+				} else {
+					sb.append(operand);
+				}
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Or is an expression which is true if any of its operands is true.
+	 */
+	public static class Or implements IQueryExpression {
+
+		/**
+		 * The operands.
+		 */
+		private List<IQueryExpression> operands;
+
+		/**
+		 * A constructor for this class.
+		 * @param operands - the operands.
+		 * @throws NullPointerException if operands are null.
+		 */
+		public Or(List<IQueryExpression> operands) {
+			this.operands = List.copyOf(operands);
+		}
+
+		/**
+		 * A getter for the operands.
+		 * @return the operands.
+		 */
+		public List<IQueryExpression> getOperands() {
+			return operands;
+		}
+
+		@Override
+		public boolean accepts(StudentRecord student) {
+			for(var operand : operands) {
+				if(operand.accepts(student)) return true;
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			var sb = new StringBuilder();
+			for(var operand : operands) {
+				if(sb.length() > 0) sb.append(" OR ");
+				sb.append(operand);
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Not is an expression which is true if its operand is false.
+	 */
+	public static class Not implements IQueryExpression {
+
+		/**
+		 * The operand.
+		 */
+		private IQueryExpression operand;
+
+		/**
+		 * A constructor for this class.
+		 * @param operand - the operand.
+		 * @throws NullPointerException if operand is null.
+		 */
+		public Not(IQueryExpression operand) {
+			this.operand = Objects.requireNonNull(operand);
+		}
+
+		/**
+		 * A getter for the operand.
+		 * @return the operand.
+		 */
+		public IQueryExpression getOperand() {
+			return operand;
+		}
+
+		@Override
+		public boolean accepts(StudentRecord student) {
+			return !operand.accepts(student);
+		}
+
+		@Override
+		public String toString() {
+			if(operand instanceof Condition) return "NOT " + operand;
+			return "NOT (" + operand + ")";
+		}
+	}
+
+	/**
+	 * A method which returns the conditions of an expression which is a single condition
+	 * or AND of conditions, so that it can be answered by the planner of such lists.
+	 * @param expression - the expression.
+	 * @return the conditions, or null if the expression has OR or NOT in it.
+	 */
+	public static List<ConditionalExpression> conjunction(IQueryExpression expression) {
+		if(expression instanceof Condition) {
+			return List.of(((Condition) expression).getCondition());
+		}
+		if(!(expression instanceof And)) return null;
+
+		List<ConditionalExpression> conditions = new ArrayList<>();
+		for(var operand : ((And) expression).getOperands()) {
+			if(!(operand instanceof Condition)) return null;
+			conditions.add(((Condition) operand).getCondition());
+		}
+		return conditions;
+	}
+
+	/**
+	 * A method which returns the key the results of an expression are cached under.
+	 * Expressions which are lists of conditions get the key of {@link QueryCache#keyOf(List)},
+	 * others their text, which doesn't depend on the whitespace of the query.
+	 * @param expression - the expression.
+	 * @return the key, or null if the results can't be cached.
+	 */
+	public static String keyOf(IQueryExpression expression) {
+		var conditions = conjunction(expression);
+		if(conditions != null) return QueryCache.keyOf(conditions);
+		return isCacheable(expression) ? expression.toString() : null;
+	}
+
+	/**
+	 * A method which checks whether all the conditions of an expression use field getters and
+	 * operators of {@link FieldValueGetters} and {@link ComparisonOperators}.
+	 * @param expression - the expression.
+	 * @return true if they do, false otherwise.
+	 */
+	private static boolean isCacheable(IQueryExpression expression) {
+		if(expression instanceof Condition) {
+			return QueryCache.keyOf(List.of(((Condition) expression).getCondition())) != null;
+		}
+		if(expression instanceof Not) return isCacheable(((Not) expression).getOperand());
+
+		List<IQueryExpression> operands;
+		if(expression instanceof And) operands = ((And) expression).getOperands();
+		else if(expression instanceof Or) operands = ((Or) expression).getOperands();
+		else return false;
+
+		for(var operand : operands) {
+			if(!isCacheable(operand)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A method which returns the grades of the records satisfying an expression which has
+	 * only conditions on grades, so that it can be answered by counting the rows with each grade.
+	 * @param expression - the expression.
+	 * @return the grade mask, see {@link BitmapIndex#ALL_GRADES}, or -1 if the expression
+	 * 		   has conditions on other fields.
+	 */
+	static int gradeMask(IQueryExpression expression) {
+		if(expression instanceof Condition) {
+			var condition = ((Condition) expression).getCondition();
+			return condition.getFieldGetter() == FieldValueGetters.GRADE ? condition.getGradeMask() : -1;
+		}
+		if(expression instanceof Not) {
+			int mask = gradeMask(((Not) expression).getOperand());
+			return mask == -1 ? -1 : BitmapIndex.ALL_GRADES & ~mask;
+		}
+
+		boolean and = expression instanceof And;
+		if(!and && !(expression instanceof Or)) return -1;
+		int result = and ? BitmapIndex.ALL_GRADES : 0;
+		for(var operand : and ? ((And) expression).getOperands() : ((Or) expression).getOperands()) {
+			int mask = gradeMask(operand);
+			if(mask == -1) return -1;
+			result = and ? result & mask : result | mask;
+		}
+		return result;
+	}
+}
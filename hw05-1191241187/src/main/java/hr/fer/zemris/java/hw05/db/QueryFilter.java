@@ -1,22 +1,42 @@
 package hr.fer.zemris.java.hw05.db;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * QueryFilter which implements IFilter is a class whose instances represent filters
  * with various conditions each StudentRecord has to fulfil
  * in order to be considered acceptable.
+ * On a {@link ColumnarStudentStorage} the conditions are tested in blocks on the encoded
+ * columns, falling back to testing records for the conditions which can't be tested that way.
+ * A filter can also be made for a boolean expression tree with OR and NOT, which is then
+ * evaluated directly, both on records and on blocks.
  * 
  * @author JohnDoe
  *
  */
-public class QueryFilter implements IFilter {
+public class QueryFilter implements IFilter, IBatchFilter {
 
 	/**
 	 * List of conditions which StudentRecord must fulfil to be considered acceptable.
 	 */
 	private List<ConditionalExpression> expressions;
 	
+	/**
+	 * The expression tree which is evaluated, or null if the filter has a list of conditions.
+	 */
+	private IQueryExpression tree;
+	
+	/**
+	 * The conditions compiled for the last storage they were tested on in blocks, or null.
+	 */
+	private volatile BatchPredicates.Program program;
+	
+	/**
+	 * The tree compiled for the last storage it was tested on in blocks, or null.
+	 */
+	private volatile BatchPredicates.Tree batchTree;
+	
 	/**
 	 * Constructor which accepts list of conditions each StudentRecord has to fulfil
 	 * in order to be considered acceptable.
@@ -26,16 +46,48 @@ public class QueryFilter implements IFilter {
 		super();
 		this.expressions = expressions;
 	}
+	
+	/**
+	 * Constructor which accepts a boolean expression tree each StudentRecord has to satisfy
+	 * in order to be considered acceptable.
+	 * @param expression - the expression.
+	 * @throws NullPointerException if expression is null.
+	 */
+	public QueryFilter(IQueryExpression expression) {
+		this.expressions = QueryExpressions.conjunction(Objects.requireNonNull(expression));
+		if(expressions == null) tree = expression;
+	}
 
 	@Override
 	public boolean accepts(StudentRecord student) {
+		if(tree != null) return tree.accepts(student);
+		
 		for(var expression : expressions) {
-			if(!expression.getComparisonOperator()
-					.satisfied(expression.getFieldGetter().get(student), expression.getStringLiteral())) {
+			if(!expression.isSatisfiedBy(student)) {
 				return false;
 			}
 		}
 		return true;
 	}
 
+	@Override
+	public void select(ColumnarStudentStorage storage, int from, int to, long[] selection) {
+		if(tree != null) {
+			var batchTree = this.batchTree;
+			if(batchTree == null || !batchTree.isCompiledFor(storage)) {
+				batchTree = new BatchPredicates.Tree(tree, storage);
+				this.batchTree = batchTree;
+			}
+			batchTree.select(storage, from, to, selection);
+			return;
+		}
+		
+		var program = this.program;
+		if(program == null || !program.isCompiledFor(storage)) {
+			program = new BatchPredicates.Program(expressions, storage);
+			this.program = program;
+		}
+		program.select(storage, from, to, selection);
+	}
+
 }
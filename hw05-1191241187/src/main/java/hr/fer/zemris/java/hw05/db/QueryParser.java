@@ -8,16 +8,66 @@ import hr.fer.zemris.java.hw05.db.lexer.*;
 
 /**
  * Query parser is a class instances of which represent a parser for some query.
+ * Conditions can be joined by AND and OR, negated by NOT and grouped by parentheses.
  * @author Božidar Grgur Drmić
  *
  */
 public class QueryParser {
 
 	/**
-	 * List of conditions in this query.
+	 * Value of the limit of a query which doesn't limit the number of results.
+	 */
+	public static final int NO_LIMIT = -1;
+
+	/**
+	 * List of conditions in this query, in the order they appear in.
 	 */
 	private List<ConditionalExpression> conditions;
 	
+	/**
+	 * The boolean expression tree of this query.
+	 */
+	private IQueryExpression expression;
+	
+	/**
+	 * Whether the query is a list of conditions joined by AND.
+	 */
+	private boolean conjunctive;
+	
+	/**
+	 * Aggregates computed by this query, empty if it returns records.
+	 */
+	private List<Aggregate> aggregates = new ArrayList<>();
+	
+	/**
+	 * The field the results are grouped by, or null.
+	 */
+	private IFieldValueGetter groupBy;
+	/**
+	 * Ordering of the results, or null if they are in the order of the database.
+	 */
+	private Ordering ordering;
+	
+	/**
+	 * Maximal number of results, or {@link #NO_LIMIT}.
+	 */
+	private int limit = NO_LIMIT;
+	
+	/**
+	 * Number of results which are skipped.
+	 */
+	private int offset;
+	
+	/**
+	 * Whether literals can be replaced by {@code ?} placeholders.
+	 */
+	private boolean placeholders;
+	
+	/**
+	 * Indexes of the conditions whose literals are placeholders, in the order of the placeholders.
+	 */
+	private List<Integer> parameters = new ArrayList<>();
+	
 	/**
 	 * Constructor for this class which accepts the query as argument.
 	 * @param query - text of the query.
@@ -25,42 +75,257 @@ public class QueryParser {
 	 * @throws RunTimeException if expression is invalid.
 	 */
 	public QueryParser(String query) {
-		Objects.requireNonNull(query);
-		
-		conditions = new ArrayList<ConditionalExpression>();
-		parse(query);
+		this(query, false);
 	}
 	
 	/**
-	 * A method which parses a query.
+	 * Constructor for this class which accepts the query as argument and whether its literals
+	 * can be {@code ?} placeholders, as in the templates of {@link PreparedQuery}. Conditions
+	 * with a placeholder get an empty literal until their values are bound.
 	 * @param query - text of the query.
+	 * @param placeholders - whether placeholders are allowed.
+	 * @throws NullPointerException if query is null.
 	 * @throws RunTimeException if expression is invalid.
 	 */
-	private void parse(String query) {
+	public QueryParser(String query, boolean placeholders) {
+		Objects.requireNonNull(query);
+		
+		this.placeholders = placeholders;
+		conditions = new ArrayList<ConditionalExpression>();
 		var lexer = new Lexer(query);
+		try {
+			lexer.nextToken();
+		} catch(LexerException e) {
+			throw new IllegalArgumentException("Wrong query format: " + e.getMessage(), e);
+		}
+		parse(lexer);
+	}
+	
+	/**
+	 * Constructor for this class which parses the rest of a text whose beginning was read by
+	 * another parser, such as the conditions of the statements of {@link StatementParser}.
+	 * @param lexer - the lexer, positioned at the first token of the query.
+	 * @throws IllegalArgumentException if the query is invalid.
+	 */
+	QueryParser(Lexer lexer) {
+		conditions = new ArrayList<ConditionalExpression>();
+		parse(lexer);
+	}
+	
+	/**
+	 * A method which parses a query. The expression can be preceded by aggregate functions
+	 * separated by commas, such as {@code COUNT, AVG(grade)}, and followed by {@code LIMIT n},
+	 * {@code OFFSET m}, {@code ORDER BY field [ASC|DESC]} and, for aggregates, {@code GROUP BY field}
+	 * clauses, in any order.
+	 * @param lexer - the lexer, positioned at the first token of the query.
+	 * @throws IllegalArgumentException if expression is invalid, with the position of the error.
+	 */
+	private void parse(Lexer lexer) {
+		try {
+			if(lexer.getToken().getType() == TokenType.FUNCTION) parseAggregates(lexer);
+			expression = parseOr(lexer, true);
+			conjunctive = QueryExpressions.conjunction(expression) != null;
+			
+			while(true) {
+				var type = lexer.getToken().getType();
+				if(type == TokenType.LIMIT || type == TokenType.OFFSET) {
+					parseClause(type, lexer);
+				} else if(type == TokenType.GROUP) {
+					parseGroupBy(lexer);
+				} else if(type == TokenType.ORDER) {
+					parseOrderBy(lexer);
+					continue;
+				} else {
+					break;
+				}
+				lexer.nextToken();
+			}
+			if(lexer.getToken().getType() != TokenType.EOF) throw error(lexer);
+		} catch(LexerException e) {
+			throw new IllegalArgumentException("Wrong query format: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * A method which parses aggregate functions separated by commas. COUNT can be written
+	 * with or without a field, other functions need one.
+	 * @param lexer - the lexer, positioned at the first function.
+	 * @throws IllegalArgumentException if a function is invalid.
+	 */
+	private void parseAggregates(Lexer lexer) {
+		while(true) {
+			if(lexer.getToken().getType() != TokenType.FUNCTION) throw error(lexer);
+			var function = (Aggregate.Function) lexer.getToken().getValue();
+			
+			IFieldValueGetter field = null;
+			lexer.nextToken();
+			if(function != Aggregate.Function.COUNT || lexer.getToken().getType() == TokenType.OPEN_PARENTHESIS) {
+				if(lexer.getToken().getType() != TokenType.OPEN_PARENTHESIS) throw error(lexer);
+				if(lexer.nextToken().getType() != TokenType.FIELD) throw error(lexer);
+				field = (IFieldValueGetter) lexer.getToken().getValue();
+				if(function == Aggregate.Function.AVG && !FieldValueGetters.isNumeric(field)) throw error(lexer);
+				if(lexer.nextToken().getType() != TokenType.CLOSED_PARENTHESIS) throw error(lexer);
+				lexer.nextToken();
+			}
+			aggregates.add(new Aggregate(function, field));
+			
+			if(lexer.getToken().getType() != TokenType.COMMA) return;
+			lexer.nextToken();
+		}
+	}
+	
+	/**
+	 * A method which parses the field of a GROUP BY clause.
+	 * @param lexer - the lexer, positioned at the GROUP keyword.
+	 * @throws IllegalArgumentException if the clause is invalid or repeated, or the query has no aggregates.
+	 */
+	private void parseGroupBy(Lexer lexer) {
+		if(aggregates.isEmpty() || groupBy != null) throw error(lexer);
+		if(lexer.nextToken().getType() != TokenType.BY) throw error(lexer);
+		if(lexer.nextToken().getType() != TokenType.FIELD) throw error(lexer);
+		groupBy = (IFieldValueGetter) lexer.getToken().getValue();
+	}
+	
+	/**
+	 * A method which parses the field and the optional direction of an ORDER BY clause.
+	 * @param lexer - the lexer, positioned at the ORDER keyword, which is left after the clause.
+	 * @throws IllegalArgumentException if the clause is invalid or repeated, or the query has aggregates.
+	 */
+	private void parseOrderBy(Lexer lexer) {
+		if(!aggregates.isEmpty() || ordering != null) throw error(lexer);
+		if(lexer.nextToken().getType() != TokenType.BY) throw error(lexer);
+		if(lexer.nextToken().getType() != TokenType.FIELD) throw error(lexer);
+		var field = (IFieldValueGetter) lexer.getToken().getValue();
+		
+		var direction = lexer.nextToken().getType();
+		ordering = new Ordering(field, direction == TokenType.DESC);
+		if(direction == TokenType.ASC || direction == TokenType.DESC) lexer.nextToken();
+	}
+	
+	/**
+	 * A method which parses alternatives joined by OR, which bind weaker than AND.
+	 * @param lexer - the lexer, positioned at the first token of the alternatives.
+	 * @param top - whether the alternatives are the whole query, which may be empty.
+	 * @return the expression.
+	 * @throws IllegalArgumentException if the alternatives are invalid.
+	 */
+	private IQueryExpression parseOr(Lexer lexer, boolean top) {
+		List<IQueryExpression> alternatives = new ArrayList<>();
 		while(true) {
-			Token field;
-			Token comparison;
-			Token literal; 
+			var alternative = parseAnd(lexer);
+			if(alternative == null) {
+				if(top && alternatives.isEmpty() && lexer.getToken().getType() != TokenType.OR) {
+					return new QueryExpressions.And(List.of());
+				}
+				throw error(lexer);
+			}
 			
-			try {
-				field = lexer.nextToken();
-				if(field.getType() == TokenType.AND) continue;
-				if(field.getType() == TokenType.EOF) return;
-				
-				comparison = lexer.nextToken();
-				literal = lexer.nextToken();
-			} catch(RuntimeException e) {
-				throw new IllegalArgumentException("Wrong query format.");
+			if(alternative instanceof QueryExpressions.Or) {
+				alternatives.addAll(((QueryExpressions.Or) alternative).getOperands());
+			} else {
+				alternatives.add(alternative);
 			}
+			if(lexer.getToken().getType() != TokenType.OR) break;
+			lexer.nextToken();
+		}
+		return alternatives.size() == 1 ? alternatives.get(0) : new QueryExpressions.Or(alternatives);
+	}
+	
+	/**
+	 * A method which parses operands joined by AND. As in queries without OR, the AND keywords
+	 * between the operands can be left out or repeated.
+	 * @param lexer - the lexer, positioned at the first token of the operands.
+	 * @return the expression, or null if there are no operands.
+	 * @throws IllegalArgumentException if some operand is invalid.
+	 */
+	private IQueryExpression parseAnd(Lexer lexer) {
+		List<IQueryExpression> operands = new ArrayList<>();
+		while(true) {
+			var type = lexer.getToken().getType();
+			if(type == TokenType.AND) {
+				lexer.nextToken();
+				continue;
+			}
+			if(type != TokenType.FIELD && type != TokenType.NOT && type != TokenType.OPEN_PARENTHESIS) break;
 			
-			if(field.getType() != TokenType.FIELD || comparison.getType() != TokenType.OPERATOR
-					|| literal.getType() != TokenType.STRING) {
-				throw new IllegalArgumentException("Wrong query format.");
+			var operand = parseUnary(lexer);
+			if(operand instanceof QueryExpressions.And) {
+				operands.addAll(((QueryExpressions.And) operand).getOperands());
+			} else {
+				operands.add(operand);
 			}
-			conditions.add(new ConditionalExpression((IFieldValueGetter)field.getValue(),
-					(String)literal.getValue(), (IComparisonOperator) comparison.getValue()));
 		}
+		if(operands.isEmpty()) return null;
+		return operands.size() == 1 ? operands.get(0) : new QueryExpressions.And(operands);
+	}
+	
+	/**
+	 * A method which parses a condition, a negated operand or an expression in parentheses.
+	 * @param lexer - the lexer, positioned at the first token of the operand.
+	 * @return the expression, with the lexer positioned after it.
+	 * @throws IllegalArgumentException if the operand is invalid.
+	 */
+	private IQueryExpression parseUnary(Lexer lexer) {
+		Token token = lexer.getToken();
+		if(token.getType() == TokenType.NOT) {
+			lexer.nextToken();
+			return new QueryExpressions.Not(parseUnary(lexer));
+		}
+		if(token.getType() == TokenType.OPEN_PARENTHESIS) {
+			lexer.nextToken();
+			var expression = parseOr(lexer, false);
+			if(lexer.getToken().getType() != TokenType.CLOSED_PARENTHESIS) throw error(lexer);
+			lexer.nextToken();
+			return expression;
+		}
+		if(token.getType() != TokenType.FIELD) throw error(lexer);
+		
+		Token comparison = lexer.nextToken();
+		if(comparison.getType() != TokenType.OPERATOR) throw error(lexer);
+		
+		var field = (IFieldValueGetter) token.getValue();
+		Token literal = lexer.nextToken();
+		boolean parameter = placeholders && literal.getType() == TokenType.PARAMETER;
+		boolean number = literal.getType() == TokenType.NUMBER && FieldValueGetters.isNumeric(field);
+		if(literal.getType() != TokenType.STRING && !parameter && !number) throw error(lexer);
+		lexer.nextToken();
+		
+		if(parameter) parameters.add(conditions.size());
+		var condition = new ConditionalExpression(field, parameter ? "" : literal.getValue().toString(),
+				(IComparisonOperator) comparison.getValue());
+		conditions.add(condition);
+		return new QueryExpressions.Condition(condition);
+	}
+	
+	/**
+	 * A method which parses the number of a LIMIT or an OFFSET clause.
+	 * @param type - type of the keyword of the clause.
+	 * @param lexer - the lexer, positioned after the keyword.
+	 * @throws IllegalArgumentException if the next token isn't a number or the clause is repeated.
+	 */
+	private void parseClause(TokenType type, Lexer lexer) {
+		Token number = lexer.nextToken();
+		if(number.getType() != TokenType.NUMBER) {
+			throw error(lexer);
+		}
+		
+		int value = (Integer) number.getValue();
+		if(type == TokenType.LIMIT) {
+			if(limit != NO_LIMIT) throw error(lexer);
+			limit = value;
+		} else {
+			if(offset != 0) throw error(lexer);
+			offset = value;
+		}
+	}
+	
+	/**
+	 * A method which makes the exception for an unexpected token.
+	 * @param lexer - the lexer whose last token was unexpected.
+	 * @return the exception, with the position of the token.
+	 */
+	private static IllegalArgumentException error(Lexer lexer) {
+		return new IllegalArgumentException("Wrong query format at position " + lexer.getPosition() + ".");
 	}
 	
 	/**
@@ -70,7 +335,7 @@ public class QueryParser {
 	 * @return true if this query is direct. False otherwise.
 	 */
 	public boolean isDirectQuery() {
-		return conditions.size() == 1 && conditions.get(0).getFieldGetter() == FieldValueGetters.JMBAG
+		return conjunctive && aggregates.isEmpty() && conditions.size() == 1 && conditions.get(0).getFieldGetter() == FieldValueGetters.JMBAG
 				&& conditions.get(0).getComparisonOperator() == ComparisonOperators.EQUALS;
 	}
 	
@@ -90,9 +355,88 @@ public class QueryParser {
 	/**
 	 * A getter method for ConditionalExpressions of this query.
 	 * @return conditions variable.
+	 * @throws IllegalStateException if the query has OR or NOT, so that it isn't
+	 * 		   a list of conditions joined by AND.
 	 */
 	public List<ConditionalExpression> getQuery() {
+		if(!conjunctive) {
+			throw new IllegalStateException("The query isn't a list of conditions joined by AND.");
+		}
 		return conditions;
 	}
 	
+	/**
+	 * A getter for the boolean expression tree of this query. Conditions are joined by AND,
+	 * which binds stronger than OR; NOT and parentheses bind strongest.
+	 * @return the expression, an AND without operands for an empty query.
+	 */
+	public IQueryExpression getExpression() {
+		return expression;
+	}
+	
+	/**
+	 * A method which checks whether this query is a list of conditions joined by AND,
+	 * which is returned by {@link #getQuery()}.
+	 * @return true if it is, false if the query has OR or NOT.
+	 */
+	public boolean isConjunctive() {
+		return conjunctive;
+	}
+	
+	/**
+	 * A getter for the indexes of the conditions whose literals are placeholders.
+	 * @return indexes into {@link #getQuery()}, in the order of the placeholders.
+	 */
+	public List<Integer> getParameters() {
+		return parameters;
+	}
+	
+	/**
+	 * A getter for the ordering of the results of this query.
+	 * @return the ordering, or null if the query has no ORDER BY clause.
+	 */
+	public Ordering getOrdering() {
+		return ordering;
+	}
+	
+	/**
+	 * A getter for the aggregates computed by this query.
+	 * @return the aggregates, empty if the query returns records.
+	 */
+	public List<Aggregate> getAggregates() {
+		return aggregates;
+	}
+	
+	/**
+	 * A method which checks whether this query computes aggregates instead of returning records.
+	 * @return true if it has aggregate functions, false otherwise.
+	 */
+	public boolean isAggregate() {
+		return !aggregates.isEmpty();
+	}
+	
+	/**
+	 * A getter for the field the results of this query are grouped by.
+	 * @return the field, or null if the query has no GROUP BY clause.
+	 */
+	public IFieldValueGetter getGroupBy() {
+		return groupBy;
+	}
+	
+	/**
+	 * A getter for the maximal number of results of this query.
+	 * @return the limit, or {@link #NO_LIMIT} if the query has no LIMIT clause.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+	
+	/**
+	 * A getter for the number of results which are skipped.
+	 * @return the offset, 0 if the query has no OFFSET clause.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+	
 }
@@ -0,0 +1,314 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.List;
+
+/**
+ * QueryPlan is a class which describes how {@link StudentDatabase} answers a list of conditions
+ * joined by AND: which access path gives the candidate rows and in which order the remaining
+ * conditions are tested on them. Plans for boolean expression trees with OR and NOT instead
+ * hold the expression, which is tested as a whole, and possibly the candidate rows found by
+ * combining index lookups. Plans are made by {@link QueryPlanner}.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class QueryPlan {
+
+	/**
+	 * AccessPath is an enumeration of the ways the candidate rows of a plan are found.
+	 */
+	public enum AccessPath {
+		/**
+		 * The conditions contradict each other, so no row is read.
+		 */
+		NONE,
+		/**
+		 * A single row is looked up by the jmbag index.
+		 */
+		JMBAG_LOOKUP,
+		/**
+		 * A range of a secondary index is read.
+		 */
+		INDEX_RANGE,
+		/**
+		 * All the rows are read.
+		 */
+		FULL_SCAN,
+		/**
+		 * The rows found by a union and intersection of index lookups are read.
+		 */
+		ROW_SET
+	}
+
+	/**
+	 * The access path.
+	 */
+	private AccessPath accessPath;
+	/**
+	 * The condition answered by the access path, or null for a full scan.
+	 */
+	private ConditionalExpression accessCondition;
+	/**
+	 * The index which is read, or null if the access path isn't an index range.
+	 */
+	private SortedIndex index;
+	/**
+	 * The range {from, to} of positions of the index which is read, or null.
+	 */
+	private int[] range;
+	/**
+	 * Conditions which are tested on the candidate rows, in the order of testing.
+	 */
+	private List<ConditionalExpression> predicates;
+	/**
+	 * The predicates compiled into a single filter.
+	 */
+	private IFilter filter;
+	/**
+	 * Estimated selectivities of the predicates.
+	 */
+	private double[] selectivities;
+	/**
+	 * Number of rows of the database.
+	 */
+	private int totalRows;
+	/**
+	 * Number of candidate rows given by the access path, estimated for a jmbag lookup.
+	 */
+	private int candidateRows;
+	/**
+	 * Estimated number of result rows.
+	 */
+	private double estimatedRows;
+	/**
+	 * Estimated cost of the plan.
+	 */
+	private double cost;
+	/**
+	 * Normalised form of the conditions the plan was made for, or null if its results can't be cached.
+	 */
+	private String cacheKey;
+	/**
+	 * The expression tree the plan was made for, or null if it was made for a list of conditions.
+	 */
+	private IQueryExpression expression;
+	/**
+	 * The candidate rows, sorted by row, or null if the access path isn't a row set.
+	 */
+	private int[] rows;
+	/**
+	 * The version of the database the plan is executed on, or null if it wasn't made by a database.
+	 */
+	private DatabaseVersion version;
+
+	/**
+	 * A constructor for this class.
+	 * @param accessPath - the access path.
+	 * @param accessCondition - the condition answered by the access path, or null.
+	 * @param index - the index which is read, or null.
+	 * @param range - the range of positions of the index which is read, or null.
+	 * @param predicates - conditions tested on the candidate rows, in the order of testing.
+	 * @param filter - the predicates compiled into a single filter.
+	 * @param selectivities - estimated selectivities of the predicates.
+	 * @param totalRows - number of rows of the database.
+	 * @param candidateRows - number of candidate rows.
+	 * @param estimatedRows - estimated number of result rows.
+	 * @param cost - estimated cost of the plan.
+	 * @param cacheKey - normalised form of the conditions made by {@link QueryCache#keyOf(List)}, or null.
+	 */
+	QueryPlan(AccessPath accessPath, ConditionalExpression accessCondition, SortedIndex index, int[] range,
+			List<ConditionalExpression> predicates, IFilter filter, double[] selectivities, int totalRows, int candidateRows,
+			double estimatedRows, double cost, String cacheKey) {
+		this.accessPath = accessPath;
+		this.accessCondition = accessCondition;
+		this.index = index;
+		this.range = range;
+		this.predicates = predicates;
+		this.filter = filter;
+		this.selectivities = selectivities;
+		this.totalRows = totalRows;
+		this.candidateRows = candidateRows;
+		this.estimatedRows = estimatedRows;
+		this.cost = cost;
+		this.cacheKey = cacheKey;
+	}
+
+	/**
+	 * A constructor for plans of expression trees with OR or NOT.
+	 * @param accessPath - the access path, {@link AccessPath#ROW_SET} or {@link AccessPath#FULL_SCAN}.
+	 * @param rows - the candidate rows sorted by row, or null for a full scan.
+	 * @param expression - the expression.
+	 * @param filter - the expression compiled into a single filter.
+	 * @param totalRows - number of rows of the database.
+	 * @param estimatedRows - estimated number of result rows.
+	 * @param cost - estimated cost of the plan.
+	 * @param cacheKey - normalised form of the expression, or null.
+	 */
+	QueryPlan(AccessPath accessPath, int[] rows, IQueryExpression expression, IFilter filter, int totalRows,
+			double estimatedRows, double cost, String cacheKey) {
+		this(accessPath, null, null, null, List.of(), filter, new double[0], totalRows,
+				rows == null ? totalRows : rows.length, estimatedRows, cost, cacheKey);
+		this.rows = rows;
+		this.expression = expression;
+	}
+
+	/**
+	 * A getter for the access path.
+	 * @return the access path.
+	 */
+	public AccessPath getAccessPath() {
+		return accessPath;
+	}
+
+	/**
+	 * A getter for the condition answered by the access path.
+	 * @return the condition, or null for a full scan or contradictory conditions.
+	 */
+	public ConditionalExpression getAccessCondition() {
+		return accessCondition;
+	}
+
+	/**
+	 * A getter for the index which is read.
+	 * @return the index, or null if the access path isn't an index range.
+	 */
+	public SortedIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * A getter for the range of positions of the index which is read.
+	 * @return an array {from, to}, or null if the access path isn't an index range.
+	 */
+	public int[] getRange() {
+		return range;
+	}
+
+	/**
+	 * A getter for the conditions which are tested on the candidate rows.
+	 * @return the conditions, in the order of testing.
+	 */
+	public List<ConditionalExpression> getPredicates() {
+		return predicates;
+	}
+
+	/**
+	 * A getter for the filter which tests the candidate rows.
+	 * @return the predicates compiled by {@link QueryCompiler}.
+	 */
+	public IFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * A getter for the estimated selectivities of the predicates.
+	 * @return the selectivities, in the order of the predicates.
+	 */
+	double[] getSelectivities() {
+		return selectivities;
+	}
+
+	/**
+	 * A getter for the estimated number of result rows.
+	 * @return the estimate.
+	 */
+	public double getEstimatedRows() {
+		return estimatedRows;
+	}
+
+	/**
+	 * A getter for the estimated cost of the plan, in units of reading one row.
+	 * @return the estimate.
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * A getter for the key the results of the plan are cached under.
+	 * @return the normalised form of the conditions, or null if the results can't be cached.
+	 */
+	public String getCacheKey() {
+		return cacheKey;
+	}
+
+	/**
+	 * A getter for the candidate rows.
+	 * @return the rows sorted by row, or null if the access path isn't a row set.
+	 */
+	public int[] getRows() {
+		return rows;
+	}
+
+	/**
+	 * A getter for the expression tree the plan was made for.
+	 * @return the expression, or null if the plan was made for a list of conditions.
+	 */
+	public IQueryExpression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * A method which sets the version of the database the plan is executed on, whose rows
+	 * the candidate rows of the plan are.
+	 * @param version - the version.
+	 * @return this plan.
+	 */
+	QueryPlan on(DatabaseVersion version) {
+		this.version = version;
+		return this;
+	}
+
+	/**
+	 * A getter for the version of the database the plan is executed on.
+	 * @return the version, or null if the plan wasn't made by a database.
+	 */
+	DatabaseVersion getVersion() {
+		return version;
+	}
+
+	/**
+	 * A method which returns a readable description of this plan, as printed by the EXPLAIN command.
+	 * @return the description.
+	 */
+	public String explain() {
+		var sb = new StringBuilder();
+		sb.append("Access path: ");
+		switch(accessPath) {
+		case NONE:
+			sb.append("none, the conditions are contradictory\n");
+			return sb.toString();
+		case JMBAG_LOOKUP:
+			sb.append("jmbag index lookup (").append(accessCondition).append(")");
+			break;
+		case INDEX_RANGE:
+			sb.append("range scan of the ").append(FieldValueGetters.nameOf(index.getField()))
+				.append(" index (").append(accessCondition).append(")");
+			break;
+		case ROW_SET:
+			sb.append("union and intersection of index lookups");
+			break;
+		default:
+			sb.append("full scan");
+		}
+		sb.append(", ").append(candidateRows).append(" of ").append(totalRows).append(" rows\n");
+
+		if(expression != null) {
+			sb.append("Filter: ").append(expression).append("\n");
+		} else if(predicates.isEmpty()) {
+			sb.append("Filter: none\n");
+		} else {
+			sb.append("Filter, in the order of testing:\n");
+			for(int i = 0; i < predicates.size(); i++) {
+				sb.append(String.format("  %d. %s (selectivity %.3f)%n", i + 1, predicates.get(i), selectivities[i]));
+			}
+		}
+		sb.append(String.format("Estimated rows: %.1f, estimated cost: %.1f%n", estimatedRows, cost));
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return explain();
+	}
+}
@@ -0,0 +1,804 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * QueryPlanner is a class which makes a {@link QueryPlan} for a list of conditions joined by AND.
+ * <p>
+ * The planner first checks whether the conditions on some field contradict each other,
+ * for example {@code jmbag = "A" and jmbag = "B"}, in which case no row is read at all.
+ * Otherwise it compares the cost of a jmbag lookup, of a range scan of each usable secondary
+ * index and of a full scan, and picks the cheapest one. The remaining conditions are ordered
+ * so that cheap conditions which reject many rows are tested first. Selectivities are
+ * estimated from the {@link FieldStatistics} gathered when the planner is made, and the
+ * ordered conditions are compiled by {@link QueryCompiler}.
+ * <p>
+ * Boolean expression trees with OR and NOT are tested as a whole. If every operand of an OR
+ * and some operand of an AND can be answered by an index, and the rows found that way are
+ * few enough, the candidate rows are the union of the rows of the operands of OR and the
+ * intersection of the rows of the operands of AND; otherwise all the rows are scanned.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class QueryPlanner {
+
+	/**
+	 * Cost of reading one row during a full scan.
+	 */
+	private static final double SCAN_ROW_COST = 1;
+	/**
+	 * Cost of reading one row found by an index, which includes sorting the rows
+	 * and reading them out of order.
+	 */
+	private static final double INDEX_ROW_COST = 2;
+	/**
+	 * Cost of testing a simple comparison, relative to reading a row.
+	 */
+	private static final double COMPARISON_COST = 0.1;
+	/**
+	 * Cost of testing a LIKE pattern with a wildcard, relative to reading a row.
+	 */
+	private static final double PATTERN_COST = 0.3;
+
+	/**
+	 * Storage of the database.
+	 */
+	private IStudentStorage students;
+	/**
+	 * Secondary indexes, by field.
+	 */
+	private Map<IFieldValueGetter, SortedIndex> indexes = new HashMap<>();
+	/**
+	 * Statistics, by field.
+	 */
+	private Map<IFieldValueGetter, FieldStatistics> statistics = new HashMap<>();
+	/**
+	 * Bitmap index on grades, which also gives the number of rows with each grade.
+	 */
+	private BitmapIndex gradeIndex;
+
+	/**
+	 * A constructor which gathers the statistics of all the fields.
+	 * @param students - storage of the database.
+	 * @param lastNameIndex - secondary index on last names.
+	 * @param firstNameIndex - secondary index on first names.
+	 * @param gradeIndex - bitmap index on grades.
+	 */
+	public QueryPlanner(IStudentStorage students, SortedIndex lastNameIndex, SortedIndex firstNameIndex,
+			BitmapIndex gradeIndex) {
+		this.students = students;
+		this.gradeIndex = gradeIndex;
+		indexes.put(FieldValueGetters.LAST_NAME, lastNameIndex);
+		indexes.put(FieldValueGetters.FIRST_NAME, firstNameIndex);
+		statistics.put(FieldValueGetters.LAST_NAME, new FieldStatistics(lastNameIndex));
+		statistics.put(FieldValueGetters.FIRST_NAME, new FieldStatistics(firstNameIndex));
+
+		String min = null, max = null;
+		int maxLength = 0;
+		for(int row = 0, size = students.size(); row < size; row++) {
+			String jmbag = students.get(row).getJmbag();
+			if(min == null || jmbag.compareTo(min) < 0) min = jmbag;
+			if(max == null || jmbag.compareTo(max) > 0) max = jmbag;
+			maxLength = Math.max(maxLength, jmbag.length());
+		}
+		statistics.put(FieldValueGetters.JMBAG, new FieldStatistics(students.size(), min, max, maxLength));
+	}
+
+	/**
+	 * A constructor which updates the statistics of the planner of the rows before a small
+	 * change instead of gathering them from all the rows again, as described by
+	 * {@link FieldStatistics#FieldStatistics(SortedIndex, FieldStatistics, int)}. The least
+	 * and the greatest jmbag are only widened by the changed records.
+	 * @param students - storage of the database.
+	 * @param lastNameIndex - secondary index on last names.
+	 * @param firstNameIndex - secondary index on first names.
+	 * @param gradeIndex - bitmap index on grades.
+	 * @param previous - the planner of the rows before the change.
+	 * @param changed - the changed and added records.
+	 */
+	public QueryPlanner(IStudentStorage students, SortedIndex lastNameIndex, SortedIndex firstNameIndex,
+			BitmapIndex gradeIndex, QueryPlanner previous, List<StudentRecord> changed) {
+		this.students = students;
+		this.gradeIndex = gradeIndex;
+		indexes.put(FieldValueGetters.LAST_NAME, lastNameIndex);
+		indexes.put(FieldValueGetters.FIRST_NAME, firstNameIndex);
+
+		var jmbags = previous.statistics.get(FieldValueGetters.JMBAG);
+		String min = jmbags.getMin(), max = jmbags.getMax();
+		int maxLength = jmbags.getMaxLength(), lastNameLength = 0, firstNameLength = 0;
+		for(var record : changed) {
+			String jmbag = record.getJmbag();
+			if(min == null || jmbag.compareTo(min) < 0) min = jmbag;
+			if(max == null || jmbag.compareTo(max) > 0) max = jmbag;
+			maxLength = Math.max(maxLength, jmbag.length());
+			lastNameLength = Math.max(lastNameLength, record.getLastName().length());
+			firstNameLength = Math.max(firstNameLength, record.getFirstName().length());
+		}
+		statistics.put(FieldValueGetters.LAST_NAME, new FieldStatistics(lastNameIndex,
+				previous.statistics.get(FieldValueGetters.LAST_NAME), lastNameLength));
+		statistics.put(FieldValueGetters.FIRST_NAME, new FieldStatistics(firstNameIndex,
+				previous.statistics.get(FieldValueGetters.FIRST_NAME), firstNameLength));
+		statistics.put(FieldValueGetters.JMBAG, new FieldStatistics(students.size(), min, max, maxLength));
+	}
+
+	/**
+	 * A getter for the statistics of a field.
+	 * @param field - the field.
+	 * @return the statistics, or null if the field is unknown.
+	 */
+	public FieldStatistics getStatistics(IFieldValueGetter field) {
+		return statistics.get(field);
+	}
+
+	/**
+	 * A method which decides whether the results of a plan are ordered by reading the rows in
+	 * the order of the sorted index on the field of an ordering, until enough results are found,
+	 * instead of keeping the first of them in a {@link TopK}. The index is always used if the
+	 * plan reads a range of it. A full scan is replaced by it if the rows expected to be read
+	 * before enough results are found cost less than the scan.
+	 * @param plan - the plan.
+	 * @param ordering - the ordering.
+	 * @param offset - number of results which are skipped.
+	 * @param limit - maximal number of results, or {@link QueryParser#NO_LIMIT}.
+	 * @return the index, or null if the results are ordered by a TopK.
+	 */
+	public SortedIndex orderIndex(QueryPlan plan, Ordering ordering, int offset, int limit) {
+		var index = indexes.get(ordering.getField());
+		if(index == null) return null;
+		
+		if(plan.getAccessPath() == QueryPlan.AccessPath.INDEX_RANGE) {
+			return plan.getIndex() == index ? index : null;
+		}
+		if(plan.getAccessPath() != QueryPlan.AccessPath.FULL_SCAN || limit == QueryParser.NO_LIMIT
+				|| plan.getEstimatedRows() == 0) {
+			return null;
+		}
+		
+		int size = students.size();
+		double read = ((double) offset + limit) * size / plan.getEstimatedRows();
+		return read * INDEX_ROW_COST < size * SCAN_ROW_COST ? index : null;
+	}
+
+	/**
+	 * A method which makes a plan for a list of conditions joined by AND.
+	 * @param conditions - the conditions.
+	 * @return the plan.
+	 */
+	public QueryPlan plan(List<ConditionalExpression> conditions) {
+		return plan(conditions, Set.of());
+	}
+
+	/**
+	 * A method which makes a plan for a list of conditions joined by AND, the literals of some
+	 * of which aren't known yet. Such a generic plan is made once for the template of a
+	 * {@link PreparedQuery}: conditions with unknown literals are estimated from the statistics
+	 * of their fields alone, and the plan is later bound to the literals by {@link #bind}.
+	 * Generic plans with parameters have no cache key and mustn't be executed.
+	 * @param conditions - the conditions.
+	 * @param parameters - indexes of the conditions whose literals aren't known.
+	 * @return the plan.
+	 */
+	public QueryPlan plan(List<ConditionalExpression> conditions, Set<Integer> parameters) {
+		int size = students.size();
+		String cacheKey = parameters.isEmpty() ? QueryCache.keyOf(conditions) : null;
+
+		List<ConditionalExpression> known = new ArrayList<>();
+		for(int i = 0; i < conditions.size(); i++) {
+			if(!parameters.contains(i)) known.add(conditions.get(i));
+		}
+		if(isContradictory(known)) {
+			return new QueryPlan(QueryPlan.AccessPath.NONE, null, null, null, List.of(),
+					QueryCompiler.REJECT_ALL, new double[0],
+					size, 0, 0, 0, cacheKey);
+		}
+
+		var accessPath = QueryPlan.AccessPath.FULL_SCAN;
+		int access = -1;
+		SortedIndex accessIndex = null;
+		int[] accessRange = null;
+		boolean accessExact = true;
+		int candidates = size;
+		double accessCost = size * SCAN_ROW_COST;
+
+		for(int i = 0; i < conditions.size(); i++) {
+			var condition = conditions.get(i);
+			var field = condition.getFieldGetter();
+			var operator = condition.getComparisonOperator();
+
+			if(field == FieldValueGetters.JMBAG && operator == ComparisonOperators.EQUALS) {
+				accessPath = QueryPlan.AccessPath.JMBAG_LOOKUP;
+				access = i;
+				accessIndex = null;
+				accessRange = null;
+				accessExact = true;
+				candidates = 1;
+				accessCost = INDEX_ROW_COST;
+				break;
+			}
+
+			var index = indexes.get(field);
+			if(index == null) continue;
+
+			int[] range = null;
+			int rows;
+			if(parameters.contains(i)) {
+				if(operator == ComparisonOperators.NOT_EQUALS || operator == ComparisonOperators.LIKE) continue;
+				rows = (int) (size * statistics.get(field).selectivity(operator));
+			} else {
+				range = rangeOf(index, condition);
+				if(range == null) continue;
+				rows = range[1] - range[0];
+			}
+
+			double cost = rows * INDEX_ROW_COST + log2(size);
+			if(cost < accessCost) {
+				accessPath = QueryPlan.AccessPath.INDEX_RANGE;
+				access = i;
+				accessIndex = index;
+				accessRange = range;
+				accessExact = range == null || isExactRange(condition);
+				candidates = rows;
+				accessCost = cost;
+			}
+		}
+
+		List<Integer> order = new ArrayList<>();
+		for(int i = 0; i < conditions.size(); i++) {
+			if(i != access || !accessExact) order.add(i);
+		}
+		double[] ranks = new double[conditions.size()];
+		for(int i : order) {
+			ranks[i] = (selectivity(conditions.get(i), parameters.contains(i)) - 1)
+					/ costOf(conditions.get(i), parameters.contains(i));
+		}
+		order.sort((first, second) -> Double.compare(ranks[first], ranks[second]));
+
+		List<ConditionalExpression> predicates = new ArrayList<>();
+		double[] selectivities = new double[order.size()];
+		double estimatedRows = candidates;
+		double cost = accessCost;
+		for(int i = 0; i < selectivities.length; i++) {
+			var predicate = conditions.get(order.get(i));
+			boolean parameter = parameters.contains(order.get(i));
+			predicates.add(predicate);
+			selectivities[i] = selectivity(predicate, parameter);
+			cost += estimatedRows * costOf(predicate, parameter);
+			estimatedRows *= selectivities[i];
+		}
+
+		return new QueryPlan(accessPath, access == -1 ? null : conditions.get(access), accessIndex, accessRange, predicates,
+				parameters.isEmpty() ? QueryCompiler.compile(predicates) : QueryCompiler.REJECT_ALL, selectivities,
+				size, candidates, estimatedRows, cost, cacheKey);
+	}
+
+	/**
+	 * A method which makes a plan for a boolean expression tree. Trees which are a list of
+	 * conditions joined by AND are planned by {@link #plan(List)}.
+	 * @param expression - the expression.
+	 * @return the plan.
+	 */
+	public QueryPlan plan(IQueryExpression expression) {
+		var conditions = QueryExpressions.conjunction(expression);
+		if(conditions != null) return plan(conditions);
+
+		int size = students.size();
+		String cacheKey = QueryExpressions.keyOf(expression);
+		var filter = QueryCompiler.compile(expression);
+		if(filter == QueryCompiler.REJECT_ALL) {
+			return new QueryPlan(QueryPlan.AccessPath.NONE, null, null, null, List.of(),
+					QueryCompiler.REJECT_ALL, new double[0],
+					size, 0, 0, 0, cacheKey);
+		}
+
+		double estimatedRows = size * selectivity(expression);
+		double testCost = costOf(expression);
+		long candidates = filter == QueryCompiler.ACCEPT_ALL ? -1 : candidates(expression);
+		if(candidates != -1 && candidates * INDEX_ROW_COST + log2(size) < size * SCAN_ROW_COST) {
+			int[] rows = rowsOf(expression);
+			return new QueryPlan(QueryPlan.AccessPath.ROW_SET, rows, expression, filter, size,
+					Math.min(estimatedRows, rows.length), rows.length * (INDEX_ROW_COST + testCost) + log2(size), cacheKey);
+		}
+		return new QueryPlan(QueryPlan.AccessPath.FULL_SCAN, null, expression, filter, size,
+				estimatedRows, size * (SCAN_ROW_COST + testCost), cacheKey);
+	}
+
+	/**
+	 * A method which counts the rows an expression can be answered from by reading indexes.
+	 * A condition on an indexed field gives the size of its range, an AND the least count of
+	 * its operands, and an OR the sum of the counts of its operands.
+	 * @param expression - the expression.
+	 * @return the number of rows, or -1 if the indexes can't narrow down the rows.
+	 */
+	private long candidates(IQueryExpression expression) {
+		if(expression instanceof QueryExpressions.Condition) {
+			var condition = ((QueryExpressions.Condition) expression).getCondition();
+			if(condition.getFieldGetter() == FieldValueGetters.JMBAG
+					&& condition.getComparisonOperator() == ComparisonOperators.EQUALS) {
+				return 1;
+			}
+			if(condition.getFieldGetter() == FieldValueGetters.GRADE) {
+				return gradeIndex.countOfMask(condition.getGradeMask());
+			}
+			var index = indexes.get(condition.getFieldGetter());
+			int[] range = index == null ? null : rangeOf(index, condition);
+			return range == null ? -1 : range[1] - range[0];
+		}
+
+		if(expression instanceof QueryExpressions.And) {
+			long least = -1;
+			for(var operand : ((QueryExpressions.And) expression).getOperands()) {
+				long count = candidates(operand);
+				if(count != -1 && (least == -1 || count < least)) least = count;
+			}
+			return least;
+		}
+
+		if(expression instanceof QueryExpressions.Or) {
+			long sum = 0;
+			for(var operand : ((QueryExpressions.Or) expression).getOperands()) {
+				long count = candidates(operand);
+				if(count == -1) return -1;
+				sum += count;
+			}
+			return sum;
+		}
+		return -1;
+	}
+
+	/**
+	 * A method which reads the rows an expression can be answered from out of the indexes.
+	 * The rows of an AND are the rows of its operand with the least count, intersected with
+	 * the rows of the other operands which can be answered by the indexes, as long as merging
+	 * them is cheaper than reading the rows the intersection would remove.
+	 * @param expression - the expression, for which {@link #candidates} isn't -1.
+	 * @return the rows, sorted by row, which include all the rows satisfying the expression.
+	 */
+	private int[] rowsOf(IQueryExpression expression) {
+		if(expression instanceof QueryExpressions.Condition) {
+			var condition = ((QueryExpressions.Condition) expression).getCondition();
+			if(condition.getFieldGetter() == FieldValueGetters.GRADE) {
+				return gradeIndex.rowsOfMask(condition.getGradeMask());
+			}
+			var index = indexes.get(condition.getFieldGetter());
+			if(index == null) {
+				int row = students.rowOf(condition.getStringLiteral());
+				return row == -1 ? new int[0] : new int[] {row};
+			}
+			return index.rows(rangeOf(index, condition));
+		}
+
+		if(expression instanceof QueryExpressions.Or) {
+			int[] rows = new int[0];
+			for(var operand : ((QueryExpressions.Or) expression).getOperands()) {
+				rows = union(rows, rowsOf(operand));
+			}
+			return rows;
+		}
+
+		List<IQueryExpression> operands = new ArrayList<>();
+		List<Long> counts = new ArrayList<>();
+		for(var operand : ((QueryExpressions.And) expression).getOperands()) {
+			long count = candidates(operand);
+			if(count == -1) continue;
+			int position = 0;
+			while(position < counts.size() && counts.get(position) <= count) position++;
+			operands.add(position, operand);
+			counts.add(position, count);
+		}
+
+		int size = students.size();
+		int[] rows = rowsOf(operands.get(0));
+		for(int i = 1; i < operands.size(); i++) {
+			long count = counts.get(i);
+			double saved = rows.length * (1 - (double) count / size) * INDEX_ROW_COST;
+			if(count * COMPARISON_COST >= saved) break;
+			rows = intersection(rows, rowsOf(operands.get(i)));
+		}
+		return rows;
+	}
+
+	/**
+	 * A method which merges two sorted arrays of rows, keeping each row once.
+	 * @param first - the first rows.
+	 * @param second - the second rows.
+	 * @return the rows which are in either array, sorted.
+	 */
+	private static int[] union(int[] first, int[] second) {
+		if(first.length == 0) return second;
+		if(second.length == 0) return first;
+
+		int[] result = new int[first.length + second.length];
+		int i = 0, j = 0, n = 0;
+		while(i < first.length && j < second.length) {
+			if(first[i] < second[j]) {
+				result[n++] = first[i++];
+			} else if(first[i] > second[j]) {
+				result[n++] = second[j++];
+			} else {
+				result[n++] = first[i++];
+				j++;
+			}
+		}
+		while(i < first.length) result[n++] = first[i++];
+		while(j < second.length) result[n++] = second[j++];
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * A method which intersects two sorted arrays of rows.
+	 * @param first - the first rows.
+	 * @param second - the second rows.
+	 * @return the rows which are in both arrays, sorted.
+	 */
+	private static int[] intersection(int[] first, int[] second) {
+		int[] result = new int[Math.min(first.length, second.length)];
+		int i = 0, j = 0, n = 0;
+		while(i < first.length && j < second.length) {
+			if(first[i] < second[j]) {
+				i++;
+			} else if(first[i] > second[j]) {
+				j++;
+			} else {
+				result[n++] = first[i++];
+				j++;
+			}
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * A method which estimates the fraction of rows which satisfy an expression, assuming that
+	 * the conditions are independent.
+	 * @param expression - the expression.
+	 * @return the estimated fraction.
+	 */
+	private double selectivity(IQueryExpression expression) {
+		if(expression instanceof QueryExpressions.Condition) {
+			return selectivity(((QueryExpressions.Condition) expression).getCondition(), false);
+		}
+		if(expression instanceof QueryExpressions.Not) {
+			return 1 - selectivity(((QueryExpressions.Not) expression).getOperand());
+		}
+		if(expression instanceof QueryExpressions.And) {
+			double selectivity = 1;
+			for(var operand : ((QueryExpressions.And) expression).getOperands()) {
+				selectivity *= selectivity(operand);
+			}
+			return selectivity;
+		}
+		if(expression instanceof QueryExpressions.Or) {
+			double rejected = 1;
+			for(var operand : ((QueryExpressions.Or) expression).getOperands()) {
+				rejected *= 1 - selectivity(operand);
+			}
+			return 1 - rejected;
+		}
+		return FieldStatistics.DEFAULT_SELECTIVITY;
+	}
+
+	/**
+	 * A method which estimates the cost of testing an expression on one row, as the cost of
+	 * testing all of its conditions.
+	 * @param expression - the expression.
+	 * @return the estimated cost.
+	 */
+	private static double costOf(IQueryExpression expression) {
+		if(expression instanceof QueryExpressions.Condition) {
+			return costOf(((QueryExpressions.Condition) expression).getCondition(), false);
+		}
+		if(expression instanceof QueryExpressions.Not) {
+			return costOf(((QueryExpressions.Not) expression).getOperand());
+		}
+
+		List<IQueryExpression> operands;
+		if(expression instanceof QueryExpressions.And) operands = ((QueryExpressions.And) expression).getOperands();
+		else if(expression instanceof QueryExpressions.Or) operands = ((QueryExpressions.Or) expression).getOperands();
+		else return COMPARISON_COST;
+
+		double cost = 0;
+		for(var operand : operands) {
+			cost += costOf(operand);
+		}
+		return cost;
+	}
+
+	/**
+	 * A method which binds a generic plan to the literals of the conditions. The access path and
+	 * the order of the predicates of the generic plan are kept; only the range of the index is
+	 * looked up and the predicates are compiled again. If the bound literal of an index access
+	 * can't be answered by the index, the rows are scanned instead.
+	 * @param generic - the generic plan, made by {@link #plan(List, Set)} for the template.
+	 * @param template - the conditions the generic plan was made for.
+	 * @param bound - the same conditions with all the literals known.
+	 * @return the plan.
+	 */
+	public QueryPlan bind(QueryPlan generic, List<ConditionalExpression> template, List<ConditionalExpression> bound) {
+		int size = students.size();
+		String cacheKey = QueryCache.keyOf(bound);
+		if(generic.getAccessPath() == QueryPlan.AccessPath.NONE || isContradictory(bound)) {
+			return new QueryPlan(QueryPlan.AccessPath.NONE, null, null, null, List.of(),
+					QueryCompiler.REJECT_ALL, new double[0],
+					size, 0, 0, 0, cacheKey);
+		}
+
+		var accessPath = generic.getAccessPath();
+		var accessCondition = generic.getAccessCondition() == null ? null
+				: bound.get(indexOf(template, generic.getAccessCondition()));
+		int[] range = null;
+		int candidates = accessPath == QueryPlan.AccessPath.JMBAG_LOOKUP ? 1 : size;
+
+		List<ConditionalExpression> predicates = new ArrayList<>();
+		for(var predicate : generic.getPredicates()) {
+			predicates.add(bound.get(indexOf(template, predicate)));
+		}
+		double[] selectivities = generic.getSelectivities();
+
+		if(accessPath == QueryPlan.AccessPath.INDEX_RANGE) {
+			range = rangeOf(generic.getIndex(), accessCondition);
+			if(range == null) {
+				accessPath = QueryPlan.AccessPath.FULL_SCAN;
+				if(!predicates.contains(accessCondition)) {
+					predicates.add(0, accessCondition);
+					double[] withAccess = new double[selectivities.length + 1];
+					withAccess[0] = FieldStatistics.DEFAULT_SELECTIVITY;
+					System.arraycopy(selectivities, 0, withAccess, 1, selectivities.length);
+					selectivities = withAccess;
+				}
+				accessCondition = null;
+			} else {
+				candidates = range[1] - range[0];
+			}
+		}
+
+		return new QueryPlan(accessPath, accessCondition, accessCondition == null ? null : generic.getIndex(), range,
+				predicates, QueryCompiler.compile(predicates), selectivities,
+				size, candidates, generic.getEstimatedRows(), generic.getCost(), cacheKey);
+	}
+
+	/**
+	 * A method which returns the range of an index holding the rows which can satisfy a condition.
+	 * LIKE patterns with a prefix which aren't answered exactly by the index are answered
+	 * by the range of their prefix, which also holds rows that don't match.
+	 * @param index - the index on the field of the condition.
+	 * @param condition - the condition.
+	 * @return the range {from, to}, or null if the index can't narrow down the rows.
+	 */
+	private static int[] rangeOf(SortedIndex index, ConditionalExpression condition) {
+		var operator = condition.getComparisonOperator();
+		String literal = condition.getStringLiteral();
+		int[] range = index.range(operator, literal);
+		if(range != null || operator != ComparisonOperators.LIKE) return range;
+
+		String prefix = LikePattern.compile(literal).getPrefix();
+		return prefix.isEmpty() ? null : index.range(ComparisonOperators.LIKE, prefix + LikePattern.ANY_SEQUENCE);
+	}
+
+	/**
+	 * A method which checks whether the range given by {@link #rangeOf} holds exactly the rows
+	 * satisfying a condition, so that the condition doesn't have to be tested on them.
+	 * @param condition - the condition.
+	 * @return true if the range is exact, false otherwise.
+	 */
+	private static boolean isExactRange(ConditionalExpression condition) {
+		if(condition.getComparisonOperator() != ComparisonOperators.LIKE) return true;
+		var pattern = LikePattern.compile(condition.getStringLiteral());
+		return pattern.isExact() || pattern.isPrefix();
+	}
+
+	/**
+	 * A method which finds a condition in a list by identity.
+	 * @param conditions - the list.
+	 * @param condition - the condition.
+	 * @return the index of the condition.
+	 * @throws IllegalArgumentException if the condition isn't in the list.
+	 */
+	private static int indexOf(List<ConditionalExpression> conditions, ConditionalExpression condition) {
+		for(int i = 0; i < conditions.size(); i++) {
+			if(conditions.get(i) == condition) return i;
+		}
+		throw new IllegalArgumentException("The plan wasn't made for these conditions.");
+	}
+
+	/**
+	 * A method which estimates the fraction of rows which satisfy a condition.
+	 * @param condition - the condition.
+	 * @param parameter - whether the literal of the condition isn't known.
+	 * @return the estimated fraction.
+	 */
+	private double selectivity(ConditionalExpression condition, boolean parameter) {
+		if(condition.getFieldGetter() == FieldValueGetters.GRADE && !parameter) {
+			int size = students.size();
+			return size == 0 ? 0 : (double) gradeIndex.countOfMask(condition.getGradeMask()) / size;
+		}
+		var fieldStatistics = statistics.get(condition.getFieldGetter());
+		if(fieldStatistics == null) return FieldStatistics.DEFAULT_SELECTIVITY;
+		if(parameter) return fieldStatistics.selectivity(condition.getComparisonOperator());
+		return fieldStatistics.selectivity(condition.getComparisonOperator(), condition.getStringLiteral());
+	}
+
+	/**
+	 * A method which estimates the cost of testing a condition on one row. Conditions are tested
+	 * in the increasing order of (selectivity - 1) / cost, which minimizes the expected cost of
+	 * testing a row.
+	 * @param condition - the condition.
+	 * @param parameter - whether the literal of the condition isn't known.
+	 * @return the estimated cost.
+	 */
+	private static double costOf(ConditionalExpression condition, boolean parameter) {
+		if(condition.getComparisonOperator() == ComparisonOperators.LIKE
+				&& (parameter || !LikePattern.compile(condition.getStringLiteral()).isExact())) {
+			return PATTERN_COST;
+		}
+		return COMPARISON_COST;
+	}
+
+	/**
+	 * A method which returns the binary logarithm of a number of rows, used as the cost of a lookup.
+	 * @param rows - the number of rows.
+	 * @return the logarithm, at least 1.
+	 */
+	private static double log2(int rows) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(rows));
+	}
+
+	/**
+	 * A method which checks whether the conditions on some field can't be satisfied together.
+	 * Conditions on grades are decided by the grades which satisfy them.
+	 * @param conditions - conditions joined by AND.
+	 * @return true if no value satisfies all the conditions on some field, false otherwise.
+	 */
+	public static boolean isContradictory(List<ConditionalExpression> conditions) {
+		Map<IFieldValueGetter, Constraint> constraints = new HashMap<>();
+		int grades = BitmapIndex.ALL_GRADES;
+		for(var condition : conditions) {
+			if(condition.getFieldGetter() == FieldValueGetters.GRADE) {
+				grades &= condition.getGradeMask();
+				if(grades == 0) return true;
+				continue;
+			}
+			var constraint = constraints.computeIfAbsent(condition.getFieldGetter(), field -> new Constraint());
+			constraint.add(condition.getComparisonOperator(), condition.getStringLiteral());
+			if(constraint.isEmpty()) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Constraint is a class which collects the conditions on one field and tells whether
+	 * any value satisfies all of them. Only the conditions which can be decided without
+	 * the data are taken into account; of a LIKE pattern only its prefix is taken into account,
+	 * unless the field has to be equal to some value, which is then matched against the pattern.
+	 *
+	 * @author Božidar Grgur Drmić
+	 *
+	 */
+	private static class Constraint {
+
+		/**
+		 * The value the field has to be equal to, or null.
+		 */
+		private String equal;
+		/**
+		 * Whether two different values were required.
+		 */
+		private boolean conflict;
+		/**
+		 * The greatest lower bound, or null.
+		 */
+		private String lower;
+		/**
+		 * Whether the lower bound is inclusive.
+		 */
+		private boolean lowerInclusive;
+		/**
+		 * The least upper bound, or null.
+		 */
+		private String upper;
+		/**
+		 * Whether the upper bound is inclusive.
+		 */
+		private boolean upperInclusive;
+		/**
+		 * The longest prefix the field has to start with, or null.
+		 */
+		private String prefix;
+		/**
+		 * Values the field mustn't be equal to.
+		 */
+		private Set<String> excluded = new HashSet<>();
+		/**
+		 * LIKE patterns the field has to match.
+		 */
+		private List<LikePattern> patterns = new ArrayList<>();
+
+		/**
+		 * A method which adds a condition.
+		 * @param operator - the comparison.
+		 * @param literal - the literal.
+		 */
+		void add(IComparisonOperator operator, String literal) {
+			if(operator == ComparisonOperators.LIKE) {
+				var pattern = LikePattern.compile(literal);
+				if(!pattern.isExact()) {
+					if(!pattern.getPrefix().isEmpty()) addPrefix(pattern.getPrefix());
+					patterns.add(pattern);
+					return;
+				}
+				operator = ComparisonOperators.EQUALS;
+			}
+
+			if(operator == ComparisonOperators.EQUALS) {
+				if(equal != null && !equal.equals(literal)) conflict = true;
+				equal = literal;
+			} else if(operator == ComparisonOperators.NOT_EQUALS) {
+				excluded.add(literal);
+			} else if(operator == ComparisonOperators.LESS || operator == ComparisonOperators.LESS_OR_EQUALS) {
+				boolean inclusive = operator == ComparisonOperators.LESS_OR_EQUALS;
+				int comparison = upper == null ? -1 : literal.compareTo(upper);
+				if(comparison < 0 || (comparison == 0 && !inclusive)) {
+					upper = literal;
+					upperInclusive = inclusive;
+				}
+			} else if(operator == ComparisonOperators.GREATER || operator == ComparisonOperators.GREATER_OR_EQUALS) {
+				boolean inclusive = operator == ComparisonOperators.GREATER_OR_EQUALS;
+				int comparison = lower == null ? 1 : literal.compareTo(lower);
+				if(comparison > 0 || (comparison == 0 && !inclusive)) {
+					lower = literal;
+					lowerInclusive = inclusive;
+				}
+			}
+		}
+
+		/**
+		 * A method which adds a prefix condition.
+		 * @param newPrefix - the prefix.
+		 */
+		private void addPrefix(String newPrefix) {
+			if(prefix == null || newPrefix.startsWith(prefix)) {
+				prefix = newPrefix;
+			} else if(!prefix.startsWith(newPrefix)) {
+				conflict = true;
+			}
+		}
+
+		/**
+		 * A method which checks whether no value satisfies all the added conditions.
+		 * @return true if no value satisfies them, false otherwise.
+		 */
+		boolean isEmpty() {
+			if(conflict) return true;
+
+			if(lower != null && upper != null) {
+				int comparison = lower.compareTo(upper);
+				if(comparison > 0 || (comparison == 0 && !(lowerInclusive && upperInclusive))) return true;
+			}
+			if(prefix != null && upper != null) {
+				int comparison = upper.compareTo(prefix);
+				if(comparison < 0 || (comparison == 0 && !upperInclusive)) return true;
+			}
+
+			if(equal == null) return false;
+			if(excluded.contains(equal)) return true;
+			if(prefix != null && !equal.startsWith(prefix)) return true;
+			for(var pattern : patterns) {
+				if(!pattern.matches(equal)) return true;
+			}
+			if(lower != null) {
+				int comparison = equal.compareTo(lower);
+				if(comparison < 0 || (comparison == 0 && !lowerInclusive)) return true;
+			}
+			if(upper != null) {
+				int comparison = equal.compareTo(upper);
+				if(comparison > 0 || (comparison == 0 && !upperInclusive)) return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ScanPool is a class which holds the number of threads which scan the rows of a
+ * {@link StudentDatabase} together with the pool of those threads, so that a scan reads
+ * both at once. A scan acquires the holder before it uses the pool and releases it after.
+ * When the parallelism is changed the holder is retired, which refuses further scans, and
+ * its pool is shut down once the last scan which acquired it releases it.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+class ScanPool {
+
+	/**
+	 * Bit of the state which is set once the holder is retired.
+	 */
+	private static final int RETIRED = 1 << 30;
+
+	/**
+	 * Number of threads which scan the rows.
+	 */
+	private final int parallelism;
+	/**
+	 * The pool which scans the rows, or null if parallelism is 1.
+	 */
+	private final ForkJoinPool pool;
+	/**
+	 * Number of scans which hold this holder, with the {@link #RETIRED} bit.
+	 */
+	private final AtomicInteger state = new AtomicInteger();
+
+	/**
+	 * A constructor which creates the pool, if more than one thread scans the rows.
+	 * @param parallelism - number of threads, 1 for sequential scans.
+	 */
+	ScanPool(int parallelism) {
+		this.parallelism = parallelism;
+		pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * A getter for the number of threads which scan the rows.
+	 * @return the number of threads.
+	 */
+	int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * A getter for the pool. It may only be used between {@link #acquire()} and {@link #release()}.
+	 * @return the pool, or null if parallelism is 1.
+	 */
+	ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * A method which marks the start of a scan which uses this holder.
+	 * @return true if the scan can use it, false if it was already retired.
+	 */
+	boolean acquire() {
+		while(true) {
+			int current = state.get();
+			if((current & RETIRED) != 0) return false;
+			if(state.compareAndSet(current, current + 1)) return true;
+		}
+	}
+
+	/**
+	 * A method which marks the end of a scan which acquired this holder, and shuts the pool
+	 * down if it was the last scan of a retired holder.
+	 */
+	void release() {
+		if(state.decrementAndGet() == RETIRED && pool != null) pool.shutdown();
+	}
+
+	/**
+	 * A method which refuses further scans and shuts the pool down once the running ones end.
+	 */
+	void retire() {
+		if(state.getAndAdd(RETIRED) == 0 && pool != null) pool.shutdown();
+	}
+}
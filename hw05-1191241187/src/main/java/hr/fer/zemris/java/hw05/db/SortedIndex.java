@@ -0,0 +1,284 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * SortedIndex is a class which represents a secondary index over one String field of the
+ * rows of an IStudentStorage. It keeps the rows sorted by the value of the field, so that
+ * comparisons and prefix LIKE patterns can be answered as range scans.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class SortedIndex {
+
+	/**
+	 * The indexed field.
+	 */
+	private IFieldValueGetter field;
+	/**
+	 * Rows sorted by the value of the field, ties by row.
+	 */
+	private int[] rows;
+	/**
+	 * Values of the field, at the same position as their rows.
+	 */
+	private String[] values;
+	
+	/**
+	 * A constructor which builds the index over all the rows of a storage.
+	 * @param storage - the storage.
+	 * @param field - the indexed field.
+	 */
+	public SortedIndex(IStudentStorage storage, IFieldValueGetter field) {
+		this.field = field;
+		
+		int size = storage.size();
+		String[] byRow = new String[size];
+		for(int row = 0; row < size; row++) {
+			byRow[row] = field.get(storage.get(row));
+		}
+		
+		rows = new int[size];
+		for(int row = 0; row < size; row++) {
+			rows[row] = row;
+		}
+		sort(rows, new int[size], 0, size, byRow);
+		
+		values = new String[size];
+		for(int i = 0; i < size; i++) {
+			values[i] = byRow[rows[i]];
+		}
+	}
+	
+	/**
+	 * A constructor which builds the index over a changed copy of a storage from the index over
+	 * the storage, without sorting all the rows again. The rows which are kept keep their order
+	 * and only the changed and added rows are sorted and placed among them by binary search, so
+	 * the kept rows are copied without comparing their values.
+	 * @param previous - the index over the storage before the change.
+	 * @param storage - the changed copy of the storage.
+	 * @param removed - rows removed from the storage before the change, sorted.
+	 * @param changed - rows of the changed copy whose records were changed or added, sorted.
+	 */
+	public SortedIndex(SortedIndex previous, IStudentStorage storage, int[] removed, int[] changed) {
+		this.field = previous.field;
+
+		int size = storage.size();
+		String[] byChange = new String[changed.length];
+		int[] order = new int[changed.length];
+		var isChanged = new BitSet(size);
+		for(int i = 0; i < changed.length; i++) {
+			byChange[i] = field.get(storage.get(changed[i]));
+			order[i] = i;
+			isChanged.set(changed[i]);
+		}
+		sort(order, new int[order.length], 0, order.length, byChange);
+
+		rows = new int[size];
+		values = new String[size];
+		int position = 0, from = 0;
+		for(int next = 0; next <= order.length; next++) {
+			int to = next == order.length ? previous.rows.length
+					: previous.insertionPoint(byChange[order[next]], changed[order[next]], removed);
+			for(int i = from; i < to; i++) {
+				int row = previous.rows[i];
+				if(removed.length != 0) {
+					int rank = Arrays.binarySearch(removed, row);
+					if(rank >= 0) continue;
+					row += rank + 1;
+				}
+				if(isChanged.get(row)) continue;
+				rows[position] = row;
+				values[position++] = previous.values[i];
+			}
+			from = to;
+			if(next < order.length) {
+				rows[position] = changed[order[next]];
+				values[position++] = byChange[order[next]];
+			}
+		}
+	}
+
+	/**
+	 * A method which returns the position of this index before which a row of a changed copy
+	 * of the storage belongs, that is the first position whose value is greater, or equal with
+	 * a greater row in the copy.
+	 * @param value - value of the row.
+	 * @param row - the row, in the copy.
+	 * @param removed - rows removed from the storage, sorted.
+	 * @return the position.
+	 */
+	private int insertionPoint(String value, int row, int[] removed) {
+		int low = lowerBound(value), high = upperBound(value);
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			int rank = Arrays.binarySearch(removed, rows[middle]);
+			int copied = rows[middle] - (rank >= 0 ? rank : -rank - 1);
+			if(copied <= row) low = middle + 1; else high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * A method which stably sorts a part of an array of rows by their values.
+	 * @param rows - the rows.
+	 * @param buffer - an array of the same length used for merging.
+	 * @param from - index of the first element which is sorted.
+	 * @param to - index after the last element which is sorted.
+	 * @param byRow - values of the rows.
+	 */
+	private static void sort(int[] rows, int[] buffer, int from, int to, String[] byRow) {
+		if(to - from < 2) return;
+		
+		int middle = (from + to) >>> 1;
+		sort(rows, buffer, from, middle, byRow);
+		sort(rows, buffer, middle, to, byRow);
+		if(byRow[rows[middle - 1]].compareTo(byRow[rows[middle]]) <= 0) return;
+		
+		System.arraycopy(rows, from, buffer, from, to - from);
+		int left = from, right = middle;
+		for(int i = from; i < to; i++) {
+			if(right == to || (left < middle && byRow[buffer[left]].compareTo(byRow[buffer[right]]) <= 0)) {
+				rows[i] = buffer[left++];
+			} else {
+				rows[i] = buffer[right++];
+			}
+		}
+	}
+	
+	/**
+	 * A getter for the indexed field.
+	 * @return the field.
+	 */
+	public IFieldValueGetter getField() {
+		return field;
+	}
+	
+	/**
+	 * A method which returns the number of indexed rows.
+	 * @return the number of rows.
+	 */
+	public int size() {
+		return rows.length;
+	}
+	
+	/**
+	 * A method which returns the value of the field at some position of the index.
+	 * @param position - the position.
+	 * @return the value.
+	 */
+	public String valueAt(int position) {
+		return values[position];
+	}
+	
+	/**
+	 * A method which returns the row at some position of the index.
+	 * @param position - the position.
+	 * @return the row.
+	 */
+	public int rowAt(int position) {
+		return rows[position];
+	}
+	
+	/**
+	 * A method which returns the position of the first value which isn't less than some value.
+	 * @param value - the value.
+	 * @return the position.
+	 */
+	private int lowerBound(String value) {
+		int low = 0, high = values.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(values[middle].compareTo(value) < 0) low = middle + 1; else high = middle;
+		}
+		return low;
+	}
+	
+	/**
+	 * A method which returns the position of the first value which is greater than some value.
+	 * @param value - the value.
+	 * @return the position.
+	 */
+	private int upperBound(String value) {
+		int low = 0, high = values.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(values[middle].compareTo(value) <= 0) low = middle + 1; else high = middle;
+		}
+		return low;
+	}
+	
+	/**
+	 * A method which returns the range of positions of the rows whose value of the field
+	 * satisfies some comparison with a literal. Supported are all the comparisons except
+	 * {@code !=}, and LIKE patterns which are exact or a prefix followed by {@code *}.
+	 * @param operator - the comparison.
+	 * @param literal - the literal.
+	 * @return an array {from, to} of positions, or {@code null} if the comparison
+	 * 		   can't be answered by this index.
+	 */
+	public int[] range(IComparisonOperator operator, String literal) {
+		if(operator == ComparisonOperators.EQUALS) {
+			return new int[] {lowerBound(literal), upperBound(literal)};
+		}
+		if(operator == ComparisonOperators.LESS) {
+			return new int[] {0, lowerBound(literal)};
+		}
+		if(operator == ComparisonOperators.LESS_OR_EQUALS) {
+			return new int[] {0, upperBound(literal)};
+		}
+		if(operator == ComparisonOperators.GREATER) {
+			return new int[] {upperBound(literal), values.length};
+		}
+		if(operator == ComparisonOperators.GREATER_OR_EQUALS) {
+			return new int[] {lowerBound(literal), values.length};
+		}
+		if(operator == ComparisonOperators.LIKE) {
+			var pattern = LikePattern.compile(literal);
+			if(pattern.isExact()) {
+				return range(ComparisonOperators.EQUALS, literal);
+			}
+			if(!pattern.isPrefix()) return null;
+			
+			String prefix = pattern.getPrefix();
+			int from = lowerBound(prefix);
+			int to = from;
+			while(to < values.length && values[to].startsWith(prefix)) {
+				to = prefixEnd(prefix, to);
+			}
+			return new int[] {from, to};
+		}
+		return null;
+	}
+	
+	/**
+	 * A method which finds the end of the block of values with some prefix by galloping
+	 * from a position whose value has that prefix.
+	 * @param prefix - the prefix.
+	 * @param from - a position whose value has the prefix.
+	 * @return a position after {@code from} which is either the end of the block or still inside it.
+	 */
+	private int prefixEnd(String prefix, int from) {
+		int step = 1;
+		int last = from;
+		while(from + step < values.length && values[from + step].startsWith(prefix)) {
+			last = from + step;
+			step *= 2;
+		}
+		return last + 1;
+	}
+	
+	/**
+	 * A method which returns the rows at a range of positions, sorted by row.
+	 * @param range - an array {from, to} of positions.
+	 * @return the rows.
+	 */
+	public int[] rows(int[] range) {
+		int[] result = new int[range[1] - range[0]];
+		System.arraycopy(rows, range[0], result, 0, result.length);
+		Arrays.sort(result);
+		return result;
+	}
+}
@@ -0,0 +1,224 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+import hr.fer.zemris.java.hw05.db.lexer.Lexer;
+import hr.fer.zemris.java.hw05.db.lexer.LexerException;
+import hr.fer.zemris.java.hw05.db.lexer.TokenType;
+
+/**
+ * StatementParser is a class which parses the statements which change a {@link StudentDatabase}.
+ * The text of a statement follows its command:
+ * <ul>
+ * <li>{@code insert "jmbag" "lastName" "firstName" grade} adds a record, with the fields in the
+ * order of the database file,</li>
+ * <li>{@code update field = value, ... where conditions} changes the last names, first names or
+ * grades of the records satisfying the conditions,</li>
+ * <li>{@code delete conditions} removes the records satisfying the conditions.</li>
+ * </ul>
+ * Conditions are written as in queries, but without LIMIT, OFFSET, ORDER BY and aggregates,
+ * and can't be left out, so that all the records can't be changed by mistake.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class StatementParser {
+
+	/**
+	 * Kind is an enumeration of the statements.
+	 */
+	public enum Kind {
+		/**
+		 * A statement which adds a record.
+		 */
+		INSERT,
+		/**
+		 * A statement which changes records.
+		 */
+		UPDATE,
+		/**
+		 * A statement which removes records.
+		 */
+		DELETE
+	}
+
+	/**
+	 * The kind of the statement.
+	 */
+	private Kind kind;
+	/**
+	 * The inserted record, or null.
+	 */
+	private StudentRecord record;
+	/**
+	 * New values of the updated fields, in the order they were written.
+	 */
+	private Map<IFieldValueGetter, String> assignments = new LinkedHashMap<>();
+	/**
+	 * Conditions of the changed records, or null.
+	 */
+	private IQueryExpression expression;
+
+	/**
+	 * A constructor which parses the text of a statement.
+	 * @param kind - the kind of the statement.
+	 * @param text - text of the statement, without its command.
+	 * @throws NullPointerException if kind or text is null.
+	 * @throws IllegalArgumentException if the statement is invalid, with the position of the error.
+	 */
+	public StatementParser(Kind kind, String text) {
+		this.kind = Objects.requireNonNull(kind);
+		var lexer = new Lexer(Objects.requireNonNull(text));
+		try {
+			lexer.nextToken();
+			switch(kind) {
+			case INSERT:
+				parseInsert(lexer);
+				break;
+			case UPDATE:
+				parseAssignments(lexer);
+				if(lexer.getToken().getType() != TokenType.WHERE) throw error(lexer);
+				lexer.nextToken();
+				parseConditions(lexer);
+				break;
+			default:
+				parseConditions(lexer);
+			}
+		} catch(LexerException e) {
+			throw new IllegalArgumentException("Wrong statement format: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * A method which parses the fields of an inserted record.
+	 * @param lexer - the lexer, positioned at the jmbag.
+	 * @throws IllegalArgumentException if the fields are invalid.
+	 */
+	private void parseInsert(Lexer lexer) {
+		String[] texts = new String[3];
+		for(int i = 0; i < texts.length; i++) {
+			if(lexer.getToken().getType() != TokenType.STRING) throw error(lexer);
+			texts[i] = (String) lexer.getToken().getValue();
+			lexer.nextToken();
+		}
+		if(lexer.getToken().getType() != TokenType.NUMBER) throw error(lexer);
+		int grade = (Integer) lexer.getToken().getValue();
+		if(lexer.nextToken().getType() != TokenType.EOF) throw error(lexer);
+
+		try {
+			record = new StudentRecord(texts[0], texts[2], texts[1], grade);
+		} catch(IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid record: the JMBAG must have 10 characters and the grade must be between 1 and 5.");
+		}
+	}
+
+	/**
+	 * A method which parses the new values of an update, separated by commas.
+	 * @param lexer - the lexer, positioned at the first field.
+	 * @throws IllegalArgumentException if a value is invalid, or a field is the jmbag or is repeated.
+	 */
+	private void parseAssignments(Lexer lexer) {
+		while(true) {
+			if(lexer.getToken().getType() != TokenType.FIELD) throw error(lexer);
+			var field = (IFieldValueGetter) lexer.getToken().getValue();
+			if(field == FieldValueGetters.JMBAG || assignments.containsKey(field)) throw error(lexer);
+
+			var operator = lexer.nextToken();
+			if(operator.getType() != TokenType.OPERATOR || operator.getValue() != ComparisonOperators.EQUALS) {
+				throw error(lexer);
+			}
+
+			var value = lexer.nextToken();
+			if(FieldValueGetters.isNumeric(field)) {
+				if(value.getType() != TokenType.NUMBER) throw error(lexer);
+				int grade = (Integer) value.getValue();
+				if(grade < 1 || grade > 5) {
+					throw new IllegalArgumentException("The grade must be between 1 and 5.");
+				}
+			} else if(value.getType() != TokenType.STRING) {
+				throw error(lexer);
+			}
+			assignments.put(field, value.getValue().toString());
+
+			if(lexer.nextToken().getType() != TokenType.COMMA) return;
+			lexer.nextToken();
+		}
+	}
+
+	/**
+	 * A method which parses the conditions of the changed records.
+	 * @param lexer - the lexer, positioned at the first token of the conditions.
+	 * @throws IllegalArgumentException if the conditions are invalid or empty, or have other clauses.
+	 */
+	private void parseConditions(Lexer lexer) {
+		var query = new QueryParser(lexer);
+		if(query.isAggregate() || query.getOrdering() != null || query.getLimit() != QueryParser.NO_LIMIT
+				|| query.getOffset() != 0) {
+			throw new IllegalArgumentException("Statements can't have aggregates, LIMIT, OFFSET or ORDER BY.");
+		}
+		var conditions = QueryExpressions.conjunction(query.getExpression());
+		if(conditions != null && conditions.isEmpty()) {
+			throw new IllegalArgumentException("The statement needs conditions.");
+		}
+		expression = query.getExpression();
+	}
+
+	/**
+	 * A getter for the kind of the statement.
+	 * @return the kind.
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * A getter for the inserted record.
+	 * @return the record, or null if the statement isn't an INSERT.
+	 */
+	public StudentRecord getRecord() {
+		return record;
+	}
+
+	/**
+	 * A getter for the new values of the updated fields.
+	 * @return the values, by field, empty if the statement isn't an UPDATE.
+	 */
+	public Map<IFieldValueGetter, String> getAssignments() {
+		return Collections.unmodifiableMap(assignments);
+	}
+
+	/**
+	 * A getter for the conditions of the changed records.
+	 * @return the conditions, or null if the statement is an INSERT.
+	 */
+	public IQueryExpression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * A method which returns the change an UPDATE makes to a record.
+	 * @return function which returns the changed copy of a record.
+	 */
+	public UnaryOperator<StudentRecord> getChange() {
+		String lastName = assignments.get(FieldValueGetters.LAST_NAME);
+		String firstName = assignments.get(FieldValueGetters.FIRST_NAME);
+		String grade = assignments.get(FieldValueGetters.GRADE);
+		return record -> new StudentRecord(record.getJmbag(),
+				firstName == null ? record.getFirstName() : firstName,
+				lastName == null ? record.getLastName() : lastName,
+				grade == null ? record.getGrade() : Integer.parseInt(grade));
+	}
+
+	/**
+	 * A method which makes the exception for an unexpected token.
+	 * @param lexer - the lexer whose last token was unexpected.
+	 * @return the exception, with the position of the token.
+	 */
+	private static IllegalArgumentException error(Lexer lexer) {
+		return new IllegalArgumentException("Wrong statement format at position " + lexer.getPosition() + ".");
+	}
+}
@@ -1,13 +1,19 @@
 package hr.fer.zemris.java.hw05.db;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
+import hr.fer.zemris.java.hw05.db.output.CsvRenderer;
+import hr.fer.zemris.java.hw05.db.output.IRecordRenderer;
+import hr.fer.zemris.java.hw05.db.output.JsonLinesRenderer;
+import hr.fer.zemris.java.hw05.db.lexer.Lexer;
+import hr.fer.zemris.java.hw05.db.lexer.TokenType;
+import hr.fer.zemris.java.hw05.db.output.TableRenderer;
+
 /**
  * StudentDB is a class which offers simple filtering
  * operations with the database through console. 
@@ -21,14 +27,79 @@ public class StudentDB {
 	 */
 	private static final String PATH = "src/main/resources/database.txt";
 	
+	/**
+	 * Path to the binary snapshot of the database, used with the columnar storage.
+	 */
+	private static final String SNAPSHOT_PATH = "target/database.snapshot";
+	
 	/**
 	 * Database of students.
 	 */
 	private static StudentDatabase students;
 	
+	/**
+	 * Program argument which selects the columnar storage.
+	 */
+	private static final String COLUMNAR_ARGUMENT = "--columnar";
+	
+	/**
+	 * Command which prints the plan of a query instead of its result.
+	 */
+	private static final String EXPLAIN_COMMAND = "explain";
+	
+	/**
+	 * Command which sets the output format.
+	 */
+	private static final String FORMAT_COMMAND = "format";
+	
+	/**
+	 * Command which prints the counters of the query cache, or clears it if followed by "clear".
+	 */
+	private static final String CACHE_COMMAND = "cache";
+	
+	/**
+	 * Command which writes the records into the data file and empties the log.
+	 */
+	private static final String CHECKPOINT_COMMAND = "checkpoint";
+	
+	/**
+	 * Path to the log of the changes of the database.
+	 */
+	private static final String LOG_PATH = "src/main/resources/database.log";
+	
+	/**
+	 * Command which prepares a query template with {@code ?} placeholders.
+	 */
+	private static final String PREPARE_COMMAND = "prepare";
+	
+	/**
+	 * Command which executes the prepared query with the given quoted values.
+	 */
+	private static final String EXECUTE_COMMAND = "execute";
+	
+	/**
+	 * The last prepared query, or null.
+	 */
+	private static PreparedQuery prepared;
+	
+	/**
+	 * Number of expected results above which tables are streamed instead of fitted.
+	 */
+	private static final int STREAMING_THRESHOLD = 10_000;
+	
+	/**
+	 * Renderer of the results, or null for fitted tables.
+	 */
+	private static IRecordRenderer renderer;
+	
+	/**
+	 * Writer of the results.
+	 */
+	private static Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+	
 	public static void main(String[] args) {
 		try {
-			readDatabase();
+			readDatabase(args.length > 0 && args[0].equals(COLUMNAR_ARGUMENT));
 		} catch (Exception e) {
 			System.out.println("Wrong database format.");
 			return;
@@ -47,7 +118,54 @@ public class StudentDB {
 				break;
 			}
 			
-			if(!input.equals("query")) {
+			if(input.equals(FORMAT_COMMAND)) {
+				String format = lineScanner.hasNext() ? lineScanner.next() : "";
+				System.out.println(setFormat(format) ? "Output format: " + format.toLowerCase()
+						: "Unknown format, use table, csv or json.");
+				continue;
+			}
+			
+			if(input.equals(CACHE_COMMAND)) {
+				if(lineScanner.hasNext() && lineScanner.next().equals("clear")) {
+					students.invalidateCache();
+				}
+				System.out.println(students.getCache());
+				continue;
+			}
+			
+			if(input.equals(CHECKPOINT_COMMAND)) {
+				try {
+					students.checkpoint();
+					System.out.println("Checkpoint done.");
+				} catch(IOException | IllegalStateException e) {
+					System.out.println("Checkpoint failed.");
+				}
+				continue;
+			}
+			
+			StatementParser.Kind kind = null;
+			for(var candidate : StatementParser.Kind.values()) {
+				if(input.equalsIgnoreCase(candidate.name())) kind = candidate;
+			}
+			if(kind != null) {
+				lineScanner.close();
+				try {
+					var statement = new StatementParser(kind, line.substring(line.indexOf(input) + input.length()));
+					System.out.println("Records changed: " + execute(statement));
+				} catch(IllegalArgumentException e) {
+					System.out.println(e.getMessage());
+				} catch(UnsupportedOperationException e) {
+					System.out.println("The columnar storage is read-only.");
+				} catch(IOException e) {
+					System.out.println("Writing the log failed.");
+					break;
+				}
+				continue;
+			}
+			
+			boolean explain = input.equalsIgnoreCase(EXPLAIN_COMMAND);
+			boolean prepare = input.equals(PREPARE_COMMAND), execute = input.equals(EXECUTE_COMMAND);
+			if(!input.equals("query") && !explain && !prepare && !execute) {
 				System.out.println("Unknown command");
 				continue;
 			}
@@ -57,26 +175,74 @@ public class StudentDB {
 				input += " " + lineScanner.next();
 			}
 			lineScanner.close();
+			
+			if(prepare || execute) {
+				try {
+					if(prepare) {
+						prepared = students.prepare(input);
+						System.out.println("Prepared a query with " + prepared.getParameterCount() + " parameters.");
+					} else if(prepared == null) {
+						System.out.println("No query was prepared.");
+					} else {
+						print(prepared.bind(readValues(input)), prepared.getOrdering(), prepared.getOffset(), prepared.getLimit());
+					}
+				} catch(IOException e) {
+					System.out.println("Output failed.");
+					break;
+				} catch(RuntimeException e) {
+					System.out.println("Wrong query.");
+				}
+				continue;
+			}
 
 			QueryParser query;
+			QueryPlan plan;
+			
+			try {
+				query = new QueryParser(input);
+			} catch(IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+				continue;
+			}
 			
 			try {
-				query = new QueryParser(input);				
+				plan = students.plan(query.getExpression());
 			} catch(RuntimeException e) {
 				System.out.println("Wrong query.");
 				continue;
 			}
 			
-			if(query.isDirectQuery()) {
-				var student = students.forJMBAG(query.getQueriedJMBAG());
-				var list  = new ArrayList<StudentRecord>();
-				if(student != null) {
-					System.out.println("Using index for record retrieval.");
-					list.add(student);
+			if(explain) {
+				System.out.print(plan.explain());
+				if(query.getOrdering() != null) {
+					System.out.println(explainOrder(plan, query.getOrdering(), query.getOffset(), query.getLimit()));
+				}
+				if(query.isAggregate()) {
+					System.out.println("Aggregate: " + String.join(", ", aggregateNames(query))
+							+ (query.getGroupBy() == null ? "" : " grouped by " + FieldValueGetters.nameOf(query.getGroupBy()))
+							+ (QueryExpressions.gradeMask(query.getExpression()) != -1
+									&& new Aggregation(query.getAggregates(), query.getGroupBy()).dependsOnGradesOnly()
+									? ", counted from the grade index without reading the rows" : ""));
 				}
-				print(list);
-			} else {
-				print(students.filter(new QueryFilter(query.getQuery())));
+				continue;
+			}
+			
+			if(query.isAggregate()) {
+				try {
+					var aggregation = students.aggregate(query.getExpression(), query.getAggregates(), query.getGroupBy());
+					printGroups(aggregation, query.getOffset(), query.getLimit());
+				} catch(IOException e) {
+					System.out.println("Output failed.");
+					break;
+				}
+				continue;
+			}
+			
+			try {
+				print(plan, query.getOrdering(), query.getOffset(), query.getLimit());
+			} catch(IOException e) {
+				System.out.println("Output failed.");
+				break;
 			}
 		}
 		
@@ -84,48 +250,201 @@ public class StudentDB {
 	}
 	
 	/**
-	 * A method which reads the database.
+	 * A method which reads the database. The changes of the log are applied to the list
+	 * storage, which keeps logging further changes. The columnar storage is read-only and is
+	 * opened from its snapshot, which is rebuilt if the database file has changed; changes which
+	 * are still in the log are checkpointed into the database file first.
+	 * Both loading and scans use all the available processors.
+	 * @param columnar - whether the columnar storage is used.
 	 * @throws IOException if something went wrong with reading
 	 * @throws IllegalArgumentException if something went wrong with reading
 	 */
-	private static void readDatabase() throws IOException {
-		List<String> lines = Files.readAllLines(Paths.get(PATH), StandardCharsets.UTF_8);
-		students = new StudentDatabase(lines);
+	private static void readDatabase(boolean columnar) throws IOException {
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		var log = Paths.get(LOG_PATH);
+		if(columnar) {
+			if(Files.exists(log) && Files.size(log) > 0) {
+				var recovered = MappedDatabaseLoader.load(Paths.get(PATH), new ListStudentStorage(), parallelism);
+				recovered.openLog(Paths.get(PATH), log);
+				recovered.checkpoint();
+				recovered.getLog().close();
+			}
+			students = DatabaseSnapshot.open(Paths.get(PATH), Paths.get(SNAPSHOT_PATH), parallelism);
+		} else {
+			students = MappedDatabaseLoader.load(Paths.get(PATH), new ListStudentStorage(), parallelism);
+			students.openLog(Paths.get(PATH), log);
+		}
+		students.buildIndexes();
+		students.setParallelism(parallelism);
 	}
 
 	/**
-	 * A method which prints the list of student in appropriate format.
-	 * @param students - list of StudentRecords.
+	 * A method which executes a statement which changes the database.
+	 * @param statement - the statement.
+	 * @return number of changed records.
+	 * @throws IOException if something went wrong with writing the log.
 	 */
-	private static void print(List<StudentRecord> students) {
-		if(students.size() == 0) {
-			System.out.println("Records selected: 0");
-			return;
+	private static int execute(StatementParser statement) throws IOException {
+		switch(statement.getKind()) {
+		case INSERT:
+			students.insert(statement.getRecord());
+			return 1;
+		case UPDATE:
+			return students.update(statement.getExpression(), statement.getChange());
+		default:
+			return students.delete(statement.getExpression());
+		}
+	}
+	
+	/**
+	 * A method which prints the results of a plan in the current output format.
+	 * Tables are buffered and fitted to the results, unless more than
+	 * {@link #STREAMING_THRESHOLD} results are expected, in which case they are streamed
+	 * with columns as wide as the longest values of the database.
+	 * Other formats are always streamed. Ordered results are collected before they are printed.
+	 * @param plan - the plan.
+	 * @param ordering - ordering of the results, or null.
+	 * @param offset - number of results which are skipped.
+	 * @param limit - maximal number of results, or {@link QueryParser#NO_LIMIT}.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private static void print(QueryPlan plan, Ordering ordering, int offset, int limit) throws IOException {
+		if(ordering != null) {
+			var list = students.execute(plan, ordering, offset, limit);
+			(renderer != null ? renderer : TableRenderer.fitting(list)).render(list.iterator(), out);
+		} else if(renderer != null) {
+			renderer.render(students.cursor(plan, offset, limit), out);
+		} else if(plan.getEstimatedRows() > STREAMING_THRESHOLD
+				&& (limit == QueryParser.NO_LIMIT || limit > STREAMING_THRESHOLD)) {
+			var table = new TableRenderer(students.getStatistics(FieldValueGetters.JMBAG).getMaxLength(),
+					students.getStatistics(FieldValueGetters.LAST_NAME).getMaxLength(),
+					students.getStatistics(FieldValueGetters.FIRST_NAME).getMaxLength());
+			table.render(students.cursor(plan, offset, limit), out);
+		} else {
+			var list = students.execute(plan, offset, limit);
+			if(plan.getAccessPath() == QueryPlan.AccessPath.JMBAG_LOOKUP && !list.isEmpty()) {
+				out.write("Using index for record retrieval.\n");
+			}
+			TableRenderer.fitting(list).render(list.iterator(), out);
 		}
-		int jmbagLength = 0, firstNameLength = 0, lastNameLength = 0;
-		for(var student : students) {
-			if(jmbagLength < student.getJmbag().length()) jmbagLength = student.getJmbag().length();
-			if(firstNameLength < student.getFirstName().length()) firstNameLength = student.getFirstName().length();
-			if(lastNameLength < student.getLastName().length()) lastNameLength = student.getLastName().length();
+		out.flush();
+	}
+	
+	/**
+	 * A method which describes how the results of a plan are ordered.
+	 * @param plan - the plan.
+	 * @param ordering - the ordering.
+	 * @param offset - number of results which are skipped.
+	 * @param limit - maximal number of results, or {@link QueryParser#NO_LIMIT}.
+	 * @return the description.
+	 */
+	private static String explainOrder(QueryPlan plan, Ordering ordering, int offset, int limit) {
+		String order = "Order: " + ordering + ", ";
+		var index = students.orderIndex(plan, ordering, offset, limit);
+		if(index != null) {
+			return order + "read in the order of the " + FieldValueGetters.nameOf(index.getField()) + " index";
 		}
-		String header = "+";
-		for(int i = 0; i < 2 + jmbagLength; i++) header += "=";
-		header += "+";
-		for(int i = 0; i < 2 + lastNameLength; i++) header += "=";
-		header += "+";
-		for(int i = 0; i < 2 + firstNameLength; i++) header += "=";
-		header += "+===+" + "\n";
-
-		String result = header;
-		for(var student : students) {
-			result += "| " + student.getJmbag();
-			for(int i = 0; i < jmbagLength-student.getJmbag().length(); i++) result += " ";
-			result += " | " + student.getLastName();
-			for(int i = 0; i < lastNameLength-student.getLastName().length(); i++) result += " ";
-			result += " | " + student.getFirstName();
-			for(int i = 0; i < firstNameLength-student.getFirstName().length(); i++) result += " ";
-			result += " | " + student.getGrade() + " |" + "\n";
+		if(limit == QueryParser.NO_LIMIT) return order + "sorted after filtering";
+		return order + "first " + ((long) offset + limit) + " kept in a heap while filtering";
+	}
+	
+	/**
+	 * A method which prints the groups of an aggregation as a table framed by lines of '=' signs,
+	 * with the columns fitted to the values, followed by the number of printed groups.
+	 * @param aggregation - the aggregation.
+	 * @param offset - number of groups which are skipped.
+	 * @param limit - maximal number of groups, or {@link QueryParser#NO_LIMIT}.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private static void printGroups(Aggregation aggregation, int offset, int limit) throws IOException {
+		var groups = aggregation.getGroups();
+		int from = Math.min(offset, groups.size());
+		int to = limit == QueryParser.NO_LIMIT ? groups.size() : (int) Math.min(groups.size(), (long) from + limit);
+		
+		var rows = new ArrayList<List<String>>();
+		rows.add(aggregation.getColumns());
+		for(var group : groups.subList(from, to)) {
+			rows.add(group.toRow());
+		}
+		
+		int[] widths = new int[rows.get(0).size()];
+		for(var row : rows) {
+			for(int i = 0; i < widths.length; i++) {
+				widths[i] = Math.max(widths[i], row.get(i).length());
+			}
+		}
+		
+		var border = new StringBuilder("+");
+		for(int width : widths) {
+			border.append("=".repeat(width + 2)).append('+');
+		}
+		border.append('\n');
+		
+		out.write(border.toString());
+		for(int r = 0; r < rows.size(); r++) {
+			var row = rows.get(r);
+			for(int i = 0; i < widths.length; i++) {
+				out.write("| ");
+				out.write(row.get(i));
+				out.write(" ".repeat(widths[i] - row.get(i).length() + 1));
+			}
+			out.write("|\n");
+			if(r == 0) out.write(border.toString());
+		}
+		out.write(border.toString());
+		out.write("Groups selected: " + (to - from) + "\n");
+		out.flush();
+	}
+	
+	/**
+	 * A method which returns the names of the aggregates of a query, as in {@code AVG(grade)}.
+	 * @param query - the query.
+	 * @return the names.
+	 */
+	private static List<String> aggregateNames(QueryParser query) {
+		var names = new ArrayList<String>();
+		for(var aggregate : query.getAggregates()) {
+			names.add(aggregate.toString());
+		}
+		return names;
+	}
+	
+	/**
+	 * A method which reads the quoted values bound to the placeholders of a prepared query.
+	 * @param input - the values, each in double quotes.
+	 * @return the values.
+	 * @throws IllegalArgumentException if something other than quoted values is given.
+	 */
+	private static String[] readValues(String input) {
+		var lexer = new Lexer(input);
+		var values = new ArrayList<String>();
+		for(var token = lexer.nextToken(); token.getType() != TokenType.EOF; token = lexer.nextToken()) {
+			if(token.getType() != TokenType.STRING) {
+				throw new IllegalArgumentException("Values must be quoted, see position " + lexer.getPosition() + ".");
+			}
+			values.add((String) token.getValue());
+		}
+		return values.toArray(new String[0]);
+	}
+	
+	/**
+	 * A method which sets the output format.
+	 * @param format - name of the format: table, csv or json.
+	 * @return true if the format is known, false otherwise.
+	 */
+	private static boolean setFormat(String format) {
+		switch(format.toLowerCase()) {
+		case "table":
+			renderer = null;
+			return true;
+		case "csv":
+			renderer = new CsvRenderer();
+			return true;
+		case "json":
+			renderer = new JsonLinesRenderer();
+			return true;
+		default:
+			return false;
 		}
-		System.out.println(result + header + "Records selected: " + students.size());
 	}
 }
@@ -1,25 +1,104 @@
 package hr.fer.zemris.java.hw05.db;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * StudentDatabase is a class which represents a database of students.
+ * The rows are kept by an IStudentStorage, by default one StudentRecord per row.
+ * Besides the jmbag index of the storage, the database keeps sorted secondary indexes
+ * on last and first names and a bitmap index on grades, which are used by {@link #query(List)}
+ * through a {@link QueryPlanner}. Records can be inserted, updated and deleted; once
+ * {@link #openLog(Path, Path)} was called, the changes are also written to a {@link WriteAheadLog}
+ * and periodically checkpointed into the data file.
+ * <p>
+ * The rows and their indexes are kept in versions, see {@link DatabaseVersion}. Every query
+ * reads the version which was the latest when it was planned, so queries never wait for
+ * writers and never see a half-applied change, while writers publish new versions one at a time.
  * @author Božidar Grgur Drmić
  *
  */
 public class StudentDatabase {
 
 	/**
-	 * Index of students. Each student is identified by his/her jmbag.
+	 * Default number of rows below which scans aren't split between threads.
 	 */
-	private Map<String, Integer> indexOfStudents;
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+	
+	/**
+	 * Number of chunks per thread a parallel scan is split into.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	/**
+	 * Default maximal number of results kept by the query cache.
+	 */
+	public static final int DEFAULT_CACHE_ENTRIES = 64;
+	
+	/**
+	 * Default maximal total number of records of the results kept by the query cache.
+	 */
+	public static final long DEFAULT_CACHE_RECORDS = 1_000_000;
+
+	/**
+	 * The latest version of the rows of this database.
+	 */
+	private volatile DatabaseVersion current;
+	
+	/**
+	 * Number of threads which scan the rows together with their pool.
+	 */
+	private volatile ScanPool scanPool = new ScanPool(1);
+	/**
+	 * Number of rows below which scans aren't split between threads.
+	 */
+	private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	
 	/**
-	 * List of StudentRecords in this database
+	 * Cache of the results of queries.
 	 */
-	private List<StudentRecord> students;
+	private QueryCache cache = new QueryCache(DEFAULT_CACHE_ENTRIES, DEFAULT_CACHE_RECORDS);
+	
+	/**
+	 * Default size of the log above which the database is checkpointed, in bytes.
+	 */
+	public static final long DEFAULT_CHECKPOINT_SIZE = 16L << 20;
+	
+	/**
+	 * The log of the changes, or null if the changes aren't logged.
+	 */
+	private WriteAheadLog log;
+	/**
+	 * The data file the database is checkpointed into, or null if the changes aren't logged.
+	 */
+	private Path dataFile;
+	/**
+	 * Size of the log above which the database is checkpointed, in bytes.
+	 */
+	private long checkpointSize = DEFAULT_CHECKPOINT_SIZE;
 	
 	/**
 	 * Constructor for this class which gets a list of entries each of which
@@ -29,8 +108,19 @@ public class StudentDatabase {
 	 * @throws IllegalArgumentException if something is wrong with the entries.
 	 */
 	public StudentDatabase(List<String> entries) {
-		indexOfStudents = new HashMap<String, Integer>();
-		students = new ArrayList<StudentRecord>();
+		this(entries, new ListStudentStorage());
+	}
+	
+	/**
+	 * Constructor for this class which gets a list of entries each of which
+	 * is a string in format: "jmbag firstName lastName grade", and the storage
+	 * the entries are put into.
+	 * 
+	 * @param entries - list of entries.
+	 * @param storage - an empty storage for the records.
+	 * @throws IllegalArgumentException if something is wrong with the entries.
+	 */
+	public StudentDatabase(List<String> entries, IStudentStorage storage) {
 		for(var entry : entries) {
 			if(entry.contentEquals("")) continue;
 			var parts = entry.split("\t");
@@ -45,13 +135,65 @@ public class StudentDatabase {
 				throw new IllegalArgumentException("Wrong fomat of entry.");
 			}
 			
-			if(indexOfStudents.containsKey(newRecord.getJmbag())) {
-				throw new IllegalArgumentException("Duplicate JMBAG: " + newRecord.getJmbag());
-			}
-
-			indexOfStudents.put(newRecord.getJmbag(), students.size());
-			students.add(newRecord);
+			storage.add(newRecord);
 		}
+		current = new DatabaseVersion(0, storage);
+		buildIndexes();
+	}
+	
+	/**
+	 * Constructor for this class which wraps a storage that was already filled,
+	 * for example by {@link MappedDatabaseLoader}.
+	 * 
+	 * @param storage - storage with the records.
+	 */
+	public StudentDatabase(IStudentStorage storage) {
+		current = new DatabaseVersion(0, storage);
+	}
+	
+	/**
+	 * A method which builds the secondary indexes of the latest version and gathers the statistics
+	 * of its planner. It is called by the constructors which parse entries. Databases wrapping
+	 * a filled storage build them on the first query which needs them, unless this method is
+	 * called explicitly after loading, and so does every version made by a change.
+	 */
+	public void buildIndexes() {
+		current.buildIndexes();
+	}
+	
+	/**
+	 * A getter for the bitmap index on grades of the latest version. It builds the indexes
+	 * if they weren't built yet.
+	 * @return the index.
+	 */
+	public BitmapIndex getGradeIndex() {
+		return current.getGradeIndex();
+	}
+	
+	/**
+	 * A getter for the statistics of a field, gathered when the indexes are built.
+	 * It builds the indexes if they weren't built yet.
+	 * @param field - the field.
+	 * @return the statistics, or null if the field is unknown.
+	 */
+	public FieldStatistics getStatistics(IFieldValueGetter field) {
+		return current.planner().getStatistics(field);
+	}
+	
+	/**
+	 * A getter for the cache of the results of queries.
+	 * @return the cache.
+	 */
+	public QueryCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * A method which drops all the cached results of queries. Results of older versions are
+	 * never returned anyway, so it only frees the memory they take.
+	 */
+	public void invalidateCache() {
+		cache.clear();
 	}
 	
 	/**
@@ -60,8 +202,9 @@ public class StudentDatabase {
 	 * @return his/her StudentRecord.
 	 */
 	public StudentRecord forJMBAG(String jmbag) {
-		Integer index = indexOfStudents.get(jmbag);
-		if(index == null) return null;
+		var students = current.getStudents();
+		int index = students.rowOf(jmbag);
+		if(index == -1) return null;
 		
 		return students.get(index);
 	}
@@ -74,13 +217,709 @@ public class StudentDatabase {
 	 */
 	public List<StudentRecord> filter(IFilter filter) {
 		List<StudentRecord> filteredList = new ArrayList<StudentRecord>();
-		for(var student : students) {
-			if(filter.accepts(student)) {
-				filteredList.add(student);
+		scan(current.getStudents(), filter, filteredList);
+		return filteredList;
+	}
+	
+	/**
+	 * A method which sets the number of threads which scan the rows. Scans of tables with
+	 * fewer rows than the parallel threshold are always done by the calling thread.
+	 * The filters given to a database with more than one thread must be safe to use
+	 * from several threads at once. Scans which already started finish on the previous
+	 * threads, whose pool is shut down after them.
+	 * @param parallelism - number of threads, 1 for sequential scans.
+	 * @throws IllegalArgumentException if parallelism is less than 1.
+	 */
+	public synchronized void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+		}
+		
+		var previous = scanPool;
+		scanPool = new ScanPool(parallelism);
+		previous.retire();
+	}
+	
+	/**
+	 * A method which acquires the current holder of the pool for a scan, which has to
+	 * release it when it ends.
+	 * @return the holder.
+	 */
+	private ScanPool acquireScanPool() {
+		while(true) {
+			var scanPool = this.scanPool;
+			if(scanPool.acquire()) return scanPool;
+		}
+	}
+	
+	/**
+	 * A setter for the number of rows below which scans aren't split between threads.
+	 * @param parallelThreshold - the number of rows.
+	 * @throws IllegalArgumentException if the threshold is less than 1.
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		if(parallelThreshold < 1) {
+			throw new IllegalArgumentException("Parallel threshold must be at least 1.");
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	/**
+	 * A method which tests all the rows with a filter and adds the accepted ones to a list in
+	 * the order of rows. Large tables are split into chunks which are tested on the pool,
+	 * and the results of the chunks are concatenated in order.
+	 * @param students - storage of the version which is scanned.
+	 * @param filter - the filter.
+	 * @param result - list the accepted records are added to.
+	 */
+	private void scan(IStudentStorage students, IFilter filter, List<StudentRecord> result) {
+		int size = students.size();
+		var scanPool = acquireScanPool();
+		try {
+			if(scanPool.getPool() == null || size < parallelThreshold) {
+				students.filter(filter, 0, size, result);
+				return;
+			}
+			
+			for(var records : inChunks(scanPool, size, (from, to) -> {
+				var chunk = new ArrayList<StudentRecord>();
+				students.filter(filter, from, to, chunk);
+				return chunk;
+			})) {
+				result.addAll(records);
+			}
+		} finally {
+			scanPool.release();
+		}
+	}
+	
+	/**
+	 * A method which splits the rows into chunks, runs a task for each chunk on a pool
+	 * and returns the results of the tasks in the order of the chunks.
+	 * @param <T> - type of the results.
+	 * @param scanPool - the acquired holder of the pool.
+	 * @param size - number of rows.
+	 * @param task - the task, given the first row of a chunk and the row after its last row.
+	 * @return the results.
+	 */
+	private <T> List<T> inChunks(ScanPool scanPool, int size, BiFunction<Integer, Integer, T> task) {
+		int chunks = scanPool.getParallelism() * CHUNKS_PER_THREAD;
+		var tasks = new ArrayList<Callable<T>>();
+		for(int i = 0; i < chunks; i++) {
+			int from = (int) ((long) size * i / chunks), to = (int) ((long) size * (i + 1) / chunks);
+			tasks.add(() -> task.apply(from, to));
+		}
+		
+		List<T> results = new ArrayList<>();
+		for(Future<T> future : scanPool.getPool().invokeAll(tasks)) {
+			try {
+				results.add(future.get());
+			} catch(ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException("Scan failed.", e.getCause());
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Scan was interrupted.");
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * A method which returns the list of StudentRecords which satisfy all the given conditions.
+	 * The conditions are answered by the plan {@link #plan(List)} makes for them.
+	 * Records are returned in the same order as by {@link #filter(IFilter)}.
+	 * @param conditions - conditions joined by AND.
+	 * @return the list of acceptable StudentRecords.
+	 */
+	public List<StudentRecord> query(List<ConditionalExpression> conditions) {
+		return execute(plan(conditions));
+	}
+	
+	/**
+	 * A method which returns the list of StudentRecords which satisfy a boolean expression tree.
+	 * The expression is answered by the plan {@link #plan(IQueryExpression)} makes for it.
+	 * Records are returned in the same order as by {@link #filter(IFilter)}.
+	 * @param expression - the expression.
+	 * @return the list of acceptable StudentRecords.
+	 */
+	public List<StudentRecord> query(IQueryExpression expression) {
+		return execute(plan(expression));
+	}
+	
+	/**
+	 * A method which makes a plan for a list of conditions joined by AND on the latest version.
+	 * The plan is always executed on that version, even if the database was changed since.
+	 * @param conditions - the conditions.
+	 * @return the plan.
+	 */
+	public QueryPlan plan(List<ConditionalExpression> conditions) {
+		return current.plan(conditions);
+	}
+	
+	/**
+	 * A method which makes a plan for a boolean expression tree on the latest version.
+	 * The plan is always executed on that version, even if the database was changed since.
+	 * @param expression - the expression.
+	 * @return the plan.
+	 */
+	public QueryPlan plan(IQueryExpression expression) {
+		return current.plan(expression);
+	}
+	
+	/**
+	 * A method which prepares a query template whose literals can be {@code ?} placeholders.
+	 * The template is parsed and planned once, and then executed with values bound to the placeholders.
+	 * @param template - text of the template.
+	 * @return the prepared query.
+	 * @throws NullPointerException if template is null.
+	 * @throws IllegalArgumentException if the template is invalid or has OR or NOT.
+	 */
+	public PreparedQuery prepare(String template) {
+		return new PreparedQuery(this, template);
+	}
+	
+	/**
+	 * A method which makes the changes of this database durable. The committed changes of
+	 * the log are applied first, as they were when the database was last used, and all the
+	 * later changes are appended to the log before their statements return. Once the log grows
+	 * larger than the checkpoint size, the records are written into the data file and the log
+	 * is emptied. Changes of the log are applied even if they are already in the data file,
+	 * because a crash might have happened just before the log was emptied.
+	 * @param dataFile - the file the database was read from, which it is checkpointed into.
+	 * @param logFile - the log file, created if it doesn't exist.
+	 * @throws IOException if something went wrong with reading or writing the log.
+	 * @throws IllegalStateException if the changes are already logged.
+	 * @throws UnsupportedOperationException if the log has changes and the storage can't be changed.
+	 */
+	public synchronized void openLog(Path dataFile, Path logFile) throws IOException {
+		if(log != null) throw new IllegalStateException("The changes are already logged.");
+		
+		var students = current.getStudents().copy();
+		log = new WriteAheadLog(logFile, lines -> replay(students, lines));
+		this.dataFile = dataFile;
+		current = new DatabaseVersion(current.getNumber() + 1, students);
+		invalidateCache();
+	}
+	
+	/**
+	 * A method which sets the size of the log above which the database is checkpointed.
+	 * @param checkpointSize - the size, in bytes.
+	 * @throws IllegalArgumentException if the size is less than 1.
+	 */
+	public void setCheckpointSize(long checkpointSize) {
+		if(checkpointSize < 1) throw new IllegalArgumentException("The checkpoint size must be positive.");
+		this.checkpointSize = checkpointSize;
+	}
+	
+	/**
+	 * A getter for the log of the changes.
+	 * @return the log, or null if the changes aren't logged.
+	 */
+	public WriteAheadLog getLog() {
+		return log;
+	}
+	
+	/**
+	 * A method which applies a committed batch of the log. Inserted and updated records replace
+	 * the records with the same jmbag or are added, deleted records are removed if they exist.
+	 * @param students - the storage the batch is applied to.
+	 * @param lines - lines of the batch.
+	 */
+	private static void replay(IStudentStorage students, List<String> lines) {
+		List<Integer> deleted = new ArrayList<>();
+		for(var line : lines) {
+			var parts = line.split("\t");
+			int row = students.rowOf(parts[1]);
+			if(parts[0].charAt(0) == WriteAheadLog.DELETE) {
+				if(row != -1) deleted.add(row);
+				continue;
+			}
+			
+			var record = new StudentRecord(parts[1], parts[3], parts[2], Integer.parseInt(parts[4]));
+			if(row == -1) students.add(record); else students.set(row, record);
+		}
+		students.remove(deleted.stream().mapToInt(Integer::intValue).sorted().distinct().toArray());
+	}
+	
+	/**
+	 * A method which adds a record to this database.
+	 * @param record - the record.
+	 * @throws IllegalArgumentException if there already is a record with the same jmbag,
+	 * 		   or a name has a tab or a line break.
+	 * @throws IOException if something went wrong with writing the log.
+	 * @throws UnsupportedOperationException if the storage can't be changed.
+	 */
+	public void insert(StudentRecord record) throws IOException {
+		long position;
+		synchronized(this) {
+			checkNames(record);
+			if(current.getStudents().rowOf(record.getJmbag()) != -1) {
+				throw new IllegalArgumentException("Duplicate JMBAG: " + record.getJmbag());
+			}
+			var students = current.getStudents().copy();
+			students.add(record);
+			position = append(List.of(WriteAheadLog.line(WriteAheadLog.INSERT, record)));
+			publish(students, new int[0], new int[] {students.size() - 1});
+		}
+		commit(position);
+	}
+	
+	/**
+	 * A method which changes the records satisfying a boolean expression tree. All the changed
+	 * records are computed before any of them is stored, so either all or none are changed.
+	 * @param expression - the expression.
+	 * @param change - function which returns the changed copy of a record, with the same jmbag.
+	 * @return number of changed records.
+	 * @throws IllegalArgumentException if a changed record has another jmbag, or a name has a tab or a line break.
+	 * @throws IOException if something went wrong with writing the log.
+	 * @throws UnsupportedOperationException if the storage can't be changed.
+	 */
+	public int update(IQueryExpression expression, UnaryOperator<StudentRecord> change) throws IOException {
+		long position;
+		List<StudentRecord> changed = new ArrayList<>();
+		synchronized(this) {
+			for(var record : query(expression)) {
+				var updated = change.apply(record);
+				if(!updated.getJmbag().equals(record.getJmbag())) {
+					throw new IllegalArgumentException("The JMBAG of a record can't be changed.");
+				}
+				checkNames(updated);
+				changed.add(updated);
+			}
+			if(changed.isEmpty()) return 0;
+			
+			var students = current.getStudents().copy();
+			int[] rows = new int[changed.size()];
+			List<String> lines = new ArrayList<>();
+			for(int i = 0; i < rows.length; i++) {
+				var record = changed.get(i);
+				rows[i] = students.rowOf(record.getJmbag());
+				students.set(rows[i], record);
+				lines.add(WriteAheadLog.line(WriteAheadLog.UPDATE, record));
+			}
+			Arrays.sort(rows);
+			position = append(lines);
+			publish(students, new int[0], rows);
+		}
+		commit(position);
+		return changed.size();
+	}
+	
+	/**
+	 * A method which removes the records satisfying a boolean expression tree.
+	 * @param expression - the expression.
+	 * @return number of removed records.
+	 * @throws IOException if something went wrong with writing the log.
+	 * @throws UnsupportedOperationException if the storage can't be changed.
+	 */
+	public int delete(IQueryExpression expression) throws IOException {
+		long position;
+		int[] rows;
+		synchronized(this) {
+			var records = query(expression);
+			if(records.isEmpty()) return 0;
+			
+			var students = current.getStudents().copy();
+			rows = new int[records.size()];
+			List<String> lines = new ArrayList<>();
+			for(int i = 0; i < rows.length; i++) {
+				rows[i] = students.rowOf(records.get(i).getJmbag());
+				lines.add(WriteAheadLog.line(records.get(i).getJmbag()));
+			}
+			Arrays.sort(rows);
+			students.remove(rows);
+			position = append(lines);
+			publish(students, rows, new int[0]);
+		}
+		commit(position);
+		return rows.length;
+	}
+	
+	/**
+	 * A method which checks that the names of a record can be written into the data file.
+	 * @param record - the record.
+	 * @throws IllegalArgumentException if a name has a tab or a line break.
+	 */
+	private static void checkNames(StudentRecord record) {
+		for(var name : new String[] {record.getLastName(), record.getFirstName()}) {
+			if(name.indexOf('\t') != -1 || name.indexOf('\n') != -1 || name.indexOf('\r') != -1) {
+				throw new IllegalArgumentException("Names can't have tabs or line breaks.");
+			}
+		}
+	}
+	
+	/**
+	 * A method which publishes a changed copy of the storage of the latest version as the
+	 * next version and drops the cached results of older versions. Queries which already
+	 * pinned an older version keep reading it. The indexes of the new version are built by
+	 * the next query which needs them.
+	 * @param students - the changed copy, which mustn't be changed any more.
+	 * @param removed - rows of the latest version which were removed, sorted.
+	 * @param changed - rows of the copy which were changed or added, sorted.
+	 */
+	private void publish(IStudentStorage students, int[] removed, int[] changed) {
+		current = new DatabaseVersion(current, students, removed, changed);
+		invalidateCache();
+	}
+	
+	/**
+	 * A method which appends the lines of a statement to the log, if the changes are logged.
+	 * It is called before the changed copy of the storage is published, so a statement whose
+	 * lines couldn't be written doesn't change the database.
+	 * @param lines - the lines.
+	 * @return the position after the lines, or -1 if the changes aren't logged.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private long append(List<String> lines) throws IOException {
+		return log == null ? -1 : log.append(lines);
+	}
+	
+	/**
+	 * A method which waits until the lines of a statement are on the disk, together with the
+	 * lines of other statements which wait at the same time, and checkpoints the database if
+	 * the log grew too large.
+	 * @param position - the position after the lines, or -1 if the changes aren't logged.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private void commit(long position) throws IOException {
+		if(position == -1) return;
+		log.sync(position);
+		if(log.size() > checkpointSize) checkpoint();
+	}
+	
+	/**
+	 * A method which writes all the records into the data file and empties the log. The records
+	 * are written into a temporary file first, which replaces the data file once it is on the disk.
+	 * @throws IOException if something went wrong with writing.
+	 * @throws IllegalStateException if the changes aren't logged.
+	 */
+	public synchronized void checkpoint() throws IOException {
+		if(log == null) throw new IllegalStateException("The changes aren't logged.");
+		
+		var students = current.getStudents();
+		Path temporary = dataFile.resolveSibling(dataFile.getFileName() + ".tmp");
+		try(var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+				var writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+			for(int row = 0, size = students.size(); row < size; row++) {
+				var record = students.get(row);
+				writer.write(record.getJmbag());
+				writer.write('\t');
+				writer.write(record.getLastName());
+				writer.write('\t');
+				writer.write(record.getFirstName());
+				writer.write('\t');
+				writer.write(Integer.toString(record.getGrade()));
+				writer.write('\n');
+			}
+			writer.flush();
+			channel.force(true);
+		}
+		Files.move(temporary, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		log.clear();
+	}
+	
+	/**
+	 * A getter for the latest version of the rows.
+	 * @return the version.
+	 */
+	DatabaseVersion version() {
+		return current;
+	}
+	
+	/**
+	 * A method which returns the version a plan is executed on.
+	 * @param plan - the plan.
+	 * @return the version the plan was made on, or the latest version if it wasn't made by a database.
+	 */
+	private DatabaseVersion versionOf(QueryPlan plan) {
+		var version = plan.getVersion();
+		return version == null ? current : version;
+	}
+	
+	/**
+	 * A method which returns the list of StudentRecords found by a plan. Results of plans with
+	 * a cache key are kept in the query cache and returned as unmodifiable lists.
+	 * @param plan - the plan, made by {@link #plan(List)} of this database.
+	 * @return the list of acceptable StudentRecords.
+	 */
+	public List<StudentRecord> execute(QueryPlan plan) {
+		String key = plan.getCacheKey();
+		if(key == null) return run(plan);
+		
+		long version = versionOf(plan).dataVersion();
+		var cached = cache.get(key, version);
+		if(cached != null) return cached;
+		
+		var result = Collections.unmodifiableList(run(plan));
+		cache.put(key, result, version);
+		return result;
+	}
+	
+	/**
+	 * A method which reads the records found by a plan from the storage of its version.
+	 * @param plan - the plan.
+	 * @return the list of acceptable StudentRecords.
+	 */
+	private List<StudentRecord> run(QueryPlan plan) {
+		var students = versionOf(plan).getStudents();
+		List<StudentRecord> filteredList = new ArrayList<StudentRecord>();
+		var filter = plan.getFilter();
+		
+		switch(plan.getAccessPath()) {
+		case NONE:
+			break;
+		case JMBAG_LOOKUP:
+			int row = students.rowOf(plan.getAccessCondition().getStringLiteral());
+			if(row != -1) students.filter(filter, new int[] {row}, filteredList);
+			break;
+		case INDEX_RANGE:
+			students.filter(filter, plan.getIndex().rows(plan.getRange()), filteredList);
+			break;
+		case ROW_SET:
+			students.filter(filter, plan.getRows(), filteredList);
+			break;
+		default:
+			scan(students, filter, filteredList);
+		}
+		return filteredList;
+	}
+	
+	/**
+	 * A method which returns the records found by a plan, without some of the first ones
+	 * and at most up to some number of them. If the whole result of the plan is cached,
+	 * the records are taken from the cache, otherwise they are read by a cursor.
+	 * @param plan - the plan, made by {@link #plan(List)} of this database.
+	 * @param offset - number of records which are skipped.
+	 * @param limit - maximal number of records, or {@link QueryParser#NO_LIMIT}.
+	 * @return the list of acceptable StudentRecords.
+	 * @throws IllegalArgumentException if offset or limit are negative.
+	 */
+	public List<StudentRecord> execute(QueryPlan plan, int offset, int limit) {
+		if(offset == 0 && limit == QueryParser.NO_LIMIT) {
+			return execute(plan);
+		}
+		
+		String key = plan.getCacheKey();
+		var cached = key == null ? null : cache.get(key, versionOf(plan).dataVersion());
+		if(cached != null) {
+			if(offset < 0 || (limit < 0 && limit != QueryParser.NO_LIMIT)) {
+				throw new IllegalArgumentException("Offset and limit mustn't be negative.");
 			}
+			int from = Math.min(offset, cached.size());
+			int to = limit == QueryParser.NO_LIMIT ? cached.size() : (int) Math.min((long) from + limit, cached.size());
+			return cached.subList(from, to);
 		}
+		
+		List<StudentRecord> filteredList = new ArrayList<StudentRecord>();
+		cursor(plan, offset, limit).forEachRemaining(filteredList::add);
 		return filteredList;
 	}
+	
+	/**
+	 * A method which returns a cursor over the records found by a plan. Rows are read
+	 * only as the records are taken from the cursor, in the order of {@link #execute(QueryPlan)}.
+	 * The cursor reads the version the plan was made on, so it doesn't see later changes.
+	 * @param plan - the plan, made by {@link #plan(List)} of this database.
+	 * @param offset - number of records which are skipped.
+	 * @param limit - maximal number of records, or {@link QueryParser#NO_LIMIT}.
+	 * @return the cursor.
+	 * @throws IllegalArgumentException if offset or limit are negative.
+	 */
+	public QueryCursor cursor(QueryPlan plan, int offset, int limit) {
+		var students = versionOf(plan).getStudents();
+		var filter = plan.getFilter();
+		switch(plan.getAccessPath()) {
+		case NONE:
+			return new QueryCursor(students, filter, new int[0], 0, 0, offset, limit);
+		case JMBAG_LOOKUP:
+			int row = students.rowOf(plan.getAccessCondition().getStringLiteral());
+			int[] rows = row == -1 ? new int[0] : new int[] {row};
+			return new QueryCursor(students, filter, rows, 0, 0, offset, limit);
+		case INDEX_RANGE:
+			return new QueryCursor(students, filter, plan.getIndex().rows(plan.getRange()), 0, 0, offset, limit);
+		case ROW_SET:
+			return new QueryCursor(students, filter, plan.getRows(), 0, 0, offset, limit);
+		default:
+			return new QueryCursor(students, filter, null, 0, students.size(), offset, limit);
+		}
+	}
+	
+	/**
+	 * A method which computes aggregates of the records satisfying a boolean expression tree,
+	 * in a single pass over the rows found by its plan, without collecting the records.
+	 * Full scans of large tables are split between the threads, each of which aggregates its
+	 * own part of the rows, and the partial aggregates are merged at the end. Queries which
+	 * only depend on grades are answered by the bitmap index on grades without reading any row.
+	 * @param expression - the expression.
+	 * @param aggregates - the aggregates.
+	 * @param groupBy - the field the records are grouped by, or null if they aren't grouped.
+	 * @return the computed aggregation.
+	 * @throws IllegalArgumentException if there are no aggregates.
+	 */
+	public Aggregation aggregate(IQueryExpression expression, List<Aggregate> aggregates, IFieldValueGetter groupBy) {
+		var aggregation = new Aggregation(aggregates, groupBy);
+		var version = current;
+		
+		int mask = QueryExpressions.gradeMask(expression);
+		if(mask != -1 && aggregation.dependsOnGradesOnly()) {
+			var gradeIndex = version.getGradeIndex();
+			for(int grade = BitmapIndex.MIN_GRADE; grade <= BitmapIndex.MAX_GRADE; grade++) {
+				if((mask >>> grade & 1) != 0) aggregation.add(grade, gradeIndex.count(grade));
+			}
+			return aggregation;
+		}
+		
+		aggregate(version.plan(expression), aggregation);
+		return aggregation;
+	}
+	
+	/**
+	 * A method which adds the records found by a plan to an aggregation.
+	 * @param plan - the plan, made by {@link #plan(IQueryExpression)} of this database.
+	 * @param aggregation - the aggregation.
+	 */
+	public void aggregate(QueryPlan plan, Aggregation aggregation) {
+		forEach(plan, aggregation, from -> aggregation.newPartial(), Aggregation::merge);
+	}
+	
+	/**
+	 * A method which returns the records found by a plan in some order, without some of
+	 * the first ones and at most up to some number of them. If the planner chooses so,
+	 * the rows are read in the order of a sorted index on the field of the ordering until
+	 * enough records are found. Otherwise the first records are kept in a {@link TopK}
+	 * while the rows of the plan are read, in parallel for large full scans, so that
+	 * the whole result is never collected if there is a limit.
+	 * @param plan - the plan, made by {@link #plan(IQueryExpression)} of this database.
+	 * @param ordering - the ordering, or null for the order of the rows.
+	 * @param offset - number of records which are skipped.
+	 * @param limit - maximal number of records, or {@link QueryParser#NO_LIMIT}.
+	 * @return the list of acceptable StudentRecords.
+	 * @throws IllegalArgumentException if offset or limit are negative.
+	 */
+	public List<StudentRecord> execute(QueryPlan plan, Ordering ordering, int offset, int limit) {
+		if(ordering == null) return execute(plan, offset, limit);
+		var topK = new TopK(ordering, offset, limit);
+		
+		String key = plan.getCacheKey();
+		var cached = key == null ? null : cache.get(key, versionOf(plan).dataVersion());
+		if(cached != null) {
+			cached.forEach(topK);
+			return topK.getResults();
+		}
+		
+		var index = orderIndex(plan, ordering, offset, limit);
+		if(index != null) {
+			return inIndexOrder(plan, index, ordering.isDescending(), offset, limit);
+		}
+		forEach(plan, topK, topK::newPartial, TopK::merge);
+		return topK.getResults();
+	}
+	
+	/**
+	 * A method which returns the sorted index whose order the results of a plan are read in, as
+	 * decided by {@link QueryPlanner#orderIndex(QueryPlan, Ordering, int, int)}.
+	 * @param plan - the plan, made by {@link #plan(IQueryExpression)} of this database.
+	 * @param ordering - the ordering.
+	 * @param offset - number of records which are skipped.
+	 * @param limit - maximal number of records, or {@link QueryParser#NO_LIMIT}.
+	 * @return the index, or null if the results are ordered by a {@link TopK}.
+	 */
+	public SortedIndex orderIndex(QueryPlan plan, Ordering ordering, int offset, int limit) {
+		return versionOf(plan).planner().orderIndex(plan, ordering, offset, limit);
+	}
+	
+	/**
+	 * A method which reads the rows of a plan in the order of a sorted index, in chunks of
+	 * {@link QueryCursor#CHUNK_SIZE} positions, and stops as soon as enough records are found.
+	 * @param plan - the plan, a full scan or a range of the index.
+	 * @param index - the index.
+	 * @param descending - whether the index is read from its end.
+	 * @param offset - number of records which are skipped.
+	 * @param limit - maximal number of records, or {@link QueryParser#NO_LIMIT}.
+	 * @return the list of acceptable StudentRecords.
+	 */
+	private List<StudentRecord> inIndexOrder(QueryPlan plan, SortedIndex index, boolean descending, int offset, int limit) {
+		int[] range = plan.getAccessPath() == QueryPlan.AccessPath.INDEX_RANGE ? plan.getRange() : new int[] {0, index.size()};
+		long wanted = limit == QueryParser.NO_LIMIT ? Long.MAX_VALUE : (long) offset + limit;
+		var students = versionOf(plan).getStudents();
+		
+		List<StudentRecord> result = new ArrayList<>();
+		int[] rows = new int[QueryCursor.CHUNK_SIZE];
+		for(int done = 0, count = range[1] - range[0]; done < count && result.size() < wanted; ) {
+			int chunk = Math.min(rows.length, count - done);
+			for(int i = 0; i < chunk; i++, done++) {
+				rows[i] = index.rowAt(descending ? range[1] - 1 - done : range[0] + done);
+			}
+			students.filter(plan.getFilter(), chunk == rows.length ? rows : Arrays.copyOf(rows, chunk), result);
+		}
+		
+		if(result.size() > wanted) result.subList((int) wanted, result.size()).clear();
+		return result.subList(Math.min(offset, result.size()), result.size());
+	}
+	
+	/**
+	 * A method which passes the records found by a plan to an action which doesn't keep their
+	 * views. Full scans of large tables are split between the threads, each of which passes
+	 * its own part of the rows to a partial action, and the partial actions are merged into
+	 * the action at the end, in the order of their parts.
+	 * @param <T> - type of the action.
+	 * @param plan - the plan, made by {@link #plan(IQueryExpression)} of this database.
+	 * @param action - the action.
+	 * @param newPartial - function which makes an empty partial action for the rows from some row on.
+	 * @param merge - function which merges a partial action into the action.
+	 */
+	private <T extends Consumer<StudentRecord>> void forEach(QueryPlan plan, T action, IntFunction<T> newPartial,
+			BiConsumer<T, T> merge) {
+		var students = versionOf(plan).getStudents();
+		var filter = plan.getFilter();
+		switch(plan.getAccessPath()) {
+		case NONE:
+			break;
+		case JMBAG_LOOKUP:
+			int row = students.rowOf(plan.getAccessCondition().getStringLiteral());
+			if(row != -1) students.forEach(filter, new int[] {row}, action);
+			break;
+		case INDEX_RANGE:
+			students.forEach(filter, plan.getIndex().rows(plan.getRange()), action);
+			break;
+		case ROW_SET:
+			students.forEach(filter, plan.getRows(), action);
+			break;
+		default:
+			int size = students.size();
+			var scanPool = acquireScanPool();
+			try {
+				if(scanPool.getPool() == null || size < parallelThreshold) {
+					students.forEach(filter, 0, size, action);
+					break;
+				}
+				for(var partial : inChunks(scanPool, size, (from, to) -> {
+					var chunk = newPartial.apply(from);
+					students.forEach(filter, from, to, chunk);
+					return chunk;
+				})) {
+					merge.accept(action, partial);
+				}
+			} finally {
+				scanPool.release();
+			}
+		}
+	}
+	
+	/**
+	 * A method which returns a sequential stream of the records satisfying all the given conditions.
+	 * Rows are read only as the stream is consumed, so short-circuiting operations like
+	 * {@code limit} and {@code findFirst} stop the scan early.
+	 * @param conditions - conditions joined by AND.
+	 * @return the stream.
+	 */
+	public Stream<StudentRecord> stream(List<ConditionalExpression> conditions) {
+		var cursor = cursor(plan(conditions), 0, QueryParser.NO_LIMIT);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor,
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
 }
-
-
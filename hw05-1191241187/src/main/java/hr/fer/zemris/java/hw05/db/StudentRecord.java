@@ -43,6 +43,14 @@ public class StudentRecord {
 		}
 	}
 	
+	/**
+	 * A constructor for records whose getters are overridden to read
+	 * the data from somewhere else, such as a row of a columnar storage.
+	 */
+	StudentRecord() {
+		super();
+	}
+	
 	/**
 	 * A getter for jmbag.
 	 * @return student's jmbag.
@@ -0,0 +1,245 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * TopK is a class which keeps the first records of some ordering out of the records given
+ * to it one by one, so that {@code ORDER BY ... LIMIT n} doesn't need the whole result.
+ * With a limit, the records are kept in a binary heap whose root is the last of the kept
+ * records, which costs O(log k) per kept record and a single comparison per rejected one,
+ * for k records wanted. Without a limit all the records are kept and sorted at the end.
+ * <p>
+ * Records with equal values are ordered by the order in which they were given. Several
+ * instances can be filled in parallel from consecutive parts of the rows and then merged,
+ * if each of them starts counting the records from the first row of its part.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class TopK implements Consumer<StudentRecord> {
+
+	/**
+	 * Capacity of a TopK which keeps all the records.
+	 */
+	private static final long UNBOUNDED = -1;
+
+	/**
+	 * The ordering.
+	 */
+	private Ordering ordering;
+	/**
+	 * Whether the values of the ordering are compared as numbers.
+	 */
+	private boolean numeric;
+	/**
+	 * Maximal number of kept records, or {@link #UNBOUNDED}.
+	 */
+	private long capacity;
+	/**
+	 * Number of the first records which are skipped in the results.
+	 */
+	private int offset;
+	/**
+	 * The kept records; a heap with the last of them at the root if the capacity is bounded.
+	 */
+	private Entry[] heap = new Entry[16];
+	/**
+	 * Number of the kept records.
+	 */
+	private int size;
+	/**
+	 * Sequence number of the next record.
+	 */
+	private long sequence;
+	/**
+	 * Entry of the last given record, used to compare it with the root before it is copied.
+	 */
+	private Entry probe = new Entry();
+
+	/**
+	 * A constructor for this class.
+	 * @param ordering - the ordering.
+	 * @param offset - number of the first records which are skipped in the results.
+	 * @param limit - maximal number of results, or {@link QueryParser#NO_LIMIT}.
+	 * @throws IllegalArgumentException if offset or limit are negative.
+	 */
+	public TopK(Ordering ordering, int offset, int limit) {
+		this(ordering, limit == QueryParser.NO_LIMIT ? UNBOUNDED : (long) offset + limit, offset, 0);
+		if(offset < 0 || (limit < 0 && limit != QueryParser.NO_LIMIT)) {
+			throw new IllegalArgumentException("Offset and limit mustn't be negative.");
+		}
+	}
+
+	/**
+	 * A constructor for this class.
+	 * @param ordering - the ordering.
+	 * @param capacity - maximal number of kept records, or {@link #UNBOUNDED}.
+	 * @param offset - number of the first records which are skipped in the results.
+	 * @param sequence - sequence number of the first record.
+	 */
+	private TopK(Ordering ordering, long capacity, int offset, long sequence) {
+		this.ordering = ordering;
+		this.numeric = ordering.isNumeric();
+		this.capacity = capacity;
+		this.offset = offset;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * A method which makes an empty TopK of the same ordering and capacity, which can later
+	 * be merged into this one.
+	 * @param first - number of the first row of the part of the rows the TopK is filled from.
+	 * @return the TopK.
+	 */
+	public TopK newPartial(long first) {
+		return new TopK(ordering, capacity, 0, first);
+	}
+
+	/**
+	 * A getter for the ordering.
+	 * @return the ordering.
+	 */
+	public Ordering getOrdering() {
+		return ordering;
+	}
+
+	@Override
+	public void accept(StudentRecord record) {
+		probe.sequence = sequence++;
+		if(numeric) {
+			probe.grade = record.getGrade();
+		} else {
+			probe.key = ordering.getField().get(record);
+		}
+		if(isFull() && (capacity == 0 || compare(probe, heap[0]) >= 0)) return;
+
+		var entry = isFull() ? heap[0] : new Entry();
+		entry.record = record.getClass() == StudentRecord.class ? record
+				: new StudentRecord(record.getJmbag(), record.getFirstName(), record.getLastName(), record.getGrade());
+		entry.key = probe.key;
+		entry.grade = probe.grade;
+		entry.sequence = probe.sequence;
+		offer(entry);
+	}
+
+	/**
+	 * A method which adds the records kept by another TopK, filled from a later part of the rows.
+	 * @param other - the other TopK, made by {@link #newPartial(long)}.
+	 */
+	public void merge(TopK other) {
+		for(int i = 0; i < other.size; i++) {
+			var entry = other.heap[i];
+			if(isFull() && (capacity == 0 || compare(entry, heap[0]) >= 0)) continue;
+			offer(entry);
+		}
+	}
+
+	/**
+	 * A method which returns the kept records in the order, without the skipped ones.
+	 * @return the records.
+	 */
+	public List<StudentRecord> getResults() {
+		var sorted = Arrays.copyOf(heap, size);
+		Arrays.sort(sorted, this::compare);
+
+		List<StudentRecord> results = new ArrayList<>(Math.max(0, size - offset));
+		for(int i = offset; i < sorted.length; i++) {
+			results.add(sorted[i].record);
+		}
+		return results;
+	}
+
+	/**
+	 * A method which checks whether no more records can be kept without dropping one.
+	 * @return true if the capacity is bounded and reached, false otherwise.
+	 */
+	private boolean isFull() {
+		return capacity != UNBOUNDED && size >= capacity;
+	}
+
+	/**
+	 * A method which keeps an entry, in place of the root if the heap is full.
+	 * @param entry - the entry, which comes before the root if the heap is full,
+	 * 		  or is the root itself, reused for a new record.
+	 */
+	private void offer(Entry entry) {
+		if(isFull()) {
+			heap[0] = entry;
+			siftDown(0);
+			return;
+		}
+
+		if(size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+		heap[size++] = entry;
+		if(capacity != UNBOUNDED) siftUp(size - 1);
+	}
+
+	/**
+	 * A method which moves an entry towards the root while it comes after its parent.
+	 * @param index - index of the entry.
+	 */
+	private void siftUp(int index) {
+		var entry = heap[index];
+		while(index > 0) {
+			int parent = (index - 1) >>> 1;
+			if(compare(entry, heap[parent]) <= 0) break;
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = entry;
+	}
+
+	/**
+	 * A method which moves an entry away from the root while one of its children comes after it.
+	 * @param index - index of the entry.
+	 */
+	private void siftDown(int index) {
+		var entry = heap[index];
+		while(true) {
+			int child = 2 * index + 1;
+			if(child >= size) break;
+			if(child + 1 < size && compare(heap[child + 1], heap[child]) > 0) child++;
+			if(compare(heap[child], entry) <= 0) break;
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = entry;
+	}
+
+	/**
+	 * A method which compares two entries by the ordering, and by their sequence numbers if their values are equal.
+	 * @param first - the first entry.
+	 * @param second - the second entry.
+	 * @return a negative number if the first entry comes first, a positive one if it comes second.
+	 */
+	private int compare(Entry first, Entry second) {
+		int result = numeric ? Integer.compare(first.grade, second.grade) : first.key.compareTo(second.key);
+		if(result == 0) result = Long.compare(first.sequence, second.sequence);
+		return ordering.isDescending() ? -result : result;
+	}
+
+	/**
+	 * Entry is a kept record together with its value and sequence number.
+	 */
+	private static class Entry {
+		/**
+		 * The record.
+		 */
+		private StudentRecord record;
+		/**
+		 * Value of the field of the ordering, if it isn't numeric.
+		 */
+		private String key;
+		/**
+		 * The grade, if the ordering is by grade.
+		 */
+		private int grade;
+		/**
+		 * Sequence number of the record.
+		 */
+		private long sequence;
+	}
+}
@@ -0,0 +1,231 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * WriteAheadLog is a class which represents the log of the changes of a {@link StudentDatabase}
+ * which weren't checkpointed into its data file yet. The log is a text file of batches, one per
+ * statement, each made of lines of changed records followed by a commit line with the CRC-32 of
+ * the batch. Batches which were written only partly, for example because of a crash, have no
+ * valid commit line and are dropped when the log is opened.
+ * <p>
+ * Writes are made durable by group commit: a writer appends its batch and then waits until the
+ * log is forced to the disk, but a single force covers all the batches appended before it, so
+ * writers which wait at the same time share one {@code fsync}. Positions in the log are counted
+ * in bytes written since the log was opened, so they keep growing when the log is emptied.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class WriteAheadLog implements Closeable {
+
+	/**
+	 * Type of the line of an inserted record.
+	 */
+	public static final char INSERT = 'I';
+	/**
+	 * Type of the line of an updated record.
+	 */
+	public static final char UPDATE = 'U';
+	/**
+	 * Type of the line of a deleted record, which holds only its jmbag.
+	 */
+	public static final char DELETE = 'D';
+	/**
+	 * Type of the line which commits a batch.
+	 */
+	private static final char COMMIT = 'C';
+
+	/**
+	 * Channel of the log file.
+	 */
+	private FileChannel channel;
+	/**
+	 * Position of the start of the file.
+	 */
+	private long base;
+	/**
+	 * Position after the last appended batch.
+	 */
+	private long written;
+	/**
+	 * Position up to which the log is on the disk.
+	 */
+	private volatile long durable;
+	/**
+	 * Number of times the log was forced to the disk.
+	 */
+	private volatile long syncs;
+	/**
+	 * Lock held while the log is forced to the disk.
+	 */
+	private final Object syncLock = new Object();
+
+	/**
+	 * A constructor which opens a log, creating the file if it doesn't exist, and passes its
+	 * committed batches to an action in order. The rest of the file is cut off.
+	 * @param path - path to the log file.
+	 * @param replay - action which is performed for the lines of each committed batch, without the commit line.
+	 * @throws IOException if something went wrong with reading or writing.
+	 */
+	public WriteAheadLog(Path path, Consumer<List<String>> replay) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		long size = channel.size();
+		if(size > Integer.MAX_VALUE) throw new IOException("The log is too large.");
+		var bytes = ByteBuffer.allocate((int) size);
+		while(bytes.hasRemaining() && channel.read(bytes) >= 0);
+
+		int end = recover(bytes.array(), replay);
+		if(end < size) {
+			channel.truncate(end);
+			channel.force(false);
+		}
+		channel.position(end);
+		written = durable = end;
+	}
+
+	/**
+	 * A method which passes the committed batches of the content of a log to an action.
+	 * @param content - the content.
+	 * @param replay - the action.
+	 * @return length of the part of the content which holds committed batches.
+	 */
+	private static int recover(byte[] content, Consumer<List<String>> replay) {
+		int committed = 0;
+		List<String> batch = new ArrayList<>();
+		for(int start = 0; start < content.length; ) {
+			int end = start;
+			while(end < content.length && content[end] != '\n') end++;
+			if(end == content.length) break;
+
+			String line = new String(content, start, end - start, StandardCharsets.UTF_8);
+			if(line.isEmpty() || line.charAt(0) != COMMIT) {
+				batch.add(line);
+			} else {
+				var crc = new CRC32();
+				crc.update(content, committed, start - committed);
+				if(!line.equals(COMMIT + "\t" + Long.toHexString(crc.getValue()))) break;
+
+				replay.accept(batch);
+				batch = new ArrayList<>();
+				committed = end + 1;
+			}
+			start = end + 1;
+		}
+		return committed;
+	}
+
+	/**
+	 * A method which returns the line of an inserted or updated record.
+	 * @param type - {@link #INSERT} or {@link #UPDATE}.
+	 * @param record - the record.
+	 * @return the line, without the newline.
+	 */
+	public static String line(char type, StudentRecord record) {
+		return type + "\t" + record.getJmbag() + "\t" + record.getLastName() + "\t" + record.getFirstName()
+			+ "\t" + record.getGrade();
+	}
+
+	/**
+	 * A method which returns the line of a deleted record.
+	 * @param jmbag - jmbag of the record.
+	 * @return the line, without the newline.
+	 */
+	public static String line(String jmbag) {
+		return DELETE + "\t" + jmbag;
+	}
+
+	/**
+	 * A method which appends a batch of lines and its commit line to the log, without waiting
+	 * for them to reach the disk.
+	 * @param lines - the lines, without newlines.
+	 * @return the position after the batch, which is given to {@link #sync(long)}.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	public synchronized long append(List<String> lines) throws IOException {
+		var sb = new StringBuilder();
+		for(var line : lines) {
+			sb.append(line).append('\n');
+		}
+		byte[] batch = sb.toString().getBytes(StandardCharsets.UTF_8);
+		var crc = new CRC32();
+		crc.update(batch);
+		byte[] commit = (COMMIT + "\t" + Long.toHexString(crc.getValue()) + "\n").getBytes(StandardCharsets.UTF_8);
+
+		var buffer = ByteBuffer.allocate(batch.length + commit.length).put(batch).put(commit).flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		written += buffer.limit();
+		return written;
+	}
+
+	/**
+	 * A method which waits until the log is on the disk up to some position. If no other
+	 * writer is forcing the log already, the calling one forces everything appended so far.
+	 * @param position - the position, returned by {@link #append(List)}.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	public void sync(long position) throws IOException {
+		if(durable >= position) return;
+		synchronized(syncLock) {
+			if(durable >= position) return;
+
+			long target;
+			synchronized(this) {
+				target = written;
+			}
+			channel.force(false);
+			durable = Math.max(durable, target);
+			syncs++;
+		}
+	}
+
+	/**
+	 * A method which empties the log once all of its changes were checkpointed into the data file.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	public void clear() throws IOException {
+		synchronized(syncLock) {
+			synchronized(this) {
+				channel.truncate(0);
+				channel.position(0);
+				channel.force(false);
+				base = written;
+				durable = written;
+			}
+		}
+	}
+
+	/**
+	 * A method which returns the size of the log file.
+	 * @return number of bytes appended since the log was last emptied.
+	 */
+	public synchronized long size() {
+		return written - base;
+	}
+
+	/**
+	 * A getter for the number of times the log was forced to the disk.
+	 * @return the number.
+	 */
+	public long getSyncs() {
+		return syncs;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,59 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * DatabaseGenerator is a class which generates large database files in the format
+ * of database.txt for the benchmark programs.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class DatabaseGenerator {
+	
+	/**
+	 * Last names the generated entries are made of.
+	 */
+	private static final String[] LAST_NAMES = {"Akšamović", "Bakamović", "Bosnić", "Božić", "Brezović",
+			"Cvrlje", "Dean", "Dokleja", "Glavinić", "Gross", "Hibner", "Jakobušić", "Katančić", "Kos",
+			"Kosanović", "Krnjajić", "Lučić", "Marković", "Mikić", "Perić", "Šimunović", "Zekić"};
+	/**
+	 * First names the generated entries are made of.
+	 */
+	private static final String[] FIRST_NAMES = {"Marin", "Petra", "Andrea", "Ivan", "Ana", "Josip",
+			"Luka", "Maja", "Ivana", "Nikola", "Kristina", "Tomislav", "Sanjin", "Dorotea", "Vedran"};
+	
+	/**
+	 * A method which writes a database file with some number of rows into a temporary file,
+	 * which is deleted when the program exits. JMBAGs are consecutive numbers,
+	 * names and grades are random with a fixed seed.
+	 * @param rows - number of rows.
+	 * @return path to the file.
+	 * @throws IOException if the file can't be written.
+	 */
+	public static Path generate(int rows) throws IOException {
+		Path path = Files.createTempFile("database", ".txt");
+		path.toFile().deleteOnExit();
+		
+		var random = new Random(42);
+		try(BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			for(int i = 1; i <= rows; i++) {
+				writer.write(String.format("%010d", i));
+				writer.write('\t');
+				writer.write(LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+				if(random.nextInt(4) == 0) writer.write(Integer.toString(random.nextInt(10_000)));
+				writer.write('\t');
+				writer.write(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+				writer.write('\t');
+				writer.write('1' + random.nextInt(5));
+				writer.write('\n');
+			}
+		}
+		return path;
+	}
+}
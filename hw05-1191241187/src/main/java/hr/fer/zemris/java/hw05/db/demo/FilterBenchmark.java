@@ -0,0 +1,75 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.hw05.db.ColumnarStudentStorage;
+import hr.fer.zemris.java.hw05.db.IFilter;
+import hr.fer.zemris.java.hw05.db.ListStudentStorage;
+import hr.fer.zemris.java.hw05.db.MappedDatabaseLoader;
+import hr.fer.zemris.java.hw05.db.QueryCompiler;
+import hr.fer.zemris.java.hw05.db.QueryFilter;
+import hr.fer.zemris.java.hw05.db.QueryParser;
+import hr.fer.zemris.java.hw05.db.StudentDatabase;
+
+/**
+ * FilterBenchmark is a program which measures how many rows per second a full scan tests
+ * with {@link QueryFilter} and with the filter compiled by {@link QueryCompiler},
+ * for a few typical queries on both storages. On the columnar storage the compiled filter
+ * is measured both row by row and in blocks on the encoded columns.
+ * The number of rows can be given as an argument, the default is 1M.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class FilterBenchmark {
+
+	/**
+	 * Queries which are measured.
+	 */
+	private static final String[] QUERIES = {
+		"lastName = \"Perić\"",
+		"firstName > \"M\" and lastName < \"K\"",
+		"lastName LIKE \"B*\"",
+		"lastName LIKE \"*ić\" and firstName LIKE \"A*a\"",
+		"jmbag >= \"0000250000\" and lastName != \"Horvat\" and firstName != \"Ivan\""
+	};
+
+	public static void main(String[] args) throws IOException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Path path = DatabaseGenerator.generate(rows);
+
+		var list = MappedDatabaseLoader.load(path, new ListStudentStorage());
+		var columnar = MappedDatabaseLoader.load(path, new ColumnarStudentStorage());
+
+		for(var query : QUERIES) {
+			var conditions = new QueryParser(query).getQuery();
+			System.out.println(query);
+			for(int round = 0; round < 5; round++) {
+				boolean print = round == 4;
+				measure(print, "  list,     interpreted", list, new QueryFilter(conditions), rows);
+				measure(print, "  list,     compiled   ", list, QueryCompiler.compile(conditions), rows);
+				IFilter compiled = QueryCompiler.compile(conditions);
+				measure(print, "  columnar, row by row ", columnar, record -> compiled.accepts(record), rows);
+				measure(print, "  columnar, batched    ", columnar, compiled, rows);
+			}
+		}
+	}
+
+	/**
+	 * A method which scans a database with a filter and prints the throughput.
+	 * @param print - whether the result is printed or this is a warm-up.
+	 * @param name - name of the measurement.
+	 * @param database - the database.
+	 * @param filter - the filter.
+	 * @param rows - number of rows of the database.
+	 */
+	private static void measure(boolean print, String name, StudentDatabase database, IFilter filter, int rows) {
+		long start = System.nanoTime();
+		int selected = database.filter(filter).size();
+		long elapsed = System.nanoTime() - start;
+		if(print) {
+			System.out.format("%s: %,.0f rows/s (%,d selected)%n", name, rows * 1e9 / elapsed, selected);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import hr.fer.zemris.java.hw05.db.QueryParser;
+import hr.fer.zemris.java.hw05.db.lexer.Lexer;
+import hr.fer.zemris.java.hw05.db.lexer.TokenType;
+
+/**
+ * LexerBenchmark is a program which measures the throughput of the lexer and of the parser
+ * of queries on a batch of generated queries, in tokens per second and queries per second.
+ * The number of queries can be given as an argument, the default is 200k.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class LexerBenchmark {
+
+	/**
+	 * Fields of the generated conditions.
+	 */
+	private static final String[] FIELDS = {"jmbag", "lastName", "firstName"};
+
+	/**
+	 * Operators of the generated conditions.
+	 */
+	private static final String[] OPERATORS = {"=", "!=", "<", "<=", ">", ">=", "LIKE"};
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		var queries = generate(count);
+
+		long tokens = 0;
+		for(int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			tokens = 0;
+			for(var query : queries) {
+				var lexer = new Lexer(query);
+				while(lexer.nextToken().getType() != TokenType.EOF) {
+					tokens++;
+				}
+			}
+			long lexed = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int conditions = 0;
+			for(var query : queries) {
+				conditions += new QueryParser(query).getQuery().size();
+			}
+			long parsed = System.nanoTime() - start;
+
+			System.out.format("round %d: lexer %,.0f tokens/s, parser %,.0f queries/s (%,d conditions)%n",
+					round + 1, tokens * 1e9 / lexed, queries.size() * 1e9 / parsed, conditions);
+		}
+	}
+
+	/**
+	 * A method which generates random queries with one to four conditions and sometimes a LIMIT clause.
+	 * @param count - number of queries.
+	 * @return the queries.
+	 */
+	private static List<String> generate(int count) {
+		var random = new Random(42);
+		var queries = new ArrayList<String>(count);
+		for(int i = 0; i < count; i++) {
+			var sb = new StringBuilder();
+			int conditions = 1 + random.nextInt(4);
+			for(int j = 0; j < conditions; j++) {
+				if(j > 0) sb.append(random.nextBoolean() ? " and " : " AND ");
+				sb.append(FIELDS[random.nextInt(FIELDS.length)]).append(' ')
+					.append(OPERATORS[random.nextInt(OPERATORS.length)]).append(" \"")
+					.append((char) ('A' + random.nextInt(26))).append("ić").append(random.nextBoolean() ? "*" : "")
+					.append('"');
+			}
+			if(random.nextInt(4) == 0) sb.append(" LIMIT ").append(random.nextInt(1000));
+			queries.add(sb.toString());
+		}
+		return queries;
+	}
+}
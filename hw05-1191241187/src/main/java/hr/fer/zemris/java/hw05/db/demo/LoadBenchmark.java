@@ -0,0 +1,54 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.hw05.db.ColumnarStudentStorage;
+import hr.fer.zemris.java.hw05.db.ListStudentStorage;
+import hr.fer.zemris.java.hw05.db.MappedDatabaseLoader;
+import hr.fer.zemris.java.hw05.db.StudentDatabase;
+
+/**
+ * LoadBenchmark is a program which compares the time needed to load a generated database file
+ * with {@code Files.readAllLines} and {@code String.split}, and with {@link MappedDatabaseLoader}.
+ * The number of rows can be given as an argument, the default is 10M.
+ * Run it with a large enough heap, e.g. {@code -Xmx8g}.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class LoadBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		Path path = DatabaseGenerator.generate(rows);
+		System.out.format("Generated %,d rows (%,d bytes)%n", rows, Files.size(path));
+		
+		for(int round = 0; round < 3; round++) {
+			long start = System.nanoTime();
+			var lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+			new StudentDatabase(lines, new ListStudentStorage());
+			lines = null;
+			report("readAllLines + split, list storage", start);
+			
+			start = System.nanoTime();
+			MappedDatabaseLoader.load(path, new ListStudentStorage());
+			report("memory-mapped,        list storage", start);
+			
+			start = System.nanoTime();
+			MappedDatabaseLoader.load(path, new ColumnarStudentStorage());
+			report("memory-mapped,    columnar storage", start);
+		}
+	}
+	
+	/**
+	 * A method which prints the time elapsed since some moment.
+	 * @param name - name of the measurement.
+	 * @param start - the moment in nanoseconds.
+	 */
+	private static void report(String name, long start) {
+		System.out.format("%s: %,d ms%n", name, (System.nanoTime() - start) / 1_000_000);
+	}
+}
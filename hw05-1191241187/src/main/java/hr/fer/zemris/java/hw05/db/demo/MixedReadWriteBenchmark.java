@@ -0,0 +1,151 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import hr.fer.zemris.java.hw05.db.FieldValueGetters;
+import hr.fer.zemris.java.hw05.db.IQueryExpression;
+import hr.fer.zemris.java.hw05.db.ListStudentStorage;
+import hr.fer.zemris.java.hw05.db.MappedDatabaseLoader;
+import hr.fer.zemris.java.hw05.db.Ordering;
+import hr.fer.zemris.java.hw05.db.QueryParser;
+import hr.fer.zemris.java.hw05.db.StudentDatabase;
+import hr.fer.zemris.java.hw05.db.StudentRecord;
+
+/**
+ * MixedReadWriteBenchmark is a program which measures the throughput of concurrent readers
+ * while one writer keeps updating random records of a generated database. Each reader plans
+ * and executes queries ordered by last name with a limit of 20, and the writer updates the
+ * grade of one record and then pauses. Every combination of 8 and 32 readers and pauses of
+ * 100, 10 and 0 ms is measured for 10 seconds, once reading the versions of the database
+ * without locks and once with a read-write lock around every query and every update, under
+ * which the writer also builds the indexes as the database did before it had versions.
+ * The number of rows can be given as an argument, the default is 200k.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class MixedReadWriteBenchmark {
+
+	/**
+	 * Numbers of readers which are measured.
+	 */
+	private static final int[] READERS = {8, 32};
+	/**
+	 * Pauses of the writer after each update which are measured, in milliseconds.
+	 */
+	private static final long[] PAUSES = {100, 10, 0};
+	/**
+	 * Duration of each measurement, in milliseconds.
+	 */
+	private static final long DURATION = 10_000;
+	/**
+	 * Queries the readers run.
+	 */
+	private static final String[] QUERIES = {"jmbag = \"0000001234\"", "lastName LIKE \"Bo*\" AND grade = 5",
+			"grade = 3 AND firstName = \"Ivan\"", "lastName = \"Zekić\""};
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		var database = MappedDatabaseLoader.load(DatabaseGenerator.generate(rows), new ListStudentStorage());
+		database.buildIndexes();
+		System.out.format("Generated %,d rows, %d available processors%n", rows,
+				Runtime.getRuntime().availableProcessors());
+
+		for(int readers : READERS) {
+			for(long pause : PAUSES) {
+				measure(database, rows, readers, pause, false);
+				measure(database, rows, readers, pause, true);
+			}
+		}
+	}
+
+	/**
+	 * A method which runs the readers and the writer for {@link #DURATION} and prints the
+	 * throughputs and the latencies of the queries.
+	 * @param database - the database.
+	 * @param rows - number of rows of the database.
+	 * @param readers - number of readers.
+	 * @param pause - pause of the writer after each update, in milliseconds.
+	 * @param locked - whether the queries and updates are done under a read-write lock.
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	private static void measure(StudentDatabase database, int rows, int readers, long pause, boolean locked)
+			throws InterruptedException {
+		ReadWriteLock lock = new ReentrantReadWriteLock();
+		var queries = new IQueryExpression[QUERIES.length];
+		for(int i = 0; i < queries.length; i++) {
+			queries[i] = new QueryParser(QUERIES[i]).getExpression();
+		}
+		var ordering = new Ordering(FieldValueGetters.LAST_NAME, false);
+
+		var reads = new AtomicLong();
+		var writes = new AtomicLong();
+		var stop = new AtomicBoolean();
+		long[][] latencies = new long[readers][];
+		List<Thread> threads = new ArrayList<>();
+		for(int reader = 0; reader < readers; reader++) {
+			int id = reader;
+			threads.add(new Thread(() -> {
+				var random = new Random(id);
+				long[] own = new long[1 << 16];
+				int count = 0;
+				while(!stop.get()) {
+					long start = System.nanoTime();
+					if(locked) lock.readLock().lock();
+					try {
+						database.execute(database.plan(queries[random.nextInt(queries.length)]), ordering, 0, 20);
+					} finally {
+						if(locked) lock.readLock().unlock();
+					}
+					if(count == own.length) own = Arrays.copyOf(own, count * 2);
+					own[count++] = System.nanoTime() - start;
+				}
+				reads.addAndGet(count);
+				latencies[id] = Arrays.copyOf(own, count);
+			}));
+		}
+		threads.add(new Thread(() -> {
+			var random = new Random(rows);
+			while(!stop.get()) {
+				var jmbag = new QueryParser(String.format("jmbag = \"%010d\"", 1 + random.nextInt(rows))).getExpression();
+				if(locked) lock.writeLock().lock();
+				try {
+					database.update(jmbag, record -> new StudentRecord(record.getJmbag(), record.getFirstName(),
+							record.getLastName(), record.getGrade() % 5 + 1));
+					if(locked) database.buildIndexes();
+				} catch(IOException e) {
+					throw new RuntimeException(e);
+				} finally {
+					if(locked) lock.writeLock().unlock();
+				}
+				writes.incrementAndGet();
+				try {
+					Thread.sleep(pause);
+				} catch(InterruptedException e) {
+					return;
+				}
+			}
+		}));
+
+		threads.forEach(Thread::start);
+		Thread.sleep(DURATION);
+		stop.set(true);
+		for(var thread : threads) {
+			thread.join();
+		}
+
+		long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+		System.out.format("%-15s | %2d readers | pause %3d ms | %,8.0f reads/s | %6.1f writes/s"
+				+ " | p50 %6.2f ms | p99 %7.2f ms%n", locked ? "read-write lock" : "versions", readers, pause,
+				reads.get() * 1000.0 / DURATION, writes.get() * 1000.0 / DURATION,
+				all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6);
+	}
+}
@@ -0,0 +1,37 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.hw05.db.ColumnarStudentStorage;
+import hr.fer.zemris.java.hw05.db.MappedDatabaseLoader;
+
+/**
+ * ParallelLoadBenchmark is a program which measures how the time needed to load a generated
+ * database file with {@link MappedDatabaseLoader} scales with the number of threads (1, 2, 4, 8 and 16).
+ * The number of rows can be given as an argument, the default is 10M.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class ParallelLoadBenchmark {
+	
+	public static void main(String[] args) throws IOException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		Path path = DatabaseGenerator.generate(rows);
+		System.out.format("Generated %,d rows (%,d bytes), %d cores available%n", rows, Files.size(path),
+				Runtime.getRuntime().availableProcessors());
+		
+		for(int round = 0; round < 2; round++) {
+			for(int threads = 1; threads <= 16; threads *= 2) {
+				long start = System.nanoTime();
+				MappedDatabaseLoader.load(path, new ColumnarStudentStorage(), threads);
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				if(round == 1) {
+					System.out.format("%2d threads: %,d ms%n", threads, millis);
+				}
+			}
+		}
+	}
+}
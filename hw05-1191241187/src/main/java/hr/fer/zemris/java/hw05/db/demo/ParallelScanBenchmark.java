@@ -0,0 +1,69 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.hw05.db.ColumnarStudentStorage;
+import hr.fer.zemris.java.hw05.db.IFilter;
+import hr.fer.zemris.java.hw05.db.ListStudentStorage;
+import hr.fer.zemris.java.hw05.db.MappedDatabaseLoader;
+import hr.fer.zemris.java.hw05.db.QueryCompiler;
+import hr.fer.zemris.java.hw05.db.QueryParser;
+import hr.fer.zemris.java.hw05.db.StudentDatabase;
+
+/**
+ * ParallelScanBenchmark is a program which measures the throughput of full scans of a generated
+ * database with 1, 4, 8 and 16 threads, on both storages.
+ * The number of rows can be given as an argument, the default is 10M.
+ * Run it with a large enough heap, e.g. {@code -Xmx8g}.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class ParallelScanBenchmark {
+
+	/**
+	 * Numbers of threads which are measured.
+	 */
+	private static final int[] THREADS = {1, 4, 8, 16};
+
+	public static void main(String[] args) throws IOException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		Path path = DatabaseGenerator.generate(rows);
+		System.out.format("Generated %,d rows, %d available processors%n", rows,
+				Runtime.getRuntime().availableProcessors());
+
+		IFilter filter = QueryCompiler.compile(
+				new QueryParser("lastName LIKE \"*ić\" and firstName > \"M\"").getQuery());
+
+		var list = MappedDatabaseLoader.load(path, new ListStudentStorage());
+		measure("list storage", list, filter, rows);
+		list = null;
+
+		var columnar = MappedDatabaseLoader.load(path, new ColumnarStudentStorage());
+		measure("columnar storage", columnar, filter, rows);
+	}
+
+	/**
+	 * A method which scans a database with each number of threads and prints the throughputs.
+	 * @param name - name of the storage.
+	 * @param database - the database.
+	 * @param filter - the filter.
+	 * @param rows - number of rows of the database.
+	 */
+	private static void measure(String name, StudentDatabase database, IFilter filter, int rows) {
+		System.out.println(name);
+		for(int threads : THREADS) {
+			database.setParallelism(threads);
+			long best = Long.MAX_VALUE;
+			int selected = 0;
+			for(int round = 0; round < 5; round++) {
+				long start = System.nanoTime();
+				selected = database.filter(filter).size();
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			System.out.format("  %2d threads: %,.0f rows/s (%,d selected)%n", threads, rows * 1e9 / best, selected);
+		}
+		database.setParallelism(1);
+	}
+}
@@ -0,0 +1,56 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.hw05.db.ListStudentStorage;
+import hr.fer.zemris.java.hw05.db.MappedDatabaseLoader;
+import hr.fer.zemris.java.hw05.db.QueryParser;
+import hr.fer.zemris.java.hw05.db.StudentDatabase;
+
+/**
+ * PreparedQueryBenchmark is a program which measures the throughput of point queries on a
+ * generated database, once parsing and planning every query and once binding the values to
+ * a prepared query. Every query looks up a different JMBAG, so the query cache doesn't help.
+ * The number of rows can be given as an argument, the default is 1M.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class PreparedQueryBenchmark {
+
+	/**
+	 * Number of queries of a round.
+	 */
+	private static final int QUERIES = 200_000;
+
+	public static void main(String[] args) throws IOException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Path path = DatabaseGenerator.generate(rows);
+		var database = MappedDatabaseLoader.load(path, new ListStudentStorage());
+		database.buildIndexes();
+		System.out.format("Generated %,d rows%n", rows);
+
+		var prepared = database.prepare("jmbag = ? and lastName LIKE ?");
+		long found = 0;
+		for(int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			for(int i = 0; i < QUERIES; i++) {
+				String jmbag = String.format("%010d", i % rows + 1);
+				found += database.query(new QueryParser("jmbag = \"" + jmbag + "\" and lastName LIKE \"*ć\"").getQuery()).size();
+			}
+			long parsed = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int i = 0; i < QUERIES; i++) {
+				String jmbag = String.format("%010d", i % rows + 1);
+				found += prepared.execute(jmbag, "*ć").size();
+			}
+			long bound = System.nanoTime() - start;
+
+			System.out.format("round %d: parsed %,.0f queries/s, prepared %,.0f queries/s%n", round + 1,
+					QUERIES * 1e9 / parsed, QUERIES * 1e9 / bound);
+		}
+		System.out.format("%,d records found, %s%n", found, database.getCache());
+	}
+}
@@ -0,0 +1,54 @@
+package hr.fer.zemris.java.hw05.db.demo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.hw05.db.ColumnarStudentStorage;
+import hr.fer.zemris.java.hw05.db.DatabaseSnapshot;
+import hr.fer.zemris.java.hw05.db.MappedDatabaseLoader;
+
+/**
+ * SnapshotBenchmark is a program which compares the startup time of loading a generated
+ * database file from text with opening its {@link DatabaseSnapshot}, for 1M and 10M rows.
+ * Other row counts can be given as arguments.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class SnapshotBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int[] sizes = {1_000_000, 10_000_000};
+		if(args.length > 0) {
+			sizes = new int[args.length];
+			for(int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		
+		for(int rows : sizes) {
+			Path source = DatabaseGenerator.generate(rows);
+			Path snapshot = Files.createTempFile("database", ".snapshot");
+			snapshot.toFile().deleteOnExit();
+			
+			long start = System.nanoTime();
+			var storage = new ColumnarStudentStorage();
+			MappedDatabaseLoader.load(source, storage, Runtime.getRuntime().availableProcessors());
+			long textMillis = (System.nanoTime() - start) / 1_000_000;
+			
+			start = System.nanoTime();
+			DatabaseSnapshot.write(storage, snapshot, source);
+			long writeMillis = (System.nanoTime() - start) / 1_000_000;
+			storage = null;
+			
+			start = System.nanoTime();
+			var opened = DatabaseSnapshot.read(snapshot, source);
+			long openMillis = (System.nanoTime() - start) / 1_000_000;
+			
+			System.out.format("%,12d rows | text load %,6d ms | snapshot write %,6d ms (%,d bytes)"
+					+ " | snapshot open %,6d ms (%,d rows)%n", rows, textMillis, writeMillis,
+					Files.size(snapshot), openMillis, opened.size());
+		}
+	}
+}
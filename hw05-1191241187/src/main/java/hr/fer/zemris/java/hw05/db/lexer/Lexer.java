@@ -2,180 +2,397 @@ package hr.fer.zemris.java.hw05.db.lexer;
 
 import java.util.Objects;
 
+import hr.fer.zemris.java.hw05.db.Aggregate;
 import hr.fer.zemris.java.hw05.db.ComparisonOperators;
 import hr.fer.zemris.java.hw05.db.FieldValueGetters;
 
+/**
+ * Lexer is a class which splits the text of a query into tokens. Tokens are recognised in a
+ * single pass by dispatching on their first character and comparing keywords in place, so
+ * only string literals and numbers allocate; tokens without a value of their own are shared.
+ * Keywords AND, OR, NOT, LIMIT, OFFSET, GROUP, ORDER, BY, ASC, DESC, WHERE and the aggregate
+ * functions are case-insensitive, the others aren't, and no keyword may be followed directly
+ * by a letter or a digit.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
 public class Lexer {
 
 	/**
-	 * A field of characters which represents the text
-	 * this instance is working on.
+	 * Token which represents the end of the text.
 	 */
-	private char[] data;
+	private static final Token EOF = new Token(TokenType.EOF, null);
+	/**
+	 * Token of the AND keyword.
+	 */
+	private static final Token AND = new Token(TokenType.AND, null);
+	/**
+	 * Token of the OR keyword.
+	 */
+	private static final Token OR = new Token(TokenType.OR, null);
+	/**
+	 * Token of the NOT keyword.
+	 */
+	private static final Token NOT = new Token(TokenType.NOT, null);
+	/**
+	 * Token of an opening parenthesis.
+	 */
+	private static final Token OPEN_PARENTHESIS = new Token(TokenType.OPEN_PARENTHESIS, null);
+	/**
+	 * Token of a closing parenthesis.
+	 */
+	private static final Token CLOSED_PARENTHESIS = new Token(TokenType.CLOSED_PARENTHESIS, null);
+	/**
+	 * Token of a comma.
+	 */
+	private static final Token COMMA = new Token(TokenType.COMMA, null);
+	/**
+	 * Token of the GROUP keyword.
+	 */
+	private static final Token GROUP = new Token(TokenType.GROUP, null);
+	/**
+	 * Token of the BY keyword.
+	 */
+	private static final Token BY = new Token(TokenType.BY, null);
+	/**
+	 * Token of the ORDER keyword.
+	 */
+	private static final Token ORDER = new Token(TokenType.ORDER, null);
+	/**
+	 * Token of the ASC keyword.
+	 */
+	private static final Token ASC = new Token(TokenType.ASC, null);
+	/**
+	 * Token of the DESC keyword.
+	 */
+	private static final Token DESC = new Token(TokenType.DESC, null);
+	/**
+	 * Token of the WHERE keyword.
+	 */
+	private static final Token WHERE = new Token(TokenType.WHERE, null);
+	/**
+	 * Token of the COUNT function.
+	 */
+	private static final Token COUNT = new Token(TokenType.FUNCTION, Aggregate.Function.COUNT);
+	/**
+	 * Token of the AVG function.
+	 */
+	private static final Token AVG = new Token(TokenType.FUNCTION, Aggregate.Function.AVG);
+	/**
+	 * Token of the MIN function.
+	 */
+	private static final Token MIN = new Token(TokenType.FUNCTION, Aggregate.Function.MIN);
+	/**
+	 * Token of the MAX function.
+	 */
+	private static final Token MAX = new Token(TokenType.FUNCTION, Aggregate.Function.MAX);
+	/**
+	 * Token of the LIMIT keyword.
+	 */
+	private static final Token LIMIT = new Token(TokenType.LIMIT, null);
+	/**
+	 * Token of the OFFSET keyword.
+	 */
+	private static final Token OFFSET = new Token(TokenType.OFFSET, null);
+	/**
+	 * Token of a placeholder.
+	 */
+	private static final Token PARAMETER = new Token(TokenType.PARAMETER, null);
+	/**
+	 * Token of the = operator.
+	 */
+	private static final Token EQUALS = new Token(TokenType.OPERATOR, ComparisonOperators.EQUALS);
+	/**
+	 * Token of the != operator.
+	 */
+	private static final Token NOT_EQUALS = new Token(TokenType.OPERATOR, ComparisonOperators.NOT_EQUALS);
+	/**
+	 * Token of the &lt; operator.
+	 */
+	private static final Token LESS = new Token(TokenType.OPERATOR, ComparisonOperators.LESS);
+	/**
+	 * Token of the &lt;= operator.
+	 */
+	private static final Token LESS_OR_EQUALS = new Token(TokenType.OPERATOR, ComparisonOperators.LESS_OR_EQUALS);
+	/**
+	 * Token of the &gt; operator.
+	 */
+	private static final Token GREATER = new Token(TokenType.OPERATOR, ComparisonOperators.GREATER);
+	/**
+	 * Token of the &gt;= operator.
+	 */
+	private static final Token GREATER_OR_EQUALS = new Token(TokenType.OPERATOR, ComparisonOperators.GREATER_OR_EQUALS);
+	/**
+	 * Token of the LIKE operator.
+	 */
+	private static final Token LIKE = new Token(TokenType.OPERATOR, ComparisonOperators.LIKE);
+	/**
+	 * Token of the jmbag field.
+	 */
+	private static final Token JMBAG = new Token(TokenType.FIELD, FieldValueGetters.JMBAG);
+	/**
+	 * Token of the lastName field.
+	 */
+	private static final Token LAST_NAME = new Token(TokenType.FIELD, FieldValueGetters.LAST_NAME);
+	/**
+	 * Token of the firstName field.
+	 */
+	private static final Token FIRST_NAME = new Token(TokenType.FIELD, FieldValueGetters.FIRST_NAME);
+	/**
+	 * Token of the grade field.
+	 */
+	private static final Token GRADE = new Token(TokenType.FIELD, FieldValueGetters.GRADE);
+
 	/**
 	 * Original text that is lexed.
 	 */
 	private String text;
-	
+	/**
+	 * Length of the text.
+	 */
+	private int length;
+
 	/**
 	 * A reference to the current token.
 	 */
 	private Token token;
-	
+
 	/**
 	 * The index of the first not read character.
 	 */
 	private int currentIndex;
-	
-	
-	
+	/**
+	 * The index of the first character of the current token.
+	 */
+	private int tokenStart;
+
 	/**
 	 * A constructor for class Lexer. It creates a new lexer
-	 * which lexes the given text. LexerState is set to text.
-	 * 
+	 * which lexes the given text.
+	 *
 	 * @param text A text which is lexed.
 	 * @throws NullPointerException if text is null.
 	 */
 	public Lexer(String text) {
 		Objects.requireNonNull(text);
-		data = text.toCharArray();
 		this.text = text;
+		this.length = text.length();
 	}
-	
-	
+
 	/**
-	 * A method which generates and returns the next
-	 * token. It throws LexerException if there was an error.
-	 * The mode is switched if symbol-typed token with the value of '#' was read.
-	 * 
+	 * A method which generates and returns the next token.
+	 *
 	 * @return Returns the next token.
-	 * @throws RuntimeException if an error had occurred.
-	 */
-	public Token nextToken() {		
-		if(token != null && token.getType() == TokenType.EOF) {
-			throw new RuntimeException();
-		}	
-		
-		generateNextToken();
-		return getToken();
+	 * @throws LexerException if the text can't be split into tokens, or if
+	 * 		   a token is requested after the end of the text.
+	 */
+	public Token nextToken() {
+		if(token == EOF) {
+			throw new LexerException("No tokens after the end of the text", length);
+		}
+
+		token = generateNextToken();
+		return token;
 	}
-		
+
 	/**
 	 * A method which returns the last generated token.
 	 * It doesn't generate a new one in the process.
-	 * 
-	 * @return Returns the last generated token
+	 *
+	 * @return Returns the last generated token, or null if there is none.
 	 */
 	public Token getToken() {
-		if(token == null) {
-			return null;
-		}
 		return token;
 	}
-	
+
+	/**
+	 * A getter for the position of the last generated token.
+	 * @return the index of its first character.
+	 */
+	public int getPosition() {
+		return tokenStart;
+	}
 
 	/**
 	 * A private method which generates the next token.
-	 * @throws RuntimeException id something goes wrong.
+	 * @return the token.
+	 * @throws LexerException if the text can't be split into tokens.
 	 */
-	private void generateNextToken() {
+	private Token generateNextToken() {
 		skipBlanks();
-		if(currentIndex == text.length()) {
-			token = new Token(TokenType.EOF, null);
-			return;
-		}
+		tokenStart = currentIndex;
+		if(currentIndex == length) return EOF;
 
-		String literal = "=";
-		if(text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.OPERATOR, ComparisonOperators.EQUALS);
-			currentIndex += literal.length();
-			return;
-		}
-		literal = "<=";
-		if(currentIndex+2 <= data.length && text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.OPERATOR, ComparisonOperators.LESS_OR_EQUALS);
-			currentIndex += literal.length();
-			return;
-		}
-		literal = ">=";
-		if(currentIndex+2 <= data.length && text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.OPERATOR, ComparisonOperators.GREATER_OR_EQUALS);
-			currentIndex += literal.length();
-			return;
-		}
-		literal = "<";
-		if(text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.OPERATOR, ComparisonOperators.LESS);
-			currentIndex += literal.length();
-			return;
-		}
-		literal = ">";
-		if(text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.OPERATOR, ComparisonOperators.GREATER);
-			currentIndex += literal.length();
-			return;
-		}
-		
-		if(text.charAt(currentIndex) == '"') {
-			int i = currentIndex;
-			do {
-				currentIndex++;
-			} while(text.charAt(currentIndex) != '"');
-			token = new Token(TokenType.STRING, text.substring(i+1, currentIndex));
+		char c = text.charAt(currentIndex);
+		switch(c) {
+		case '=':
 			currentIndex++;
-			return;
-		}
-		
-		literal = "!=";
-		if(text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.OPERATOR, ComparisonOperators.NOT_EQUALS);
-			currentIndex += literal.length();
-			return;
+			return EQUALS;
+		case '<':
+			return operator(LESS, LESS_OR_EQUALS);
+		case '>':
+			return operator(GREATER, GREATER_OR_EQUALS);
+		case '!':
+			if(currentIndex + 1 < length && text.charAt(currentIndex + 1) == '=') {
+				currentIndex += 2;
+				return NOT_EQUALS;
+			}
+			break;
+		case '?':
+			currentIndex++;
+			return PARAMETER;
+		case '(':
+			currentIndex++;
+			return OPEN_PARENTHESIS;
+		case ')':
+			currentIndex++;
+			return CLOSED_PARENTHESIS;
+		case ',':
+			currentIndex++;
+			return COMMA;
+		case '"':
+			return string();
+		case 'a':
+		case 'A':
+			if(keyword("AND", true)) return AND;
+			if(keyword("AVG", true)) return AVG;
+			if(keyword("ASC", true)) return ASC;
+			break;
+		case 'b':
+		case 'B':
+			if(keyword("BY", true)) return BY;
+			break;
+		case 'c':
+		case 'C':
+			if(keyword("COUNT", true)) return COUNT;
+			break;
+		case 'd':
+		case 'D':
+			if(keyword("DESC", true)) return DESC;
+			break;
+		case 'g':
+			if(keyword("grade", false)) return GRADE;
+			if(keyword("GROUP", true)) return GROUP;
+			break;
+		case 'G':
+			if(keyword("GROUP", true)) return GROUP;
+			break;
+		case 'm':
+		case 'M':
+			if(keyword("MIN", true)) return MIN;
+			if(keyword("MAX", true)) return MAX;
+			break;
+		case 'l':
+			if(keyword("lastName", false)) return LAST_NAME;
+			if(keyword("LIMIT", true)) return LIMIT;
+			break;
+		case 'L':
+			if(keyword("LIKE", false)) return LIKE;
+			if(keyword("LIMIT", true)) return LIMIT;
+			break;
+		case 'o':
+		case 'O':
+			if(keyword("OFFSET", true)) return OFFSET;
+			if(keyword("OR", true)) return OR;
+			if(keyword("ORDER", true)) return ORDER;
+			break;
+		case 'n':
+		case 'N':
+			if(keyword("NOT", true)) return NOT;
+			break;
+		case 'j':
+			if(keyword("jmbag", false)) return JMBAG;
+			break;
+		case 'f':
+			if(keyword("firstName", false)) return FIRST_NAME;
+			break;
+		case 'w':
+		case 'W':
+			if(keyword("WHERE", true)) return WHERE;
+			break;
+		default:
+			if(c >= '0' && c <= '9') return number();
 		}
-		
-		literal = "AND";
-		if(text.substring(currentIndex, currentIndex+literal.length()).toUpperCase().equals(literal)) {
-			token = new Token(TokenType.AND, null);
-			currentIndex += literal.length();
-			return;
+
+		throw new LexerException("Unexpected character '" + c + "'", currentIndex);
+	}
+
+	/**
+	 * A method which reads a one character operator which can be followed by '='.
+	 * @param single - token of the operator without '='.
+	 * @param withEquals - token of the operator followed by '='.
+	 * @return the token.
+	 */
+	private Token operator(Token single, Token withEquals) {
+		currentIndex++;
+		if(currentIndex < length && text.charAt(currentIndex) == '=') {
+			currentIndex++;
+			return withEquals;
 		}
-		literal = "LIKE";
-		if(text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.OPERATOR, ComparisonOperators.LIKE);
-			currentIndex += literal.length();
-			return;
-		}		
-		literal = "jmbag";
-		if(text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.FIELD, FieldValueGetters.JMBAG);
-			currentIndex += literal.length();
-			return;
+		return single;
+	}
+
+	/**
+	 * A method which reads a string literal in double quotes.
+	 * @return the token.
+	 * @throws LexerException if the literal isn't closed.
+	 */
+	private Token string() {
+		int end = text.indexOf('"', currentIndex + 1);
+		if(end == -1) {
+			throw new LexerException("Unterminated string literal", currentIndex);
 		}
-		literal = "lastName";
-		if(text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.FIELD, FieldValueGetters.LAST_NAME);
-			currentIndex += literal.length();
-			return;
+		var literal = new Token(TokenType.STRING, text.substring(currentIndex + 1, end));
+		currentIndex = end + 1;
+		return literal;
+	}
+
+	/**
+	 * A method which reads a non-negative whole number.
+	 * @return the token.
+	 * @throws LexerException if the number is too large for an int.
+	 */
+	private Token number() {
+		long value = 0;
+		while(currentIndex < length) {
+			char c = text.charAt(currentIndex);
+			if(c < '0' || c > '9') break;
+			value = value * 10 + (c - '0');
+			if(value > Integer.MAX_VALUE) {
+				throw new LexerException("Number is too large", tokenStart);
+			}
+			currentIndex++;
 		}
-		literal = "firstName";
-		if(text.substring(currentIndex, currentIndex+literal.length()).equals(literal)) {
-			token = new Token(TokenType.FIELD, FieldValueGetters.FIRST_NAME);
-			currentIndex += literal.length();
-			return;
+		return new Token(TokenType.NUMBER, (int) value);
+	}
+
+	/**
+	 * A method which checks whether a keyword starts at the current index, without being
+	 * followed by a letter or a digit, and moves past it if it does.
+	 * @param keyword - the keyword, in upper case if it is case-insensitive.
+	 * @param ignoreCase - whether the case of the letters is ignored.
+	 * @return true if the keyword was read, false otherwise.
+	 */
+	private boolean keyword(String keyword, boolean ignoreCase) {
+		int end = currentIndex + keyword.length();
+		if(end > length || !text.regionMatches(ignoreCase, currentIndex, keyword, 0, keyword.length())) {
+			return false;
 		}
-		
-		throw new RuntimeException();
+		if(end < length && Character.isLetterOrDigit(text.charAt(end))) return false;
+
+		currentIndex = end;
+		return true;
 	}
 
-	
 	/**
 	 * A method which moves the cursor currentIndex of a lexer
 	 * to the next non-whitespace character. It stops if the whole
-	 * string {@code data} was read.
+	 * text was read.
 	 */
-	private void skipBlanks() {		
-		while(currentIndex < data.length) {
-			switch(data[currentIndex]) {
+	private void skipBlanks() {
+		while(currentIndex < length) {
+			switch(text.charAt(currentIndex)) {
 			case ' ':
 			case '\r':
 			case '\n':
@@ -0,0 +1,36 @@
+package hr.fer.zemris.java.hw05.db.lexer;
+
+/**
+ * LexerException is an exception which is thrown by {@link Lexer} when the text
+ * can't be split into tokens. It holds the position of the offending character.
+ *
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class LexerException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Index of the character the error was found at.
+	 */
+	private int position;
+
+	/**
+	 * A constructor for this class.
+	 * @param message - description of the error.
+	 * @param position - index of the character the error was found at.
+	 */
+	public LexerException(String message, int position) {
+		super(message + " at position " + position + ".");
+		this.position = position;
+	}
+
+	/**
+	 * A getter for the index of the character the error was found at.
+	 * @return the index.
+	 */
+	public int getPosition() {
+		return position;
+	}
+}
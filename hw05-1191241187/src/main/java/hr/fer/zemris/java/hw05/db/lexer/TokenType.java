@@ -33,4 +33,84 @@ public enum TokenType {
 	 */
 	OPERATOR,
 	
+	/**
+	 * A type which represents a non-negative whole number.
+	 */
+	NUMBER,
+	
+	/**
+	 * A type which represents the keyword which limits the number of results.
+	 */
+	LIMIT,
+	
+	/**
+	 * A type which represents the keyword which skips some of the results.
+	 */
+	OFFSET,
+	
+	/**
+	 * A type which represents a placeholder for a literal which is bound later.
+	 */
+	PARAMETER,
+	
+	/**
+	 * A type which represents a token for alternatives.
+	 */
+	OR,
+	
+	/**
+	 * A type which represents a token for negation.
+	 */
+	NOT,
+	
+	/**
+	 * A type which represents an opening parenthesis.
+	 */
+	OPEN_PARENTHESIS,
+	
+	/**
+	 * A type which represents a closing parenthesis.
+	 */
+	CLOSED_PARENTHESIS,
+	
+	/**
+	 * A type which represents an aggregate function.
+	 */
+	FUNCTION,
+	
+	/**
+	 * A type which represents a comma between aggregate functions.
+	 */
+	COMMA,
+	
+	/**
+	 * A type which represents the first keyword of the clause which groups the results.
+	 */
+	GROUP,
+	
+	/**
+	 * A type which represents the second keyword of the clauses which group and order the results.
+	 */
+	BY,
+	
+	/**
+	 * A type which represents the first keyword of the clause which orders the results.
+	 */
+	ORDER,
+	
+	/**
+	 * A type which represents the keyword of the ascending order.
+	 */
+	ASC,
+	
+	/**
+	 * A type which represents the keyword of the descending order.
+	 */
+	DESC,
+	
+	/**
+	 * A type which represents the keyword which separates the changes of an update from its conditions.
+	 */
+	WHERE,
+	
 }
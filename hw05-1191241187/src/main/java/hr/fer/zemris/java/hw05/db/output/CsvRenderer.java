@@ -0,0 +1,73 @@
+package hr.fer.zemris.java.hw05.db.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+import hr.fer.zemris.java.hw05.db.StudentRecord;
+
+/**
+ * CsvRenderer is a renderer which writes records as comma separated values, with a header
+ * line with names of the fields. Values containing commas, quotes or line breaks are quoted
+ * and their quotes are doubled.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class CsvRenderer implements IRecordRenderer {
+
+	/**
+	 * The header line.
+	 */
+	private static final String HEADER = "jmbag,lastName,firstName,grade\n";
+	
+	@Override
+	public int render(Iterator<StudentRecord> records, Writer out) throws IOException {
+		out.write(HEADER);
+		
+		int count = 0;
+		while(records.hasNext()) {
+			var record = records.next();
+			writeValue(out, record.getJmbag());
+			out.write(',');
+			writeValue(out, record.getLastName());
+			out.write(',');
+			writeValue(out, record.getFirstName());
+			out.write(',');
+			out.write('0' + record.getGrade());
+			out.write('\n');
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * A method which writes a value, quoting it if needed.
+	 * @param out - the writer.
+	 * @param value - the value.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private static void writeValue(Writer out, String value) throws IOException {
+		boolean quoted = false;
+		for(int i = 0; i < value.length() && !quoted; i++) {
+			char c = value.charAt(i);
+			quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if(!quoted) {
+			out.write(value);
+			return;
+		}
+		
+		out.write('"');
+		int start = 0;
+		for(int i = 0; i < value.length(); i++) {
+			if(value.charAt(i) == '"') {
+				out.write(value, start, i + 1 - start);
+				out.write('"');
+				start = i + 1;
+			}
+		}
+		out.write(value, start, value.length() - start);
+		out.write('"');
+	}
+}
@@ -0,0 +1,27 @@
+package hr.fer.zemris.java.hw05.db.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+import hr.fer.zemris.java.hw05.db.StudentRecord;
+
+/**
+ * IRecordRenderer is an interface for objects which write StudentRecords to a Writer
+ * in some format. Records are written as they are taken from the iterator, so results
+ * of a query don't have to be collected before they are written.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public interface IRecordRenderer {
+
+	/**
+	 * A method which writes all the records of an iterator. The writer isn't flushed or closed.
+	 * @param records - the records.
+	 * @param out - the writer.
+	 * @return number of written records.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	public int render(Iterator<StudentRecord> records, Writer out) throws IOException;
+}
@@ -0,0 +1,69 @@
+package hr.fer.zemris.java.hw05.db.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+import hr.fer.zemris.java.hw05.db.StudentRecord;
+
+/**
+ * JsonLinesRenderer is a renderer which writes every record as a JSON object on its own line.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class JsonLinesRenderer implements IRecordRenderer {
+
+	/**
+	 * Hexadecimal digits used for escaping control characters.
+	 */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	@Override
+	public int render(Iterator<StudentRecord> records, Writer out) throws IOException {
+		int count = 0;
+		while(records.hasNext()) {
+			var record = records.next();
+			out.write("{\"jmbag\":");
+			writeString(out, record.getJmbag());
+			out.write(",\"lastName\":");
+			writeString(out, record.getLastName());
+			out.write(",\"firstName\":");
+			writeString(out, record.getFirstName());
+			out.write(",\"grade\":");
+			out.write(Integer.toString(record.getGrade()));
+			out.write("}\n");
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * A method which writes a JSON string, escaping quotes, backslashes and control characters.
+	 * @param out - the writer.
+	 * @param value - the value.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private static void writeString(Writer out, String value) throws IOException {
+		out.write('"');
+		int start = 0;
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c != '"' && c != '\\' && c >= 0x20) continue;
+			
+			out.write(value, start, i - start);
+			out.write('\\');
+			if(c == '"' || c == '\\') {
+				out.write(c);
+			} else {
+				out.write('u');
+				out.write("00");
+				out.write(HEX[c >> 4]);
+				out.write(HEX[c & 0xF]);
+			}
+			start = i + 1;
+		}
+		out.write(value, start, value.length() - start);
+		out.write('"');
+	}
+}
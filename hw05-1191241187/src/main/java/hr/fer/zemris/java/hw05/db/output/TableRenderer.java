@@ -0,0 +1,132 @@
+package hr.fer.zemris.java.hw05.db.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import hr.fer.zemris.java.hw05.db.StudentRecord;
+
+/**
+ * TableRenderer is a renderer which writes records as a table framed by lines of '=' signs,
+ * followed by the number of selected records. Widths of the columns have to be known before
+ * the first record is written. They are either computed from a list of records in one pass,
+ * or taken from the longest values of the whole database, so that records can be streamed.
+ * 
+ * @author Božidar Grgur Drmić
+ *
+ */
+public class TableRenderer implements IRecordRenderer {
+
+	/**
+	 * Spaces used for padding, written in slices.
+	 */
+	private static final char[] SPACES = new char[64];
+	
+	static {
+		Arrays.fill(SPACES, ' ');
+	}
+	
+	/**
+	 * Width of the JMBAG column.
+	 */
+	private int jmbagWidth;
+	/**
+	 * Width of the last name column.
+	 */
+	private int lastNameWidth;
+	/**
+	 * Width of the first name column.
+	 */
+	private int firstNameWidth;
+	
+	/**
+	 * A constructor for this class.
+	 * @param jmbagWidth - width of the JMBAG column.
+	 * @param lastNameWidth - width of the last name column.
+	 * @param firstNameWidth - width of the first name column.
+	 */
+	public TableRenderer(int jmbagWidth, int lastNameWidth, int firstNameWidth) {
+		this.jmbagWidth = jmbagWidth;
+		this.lastNameWidth = lastNameWidth;
+		this.firstNameWidth = firstNameWidth;
+	}
+	
+	/**
+	 * A method which returns the renderer whose columns are exactly as wide as the longest
+	 * values of a list of records.
+	 * @param records - the records.
+	 * @return the renderer.
+	 */
+	public static TableRenderer fitting(List<StudentRecord> records) {
+		int jmbagWidth = 0, lastNameWidth = 0, firstNameWidth = 0;
+		for(var record : records) {
+			jmbagWidth = Math.max(jmbagWidth, record.getJmbag().length());
+			lastNameWidth = Math.max(lastNameWidth, record.getLastName().length());
+			firstNameWidth = Math.max(firstNameWidth, record.getFirstName().length());
+		}
+		return new TableRenderer(jmbagWidth, lastNameWidth, firstNameWidth);
+	}
+	
+	@Override
+	public int render(Iterator<StudentRecord> records, Writer out) throws IOException {
+		if(!records.hasNext()) {
+			out.write("Records selected: 0\n");
+			return 0;
+		}
+		
+		char[] border = border();
+		out.write(border);
+		
+		int count = 0;
+		while(records.hasNext()) {
+			var record = records.next();
+			out.write("| ");
+			writePadded(out, record.getJmbag(), jmbagWidth);
+			out.write(" | ");
+			writePadded(out, record.getLastName(), lastNameWidth);
+			out.write(" | ");
+			writePadded(out, record.getFirstName(), firstNameWidth);
+			out.write(" | ");
+			out.write('0' + record.getGrade());
+			out.write(" |\n");
+			count++;
+		}
+		
+		out.write(border);
+		out.write("Records selected: ");
+		out.write(Integer.toString(count));
+		out.write('\n');
+		return count;
+	}
+	
+	/**
+	 * A method which returns the line above and below the records.
+	 * @return the line, ending with a newline.
+	 */
+	private char[] border() {
+		var sb = new StringBuilder();
+		sb.append('+');
+		for(int width : new int[] {jmbagWidth, lastNameWidth, firstNameWidth}) {
+			for(int i = 0; i < width + 2; i++) sb.append('=');
+			sb.append('+');
+		}
+		sb.append("===+\n");
+		return sb.toString().toCharArray();
+	}
+	
+	/**
+	 * A method which writes a value followed by as many spaces as needed to fill a column.
+	 * @param out - the writer.
+	 * @param value - the value.
+	 * @param width - width of the column.
+	 * @throws IOException if something went wrong with writing.
+	 */
+	private static void writePadded(Writer out, String value, int width) throws IOException {
+		out.write(value);
+		for(int padding = width - value.length(); padding > 0; padding -= SPACES.length) {
+			out.write(SPACES, 0, Math.min(padding, SPACES.length));
+		}
+	}
+}
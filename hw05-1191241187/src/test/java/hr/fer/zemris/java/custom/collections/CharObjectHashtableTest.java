@@ -0,0 +1,117 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+
+import org.junit.jupiter.api.Test;
+
+class CharObjectHashtableTest {
+
+	@Test
+	void testPutGetAcrossResizes() {
+		var table = new CharObjectHashtable<String>(2);
+		for(int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+			table.put((char) c, "v" + c);
+		}
+		assertEquals(65_536, table.size());
+		for(int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+			assertEquals("v" + c, table.get((char) c));
+		}
+		assertTrue(table.containsKey('č'));
+	}
+	
+	@Test
+	void testDeletedSlotsAreReused() {
+		var table = new CharObjectHashtable<Integer>(16);
+		for(char c = 'a'; c < 'a' + 12; c++) {
+			table.put(c, (int) c);
+		}
+		for(char c = 'a'; c < 'a' + 12; c += 2) {
+			table.remove(c);
+		}
+		for(char c = 'b'; c < 'a' + 12; c += 2) {
+			assertEquals(c, table.get(c));
+			table.put(c, -c);
+		}
+		assertEquals(6, table.size());
+		for(char c = 'a'; c < 'a' + 12; c += 2) {
+			table.put(c, (int) c);
+		}
+		assertEquals(12, table.size());
+		assertEquals(-'l', table.get('l'));
+		assertEquals('k', table.get('k'));
+	}
+	
+	@Test
+	void testRehashDropsDeletedSlots() {
+		var table = new CharObjectHashtable<Integer>(16);
+		for(char c = 0; c < 10; c++) {
+			table.put(c, (int) c);
+		}
+		for(char c = 0; c < 5000; c++) {
+			table.remove(c);
+			table.put((char) (c + 10), c + 10);
+			assertEquals(10, table.size());
+		}
+		for(char c = 0; c < 5010; c++) {
+			assertEquals(c < 5000 ? null : Integer.valueOf(c), table.get(c));
+		}
+	}
+	
+	@Test
+	void testIteratorRemoveAndSetValue() {
+		var table = new CharObjectHashtable<Integer>();
+		for(char c = 'A'; c <= 'z'; c++) {
+			table.put(c, (int) c);
+		}
+		var iterator = table.iterator();
+		while(iterator.hasNext()) {
+			var entry = iterator.next();
+			if(Character.isUpperCase(entry.getKey())) {
+				iterator.remove();
+			} else {
+				entry.setValue(-entry.getValue());
+			}
+		}
+		assertEquals(32, table.size());
+		assertEquals(-'a', table.get('a'));
+		assertNull(table.get('A'));
+	}
+	
+	@Test
+	void testIteratorIsFailFast() {
+		var table = new CharObjectHashtable<Integer>();
+		table.put('a', 1);
+		table.put('b', 2);
+		var iterator = table.iterator();
+		iterator.next();
+		table.put('c', 3);
+		assertThrows(ConcurrentModificationException.class, () -> iterator.hasNext());
+	}
+
+	@Test
+	void testEntriesCantBeUsedAfterStructuralChanges() {
+		var table = new CharObjectHashtable<Integer>(16);
+		table.put((char) 1, 1);
+		var entry = table.iterator().next();
+		table.put((char) 1, 10);
+		assertEquals(10, entry.getValue());
+		entry.setValue(11);
+		assertEquals(11, table.get((char) 1));
+
+		for(int i = 2; i < 100; i++) {
+			table.put((char) i, i);
+		}
+		assertThrows(ConcurrentModificationException.class, () -> entry.getValue());
+		assertThrows(ConcurrentModificationException.class, () -> entry.setValue(0));
+		assertEquals(11, table.get((char) 1));
+		assertEquals(50, table.get((char) 50));
+
+		var removed = table.iterator().next();
+		table.remove((char) 2);
+		assertThrows(ConcurrentModificationException.class, () -> removed.setValue(0));
+		assertFalse(table.containsValue(0));
+	}
+
+}
@@ -0,0 +1,121 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentSimpleHashtableTest {
+
+	@Test
+	void testPutGetRemove() {
+		var table = new ConcurrentSimpleHashtable<Integer, Integer>();
+		for(int i = 0; i < 10_000; i++) {
+			table.put(i, i);
+		}
+		for(int i = 0; i < 10_000; i += 2) {
+			table.remove(i);
+		}
+		assertEquals(5000, table.size());
+		assertNull(table.get(0));
+		assertEquals(1, table.get(1));
+	}
+	
+	@Test
+	void testConcurrentMerge() throws InterruptedException {
+		var table = new ConcurrentSimpleHashtable<Integer, Integer>();
+		var threads = new ArrayList<Thread>();
+		for(int t = 0; t < 4; t++) {
+			var thread = new Thread(() -> {
+				for(int i = 0; i < 10_000; i++) {
+					table.merge(i % 100, 1, Integer::sum);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for(var thread : threads) {
+			thread.join();
+		}
+		assertEquals(100, table.size());
+		for(int i = 0; i < 100; i++) {
+			assertEquals(400, table.get(i));
+		}
+	}
+	
+	@Test
+	void testComputeIfAbsentCallsFunctionOnce() {
+		var table = new ConcurrentSimpleHashtable<String, Integer>();
+		var calls = new AtomicInteger();
+		table.computeIfAbsent("a", key -> calls.incrementAndGet());
+		table.computeIfAbsent("a", key -> calls.incrementAndGet());
+		assertEquals(1, calls.get());
+		assertEquals(1, table.putIfAbsent("a", 5));
+	}
+	
+	@Test
+	void testIteratorToleratesModification() {
+		var table = new ConcurrentSimpleHashtable<Integer, Integer>();
+		for(int i = 0; i < 1000; i++) {
+			table.put(i, i);
+		}
+		int seen = 0;
+		for(var entry : table) {
+			table.put(entry.getKey() + 1000, 0);
+			seen++;
+		}
+		assertTrue(seen >= 1000);
+	}
+	
+	@Test
+	void testReadsAndWritesDuringResizes() throws InterruptedException {
+		var table = new ConcurrentSimpleHashtable<Integer, Integer>(1);
+		for(int i = 1; i <= 1000; i++) {
+			table.put(-i, -i);
+		}
+		var threads = new ArrayList<Thread>();
+		for(int t = 0; t < 4; t++) {
+			int first = t * 50_000;
+			threads.add(new Thread(() -> {
+				for(int i = first; i < first + 50_000; i++) {
+					table.put(i, i);
+					if(i % 3 == 0) table.remove(i);
+				}
+			}));
+		}
+		var missing = new AtomicInteger();
+		var reader = new Thread(() -> {
+			while(table.size() < 1000 + 4 * 50_000 * 2 / 3) {
+				for(int i = 1; i <= 1000; i++) {
+					if(!Integer.valueOf(-i).equals(table.get(-i))) missing.incrementAndGet();
+				}
+				int seen = 0;
+				for(var entry : table) {
+					if(entry.getKey() < 0) seen++;
+				}
+				if(seen != 1000) missing.incrementAndGet();
+			}
+		});
+		threads.forEach(Thread::start);
+		reader.start();
+		for(var thread : threads) {
+			thread.join();
+		}
+		reader.join();
+
+		assertEquals(0, missing.get());
+		assertEquals(1000 + 4 * 50_000 * 2 / 3, table.size());
+		for(int i = 0; i < 200_000; i++) {
+			assertEquals(i % 3 == 0 ? null : Integer.valueOf(i), table.get(i));
+		}
+		int count = 0;
+		for(var entry : table) {
+			assertEquals(entry.getKey(), entry.getValue());
+			count++;
+		}
+		assertEquals(table.size(), count);
+	}
+
+}
@@ -0,0 +1,45 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class DictionaryTest {
+
+	@Test
+	void testPutGetRemove() {
+		var dictionary = new Dictionary<Character, String>();
+		dictionary.put('F', "F+F--F+F");
+		dictionary.put('G', "GG");
+		dictionary.put('F', "F-F");
+		dictionary.put(null, "ignored");
+		
+		assertEquals(2, dictionary.size());
+		assertEquals("F-F", dictionary.get('F'));
+		assertNull(dictionary.get(null));
+		assertTrue(dictionary.containsKey('G'));
+		
+		assertEquals("GG", dictionary.remove('G'));
+		assertNull(dictionary.remove('G'));
+		assertFalse(dictionary.containsKey('G'));
+		assertEquals(1, dictionary.size());
+	}
+	
+	@Test
+	void testIteration() {
+		var dictionary = new Dictionary<Integer, Integer>();
+		for(int i = 0; i < 100; i++) {
+			dictionary.put(i, 2 * i);
+		}
+		int sum = 0;
+		for(var entry : dictionary) {
+			assertEquals(2 * entry.getKey(), entry.getValue());
+			sum += entry.getKey();
+		}
+		assertEquals(99 * 100 / 2, sum);
+		
+		dictionary.clear();
+		assertTrue(dictionary.isEmpty());
+	}
+
+}
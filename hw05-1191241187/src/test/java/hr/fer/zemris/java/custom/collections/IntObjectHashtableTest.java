@@ -0,0 +1,95 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+
+import org.junit.jupiter.api.Test;
+
+class IntObjectHashtableTest {
+
+	@Test
+	void testPutGetAcrossResizes() {
+		var table = new IntObjectHashtable<String>(2);
+		for(int i = -5000; i < 5000; i++) {
+			table.put(i, "v" + i);
+		}
+		assertEquals(10_000, table.size());
+		for(int i = -5000; i < 5000; i++) {
+			assertEquals("v" + i, table.get(i));
+		}
+		assertNull(table.get(5000));
+		assertTrue(table.containsKey(0));
+	}
+	
+	@Test
+	void testRemoveAndReinsert() {
+		var table = new IntObjectHashtable<Integer>();
+		for(int round = 0; round < 10; round++) {
+			for(int i = 0; i < 1000; i++) {
+				table.put(i, i);
+			}
+			for(int i = 0; i < 1000; i += 2) {
+				table.remove(i);
+			}
+			assertEquals(500, table.size());
+			assertNull(table.get(0));
+			assertEquals(1, table.get(1));
+		}
+	}
+	
+	@Test
+	void testIteratorRemoveAndSetValue() {
+		var table = new IntObjectHashtable<Integer>();
+		for(int i = 0; i < 100; i++) {
+			table.put(i, i);
+		}
+		var iterator = table.iterator();
+		while(iterator.hasNext()) {
+			var entry = iterator.next();
+			if(entry.getKey() % 2 == 0) {
+				iterator.remove();
+			} else {
+				entry.setValue(-entry.getKey());
+			}
+		}
+		assertEquals(50, table.size());
+		assertEquals(-3, table.get(3));
+	}
+	
+	@Test
+	void testIteratorIsFailFast() {
+		var table = new IntObjectHashtable<Integer>();
+		table.put(1, 1);
+		table.put(2, 2);
+		var iterator = table.iterator();
+		iterator.next();
+		table.put(3, 3);
+		assertThrows(ConcurrentModificationException.class, () -> iterator.hasNext());
+	}
+
+	@Test
+	void testEntriesCantBeUsedAfterStructuralChanges() {
+		var table = new IntObjectHashtable<Integer>(16);
+		table.put(1, 1);
+		var entry = table.iterator().next();
+		table.put(1, 10);
+		assertEquals(10, entry.getValue());
+		entry.setValue(11);
+		assertEquals(11, table.get(1));
+
+		for(int i = 2; i < 100; i++) {
+			table.put(i, i);
+		}
+		assertThrows(ConcurrentModificationException.class, () -> entry.getValue());
+		assertThrows(ConcurrentModificationException.class, () -> entry.setValue(0));
+		assertEquals(11, table.get(1));
+		assertEquals(50, table.get(50));
+
+		var removed = table.iterator().next();
+		table.remove(2);
+		assertThrows(ConcurrentModificationException.class, () -> removed.setValue(0));
+		assertFalse(table.containsValue(0));
+	}
+
+}
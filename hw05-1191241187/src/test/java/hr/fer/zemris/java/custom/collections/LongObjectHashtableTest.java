@@ -0,0 +1,136 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+
+import org.junit.jupiter.api.Test;
+
+class LongObjectHashtableTest {
+
+	@Test
+	void testPutGetAcrossResizes() {
+		var table = new LongObjectHashtable<String>(2);
+		for(long i = -5000; i < 5000; i++) {
+			table.put(i * 1_000_000_007L, "v" + i);
+		}
+		table.put(Long.MIN_VALUE, "min");
+		table.put(Long.MAX_VALUE, "max");
+		assertEquals(10_002, table.size());
+		for(long i = -5000; i < 5000; i++) {
+			assertEquals("v" + i, table.get(i * 1_000_000_007L));
+		}
+		assertEquals("min", table.get(Long.MIN_VALUE));
+		assertEquals("max", table.get(Long.MAX_VALUE));
+		assertNull(table.get(1));
+		assertTrue(table.containsKey(0));
+	}
+	
+	@Test
+	void testKeysWithSameFoldedHash() {
+		var table = new LongObjectHashtable<Long>();
+		for(long i = 0; i < 300; i++) {
+			table.put(i << 32 | i, i);
+		}
+		table.remove(0);
+		table.remove(150L << 32 | 150);
+		assertEquals(298, table.size());
+		for(long i = 1; i < 300; i++) {
+			assertEquals(i == 150 ? null : Long.valueOf(i), table.get(i << 32 | i));
+		}
+		assertNull(table.get(150));
+	}
+	
+	@Test
+	void testDeletedSlotsAreReused() {
+		var table = new LongObjectHashtable<Long>(16);
+		for(long i = 0; i < 12; i++) {
+			table.put(i, i);
+		}
+		for(long i = 0; i < 12; i += 2) {
+			table.remove(i);
+		}
+		for(long i = 1; i < 12; i += 2) {
+			assertEquals(i, table.get(i));
+			table.put(i, -i);
+		}
+		assertEquals(6, table.size());
+		for(long i = 0; i < 12; i += 2) {
+			table.put(i, i);
+		}
+		assertEquals(12, table.size());
+		assertEquals(-11, table.get(11));
+	}
+	
+	@Test
+	void testRehashDropsDeletedSlots() {
+		var table = new LongObjectHashtable<Long>(16);
+		for(long i = 0; i < 10; i++) {
+			table.put(i, i);
+		}
+		for(long i = 0; i < 5000; i++) {
+			table.remove(i);
+			table.put(i + 10, i + 10);
+			assertEquals(10, table.size());
+		}
+		for(long i = 0; i < 5010; i++) {
+			assertEquals(i < 5000 ? null : Long.valueOf(i), table.get(i));
+		}
+	}
+	
+	@Test
+	void testIteratorRemoveAndSetValue() {
+		var table = new LongObjectHashtable<Long>();
+		for(long i = 0; i < 100; i++) {
+			table.put(i << 40, i);
+		}
+		var iterator = table.iterator();
+		while(iterator.hasNext()) {
+			var entry = iterator.next();
+			if((entry.getKey() >>> 40) % 2 == 0) {
+				iterator.remove();
+			} else {
+				entry.setValue(-entry.getValue());
+			}
+		}
+		assertEquals(50, table.size());
+		assertEquals(-3, table.get(3L << 40));
+		assertNull(table.get(2L << 40));
+	}
+	
+	@Test
+	void testIteratorIsFailFast() {
+		var table = new LongObjectHashtable<Integer>();
+		table.put(1, 1);
+		table.put(2, 2);
+		var iterator = table.iterator();
+		iterator.next();
+		table.remove(2);
+		assertThrows(ConcurrentModificationException.class, () -> iterator.next());
+	}
+
+	@Test
+	void testEntriesCantBeUsedAfterStructuralChanges() {
+		var table = new LongObjectHashtable<Integer>(16);
+		table.put((long) 1, 1);
+		var entry = table.iterator().next();
+		table.put((long) 1, 10);
+		assertEquals(10, entry.getValue());
+		entry.setValue(11);
+		assertEquals(11, table.get((long) 1));
+
+		for(int i = 2; i < 100; i++) {
+			table.put((long) i, i);
+		}
+		assertThrows(ConcurrentModificationException.class, () -> entry.getValue());
+		assertThrows(ConcurrentModificationException.class, () -> entry.setValue(0));
+		assertEquals(11, table.get((long) 1));
+		assertEquals(50, table.get((long) 50));
+
+		var removed = table.iterator().next();
+		table.remove((long) 2);
+		assertThrows(ConcurrentModificationException.class, () -> removed.setValue(0));
+		assertFalse(table.containsValue(0));
+	}
+
+}
@@ -0,0 +1,134 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.Test;
+
+class SimpleHashtableTest {
+
+	@Test
+	void testPutGetAcrossResizes() {
+		var table = new SimpleHashtable<Integer, String>(2);
+		for(int i = 0; i < 10_000; i++) {
+			table.put(i, "v" + i);
+		}
+		assertEquals(10_000, table.size());
+		for(int i = 0; i < 10_000; i++) {
+			assertEquals("v" + i, table.get(i));
+		}
+		assertNull(table.get(10_000));
+	}
+	
+	@Test
+	void testPutOverridesValue() {
+		var table = new SimpleHashtable<String, Integer>();
+		table.put("Ivana", 2);
+		table.put("Ivana", 5);
+		assertEquals(1, table.size());
+		assertEquals(5, table.get("Ivana"));
+	}
+	
+	@Test
+	void testRemove() {
+		var table = new SimpleHashtable<Integer, Integer>();
+		for(int i = 0; i < 100; i++) {
+			table.put(i, i);
+		}
+		for(int i = 0; i < 100; i += 2) {
+			assertEquals(i, table.remove(i));
+		}
+		assertEquals(50, table.size());
+		assertFalse(table.containsKey(0));
+		assertTrue(table.containsKey(1));
+		assertNull(table.remove(1000));
+		assertNull(table.remove(0));
+		assertEquals(50, table.size());
+	}
+	
+	@Test
+	void testClearDuringIncrementalResize() {
+		var table = new SimpleHashtable<Integer, Integer>(16, true);
+		for(int i = 0; i < 13; i++) {
+			table.put(i, i);
+		}
+		table.clear();
+		assertTrue(table.isEmpty());
+		assertNull(table.get(1));
+		assertFalse(table.iterator().hasNext());
+		
+		for(int i = 0; i < 100; i++) {
+			table.put(i, -i);
+		}
+		assertEquals(100, table.size());
+		assertEquals(-99, table.get(99));
+	}
+	
+	@Test
+	void testIteratorSeesAllEntries() {
+		var table = new SimpleHashtable<Integer, Integer>();
+		for(int i = 0; i < 1000; i++) {
+			table.put(i, i);
+		}
+		long sum = 0;
+		for(var entry : table) {
+			sum += entry.getKey();
+		}
+		assertEquals(999 * 1000 / 2, sum);
+	}
+	
+	@Test
+	void testIteratorIsFailFast() {
+		var table = new SimpleHashtable<Integer, Integer>();
+		table.put(1, 1);
+		table.put(2, 2);
+		var iterator = table.iterator();
+		iterator.next();
+		table.put(3, 3);
+		assertThrows(ConcurrentModificationException.class, () -> iterator.hasNext());
+	}
+	
+	@Test
+	void testIncrementalResize() {
+		var table = new SimpleHashtable<Integer, Integer>(2, true);
+		for(int i = 0; i < 10_000; i++) {
+			table.put(i, i);
+			if(i % 3 == 0) table.remove(i / 2);
+		}
+		var expected = new HashMap<Integer, Integer>();
+		for(int i = 0; i < 10_000; i++) {
+			expected.put(i, i);
+			if(i % 3 == 0) expected.remove(i / 2);
+		}
+		assertEquals(expected.size(), table.size());
+		for(int i = 0; i < 10_000; i++) {
+			assertEquals(expected.get(i), table.get(i));
+		}
+		int iterated = 0;
+		for(var entry : table) {
+			assertEquals(entry.getKey(), expected.get(entry.getKey()));
+			iterated++;
+		}
+		assertEquals(expected.size(), iterated);
+	}
+	
+	@Test
+	void testIteratorRemoveDuringIncrementalResize() {
+		var table = new SimpleHashtable<Integer, Integer>(16, true);
+		for(int i = 0; i < 13; i++) {
+			table.put(i, i);
+		}
+		var iterator = table.iterator();
+		int iterated = 0;
+		while(iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+			iterated++;
+		}
+		assertEquals(13, iterated);
+		assertTrue(table.isEmpty());
+	}
+
+}
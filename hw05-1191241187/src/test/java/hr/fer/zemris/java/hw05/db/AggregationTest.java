@@ -0,0 +1,143 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AggregationTest {
+
+	private List<String> entries;
+
+	private StudentDatabase database;
+
+	@BeforeEach
+	private void createDatabase() {
+		entries = TestDatabases.entries(5_000);
+		database = new StudentDatabase(entries);
+	}
+
+	private static List<String> manually(StudentDatabase database, QueryParser query) {
+		var groups = new TreeMap<String, List<StudentRecord>>();
+		for(var record : database.filter(new QueryFilter(query.getExpression()))) {
+			String key = query.getGroupBy() == null ? "" : query.getGroupBy().get(record);
+			groups.computeIfAbsent(key, k -> new ArrayList<>()).add(record);
+		}
+		if(query.getGroupBy() == null) groups.putIfAbsent("", List.of());
+
+		var rows = new ArrayList<String>();
+		groups.forEach((key, records) -> {
+			var row = new ArrayList<String>();
+			if(query.getGroupBy() != null) row.add(key);
+			for(var aggregate : query.getAggregates()) {
+				switch(aggregate.getFunction()) {
+				case COUNT:
+					row.add(Integer.toString(records.size()));
+					break;
+				case AVG:
+					row.add(records.isEmpty() ? Aggregation.NO_VALUE : String.format(Locale.ROOT, "%.2f",
+							records.stream().mapToInt(StudentRecord::getGrade).average().getAsDouble()));
+					break;
+				default:
+					var values = records.stream().map(aggregate.getField()::get);
+					var value = aggregate.isNumeric()
+							? (aggregate.getFunction() == Aggregate.Function.MIN
+									? records.stream().mapToInt(StudentRecord::getGrade).min()
+									: records.stream().mapToInt(StudentRecord::getGrade).max())
+								.stream().mapToObj(Integer::toString).findFirst()
+							: (aggregate.getFunction() == Aggregate.Function.MIN
+									? values.min(String::compareTo) : values.max(String::compareTo));
+					row.add(value.orElse(Aggregation.NO_VALUE));
+				}
+			}
+			rows.add(String.join(" ", row));
+		});
+		return rows;
+	}
+
+	private static List<String> aggregated(StudentDatabase database, QueryParser query) {
+		var rows = new ArrayList<String>();
+		for(var group : database.aggregate(query.getExpression(), query.getAggregates(), query.getGroupBy()).getGroups()) {
+			rows.add(group.toString());
+		}
+		return rows;
+	}
+
+	private void assertSameAsManual(String text) {
+		var query = new QueryParser(text);
+		var expected = manually(database, query);
+		assertEquals(expected, aggregated(database, query), text);
+
+		var columnar = new StudentDatabase(entries, new ColumnarStudentStorage());
+		assertEquals(expected, aggregated(columnar, query), text);
+
+		columnar.setParallelism(2);
+		columnar.setParallelThreshold(1);
+		assertEquals(expected, aggregated(columnar, query), text);
+		columnar.setParallelism(1);
+	}
+
+	@Test
+	void testAggregatesAreSameAsManual() {
+		assertSameAsManual("COUNT lastName > \"\"");
+		assertSameAsManual("COUNT, AVG(grade) lastName LIKE \"*ić\" GROUP BY lastName");
+		assertSameAsManual("MIN(grade), MAX(grade), MIN(firstName) jmbag >= \"0000002000\" GROUP BY lastName");
+		assertSameAsManual("COUNT(jmbag), MAX(lastName) firstName = \"Ime3\" OR grade = 5 GROUP BY grade");
+		assertSameAsManual("COUNT, AVG(grade) lastName = \"Nepostojeći\"");
+		assertSameAsManual("COUNT, MAX(jmbag) jmbag = \"0000000042\"");
+	}
+
+	@Test
+	void testEmptyAndSingleRowDatabases() {
+		for(int rows : new int[] {0, 1}) {
+			entries = TestDatabases.entries(rows);
+			database = new StudentDatabase(entries);
+			assertSameAsManual("COUNT, AVG(grade), MIN(grade), MAX(lastName) lastName > \"\"");
+			assertSameAsManual("COUNT, AVG(grade) lastName > \"\" GROUP BY lastName");
+			assertSameAsManual("COUNT grade >= 4");
+			assertSameAsManual("MIN(firstName), MAX(grade) grade < 10 GROUP BY grade");
+		}
+	}
+
+	@Test
+	void testGradeOnlyQueriesAreCounted() {
+		assertSameAsManual("COUNT grade >= 4");
+		assertSameAsManual("COUNT, AVG(grade), MIN(grade) grade < 10 GROUP BY grade");
+		assertSameAsManual("COUNT, MAX(grade) NOT grade = 3 AND grade > 1");
+		assertSameAsManual("COUNT grade > 3 AND grade < 3");
+	}
+
+	@Test
+	void testGradesAreComparedAsNumbers() {
+		assertEquals(entries.size(), database.query(new QueryParser("grade < 10").getExpression()).size());
+		assertEquals(0, database.query(new QueryParser("grade > \"10\" AND grade < 2").getExpression()).size());
+		assertTrue(ComparisonOperators.satisfied(ComparisonOperators.LESS, 2, "10"));
+		assertFalse(ComparisonOperators.satisfied(ComparisonOperators.LESS, 2, "1x"));
+		assertTrue(ComparisonOperators.satisfied(ComparisonOperators.LIKE, 2, "*"));
+	}
+
+	@Test
+	void testGroupsAreLimited() {
+		var query = new QueryParser("COUNT lastName > \"\" GROUP BY lastName");
+		var groups = database.aggregate(query.getExpression(), query.getAggregates(), query.getGroupBy()).getGroups();
+		assertEquals(8, groups.size());
+		assertEquals("Anić", groups.get(0).getKey());
+		assertEquals(List.of("lastName", "COUNT"), new Aggregation(query.getAggregates(), query.getGroupBy()).getColumns());
+	}
+
+	@Test
+	void testInvalidAggregates() {
+		assertThrows(IllegalArgumentException.class, () -> new Aggregate(Aggregate.Function.AVG, FieldValueGetters.LAST_NAME));
+		assertThrows(NullPointerException.class, () -> new Aggregate(Aggregate.Function.MIN, null));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("AVG(lastName) grade > 1"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("lastName > \"\" GROUP BY lastName"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("COUNT grade > 1 GROUP BY grade GROUP BY lastName"));
+		assertThrows(IllegalArgumentException.class, () -> database.prepare("COUNT lastName = ?"));
+	}
+
+}
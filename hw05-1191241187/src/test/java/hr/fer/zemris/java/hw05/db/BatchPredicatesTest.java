@@ -0,0 +1,119 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchPredicatesTest {
+
+	private ColumnarStudentStorage storage;
+
+	@BeforeEach
+	private void createStorage() {
+		createStorage(3000);
+	}
+
+	private void createStorage(int rows) {
+		storage = new ColumnarStudentStorage();
+		String[] lastNames = TestDatabases.LAST_NAMES;
+		String[] firstNames = {"Ana", "Ivan", "Marija", "Aa", "Petra", "Ivana"};
+		for(int i = 1; i <= rows; i++) {
+			storage.add(new StudentRecord(String.format("%010d", i * 7), firstNames[i % firstNames.length],
+					lastNames[i * 3 % lastNames.length], i % 5 + 1));
+		}
+	}
+
+	private List<StudentRecord> byRows(IFilter filter, int from, int to) {
+		List<StudentRecord> result = new ArrayList<>();
+		storage.filter(record -> filter.accepts(record), from, to, result);
+		return result;
+	}
+
+	private List<StudentRecord> byBatches(IFilter filter, int from, int to) {
+		assertTrue(filter instanceof IBatchFilter);
+		List<StudentRecord> result = new ArrayList<>();
+		storage.filter(filter, from, to, result);
+		return result;
+	}
+
+	private void assertSameAsRows(String query) {
+		var conditions = new QueryParser(query).getQuery();
+		for(var filter : new IFilter[] {new QueryFilter(conditions), QueryCompiler.compile(conditions)}) {
+			if(!(filter instanceof IBatchFilter)) continue;
+			assertEquals(byRows(filter, 0, storage.size()), byBatches(filter, 0, storage.size()), query);
+			for(int[] range : new int[][] {{5, 1500}, {IBatchFilter.BATCH_SIZE - 1, IBatchFilter.BATCH_SIZE + 1},
+					{IBatchFilter.BATCH_SIZE, IBatchFilter.BATCH_SIZE}, {0, 1}}) {
+				int from = Math.min(range[0], storage.size());
+				int to = Math.min(range[1], storage.size());
+				assertEquals(byRows(filter, from, to), byBatches(filter, from, to), query);
+			}
+		}
+	}
+
+	@Test
+	void testJmbags() {
+		assertSameAsRows("jmbag = \"0000000700\"");
+		assertSameAsRows("jmbag != \"0000000700\"");
+		assertSameAsRows("jmbag < \"0000007000\"");
+		assertSameAsRows("jmbag <= \"0000007000\"");
+		assertSameAsRows("jmbag > \"0000007000\"");
+		assertSameAsRows("jmbag >= \"0000007000\"");
+		assertSameAsRows("jmbag = \"123\"");
+		assertSameAsRows("jmbag != \"123\"");
+		assertSameAsRows("jmbag < \"00001\"");
+		assertSameAsRows("jmbag LIKE \"*7\"");
+	}
+
+	@Test
+	void testNames() {
+		assertSameAsRows("lastName = \"Perić\"");
+		assertSameAsRows("lastName != \"Perić\"");
+		assertSameAsRows("lastName = \"Nepostojeći\"");
+		assertSameAsRows("lastName != \"Nepostojeći\"");
+		assertSameAsRows("firstName > \"Ivan\"");
+		assertSameAsRows("firstName <= \"Ivan\"");
+		assertSameAsRows("lastName LIKE \"*ić\"");
+		assertSameAsRows("firstName LIKE \"Iv*\"");
+		assertSameAsRows("firstName LIKE \"A*a\"");
+		assertSameAsRows("firstName LIKE \"*\"");
+	}
+
+	@Test
+	void testCombined() {
+		assertSameAsRows("lastName LIKE \"*ić\" and firstName != \"Ana\" and jmbag > \"0000010000\"");
+		assertSameAsRows("lastName = \"Horvat\" and jmbag LIKE \"*7\"");
+	}
+
+	@Test
+	void testEmptyAndSingleRowStorages() {
+		for(int rows : new int[] {0, 1}) {
+			createStorage(rows);
+			assertSameAsRows("jmbag = \"0000000007\"");
+			assertSameAsRows("jmbag != \"0000000007\"");
+			assertSameAsRows("lastName LIKE \"*ić\"");
+			assertSameAsRows("firstName > \"Ivan\" and lastName != \"Horvat\"");
+		}
+	}
+
+	@Test
+	void testRowFallback() {
+		IFieldValueGetter reversed = record -> new StringBuilder(record.getLastName()).reverse().toString();
+		var conditions = List.of(new ConditionalExpression(reversed, "ći*", ComparisonOperators.LIKE),
+				new ConditionalExpression(FieldValueGetters.FIRST_NAME, "Ivan", ComparisonOperators.EQUALS));
+		var filter = new QueryFilter(conditions);
+		assertEquals(byRows(filter, 0, storage.size()), byBatches(filter, 0, storage.size()));
+	}
+
+	@Test
+	void testProgramIsRecompiledAfterAdding() {
+		var filter = new QueryFilter(new QueryParser("firstName = \"Novo\"").getQuery());
+		assertEquals(0, byBatches(filter, 0, storage.size()).size());
+		storage.add(new StudentRecord("9999999999", "Novo", "Ime", 5));
+		assertEquals(1, byBatches(filter, 0, storage.size()).size());
+	}
+
+}
@@ -0,0 +1,52 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ColumnarStudentStorageTest {
+
+	private StudentDatabase database;
+	
+	@BeforeEach
+	private void createDatabase() {
+		var entries = new ArrayList<String>();
+		for(int i = 1; i <= 3000; i++) {
+			entries.add(String.format("%010d\tPrezime%d\tIme%d\t%d", i, i % 7, i % 11, i % 5 + 1));
+		}
+		database = new StudentDatabase(entries, new ColumnarStudentStorage());
+	}
+	
+	@Test
+	void testForJMBAG() {
+		var student = database.forJMBAG("0000002021");
+		assertEquals("0000002021", student.getJmbag());
+		assertEquals("Prezime" + 2021 % 7, student.getLastName());
+		assertEquals("Ime" + 2021 % 11, student.getFirstName());
+		assertEquals(2021 % 5 + 1, student.getGrade());
+		assertNull(database.forJMBAG("0000003001"));
+		assertNull(database.forJMBAG("abc"));
+	}
+	
+	@Test
+	void testFilterReturnsMaterialisedRecordsInOrder() {
+		var result = database.filter(student -> student.getLastName().equals("Prezime3"));
+		assertEquals(3000 / 7 + 1, result.size());
+		assertEquals("0000000003", result.get(0).getJmbag());
+		assertEquals("0000000010", result.get(1).getJmbag());
+		assertEquals(StudentRecord.class, result.get(0).getClass());
+	}
+	
+	@Test
+	void testDuplicateAndNonNumericJmbag() {
+		assertThrows(IllegalArgumentException.class, () -> new StudentDatabase(
+				List.of("0000000001\tA\tB\t2", "0000000001\tC\tD\t3"), new ColumnarStudentStorage()));
+		assertThrows(IllegalArgumentException.class, () -> new StudentDatabase(
+				List.of("00000000AB\tA\tB\t2"), new ColumnarStudentStorage()));
+	}
+
+}
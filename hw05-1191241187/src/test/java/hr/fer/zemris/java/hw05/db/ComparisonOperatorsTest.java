@@ -82,7 +82,10 @@ class ComparisonOperatorsTest {
 		assertTrue(operator.satisfied("Banana", "Ba*"));
 		assertTrue(operator.satisfied("Banana", "*na"));
 		assertTrue(operator.satisfied("Banana", "Ba*na"));
-		assertThrows(IllegalArgumentException.class, () -> operator.satisfied("Banana", "Ba*a*a"));
+		assertTrue(operator.satisfied("Banana", "Ba*a*a"));
+		assertFalse(operator.satisfied("Ba", "Bana*"));
+		assertFalse(operator.satisfied("na", "*bana"));
+		assertTrue(operator.satisfied("Banana", "B?n*"));
 	}
 
 }
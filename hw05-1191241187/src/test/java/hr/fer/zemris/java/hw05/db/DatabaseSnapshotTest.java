@@ -0,0 +1,75 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabaseSnapshotTest {
+
+	@TempDir
+	Path directory;
+	
+	private Path source;
+	private Path snapshot;
+	
+	@BeforeEach
+	private void writeSource() throws IOException {
+		source = directory.resolve("database.txt");
+		snapshot = directory.resolve("database.snapshot");
+		var content = new StringBuilder();
+		for(int i = 1; i <= 2000; i++) {
+			content.append(String.format("%010d\tPrezimić%d\tIme%d\t%d\n", i, i % 13, i % 3, i % 5 + 1));
+		}
+		Files.write(source, content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	void testRoundTrip() throws IOException {
+		DatabaseSnapshot.open(source, snapshot, 1);
+		assertTrue(Files.exists(snapshot));
+		
+		var storage = DatabaseSnapshot.read(snapshot, source);
+		assertNotNull(storage);
+		var database = new StudentDatabase(storage);
+		var student = database.forJMBAG("0000001234");
+		assertEquals("Prezimić" + 1234 % 13, student.getLastName());
+		assertEquals("Ime" + 1234 % 3, student.getFirstName());
+		assertEquals(1234 % 5 + 1, student.getGrade());
+		assertEquals(2000, database.filter(s -> true).size());
+		
+		storage.add(new StudentRecord("0000002001", "Novi", "Student", 5));
+		assertEquals("Novi", database.forJMBAG("0000002001").getFirstName());
+		assertEquals("Ime1", database.forJMBAG("0000000001").getFirstName());
+	}
+	
+	@Test
+	void testStaleSnapshotIsIgnored() throws IOException {
+		DatabaseSnapshot.open(source, snapshot, 1);
+		Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 5000));
+		assertNull(DatabaseSnapshot.read(snapshot, source));
+		
+		DatabaseSnapshot.open(source, snapshot, 1);
+		assertNotNull(DatabaseSnapshot.read(snapshot, source));
+	}
+	
+	@Test
+	void testCorruptedSnapshotIsIgnored() throws IOException {
+		DatabaseSnapshot.open(source, snapshot, 1);
+		try(var channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 100);
+		}
+		assertNull(DatabaseSnapshot.read(snapshot, source));
+	}
+
+}
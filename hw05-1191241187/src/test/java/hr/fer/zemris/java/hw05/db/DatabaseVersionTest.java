@@ -0,0 +1,158 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DatabaseVersionTest {
+
+	private StudentDatabase database;
+
+	@BeforeEach
+	private void createDatabase() {
+		database = TestDatabases.create(3000);
+	}
+
+	private static IQueryExpression where(String conditions) {
+		return new QueryParser(conditions).getExpression();
+	}
+
+	private static void assertSameIndex(SortedIndex expected, SortedIndex actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.rowAt(i), actual.rowAt(i));
+			assertEquals(expected.valueAt(i), actual.valueAt(i));
+		}
+	}
+
+	@Test
+	void testCopiesAreIndependent() {
+		var storage = new ListStudentStorage();
+		for(int i = 0; i < 3 * ListStudentStorage.SEGMENT_SIZE; i++) {
+			storage.add(new StudentRecord(String.format("%010d", i), "Ana", "Novak", 1));
+		}
+		var copy = storage.copy();
+		copy.set(5, new StudentRecord("0000000005", "Iva", "Novak", 2));
+		copy.add(new StudentRecord("0000009999", "Eva", "Horvat", 3));
+		copy.remove(new int[] {0, ListStudentStorage.SEGMENT_SIZE + 1});
+
+		assertEquals(3 * ListStudentStorage.SEGMENT_SIZE, storage.size());
+		assertEquals("Ana", storage.get(5).getFirstName());
+		assertEquals(-1, storage.rowOf("0000009999"));
+		assertEquals(0, storage.rowOf("0000000000"));
+		assertEquals(ListStudentStorage.SEGMENT_SIZE + 2, storage.rowOf(String.format("%010d", ListStudentStorage.SEGMENT_SIZE + 2)));
+
+		assertEquals(3 * ListStudentStorage.SEGMENT_SIZE - 1, copy.size());
+		assertEquals("Iva", copy.get(4).getFirstName());
+		assertEquals(copy.size() - 1, copy.rowOf("0000009999"));
+		assertEquals(-1, copy.rowOf("0000000000"));
+		assertEquals(ListStudentStorage.SEGMENT_SIZE, copy.rowOf(String.format("%010d", ListStudentStorage.SEGMENT_SIZE + 2)));
+
+		storage.set(7, new StudentRecord("0000000007", "Ena", "Novak", 4));
+		assertEquals("Ana", copy.get(6).getFirstName());
+		assertThrows(IndexOutOfBoundsException.class, () -> copy.get(copy.size()));
+	}
+
+	@Test
+	void testIndexesAreUpdated() throws IOException {
+		var random = new Random(42);
+		for(int step = 0; step < 60; step++) {
+			database.buildIndexes();
+			int jmbag = 1 + random.nextInt(4000);
+			switch(step % 3) {
+			case 0:
+				if(database.forJMBAG(String.format("%010d", jmbag)) == null) {
+					database.insert(new StudentRecord(String.format("%010d", jmbag), "Ime" + random.nextInt(20),
+							TestDatabases.LAST_NAMES[random.nextInt(TestDatabases.LAST_NAMES.length)], 1 + random.nextInt(5)));
+				}
+				break;
+			case 1:
+				String lastName = TestDatabases.LAST_NAMES[random.nextInt(TestDatabases.LAST_NAMES.length)];
+				database.update(where("jmbag >= \"" + String.format("%010d", jmbag) + "\" AND firstName = \"Ime4\""),
+						record -> new StudentRecord(record.getJmbag(), record.getFirstName(), lastName, record.getGrade()));
+				break;
+			default:
+				database.delete(where("jmbag < \"" + String.format("%010d", jmbag) + "\" AND firstName = \"Ime" + step % 9 + "\""));
+			}
+
+			var version = database.version();
+			var planner = version.planner();
+			var students = version.getStudents();
+			assertSameIndex(new SortedIndex(students, FieldValueGetters.LAST_NAME),
+					planner.orderIndex(version.plan(List.of()), new Ordering(FieldValueGetters.LAST_NAME, false), 0, 1));
+			assertSameIndex(new SortedIndex(students, FieldValueGetters.FIRST_NAME),
+					planner.orderIndex(version.plan(List.of()), new Ordering(FieldValueGetters.FIRST_NAME, false), 0, 1));
+
+			var rebuilt = new StudentDatabase(students.copy());
+			for(var query : new String[] {"lastName LIKE \"B*\"", "firstName = \"Ime4\" AND grade > 2", "lastName >= \"P\" OR grade = 1"}) {
+				assertEquals(rebuilt.filter(new QueryFilter(where(query))), database.query(where(query)), query);
+			}
+		}
+		var statistics = database.getStatistics(FieldValueGetters.LAST_NAME);
+		assertEquals(database.filter(record -> true).size(), statistics.getRows());
+	}
+
+	@Test
+	void testPlansReadTheirVersion() throws IOException {
+		var plan = database.plan(where("grade = 5"));
+		var cursor = database.cursor(database.plan(where("grade = 5")), 0, QueryParser.NO_LIMIT);
+		var before = database.execute(plan);
+		assertEquals(600, before.size());
+
+		assertEquals(600, database.update(where("grade = 5"), record -> new StudentRecord(record.getJmbag(),
+				record.getFirstName(), record.getLastName(), 4)));
+		assertEquals(0, database.query(where("grade = 5")).size());
+		assertEquals(before, database.execute(plan));
+		assertEquals(before, database.execute(plan, new Ordering(FieldValueGetters.JMBAG, false), 0, QueryParser.NO_LIMIT));
+
+		int count = 0;
+		while(cursor.hasNext()) {
+			assertEquals(5, cursor.next().getGrade());
+			count++;
+		}
+		assertEquals(600, count);
+
+		var prepared = database.prepare("grade = ?");
+		assertEquals(1200, prepared.execute("4").size());
+		database.delete(where("grade = 4"));
+		assertEquals(0, prepared.execute("4").size());
+	}
+
+	@Test
+	void testReadersSeeWholeChanges() throws Exception {
+		database.update(where("grade != 1"), record -> new StudentRecord(record.getJmbag(),
+				record.getFirstName(), record.getLastName(), 1));
+		var failure = new AtomicReference<Throwable>();
+		var writer = new Thread(() -> {
+			try {
+				for(int i = 0; i < 100; i++) {
+					int grade = i % 5 + 1;
+					database.update(where("grade != " + grade), record -> new StudentRecord(record.getJmbag(),
+							record.getFirstName(), record.getLastName(), grade));
+				}
+			} catch(Throwable e) {
+				failure.set(e);
+			}
+		});
+		writer.start();
+		while(writer.isAlive()) {
+			var grades = database.aggregate(where("grade > 0"), List.of(new Aggregate(Aggregate.Function.COUNT, null)),
+					FieldValueGetters.GRADE);
+			assertEquals(1, grades.getGroups().size());
+
+			var records = database.query(where("firstName != \"x\" AND grade < 6"));
+			assertEquals(3000, records.size());
+			for(var record : records) {
+				assertEquals(records.get(0).getGrade(), record.getGrade());
+			}
+		}
+		writer.join();
+		assertNull(failure.get());
+	}
+}
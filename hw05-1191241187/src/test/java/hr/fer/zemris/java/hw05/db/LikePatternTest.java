@@ -0,0 +1,90 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LikePatternTest {
+
+	private void assertMatches(String pattern, String... values) {
+		var compiled = LikePattern.compile(pattern);
+		for(var value : values) {
+			assertTrue(compiled.matches(value), pattern + " should match " + value);
+		}
+	}
+
+	private void assertNotMatches(String pattern, String... values) {
+		var compiled = LikePattern.compile(pattern);
+		for(var value : values) {
+			assertFalse(compiled.matches(value), pattern + " shouldn't match " + value);
+		}
+	}
+
+	@Test
+	void testFastPaths() {
+		assertMatches("Perić", "Perić");
+		assertNotMatches("Perić", "Peri", "Perićka", "");
+		assertMatches("Per*", "Per", "Perić", "Perković");
+		assertNotMatches("Per*", "Pe", "Bperić", "");
+		assertMatches("*ić", "ić", "Perić");
+		assertNotMatches("*ić", "c", "Horvat");
+		assertMatches("*er*", "er", "Perić", "Horvater");
+		assertNotMatches("*er*", "e", "Horvat");
+		assertMatches("P*ć", "Pć", "Perić");
+		assertNotMatches("P*ć", "P", "ć", "Perin");
+		assertMatches("*", "", "Banana");
+		assertMatches("***", "", "Banana");
+		assertMatches("", "");
+		assertNotMatches("", "a");
+	}
+
+	@Test
+	void testSeveralWildcards() {
+		assertMatches("Ba*a*a", "Banana", "Baaa", "Bacada");
+		assertNotMatches("Ba*a*a", "Baa", "Banan", "Bana");
+		assertMatches("*an*an*", "Banana", "anan");
+		assertNotMatches("*an*an*", "Bana", "ana");
+		assertMatches("A*B*C", "ABC", "AxxBxxC", "ABBC");
+		assertNotMatches("A*B*C", "AC", "ACB", "ABCx");
+		assertMatches("P**ć", "Perić");
+	}
+
+	@Test
+	void testSingleCharacterWildcard() {
+		assertMatches("B?nana", "Banana", "Bxnana");
+		assertNotMatches("B?nana", "Bnana", "Baanana");
+		assertMatches("???", "abc");
+		assertNotMatches("???", "ab", "abcd");
+		assertMatches("*?ć", "ić", "Perić");
+		assertNotMatches("*?ć", "ć");
+		assertMatches("P?r*k?vić", "Perković");
+		assertMatches("*a?a*", "Banana");
+		assertNotMatches("*a?a*", "Baan");
+	}
+
+	@Test
+	void testAnalysis() {
+		assertTrue(LikePattern.compile("Perić").isExact());
+		assertTrue(LikePattern.compile("Per*").isPrefix());
+		assertFalse(LikePattern.compile("Per*ć").isPrefix());
+		assertEquals("Per", LikePattern.compile("Per*ć").getPrefix());
+		assertEquals("P", LikePattern.compile("P?r*").getPrefix());
+		assertEquals("", LikePattern.compile("*ić").getPrefix());
+		assertTrue(LikePattern.compile("**").matchesAll());
+	}
+
+	@Test
+	void testConditionsKeepTheirPatterns() {
+		var first = new ConditionalExpression(FieldValueGetters.LAST_NAME, "B*ć", ComparisonOperators.LIKE);
+		var second = new ConditionalExpression(FieldValueGetters.LAST_NAME, "*vić", ComparisonOperators.LIKE);
+		var babic = new StudentRecord("0000000001", "Ana", "Babić", 1);
+		var markovic = new StudentRecord("0000000002", "Iva", "Marković", 2);
+		for(int i = 0; i < 3; i++) {
+			assertTrue(first.isSatisfiedBy(babic));
+			assertFalse(second.isSatisfiedBy(babic));
+			assertFalse(first.isSatisfiedBy(markovic));
+			assertTrue(second.isSatisfiedBy(markovic));
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedDatabaseLoaderTest {
+
+	@TempDir
+	Path directory;
+	
+	private Path write(String content) throws IOException {
+		Path path = directory.resolve("database.txt");
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+		return path;
+	}
+	
+	@Test
+	void testLoad() throws IOException {
+		Path path = write("0000000001\tAkšamović\tMarin\t2\r\n\n0000000002\tBakamović\tPetra\t3");
+		var database = MappedDatabaseLoader.load(path, new ListStudentStorage());
+		
+		var student = database.forJMBAG("0000000001");
+		assertEquals("Akšamović", student.getLastName());
+		assertEquals("Marin", student.getFirstName());
+		assertEquals(2, student.getGrade());
+		assertEquals("Petra", database.forJMBAG("0000000002").getFirstName());
+		assertEquals(2, database.filter(s -> true).size());
+	}
+	
+	@Test
+	void testWrongEntries() throws IOException {
+		Path missingField = write("0000000001\tAkšamović\tMarin\n");
+		assertThrows(IllegalArgumentException.class, () -> MappedDatabaseLoader.load(missingField, new ListStudentStorage()));
+		Path wrongGrade = write("0000000001\tAkšamović\tMarin\t7\n");
+		assertThrows(IllegalArgumentException.class, () -> MappedDatabaseLoader.load(wrongGrade, new ListStudentStorage()));
+		Path duplicate = write("0000000001\tA\tB\t2\n0000000001\tC\tD\t3\n");
+		assertThrows(IllegalArgumentException.class, () -> MappedDatabaseLoader.load(duplicate, new ListStudentStorage()));
+	}
+	
+	@Test
+	void testParallelLoadKeepsOrder() throws IOException {
+		var content = new StringBuilder();
+		for(int i = 1; i <= 5000; i++) {
+			content.append(String.format("%010d\tPrezime%d\tIme\t%d\n", i, i, i % 5 + 1));
+		}
+		Path path = write(content.toString());
+		var database = MappedDatabaseLoader.load(path, new ListStudentStorage(), 4);
+		
+		var all = database.filter(s -> true);
+		assertEquals(5000, all.size());
+		for(int i = 0; i < all.size(); i++) {
+			assertEquals("Prezime" + (i + 1), all.get(i).getLastName());
+		}
+	}
+	
+	@Test
+	void testParallelLoadDetectsDuplicatesAcrossChunks() throws IOException {
+		var content = new StringBuilder();
+		for(int i = 1; i <= 5000; i++) {
+			content.append(String.format("%010d\tA\tB\t2\n", i));
+		}
+		content.append("0000000001\tA\tB\t2\n");
+		Path path = write(content.toString());
+		assertThrows(IllegalArgumentException.class, () -> MappedDatabaseLoader.load(path, new ListStudentStorage(), 4));
+	}
+
+}
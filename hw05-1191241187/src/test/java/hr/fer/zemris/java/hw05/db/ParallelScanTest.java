@@ -0,0 +1,97 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelScanTest {
+
+	private StudentDatabase database;
+
+	@BeforeEach
+	private void createDatabase() {
+		database = TestDatabases.create(1001);
+	}
+
+	private void assertSameAsSequential(String query) {
+		assertSameAsSequential(query, 100);
+	}
+
+	private void assertSameAsSequential(String query, int threshold) {
+		var conditions = new QueryParser(query).getQuery();
+		var filter = new QueryFilter(conditions);
+
+		database.setParallelism(1);
+		var sequential = database.filter(filter);
+		var sequentialQuery = database.query(conditions);
+
+		database.setParallelism(4);
+		database.setParallelThreshold(threshold);
+		assertEquals(sequential, database.filter(filter), query);
+		assertEquals(sequentialQuery, database.query(conditions), query);
+		database.setParallelism(1);
+	}
+
+	@Test
+	void testParallelScansKeepOrder() {
+		assertSameAsSequential("lastName LIKE \"*ić\"");
+		assertSameAsSequential("firstName > \"Ime4\" and lastName != \"Horvat\"");
+		assertSameAsSequential("lastName > \"\"");
+		assertSameAsSequential("lastName = \"Nepostojeći\"");
+	}
+
+	@Test
+	void testSmallDatabases() {
+		for(int rows : new int[] {0, 1, 3, 7}) {
+			database = TestDatabases.create(rows);
+			assertSameAsSequential("lastName LIKE \"*ić\"");
+			assertSameAsSequential("lastName LIKE \"*ić\"", 1);
+			assertSameAsSequential("grade = 2", 1);
+			assertSameAsSequential("lastName = \"Nepostojeći\"", 1);
+		}
+	}
+
+	@Test
+	void testFilterExceptionIsRethrown() {
+		database.setParallelism(2);
+		database.setParallelThreshold(1);
+		assertThrows(IllegalStateException.class, () -> database.filter(record -> {
+			throw new IllegalStateException();
+		}));
+		database.setParallelism(1);
+	}
+
+	@Test
+	void testScansRaceWithParallelismChanges() throws InterruptedException {
+		IFilter filter = record -> record.getGrade() == 5;
+		var expected = database.filter(filter);
+		database.setParallelThreshold(100);
+
+		var stop = new AtomicBoolean();
+		var changer = new Thread(() -> {
+			for(int i = 0; !stop.get(); i++) {
+				database.setParallelism(i % 4 + 1);
+			}
+		});
+		changer.start();
+		try {
+			for(int i = 0; i < 500; i++) {
+				assertEquals(expected, database.filter(filter));
+			}
+		} finally {
+			stop.set(true);
+			changer.join();
+			database.setParallelism(1);
+		}
+	}
+
+	@Test
+	void testInvalidSettings() {
+		assertThrows(IllegalArgumentException.class, () -> database.setParallelism(0));
+		assertThrows(IllegalArgumentException.class, () -> database.setParallelThreshold(0));
+	}
+
+}
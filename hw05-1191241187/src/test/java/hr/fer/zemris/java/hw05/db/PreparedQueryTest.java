@@ -0,0 +1,88 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PreparedQueryTest {
+
+	private StudentDatabase database;
+
+	@BeforeEach
+	private void createDatabase() {
+		database = TestDatabases.create(2000);
+	}
+
+	private void assertSameAsQuery(PreparedQuery prepared, String query, String... values) {
+		assertEquals(database.query(new QueryParser(query).getQuery()), prepared.execute(values), query);
+	}
+
+	@Test
+	void testExecute() {
+		var prepared = database.prepare("lastName LIKE ? and firstName > ?");
+		assertEquals(2, prepared.getParameterCount());
+		assertSameAsQuery(prepared, "lastName LIKE \"P*\" and firstName > \"Ime4\"", "P*", "Ime4");
+		assertSameAsQuery(prepared, "lastName LIKE \"*ić\" and firstName > \"Ime1\"", "*ić", "Ime1");
+		assertSameAsQuery(prepared, "lastName LIKE \"Horvat\" and firstName > \"Ime8\"", "Horvat", "Ime8");
+
+		prepared = database.prepare("firstName = ? and jmbag >= \"0000001000\" and lastName != ?");
+		assertSameAsQuery(prepared, "firstName = \"Ime2\" and jmbag >= \"0000001000\" and lastName != \"Anić\"", "Ime2", "Anić");
+
+		prepared = database.prepare("jmbag = ?");
+		assertSameAsQuery(prepared, "jmbag = \"0000000042\"", "0000000042");
+		assertEquals(QueryPlan.AccessPath.JMBAG_LOOKUP, prepared.genericPlan().getAccessPath());
+	}
+
+	@Test
+	void testIndexAccessIsKept() {
+		var prepared = database.prepare("firstName = ? and lastName LIKE ?");
+		var generic = prepared.genericPlan();
+		assertEquals(QueryPlan.AccessPath.INDEX_RANGE, generic.getAccessPath());
+
+		var plan = prepared.bind("Ime3", "B*");
+		assertEquals(QueryPlan.AccessPath.INDEX_RANGE, plan.getAccessPath());
+		assertEquals("Ime3", plan.getAccessCondition().getStringLiteral());
+		assertSame(plan, prepared.bind("Ime3", "B*"));
+		assertSameAsQuery(prepared, "firstName = \"Ime3\" and lastName LIKE \"B*\"", "Ime3", "B*");
+	}
+
+	@Test
+	void testContradictoryBinding() {
+		var prepared = database.prepare("lastName = ? and lastName = ?");
+		assertEquals(QueryPlan.AccessPath.NONE, prepared.bind("Anić", "Babić").getAccessPath());
+		assertEquals(0, prepared.execute("Anić", "Babić").size());
+		assertSameAsQuery(prepared, "lastName = \"Anić\"", "Anić", "Anić");
+	}
+
+	@Test
+	void testLimitAndOffset() {
+		var prepared = database.prepare("lastName = ? LIMIT 5 OFFSET 10");
+		var all = database.query(new QueryParser("lastName = \"Horvat\"").getQuery());
+		assertEquals(all.subList(10, 15), prepared.execute("Horvat"));
+		assertEquals(0, prepared.execute("Nepostojeći").size());
+
+		prepared = database.prepare("jmbag = ? OFFSET 1");
+		assertEquals(0, prepared.execute("0000000042").size());
+	}
+
+	@Test
+	void testBindingsWithoutMatches() {
+		var prepared = database.prepare("lastName LIKE ? and firstName = ?");
+		assertSameAsQuery(prepared, "lastName LIKE \"X*\" and firstName = \"Ime1\"", "X*", "Ime1");
+		assertSameAsQuery(prepared, "lastName LIKE \"*\" and firstName = \"Ime9\"", "*", "Ime9");
+		assertSameAsQuery(prepared, "lastName LIKE \"*\" and firstName = \"Ime0\"", "*", "Ime0");
+
+		prepared = database.prepare("jmbag = ?");
+		assertSameAsQuery(prepared, "jmbag = \"0000002001\"", "0000002001");
+	}
+
+	@Test
+	void testWrongBindings() {
+		var prepared = database.prepare("lastName = ? and firstName = ?");
+		assertThrows(IllegalArgumentException.class, () -> prepared.execute("Anić"));
+		assertThrows(NullPointerException.class, () -> prepared.execute("Anić", null));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("lastName = ?"));
+		assertThrows(IllegalArgumentException.class, () -> database.prepare("? = \"Anić\""));
+	}
+}
@@ -0,0 +1,117 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QueryCacheTest {
+
+	private StudentDatabase database;
+
+	@BeforeEach
+	private void createDatabase() {
+		database = TestDatabases.create(1000);
+	}
+
+	private List<StudentRecord> query(String query) {
+		return database.query(new QueryParser(query).getQuery());
+	}
+
+	@Test
+	void testKeyIsNormalised() {
+		String key = QueryCache.keyOf(new QueryParser("lastName LIKE \"P*\" and firstName>\"Ime3\"").getQuery());
+		assertEquals(key, QueryCache.keyOf(new QueryParser("  firstName >  \"Ime3\" AND lastName LIKE\"P*\"").getQuery()));
+		assertEquals(key, QueryCache.keyOf(new QueryParser("firstName>\"Ime3\" and lastName LIKE \"P*\" and firstName>\"Ime3\"").getQuery()));
+		assertNotEquals(key, QueryCache.keyOf(new QueryParser("lastName LIKE \"P*\" and firstName>=\"Ime3\"").getQuery()));
+		assertNotEquals(key, QueryCache.keyOf(new QueryParser("lastName LIKE \"P*\"").getQuery()));
+	}
+
+	@Test
+	void testHitsAndMisses() {
+		var cache = database.getCache();
+		var first = query("lastName LIKE \"P*\" and firstName>\"Ime3\"");
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		var second = query("firstName>\"Ime3\"   and lastName LIKE \"P*\"");
+		assertSame(first, second);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.size());
+		assertThrows(UnsupportedOperationException.class, () -> second.clear());
+	}
+
+	@Test
+	void testEmptyResultsAreCached() {
+		var first = query("lastName = \"Nepostojeći\"");
+		assertEquals(List.of(), first);
+		assertSame(first, query("lastName = \"Nepostojeći\""));
+		assertEquals(1, database.getCache().getHits());
+		assertEquals(List.of(), database.execute(database.plan(new QueryParser("lastName = \"Nepostojeći\"").getQuery()), 0, 5));
+		assertEquals(2, database.getCache().getHits());
+	}
+
+	@Test
+	void testLimitAndOffsetUseCachedResult() {
+		var conditions = new QueryParser("lastName = \"Horvat\"").getQuery();
+		var all = database.query(conditions);
+		var plan = database.plan(conditions);
+		assertEquals(all.subList(10, 30), database.execute(plan, 10, 20));
+		assertEquals(List.of(), database.execute(plan, all.size() + 5, 20));
+		assertEquals(2, database.getCache().getHits());
+	}
+
+	@Test
+	void testInvalidation() {
+		var first = query("lastName = \"Horvat\"");
+		database.invalidateCache();
+		assertEquals(0, database.getCache().size());
+
+		var second = query("lastName = \"Horvat\"");
+		assertNotSame(first, second);
+		assertEquals(first, second);
+		assertEquals(0, database.getCache().getHits());
+	}
+
+	@Test
+	void testEviction() {
+		var cache = new QueryCache(2, 10);
+		var records = query("lastName = \"Horvat\"").subList(0, 4);
+
+		cache.put("a", records, 0);
+		cache.put("b", records, 0);
+		assertNotNull(cache.get("a", 0));
+		cache.put("c", records, 0);
+		assertNull(cache.get("b", 0));
+		assertNotNull(cache.get("a", 0));
+		assertEquals(1, cache.getEvictions());
+
+		cache.put("d", records, 0);
+		cache.put("e", records, 0);
+		cache.put("f", records, 0);
+		assertEquals(2, cache.size());
+		cache.put("big", query("lastName = \"Horvat\""), 0);
+		assertNull(cache.get("big", 0));
+
+		assertNotNull(cache.get("f", 0));
+		assertNull(cache.get("f", 1));
+		assertNull(cache.get("f", 0));
+	}
+
+	@Test
+	void testOlderVersionsDontReplaceNewer() {
+		var cache = new QueryCache(2, 10);
+		var newer = query("lastName = \"Horvat\"").subList(0, 4);
+		var older = newer.subList(0, 2);
+
+		cache.put("a", newer, 2);
+		cache.put("a", older, 1);
+		assertNull(cache.get("a", 1));
+		assertEquals(newer, cache.get("a", 2));
+
+		cache.put("a", older, 3);
+		assertEquals(older, cache.get("a", 3));
+	}
+}
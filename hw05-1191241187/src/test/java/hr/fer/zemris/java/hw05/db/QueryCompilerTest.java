@@ -0,0 +1,77 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QueryCompilerTest {
+
+	private List<StudentRecord> records;
+
+	@BeforeEach
+	private void createRecords() {
+		records = new ArrayList<>();
+		String[] lastNames = {"Anić", "Babić", "Pe", "Per", "Perić", "Perković", "Zekić", "Šimić"};
+		String[] firstNames = {"Ana", "Ivan", "Marija", "Aa", "A", "Petra"};
+		for(int i = 1; i <= 200; i++) {
+			records.add(new StudentRecord(String.format("%010d", i), firstNames[i % firstNames.length],
+					lastNames[i % lastNames.length], i % 5 + 1));
+		}
+	}
+
+	private void assertSameAsInterpreted(String query) {
+		var conditions = new QueryParser(query).getQuery();
+		var interpreted = new QueryFilter(conditions);
+		var compiled = QueryCompiler.compile(conditions);
+		for(var record : records) {
+			assertEquals(interpreted.accepts(record), compiled.accepts(record), query + " " + record.getLastName());
+		}
+	}
+
+	@Test
+	void testComparisons() {
+		assertSameAsInterpreted("lastName = \"Perić\"");
+		assertSameAsInterpreted("lastName != \"Perić\"");
+		assertSameAsInterpreted("firstName < \"Ivan\"");
+		assertSameAsInterpreted("firstName <= \"Ivan\"");
+		assertSameAsInterpreted("jmbag > \"0000000100\"");
+		assertSameAsInterpreted("jmbag >= \"0000000100\" and lastName < \"P\"");
+		assertSameAsInterpreted("lastName > \"Per\" and lastName <= \"Perić\"");
+		assertSameAsInterpreted("lastName >= \"Zekić\"");
+		assertSameAsInterpreted("firstName < \"Aa\"");
+	}
+
+	@Test
+	void testLike() {
+		assertSameAsInterpreted("lastName LIKE \"Perić\"");
+		assertSameAsInterpreted("lastName LIKE \"*\"");
+		assertSameAsInterpreted("lastName LIKE \"*ić\"");
+		assertSameAsInterpreted("lastName LIKE \"Per*\"");
+		assertSameAsInterpreted("lastName LIKE \"B*ić\"");
+		assertSameAsInterpreted("firstName LIKE \"A*a\"");
+		assertSameAsInterpreted("firstName LIKE \"A*a\" and lastName LIKE \"*ić\" and jmbag LIKE \"00*\"");
+
+		var prefix = QueryCompiler.compile(new QueryParser("lastName LIKE \"Per*\"").getQuery());
+		assertFalse(prefix.accepts(new StudentRecord("0000000001", "Ivo", "Pe", 1)));
+		assertTrue(prefix.accepts(new StudentRecord("0000000001", "Ivo", "Per", 1)));
+
+		assertSameAsInterpreted("lastName LIKE \"*o*ić\"");
+		assertSameAsInterpreted("lastName LIKE \"P?r*\" and firstName LIKE \"*a*a\"");
+		assertSameAsInterpreted("lastName LIKE \"*n*\"");
+		assertSame(QueryCompiler.REJECT_ALL,
+				QueryCompiler.compile(new QueryParser("lastName = \"Babić\" and lastName LIKE \"*o*\"").getQuery()));
+	}
+
+	@Test
+	void testFolding() {
+		assertSame(QueryCompiler.ACCEPT_ALL, QueryCompiler.compile(new QueryParser("lastName LIKE \"*\"").getQuery()));
+		assertSame(QueryCompiler.REJECT_ALL,
+				QueryCompiler.compile(new QueryParser("lastName = \"A\" and lastName = \"B\"").getQuery()));
+		assertSameAsInterpreted("lastName = \"Perić\" and lastName = \"Perić\"");
+	}
+
+}
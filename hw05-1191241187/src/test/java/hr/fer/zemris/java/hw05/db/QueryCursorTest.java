@@ -0,0 +1,96 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QueryCursorTest {
+
+	private StudentDatabase database;
+
+	@BeforeEach
+	private void createDatabase() {
+		database = TestDatabases.create(5000);
+	}
+
+	private void assertSameAsSublist(String query, int offset, int limit) {
+		var conditions = new QueryParser(query).getQuery();
+		var all = database.query(conditions);
+		int from = Math.min(offset, all.size());
+		int to = limit == QueryParser.NO_LIMIT ? all.size() : Math.min(all.size(), from + limit);
+		assertEquals(all.subList(from, to), database.execute(database.plan(conditions), offset, limit), query);
+	}
+
+	@Test
+	void testLimitAndOffset() {
+		assertSameAsSublist("lastName LIKE \"*ić\"", 0, 10);
+		assertSameAsSublist("lastName LIKE \"*ić\"", 1500, 10);
+		assertSameAsSublist("lastName LIKE \"*ić\"", 1020, 2000);
+		assertSameAsSublist("lastName LIKE \"*ić\"", 4990, QueryParser.NO_LIMIT);
+		assertSameAsSublist("lastName = \"Horvat\"", 100, 50);
+		assertSameAsSublist("jmbag = \"0000000042\"", 0, 1);
+		assertSameAsSublist("jmbag = \"0000000042\"", 1, 1);
+		assertSameAsSublist("lastName LIKE \"*ić\"", 0, 0);
+		assertSameAsSublist("lastName = \"A\" and lastName = \"B\"", 0, 5);
+	}
+
+	@Test
+	void testChunkBoundaries() {
+		for(int rows : new int[] {0, 1, QueryCursor.CHUNK_SIZE, QueryCursor.CHUNK_SIZE + 1}) {
+			database = TestDatabases.create(rows);
+			assertSameAsSublist("grade > 0", 0, QueryParser.NO_LIMIT);
+			assertSameAsSublist("grade > 0", rows, 10);
+			assertSameAsSublist("grade > 0", rows + 1, 10);
+			assertSameAsSublist("grade > 0", Math.max(rows - 1, 0), 2);
+			assertSameAsSublist("lastName = \"Nepostojeći\"", 0, 10);
+		}
+		var empty = TestDatabases.create(0);
+		assertFalse(empty.cursor(empty.plan(new ArrayList<>()), 0, 10).hasNext());
+	}
+
+	@Test
+	void testScanStopsAtLimit() {
+		var tested = new int[1];
+		var plan = database.plan(new ArrayList<>());
+		var cursor = new QueryCursor(new ListStudentStorage() {
+			{
+				for(var record : database.query(new ArrayList<>())) add(record);
+			}
+
+			@Override
+			public void filter(IFilter filter, int from, int to, java.util.List<StudentRecord> result) {
+				tested[0] += to - from;
+				super.filter(filter, from, to, result);
+			}
+		}, plan.getFilter(), null, 0, 5000, 0, 3);
+
+		int count = 0;
+		while(cursor.hasNext()) {
+			cursor.next();
+			count++;
+		}
+		assertEquals(3, count);
+		assertEquals(QueryCursor.CHUNK_SIZE, tested[0]);
+		assertThrows(NoSuchElementException.class, cursor::next);
+	}
+
+	@Test
+	void testStream() {
+		var conditions = new QueryParser("firstName = \"Ime3\"").getQuery();
+		assertEquals(database.query(conditions), database.stream(conditions).collect(Collectors.toList()));
+		assertEquals("0000000003", database.stream(conditions).findFirst().get().getJmbag());
+	}
+
+	@Test
+	void testNegativeArguments() {
+		var plan = database.plan(new ArrayList<>());
+		assertThrows(IllegalArgumentException.class, () -> database.cursor(plan, -1, 5));
+		assertThrows(IllegalArgumentException.class, () -> database.cursor(plan, 0, -5));
+	}
+
+}
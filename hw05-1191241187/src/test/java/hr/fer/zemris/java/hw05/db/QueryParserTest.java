@@ -32,5 +32,51 @@ class QueryParserTest {
 		assertEquals(1, qp1.getQuery().size());
 		assertEquals(2, qp2.getQuery().size());
 	}
+	
+	@Test
+	void testLimitAndOffset() {
+		assertEquals(QueryParser.NO_LIMIT, qp2.getLimit());
+		assertEquals(0, qp2.getOffset());
+		
+		var query = new QueryParser("lastName>\"J\" LIMIT 10 offset 20");
+		assertEquals(1, query.getQuery().size());
+		assertEquals(10, query.getLimit());
+		assertEquals(20, query.getOffset());
+		
+		query = new QueryParser("OFFSET 3");
+		assertEquals(0, query.getQuery().size());
+		assertEquals(QueryParser.NO_LIMIT, query.getLimit());
+		assertEquals(3, query.getOffset());
+		
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("LIMIT"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("LIMIT 1 LIMIT 2"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("LIMIT 1 lastName>\"J\""));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("lastName>\"J\" LIMIT x"));
+	}
+	
+	@Test
+	void testBooleanExpressions() {
+		var query = new QueryParser("lastName = \"A\" or firstName = \"B\" and jmbag > \"1\"");
+		assertFalse(query.isConjunctive());
+		assertFalse(query.isDirectQuery());
+		assertThrows(IllegalStateException.class, () -> query.getQuery());
+		assertTrue(query.getExpression() instanceof QueryExpressions.Or);
+		assertEquals("lastName = \"A\" OR firstName = \"B\" AND jmbag > \"1\"", query.getExpression().toString());
+		
+		var grouped = new QueryParser("(lastName = \"A\" or firstName = \"B\") and not (jmbag > \"1\") LIMIT 2");
+		assertEquals("(lastName = \"A\" OR firstName = \"B\") AND NOT jmbag > \"1\"", grouped.getExpression().toString());
+		assertEquals(2, grouped.getLimit());
+		
+		var nested = new QueryParser("(lastName = \"A\" and firstName = \"B\") and jmbag > \"1\"");
+		assertTrue(nested.isConjunctive());
+		assertEquals(3, nested.getQuery().size());
+		
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("lastName = \"A\" or"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("or lastName = \"A\""));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("(lastName = \"A\""));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("lastName = \"A\")"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("()"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("not"));
+	}
 
 }
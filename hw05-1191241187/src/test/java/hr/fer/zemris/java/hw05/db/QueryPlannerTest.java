@@ -0,0 +1,175 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QueryPlannerTest {
+
+	private List<String> entries;
+	private StudentDatabase database;
+
+	@BeforeEach
+	private void createDatabase() {
+		entries = new ArrayList<>(TestDatabases.entries(500));
+		entries.add(TestDatabases.entry(501, "Jedinstveni", "Ime1", 5));
+		database = new StudentDatabase(entries);
+	}
+
+	private QueryPlan plan(String query) {
+		return database.plan(new QueryParser(query).getQuery());
+	}
+
+	private void assertSameAsScan(String query) {
+		var conditions = new QueryParser(query).getQuery();
+		assertEquals(database.filter(new QueryFilter(conditions)), database.query(conditions), query);
+	}
+
+	@Test
+	void testContradictions() {
+		assertEquals(QueryPlan.AccessPath.NONE, plan("jmbag = \"0000000001\" and jmbag = \"0000000002\"").getAccessPath());
+		assertEquals(QueryPlan.AccessPath.NONE, plan("lastName < \"B\" and lastName > \"C\"").getAccessPath());
+		assertEquals(QueryPlan.AccessPath.NONE, plan("lastName < \"B\" and lastName >= \"B\"").getAccessPath());
+		assertEquals(QueryPlan.AccessPath.NONE, plan("firstName = \"Ime1\" and firstName != \"Ime1\"").getAccessPath());
+		assertEquals(QueryPlan.AccessPath.NONE, plan("lastName LIKE \"Pe*\" and lastName LIKE \"Ba*\"").getAccessPath());
+		assertEquals(QueryPlan.AccessPath.NONE, plan("lastName LIKE \"Pe*\" and lastName = \"Babić\"").getAccessPath());
+		assertEquals(QueryPlan.AccessPath.NONE, plan("lastName LIKE \"Pe*\" and lastName < \"Pe\"").getAccessPath());
+
+		assertNotEquals(QueryPlan.AccessPath.NONE, plan("lastName <= \"B\" and lastName >= \"B\"").getAccessPath());
+		assertNotEquals(QueryPlan.AccessPath.NONE, plan("lastName LIKE \"Pe*\" and lastName LIKE \"Per*\"").getAccessPath());
+		assertNotEquals(QueryPlan.AccessPath.NONE, plan("jmbag = \"0000000001\" and firstName = \"Ime1\"").getAccessPath());
+
+		assertTrue(database.query(new QueryParser("lastName < \"B\" and lastName > \"C\"").getQuery()).isEmpty());
+	}
+
+	@Test
+	void testAccessPaths() {
+		assertEquals(QueryPlan.AccessPath.JMBAG_LOOKUP,
+				plan("lastName = \"Jedinstveni\" and jmbag = \"0000000501\"").getAccessPath());
+
+		var indexPlan = plan("firstName = \"Ime1\" and lastName = \"Jedinstveni\"");
+		assertEquals(QueryPlan.AccessPath.INDEX_RANGE, indexPlan.getAccessPath());
+		assertSame(FieldValueGetters.LAST_NAME, indexPlan.getIndex().getField());
+		assertEquals(1, indexPlan.getPredicates().size());
+
+		assertEquals(QueryPlan.AccessPath.FULL_SCAN, plan("lastName > \"A\"").getAccessPath());
+		assertEquals(QueryPlan.AccessPath.FULL_SCAN, plan("lastName LIKE \"*ić\"").getAccessPath());
+	}
+
+	@Test
+	void testPatternPrefixRange() {
+		var plan = plan("lastName LIKE \"Jed*i\"");
+		assertEquals(QueryPlan.AccessPath.INDEX_RANGE, plan.getAccessPath());
+		assertEquals(1, plan.getPredicates().size());
+		assertSameAsScan("lastName LIKE \"Jed*i\"");
+		assertSameAsScan("lastName LIKE \"Pe?k*\" and firstName != \"Ime2\"");
+		assertSameAsScan("lastName LIKE \"P*i*ć\"");
+
+		plan = plan("lastName LIKE \"Jedin*\"");
+		assertEquals(QueryPlan.AccessPath.INDEX_RANGE, plan.getAccessPath());
+		assertEquals(0, plan.getPredicates().size());
+	}
+
+	@Test
+	void testPredicateOrder() {
+		var plan = plan("lastName != \"Zekić\" and lastName LIKE \"*ić\" and firstName = \"Ime3\"");
+		assertEquals(QueryPlan.AccessPath.INDEX_RANGE, plan.getAccessPath());
+		assertSame(FieldValueGetters.FIRST_NAME, plan.getIndex().getField());
+
+		var predicates = plan.getPredicates();
+		assertEquals(2, predicates.size());
+		assertSame(ComparisonOperators.LIKE, predicates.get(0).getComparisonOperator());
+		assertSame(ComparisonOperators.NOT_EQUALS, predicates.get(1).getComparisonOperator());
+	}
+
+	@Test
+	void testStatistics() {
+		var statistics = new FieldStatistics(new SortedIndex(new ListStudentStorage(), FieldValueGetters.LAST_NAME));
+		assertEquals(0, statistics.selectivity(ComparisonOperators.EQUALS, "Anić"));
+
+		database.buildIndexes();
+		var plan = plan("lastName = \"Babić\"");
+		assertTrue(plan.getEstimatedRows() > 0 && plan.getEstimatedRows() <= 501);
+		assertEquals(0, plan("lastName = \"Aaaa\"").getEstimatedRows());
+	}
+
+	@Test
+	void testPlansMatchFullScan() {
+		assertSameAsScan("lastName LIKE \"*ić\" and lastName != \"Zekić\" and firstName = \"Ime3\"");
+		assertSameAsScan("firstName = \"Ime1\" and lastName = \"Jedinstveni\"");
+		assertSameAsScan("jmbag = \"0000000501\" and lastName = \"Jedinstveni\"");
+		assertSameAsScan("jmbag = \"0000000501\" and lastName = \"Babić\"");
+		assertSameAsScan("lastName >= \"B\" and lastName < \"P\" and firstName > \"Ime4\"");
+		assertSameAsScan("lastName < \"B\" and lastName > \"C\"");
+	}
+
+	@Test
+	void testEmptyAndSingleRowDatabases() {
+		database = new StudentDatabase(List.of());
+		assertEquals(0, plan("lastName = \"Babić\"").getEstimatedRows());
+		assertSameAsScan("lastName = \"Babić\"");
+		assertSameAsScan("lastName LIKE \"Pe*\" and firstName = \"Ime1\"");
+		assertSameAsScan("jmbag = \"0000000001\"");
+
+		database = new StudentDatabase(List.of(TestDatabases.entry(1, "Babić", "Ime1", 5)));
+		assertEquals(QueryPlan.AccessPath.JMBAG_LOOKUP, plan("jmbag = \"0000000001\"").getAccessPath());
+		assertSameAsScan("lastName = \"Babić\"");
+		assertSameAsScan("lastName < \"Babić\"");
+		assertSameAsScan("lastName LIKE \"Bab*\" and firstName != \"Ime1\"");
+	}
+
+	@Test
+	void testExplain() {
+		String text = plan("jmbag = \"0000000501\" and firstName = \"Ime1\"").explain();
+		assertTrue(text.contains("jmbag index lookup"), text);
+		assertTrue(text.contains("firstName = \"Ime1\""), text);
+		assertTrue(plan("jmbag = \"1\" and jmbag = \"2\"").explain().contains("contradictory"));
+	}
+
+	private void assertTreeSameAsScan(StudentDatabase database, String query) {
+		var expression = new QueryParser(query).getExpression();
+		var expected = database.filter(new QueryFilter(expression));
+		assertEquals(expected, database.query(expression), query);
+		assertEquals(expected, database.filter(QueryCompiler.compile(expression)), query);
+	}
+
+	@Test
+	void testExpressionTrees() {
+		var union = database.plan(new QueryParser("lastName = \"Babić\" or lastName = \"Zekić\"").getExpression());
+		assertEquals(QueryPlan.AccessPath.ROW_SET, union.getAccessPath());
+		assertEquals(database.query(new QueryParser("lastName = \"Babić\"").getQuery()).size()
+				+ database.query(new QueryParser("lastName = \"Zekić\"").getQuery()).size(), union.getRows().length);
+		assertTrue(union.explain().contains("union"), union.explain());
+
+		var intersection = database.plan(new QueryParser(
+				"firstName = \"Ime1\" and (lastName = \"Babić\" or lastName = \"Perić\" or jmbag = \"0000000501\")").getExpression());
+		assertEquals(QueryPlan.AccessPath.ROW_SET, intersection.getAccessPath());
+		assertTrue(intersection.getRows().length < database.getStatistics(FieldValueGetters.FIRST_NAME).getRows() / 9 + 1);
+
+		assertEquals(QueryPlan.AccessPath.FULL_SCAN,
+				database.plan(new QueryParser("lastName LIKE \"*ić\" or firstName = \"Ime1\"").getExpression()).getAccessPath());
+		assertEquals(QueryPlan.AccessPath.NONE,
+				database.plan(new QueryParser("not lastName LIKE \"*\"").getExpression()).getAccessPath());
+
+		var columnar = new StudentDatabase(entries, new ColumnarStudentStorage());
+		String[] queries = {
+				"lastName = \"Babić\" or lastName = \"Zekić\"",
+				"firstName = \"Ime1\" and (lastName = \"Babić\" or lastName = \"Perić\" or jmbag = \"0000000501\")",
+				"lastName LIKE \"*ić\" and not (firstName = \"Ime1\" or firstName > \"Ime6\")",
+				"not lastName = \"Babić\" and (jmbag < \"0000000100\" or lastName LIKE \"P*ić\")",
+				"(lastName LIKE \"A*\" or lastName LIKE \"Z*\") and (firstName = \"Ime2\" or not firstName != \"Ime3\")",
+				"not not jmbag = \"0000000042\" or lastName = \"Jedinstveni\""
+		};
+		for(var query : queries) {
+			assertTreeSameAsScan(database, query);
+			assertTreeSameAsScan(columnar, query);
+			assertEquals(database.query(new QueryParser(query).getExpression()),
+					columnar.query(new QueryParser(query).getExpression()), query);
+		}
+	}
+
+}
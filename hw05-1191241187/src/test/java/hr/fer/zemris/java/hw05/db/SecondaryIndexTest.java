@@ -0,0 +1,82 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SecondaryIndexTest {
+
+	private StudentDatabase database;
+	
+	@BeforeEach
+	private void createDatabase() {
+		String[] lastNames = {"Per", "Perić", "Perković", "Anić", "Zekić", "Šimić", "Babić"};
+		var entries = new ArrayList<String>();
+		for(int i = 1; i <= 500; i++) {
+			entries.add(TestDatabases.entry(i, lastNames[i * 3 % lastNames.length], "Ime" + i % 9, i % 5 + 1));
+		}
+		database = new StudentDatabase(entries);
+	}
+	
+	private void assertSameAsScan(String query) {
+		var conditions = new QueryParser(query).getQuery();
+		assertEquals(database.filter(new QueryFilter(conditions)), database.query(conditions), query);
+	}
+	
+	@Test
+	void testRangeScansMatchFullScan() {
+		assertSameAsScan("lastName = \"Babić\"");
+		assertSameAsScan("lastName < \"Babić\"");
+		assertSameAsScan("lastName <= \"Babić\"");
+		assertSameAsScan("lastName > \"Perić\"");
+		assertSameAsScan("lastName >= \"Perić\"");
+		assertSameAsScan("lastName LIKE \"Per*\"");
+		assertSameAsScan("lastName LIKE \"A*\" and firstName = \"Ime3\"");
+		assertSameAsScan("firstName > \"Ime7\" and lastName != \"Zekić\"");
+		assertSameAsScan("lastName LIKE \"*ić\"");
+		assertSameAsScan("jmbag = \"0000000042\" and lastName > \"A\"");
+		assertSameAsScan("lastName = \"Nepostojeći\"");
+	}
+	
+	@Test
+	void testRangeEdges() {
+		assertSameAsScan("lastName = \"Per\"");
+		assertSameAsScan("lastName LIKE \"Per*\"");
+		assertSameAsScan("lastName > \"Per\" and lastName < \"Perković\"");
+		assertSameAsScan("lastName < \"Anić\"");
+		assertSameAsScan("lastName <= \"Anić\"");
+		assertSameAsScan("lastName > \"Zekić\"");
+		assertSameAsScan("lastName >= \"Šimić\"");
+		assertSameAsScan("lastName LIKE \"Ž*\"");
+		assertEquals(0, database.query(new QueryParser("lastName > \"Šimić\"").getQuery()).size());
+	}
+	
+	@Test
+	void testEmptyDatabase() {
+		database = new StudentDatabase(List.of());
+		assertSameAsScan("lastName = \"Per\"");
+		assertSameAsScan("lastName LIKE \"P*\"");
+		assertSameAsScan("firstName >= \"Ime1\"");
+		assertEquals(0, database.getGradeIndex().rows(1).length);
+	}
+	
+	@Test
+	void testGradeBitmap() {
+		var index = database.getGradeIndex();
+		int total = 0;
+		for(int grade = 1; grade <= 5; grade++) {
+			int[] rows = index.rows(grade);
+			assertEquals(100, rows.length);
+			for(int row : rows) {
+				assertEquals((row + 1) % 5 + 1, grade);
+			}
+			total += rows.length;
+		}
+		assertEquals(500, total);
+	}
+
+}
@@ -0,0 +1,53 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.zemris.java.hw05.db.StatementParser.Kind;
+
+class StatementParserTest {
+
+	@Test
+	void testInsert() {
+		var statement = new StatementParser(Kind.INSERT, " \"0000000064\" \"Novak\" \"Ana Marija\" 5");
+		assertEquals(new StudentRecord("0000000064", "Ana Marija", "Novak", 5).toString(), statement.getRecord().toString());
+		assertNull(statement.getExpression());
+
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.INSERT, "\"0000000064\" \"Novak\" \"Ana\" 6"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.INSERT, "\"64\" \"Novak\" \"Ana\" 5"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.INSERT, "\"0000000064\" \"Novak\" 5"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.INSERT, "\"0000000064\" \"Novak\" \"Ana\" 5 5"));
+	}
+
+	@Test
+	void testUpdate() {
+		var statement = new StatementParser(Kind.UPDATE, "grade = 4, lastName = \"Horvat\" WHERE jmbag = \"0000000001\" OR grade < 2");
+		assertEquals(Map.of(FieldValueGetters.GRADE, "4", FieldValueGetters.LAST_NAME, "Horvat"), statement.getAssignments());
+		assertEquals("jmbag = \"0000000001\" OR grade < \"2\"", statement.getExpression().toString());
+
+		var changed = statement.getChange().apply(new StudentRecord("0000000001", "Ana", "Novak", 1));
+		assertEquals("Ana", changed.getFirstName());
+		assertEquals("Horvat", changed.getLastName());
+		assertEquals(4, changed.getGrade());
+
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.UPDATE, "jmbag = \"0000000002\" where grade = 1"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.UPDATE, "grade = 0 where grade = 1"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.UPDATE, "grade = \"4\" where grade = 1"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.UPDATE, "grade = 4, grade = 3 where grade = 1"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.UPDATE, "grade > 4 where grade = 1"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.UPDATE, "grade = 4"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.UPDATE, "grade = 4 where"));
+	}
+
+	@Test
+	void testDelete() {
+		assertEquals("NOT grade = \"5\"", new StatementParser(Kind.DELETE, "not grade = 5").getExpression().toString());
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.DELETE, ""));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.DELETE, "grade = 5 LIMIT 2"));
+		assertThrows(IllegalArgumentException.class, () -> new StatementParser(Kind.DELETE, "grade = 5 ORDER BY jmbag"));
+	}
+
+}
@@ -0,0 +1,54 @@
+package hr.fer.zemris.java.hw05.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TestDatabases is a class with the entries of the databases the tests are run on.
+ */
+final class TestDatabases {
+
+	/**
+	 * Last names of the entries made by {@link #entries(int)}.
+	 */
+	static final String[] LAST_NAMES = {"Anić", "Antić", "Babić", "Bosnić", "Perić", "Perković", "Zekić", "Horvat"};
+
+	private TestDatabases() {
+	}
+
+	/**
+	 * A method which formats an entry of the database file.
+	 * @param jmbag - the jmbag, as a number.
+	 * @param lastName - the last name.
+	 * @param firstName - the first name.
+	 * @param grade - the grade.
+	 * @return the entry.
+	 */
+	static String entry(int jmbag, String lastName, String firstName, int grade) {
+		return String.format("%010d\t%s\t%s\t%d", jmbag, lastName, firstName, grade);
+	}
+
+	/**
+	 * A method which makes entries with consecutive jmbags from 1. Entry {@code i} has the
+	 * last name {@code LAST_NAMES[i * 3 % 8]}, the first name {@code "Ime" + i % 9} and
+	 * the grade {@code i % 5 + 1}.
+	 * @param rows - number of entries.
+	 * @return the entries.
+	 */
+	static List<String> entries(int rows) {
+		var entries = new ArrayList<String>(rows);
+		for(int i = 1; i <= rows; i++) {
+			entries.add(entry(i, LAST_NAMES[i * 3 % LAST_NAMES.length], "Ime" + i % 9, i % 5 + 1));
+		}
+		return entries;
+	}
+
+	/**
+	 * A method which makes a database of the entries made by {@link #entries(int)}.
+	 * @param rows - number of entries.
+	 * @return the database.
+	 */
+	static StudentDatabase create(int rows) {
+		return new StudentDatabase(entries(rows));
+	}
+}
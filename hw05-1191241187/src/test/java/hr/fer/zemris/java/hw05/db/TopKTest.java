@@ -0,0 +1,150 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+	private List<String> entries;
+
+	private StudentDatabase database;
+
+	@BeforeEach
+	private void createDatabase() {
+		createDatabase(5_000, TestDatabases.LAST_NAMES);
+	}
+
+	private void createDatabase(int rows, String... lastNames) {
+		entries = new ArrayList<>();
+		for(int i = 1; i <= rows; i++) {
+			entries.add(TestDatabases.entry(i, lastNames[i * 7 % lastNames.length], "Ime" + i * 31 % 97, i % 5 + 1));
+		}
+		database = new StudentDatabase(entries);
+	}
+
+	private static List<StudentRecord> manually(StudentDatabase database, QueryParser query) {
+		var ordering = query.getOrdering();
+		Comparator<StudentRecord> comparator = ordering.isNumeric()
+				? Comparator.comparingInt(StudentRecord::getGrade)
+				: Comparator.comparing(ordering.getField()::get);
+
+		var list = new ArrayList<>(database.filter(new QueryFilter(query.getExpression())));
+		if(ordering.isDescending()) {
+			Collections.reverse(list);
+			comparator = comparator.reversed();
+		}
+		list.sort(comparator);
+
+		int from = Math.min(query.getOffset(), list.size());
+		int to = query.getLimit() == QueryParser.NO_LIMIT ? list.size() : Math.min(list.size(), from + query.getLimit());
+		return list.subList(from, to);
+	}
+
+	private static List<StudentRecord> ordered(StudentDatabase database, QueryParser query) {
+		var plan = database.plan(query.getExpression());
+		return database.execute(plan, query.getOrdering(), query.getOffset(), query.getLimit());
+	}
+
+	private void assertSameAsSorted(String text) {
+		var query = new QueryParser(text);
+		var expected = manually(database, query);
+		assertEquals(expected, ordered(database, query), text);
+
+		var columnar = new StudentDatabase(entries, new ColumnarStudentStorage());
+		assertEquals(expected, ordered(columnar, query), text);
+
+		columnar.setParallelism(2);
+		columnar.setParallelThreshold(1);
+		assertEquals(expected, ordered(columnar, query), text);
+		columnar.setParallelism(1);
+	}
+
+	@Test
+	void testOrderedQueriesAreSameAsSorted() {
+		assertSameAsSorted("firstName LIKE \"*3*\" ORDER BY grade LIMIT 20");
+		assertSameAsSorted("ORDER BY grade DESC LIMIT 50 OFFSET 7");
+		assertSameAsSorted("lastName != \"Horvat\" ORDER BY jmbag DESC LIMIT 10");
+		assertSameAsSorted("grade = 3 OR firstName = \"Ime5\" ORDER BY firstName");
+		assertSameAsSorted("jmbag < \"0000000100\" ORDER BY lastName ASC");
+		assertSameAsSorted("grade > 5 ORDER BY lastName LIMIT 3");
+		assertSameAsSorted("ORDER BY firstName LIMIT 0");
+	}
+
+	@Test
+	void testTiesAndTinyDatabases() {
+		createDatabase(3_000, "Horvat");
+		assertSameAsSorted("ORDER BY lastName LIMIT 5 OFFSET 1000");
+		assertSameAsSorted("lastName = \"Horvat\" ORDER BY lastName DESC LIMIT 5");
+		assertSameAsSorted("ORDER BY grade LIMIT 3");
+
+		for(int rows : new int[] {0, 1}) {
+			createDatabase(rows, TestDatabases.LAST_NAMES);
+			assertSameAsSorted("ORDER BY lastName LIMIT 5");
+			assertSameAsSorted("ORDER BY grade DESC LIMIT 5 OFFSET 1");
+			assertSameAsSorted("grade > 0 ORDER BY firstName");
+		}
+	}
+
+	@Test
+	void testSortedIndexIsStreamed() {
+		var query = new QueryParser("grade >= 2 ORDER BY lastName DESC LIMIT 10 OFFSET 2");
+		var plan = database.plan(query.getExpression());
+		assertNotNull(database.orderIndex(plan, query.getOrdering(), query.getOffset(), query.getLimit()));
+		assertSameAsSorted("grade >= 2 ORDER BY lastName DESC LIMIT 10 OFFSET 2");
+
+		query = new QueryParser("lastName LIKE \"B*\" ORDER BY lastName LIMIT 5");
+		plan = database.plan(query.getExpression());
+		assertEquals(QueryPlan.AccessPath.INDEX_RANGE, plan.getAccessPath());
+		assertNotNull(database.orderIndex(plan, query.getOrdering(), query.getOffset(), query.getLimit()));
+		assertSameAsSorted("lastName LIKE \"B*\" ORDER BY lastName LIMIT 5");
+
+		query = new QueryParser("firstName = \"Ime1\" ORDER BY lastName LIMIT 5");
+		plan = database.plan(query.getExpression());
+		assertNull(database.orderIndex(plan, query.getOrdering(), query.getOffset(), query.getLimit()));
+		assertSameAsSorted("firstName = \"Ime1\" ORDER BY lastName LIMIT 5");
+	}
+
+	@Test
+	void testPartialsAreMerged() {
+		var ordering = new Ordering(FieldValueGetters.LAST_NAME, false);
+		var all = database.filter(record -> true);
+
+		var topK = new TopK(ordering, 3, 10);
+		var first = topK.newPartial(0);
+		var second = topK.newPartial(2_500);
+		all.subList(0, 2_500).forEach(first);
+		all.subList(2_500, all.size()).forEach(second);
+		topK.merge(first);
+		topK.merge(second);
+
+		var sequential = new TopK(ordering, 3, 10);
+		all.forEach(sequential);
+		assertEquals(sequential.getResults(), topK.getResults());
+		assertEquals(10, topK.getResults().size());
+	}
+
+	@Test
+	void testParsing() {
+		var query = new QueryParser("lastName > \"B\" LIMIT 5 ORDER BY grade desc OFFSET 2");
+		assertEquals(new Ordering(FieldValueGetters.GRADE, true), query.getOrdering());
+		assertEquals(5, query.getLimit());
+		assertEquals(2, query.getOffset());
+		assertEquals(new Ordering(FieldValueGetters.JMBAG, false), new QueryParser("ORDER BY jmbag").getOrdering());
+		assertNull(new QueryParser("jmbag = \"1\"").getOrdering());
+
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("ORDER lastName"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("ORDER BY \"lastName\""));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("ORDER BY lastName ORDER BY grade"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("ORDER BY lastName DESC ASC"));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("COUNT grade > 1 ORDER BY grade"));
+		assertThrows(IllegalArgumentException.class, () -> new TopK(new Ordering(FieldValueGetters.GRADE, false), -1, 3));
+	}
+
+}
@@ -0,0 +1,176 @@
+package hr.fer.zemris.java.hw05.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WriteAheadLogTest {
+
+	@TempDir
+	Path directory;
+
+	private Path source;
+	private Path logFile;
+
+	@BeforeEach
+	private void writeSource() throws IOException {
+		source = directory.resolve("database.txt");
+		logFile = directory.resolve("database.log");
+		var content = new StringBuilder();
+		for(int i = 1; i <= 1000; i++) {
+			content.append(String.format("%010d\tPrezimić%d\tIme%d\t%d\n", i, i % 13, i % 3, i % 5 + 1));
+		}
+		Files.write(source, content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private StudentDatabase open() throws IOException {
+		var database = MappedDatabaseLoader.load(source, new ListStudentStorage());
+		database.openLog(source, logFile);
+		return database;
+	}
+
+	private static IQueryExpression where(String conditions) {
+		return new QueryParser(conditions).getExpression();
+	}
+
+	private static List<StudentRecord> all(StudentDatabase database) {
+		return database.filter(record -> true);
+	}
+
+	@Test
+	void testChangesAreReplayed() throws IOException {
+		var database = open();
+		database.insert(new StudentRecord("0000001001", "Ana", "Novak", 5));
+		assertEquals(2, database.update(where("jmbag < \"0000000003\""),
+				record -> new StudentRecord(record.getJmbag(), "Iva", record.getLastName(), 1)));
+		assertEquals(199, database.delete(where("grade = 3")));
+		var expected = all(database);
+		database.getLog().close();
+
+		var reopened = open();
+		assertEquals(expected.toString(), all(reopened).toString());
+		assertEquals("Iva", reopened.forJMBAG("0000000002").getFirstName());
+		assertNull(reopened.forJMBAG("0000000007"));
+		assertEquals(0, reopened.query(where("grade = 3")).size());
+		reopened.getLog().close();
+	}
+
+	@Test
+	void testTornBatchIsDropped() throws IOException {
+		var database = open();
+		database.insert(new StudentRecord("0000001001", "Ana", "Novak", 5));
+		database.getLog().close();
+		long committed = Files.size(logFile);
+		Files.write(logFile, "I\t0000001002\tNovak\tIva\t4\nC\t0\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		Files.write(logFile, "D\t0000000001\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		var reopened = open();
+		assertNotNull(reopened.forJMBAG("0000001001"));
+		assertNull(reopened.forJMBAG("0000001002"));
+		assertNotNull(reopened.forJMBAG("0000000001"));
+		assertEquals(committed, Files.size(logFile));
+		reopened.getLog().close();
+	}
+
+	@Test
+	void testCheckpoint() throws IOException {
+		var database = open();
+		database.setCheckpointSize(500);
+		for(int i = 0; i < 40; i++) {
+			database.insert(new StudentRecord(String.format("%010d", 2000 + i), "Ana", "Novak", i % 5 + 1));
+		}
+		assertTrue(Files.size(logFile) <= 500);
+		database.checkpoint();
+		assertEquals(0, Files.size(logFile));
+		var expected = all(database);
+		database.getLog().close();
+
+		var reloaded = MappedDatabaseLoader.load(source, new ListStudentStorage());
+		assertEquals(expected.toString(), all(reloaded).toString());
+	}
+
+	@Test
+	void testValidation() throws IOException {
+		var database = open();
+		assertThrows(IllegalArgumentException.class, () -> database.insert(new StudentRecord("0000000001", "A", "B", 1)));
+		assertThrows(IllegalArgumentException.class, () -> database.insert(new StudentRecord("0000002001", "A\tB", "B", 1)));
+		assertThrows(IllegalArgumentException.class, () -> database.update(where("grade = 1"),
+				record -> new StudentRecord("0000009999", "A", "B", 1)));
+		assertThrows(IllegalArgumentException.class, () -> database.update(where("grade = 1"),
+				record -> new StudentRecord(record.getJmbag(), "A", "B", 6)));
+		assertEquals(200, database.query(where("grade = 1")).size());
+		assertEquals(0, Files.size(logFile));
+
+		var columnar = new StudentDatabase(List.of("0000000001\tA\tB\t1"), new ColumnarStudentStorage());
+		assertThrows(UnsupportedOperationException.class, () -> columnar.delete(where("grade = 1")));
+		database.getLog().close();
+	}
+
+	@Test
+	void testIndexesFollowChanges() throws IOException {
+		var database = new StudentDatabase(List.of("0000000001\tAnić\tAna\t1", "0000000002\tBabić\tIva\t2"));
+		database.insert(new StudentRecord("0000000003", "Eva", "Cerić", 3));
+		assertEquals(1, database.query(where("lastName LIKE \"C*\"")).size());
+		database.update(where("jmbag = \"0000000001\""), record -> new StudentRecord(record.getJmbag(), "Ana", "Zekić", 5));
+		assertEquals(1, database.query(where("lastName = \"Zekić\" AND grade = 5")).size());
+		assertEquals(2, database.delete(where("lastName > \"B\" AND lastName < \"Z\"")));
+		assertEquals(List.of("0000000001"), List.of(database.filter(record -> true).get(0).getJmbag()));
+		assertEquals(1, database.query(where("grade < 10")).size());
+	}
+
+	@Test
+	void testGroupCommit() throws Exception {
+		var database = open();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> writes = new ArrayList<>();
+			for(int i = 0; i < 400; i++) {
+				var record = new StudentRecord(String.format("%010d", 5000 + i), "Ana", "Novak", i % 5 + 1);
+				writes.add(executor.submit(() -> {
+					database.insert(record);
+					return null;
+				}));
+			}
+			for(var write : writes) write.get();
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(database.getLog().getSyncs() <= 400);
+		database.getLog().close();
+
+		var reopened = open();
+		assertEquals(1400, all(reopened).size());
+		reopened.getLog().close();
+	}
+
+	@Test
+	void testFailedAppendLeavesDatabaseUnchanged() throws IOException {
+		var database = open();
+		var before = all(database);
+		database.getLog().close();
+
+		assertThrows(IOException.class, () -> database.insert(new StudentRecord("0000001001", "Ana", "Novak", 5)));
+		assertThrows(IOException.class, () -> database.update(where("grade = 1"),
+				record -> new StudentRecord(record.getJmbag(), record.getFirstName(), record.getLastName(), 2)));
+		assertThrows(IOException.class, () -> database.delete(where("grade = 3")));
+
+		assertEquals(before, all(database));
+		assertNull(database.forJMBAG("0000001001"));
+		assertEquals(200, database.query(where("grade = 1")).size());
+		assertEquals(200, database.query(where("grade = 3")).size());
+	}
+
+}
@@ -0,0 +1,77 @@
+package hr.fer.zemris.java.hw05.db.lexer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.zemris.java.hw05.db.ComparisonOperators;
+import hr.fer.zemris.java.hw05.db.FieldValueGetters;
+import hr.fer.zemris.java.hw05.db.QueryParser;
+
+class LexerTest {
+
+	private void assertToken(Lexer lexer, TokenType type, Object value) {
+		var token = lexer.nextToken();
+		assertEquals(type, token.getType());
+		assertEquals(value, token.getValue());
+	}
+
+	@Test
+	void testTokens() {
+		var lexer = new Lexer(" jmbag<=\"0000000003\" and\tlastName LIKE \"B*\" AND firstName!=? limit 10 Offset 2");
+		assertToken(lexer, TokenType.FIELD, FieldValueGetters.JMBAG);
+		assertToken(lexer, TokenType.OPERATOR, ComparisonOperators.LESS_OR_EQUALS);
+		assertToken(lexer, TokenType.STRING, "0000000003");
+		assertToken(lexer, TokenType.AND, null);
+		assertToken(lexer, TokenType.FIELD, FieldValueGetters.LAST_NAME);
+		assertEquals(25, lexer.getPosition());
+		assertToken(lexer, TokenType.OPERATOR, ComparisonOperators.LIKE);
+		assertToken(lexer, TokenType.STRING, "B*");
+		assertToken(lexer, TokenType.AND, null);
+		assertToken(lexer, TokenType.FIELD, FieldValueGetters.FIRST_NAME);
+		assertToken(lexer, TokenType.OPERATOR, ComparisonOperators.NOT_EQUALS);
+		assertToken(lexer, TokenType.PARAMETER, null);
+		assertToken(lexer, TokenType.LIMIT, null);
+		assertToken(lexer, TokenType.NUMBER, 10);
+		assertToken(lexer, TokenType.OFFSET, null);
+		assertToken(lexer, TokenType.NUMBER, 2);
+		assertToken(lexer, TokenType.EOF, null);
+		assertThrows(LexerException.class, () -> lexer.nextToken());
+	}
+
+	@Test
+	void testOperatorsAtEndOfText() {
+		assertToken(new Lexer("<"), TokenType.OPERATOR, ComparisonOperators.LESS);
+		assertToken(new Lexer(">"), TokenType.OPERATOR, ComparisonOperators.GREATER);
+		assertToken(new Lexer(">="), TokenType.OPERATOR, ComparisonOperators.GREATER_OR_EQUALS);
+		assertToken(new Lexer("42"), TokenType.NUMBER, 42);
+		assertToken(new Lexer(""), TokenType.EOF, null);
+	}
+
+	@Test
+	void testErrorsHavePositions() {
+		var unterminated = new Lexer("lastName = \"Bab");
+		unterminated.nextToken();
+		unterminated.nextToken();
+		assertEquals(11, assertThrows(LexerException.class, () -> unterminated.nextToken()).getPosition());
+
+		var lexer = new Lexer("jmbag = \"1\" xor");
+		lexer.nextToken();
+		lexer.nextToken();
+		lexer.nextToken();
+		assertEquals(12, assertThrows(LexerException.class, () -> lexer.nextToken()).getPosition());
+
+		assertThrows(LexerException.class, () -> new Lexer("!").nextToken());
+		assertThrows(LexerException.class, () -> new Lexer("L").nextToken());
+		assertThrows(LexerException.class, () -> new Lexer("jmbags").nextToken());
+		assertThrows(LexerException.class, () -> new Lexer("99999999999").nextToken());
+	}
+
+	@Test
+	void testParserReportsPosition() {
+		var e = assertThrows(IllegalArgumentException.class, () -> new QueryParser("lastName = \"A\" and firstName \"B\""));
+		assertTrue(e.getMessage().contains("position 29"), e.getMessage());
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("lastName ="));
+		assertThrows(IllegalArgumentException.class, () -> new QueryParser("lastName = \"A"));
+	}
+}
@@ -0,0 +1,61 @@
+package hr.fer.zemris.java.hw05.db.output;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.zemris.java.hw05.db.StudentRecord;
+
+class RendererTest {
+
+	private List<StudentRecord> records = List.of(
+			new StudentRecord("0000000003", "Andrea", "Bosnić", 4),
+			new StudentRecord("0000000004", "Marin", "Božić", 5));
+
+	private String render(IRecordRenderer renderer, List<StudentRecord> records) throws IOException {
+		var out = new StringWriter();
+		assertEquals(records.size(), renderer.render(records.iterator(), out));
+		return out.toString();
+	}
+
+	@Test
+	void testTable() throws IOException {
+		assertEquals("+============+========+========+===+\n"
+				+ "| 0000000003 | Bosnić | Andrea | 4 |\n"
+				+ "| 0000000004 | Božić  | Marin  | 5 |\n"
+				+ "+============+========+========+===+\n"
+				+ "Records selected: 2\n", render(TableRenderer.fitting(records), records));
+
+		assertEquals("Records selected: 0\n", render(TableRenderer.fitting(List.of()), List.of()));
+	}
+
+	@Test
+	void testStreamedTableIsPaddedToGivenWidths() throws IOException {
+		String table = render(new TableRenderer(10, 100, 7), records);
+		assertTrue(table.contains("| Božić" + " ".repeat(95) + " | Marin   | 5 |\n"));
+	}
+
+	@Test
+	void testCsv() throws IOException {
+		var quoted = List.of(new StudentRecord("0000000001", "Ana \"Mala\"", "Horvat, ml.", 2));
+		assertEquals("jmbag,lastName,firstName,grade\n"
+				+ "0000000001,\"Horvat, ml.\",\"Ana \"\"Mala\"\"\",2\n", render(new CsvRenderer(), quoted));
+		assertTrue(render(new CsvRenderer(), records).endsWith("0000000004,Božić,Marin,5\n"));
+	}
+
+	@Test
+	void testJsonLines() throws IOException {
+		assertEquals("{\"jmbag\":\"0000000003\",\"lastName\":\"Bosnić\",\"firstName\":\"Andrea\",\"grade\":4}\n"
+				+ "{\"jmbag\":\"0000000004\",\"lastName\":\"Božić\",\"firstName\":\"Marin\",\"grade\":5}\n",
+				render(new JsonLinesRenderer(), records));
+
+		var escaped = List.of(new StudentRecord("0000000001", "A\\\"\t", "B", 2));
+		assertEquals("{\"jmbag\":\"0000000001\",\"lastName\":\"B\",\"firstName\":\"A\\\\\\\"\\u0009\",\"grade\":2}\n",
+				render(new JsonLinesRenderer(), escaped));
+	}
+
+}